@@ -20,6 +20,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -28,6 +29,8 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.io.CharSource;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.inject.Guice;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
@@ -40,8 +43,10 @@ import com.google.template.soy.base.internal.SoyFileSupplier;
 import com.google.template.soy.base.internal.VolatileSoyFileSupplier;
 import com.google.template.soy.basetree.SyntaxVersion;
 import com.google.template.soy.conformance.CheckConformance;
+import com.google.template.soy.internal.i18n.BidiGlobalDir;
 import com.google.template.soy.jssrc.SoyJsSrcOptions;
 import com.google.template.soy.jssrc.internal.JsSrcMain;
+import com.google.template.soy.jssrc.internal.MsgSlotSplicer;
 import com.google.template.soy.msgs.SoyMsgBundle;
 import com.google.template.soy.msgs.SoyMsgBundleHandler;
 import com.google.template.soy.msgs.internal.ExtractMsgsVisitor;
@@ -56,6 +61,7 @@ import com.google.template.soy.parsepasses.contextautoesc.CheckEscapingSanityVis
 import com.google.template.soy.parsepasses.contextautoesc.ContentSecurityPolicyPass;
 import com.google.template.soy.parsepasses.contextautoesc.ContextualAutoescaper;
 import com.google.template.soy.parsepasses.contextautoesc.DerivedTemplateUtils;
+import com.google.template.soy.parsepasses.contextautoesc.HtmlMinificationPass;
 import com.google.template.soy.parsepasses.contextautoesc.SoyAutoescapeException;
 import com.google.template.soy.pysrc.SoyPySrcOptions;
 import com.google.template.soy.pysrc.internal.PySrcMain;
@@ -65,14 +71,17 @@ import com.google.template.soy.shared.SoyGeneralOptions.CssHandlingScheme;
 import com.google.template.soy.shared.internal.MainEntryPointUtils;
 import com.google.template.soy.sharedpasses.AssertNoExternalCallsVisitor;
 import com.google.template.soy.sharedpasses.AssertStrictAutoescapingVisitor;
+import com.google.template.soy.sharedpasses.CheckCachedTemplatesVisitor;
 import com.google.template.soy.sharedpasses.ClearSoyDocStringsVisitor;
 import com.google.template.soy.sharedpasses.FindTransitiveDepTemplatesVisitor;
 import com.google.template.soy.sharedpasses.FindTransitiveDepTemplatesVisitor.TransitiveDepTemplatesInfo;
 import com.google.template.soy.sharedpasses.ResolvePackageRelativeCssNamesVisitor;
 import com.google.template.soy.sharedpasses.SubstituteGlobalsVisitor;
+import com.google.template.soy.sharedpasses.opti.MarkSingleUseContentVisitor;
 import com.google.template.soy.sharedpasses.opti.SimplifyVisitor;
 import com.google.template.soy.soyparse.ParseResult;
 import com.google.template.soy.soyparse.SoyFileSetParser;
+import com.google.template.soy.soyparse.TransitionalThrowingErrorReporter;
 import com.google.template.soy.soytree.SoyFileNode;
 import com.google.template.soy.soytree.SoyFileSetNode;
 import com.google.template.soy.soytree.TemplateDelegateNode;
@@ -93,6 +102,11 @@ import java.io.IOException;
 import java.net.URL;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -533,6 +547,19 @@ public final class SoyFileSet {
     }
 
 
+    /**
+     * Pass true to remove insignificant whitespace from the raw text of contextually autoescaped
+     * templates (in HTML text and tags, CSS and JS), which reduces the size of the output.
+     * Whitespace in HTML text is significant within {@code <pre>} elements, so templates whose
+     * text has a {@code <pre>} tag keep their HTML text, but this shouldn't be enabled if the
+     * output of other templates is put in such elements.
+     */
+    public Builder setMinifyHtml(boolean minifyHtml) {
+      getGeneralOptions().setMinifyHtml(minifyHtml);
+      return this;
+    }
+
+
     /**
      * Override the global type registry with one that is local to this file set.
      */
@@ -581,6 +608,9 @@ public final class SoyFileSet {
   /** Factory for creating an instance of CheckFunctionCallsVisitor. */
   private final CheckFunctionCallsVisitorFactory checkFunctionCallsVisitorFactory;
 
+  /** The instance of CheckCachedTemplatesVisitor to use. */
+  private final CheckCachedTemplatesVisitor checkCachedTemplatesVisitor;
+
   /** The instance of PerformAutoescapeVisitor to use. */
   private final PerformAutoescapeVisitor performAutoescapeVisitor;
 
@@ -614,6 +644,7 @@ public final class SoyFileSet {
    * @param pySrcMainProvider Provider for getting an instance of PySrcMain.
    * @param checkFunctionCallsVisitorFactory Factory for creating an instance of
    *     CheckFunctionCallsVisitor.
+   * @param checkCachedTemplatesVisitor The instance of CheckCachedTemplatesVisitor to use.
    * @param performAutoescapeVisitor The instance of PerformAutoescapeVisitor to use.
    * @param contextualAutoescaper The instance of ContextualAutoescaper to use.
    * @param simplifyVisitor The instance of SimplifyVisitor to use.
@@ -631,6 +662,7 @@ public final class SoyFileSet {
       Provider<JsSrcMain> jsSrcMainProvider,
       Provider<PySrcMain> pySrcMainProvider,
       CheckFunctionCallsVisitorFactory checkFunctionCallsVisitorFactory,
+      CheckCachedTemplatesVisitor checkCachedTemplatesVisitor,
       PerformAutoescapeVisitor performAutoescapeVisitor,
       ContextualAutoescaper contextualAutoescaper,
       SimplifyVisitor simplifyVisitor,
@@ -647,6 +679,7 @@ public final class SoyFileSet {
     this.jsSrcMainProvider = jsSrcMainProvider;
     this.pySrcMainProvider = pySrcMainProvider;
     this.checkFunctionCallsVisitorFactory = checkFunctionCallsVisitorFactory;
+    this.checkCachedTemplatesVisitor = checkCachedTemplatesVisitor;
     this.performAutoescapeVisitor = performAutoescapeVisitor;
     this.contextualAutoescaper = contextualAutoescaper;
     this.simplifyVisitor = simplifyVisitor;
@@ -755,6 +788,76 @@ public final class SoyFileSet {
   }
 
 
+  /**
+   * Extracts all messages from this Soy file set like {@link #extractMsgs()}, but parses and
+   * extracts messages from the Soy files in parallel, on a pool of worker threads, and then merges
+   * the messages of all files.
+   *
+   * <p> Since each Soy file is parsed on its own, the checks that need the whole file set (such as
+   * checking the params of calls to templates in other files) are skipped.
+   *
+   * <p> If some Soy file has a syntax error, the error of the first such file (in file set order)
+   * is thrown and the remaining work is cancelled.
+   *
+   * <p> The workers don't use the AST cache (see {@link Builder#setSoyAstCache}), if any: parsing
+   * with the cache has to hold the lock of its node id generator, which would serialize the
+   * workers. So each file is parsed anew, with node ids from the worker's own generator, and the
+   * parsed files aren't added to the cache.
+   *
+   * <p> With one thread, or with fewer than two Soy files, there is nothing to parallelize, and
+   * this just calls {@link #extractMsgs()}.
+   *
+   * @param numThreads The maximum number of Soy files to process in parallel.
+   * @return A SoyMsgBundle containing all the extracted messages (locale "en").
+   * @throws SoySyntaxException If a syntax error is found.
+   */
+  public SoyMsgBundle extractMsgsInParallel(int numThreads) throws SoySyntaxException {
+
+    Preconditions.checkArgument(numThreads >= 1);
+    if (numThreads == 1 || soyFileSuppliers.size() <= 1) {
+      return extractMsgs();
+    }
+    final SyntaxVersion declaredSyntaxVersion =
+        generalOptions.getDeclaredSyntaxVersion(SyntaxVersion.V1_0);
+
+    ExecutorService executor = Executors.newFixedThreadPool(
+        Math.min(numThreads, soyFileSuppliers.size()),
+        new ThreadFactoryBuilder().setNameFormat("soy-msg-extractor-%d").setDaemon(true).build());
+    try {
+      List<Future<SoyMsgBundle>> futures = Lists.newArrayListWithCapacity(soyFileSuppliers.size());
+      for (final SoyFileSupplier soyFileSupplier : soyFileSuppliers) {
+        futures.add(executor.submit(new Callable<SoyMsgBundle>() {
+          @Override public SoyMsgBundle call() {
+            // Each worker has its own type registry, which isn't safe to share between threads, and
+            // no AST cache, so that it parses with its own node id generator.
+            ParseResult<SoyFileSetNode> parseResult = new SoyFileSetParser(
+                createDummyTypeRegistry(), null /* cache */, declaredSyntaxVersion,
+                ImmutableList.of(soyFileSupplier))
+                .setDoCheckOverrides(false)
+                .parse();
+            if (!parseResult.isSuccess()) {
+              throw compositeException(parseResult.getParseErrors());
+            }
+            return (new ExtractMsgsVisitor()).exec(parseResult.getParseTree());
+          }
+        }));
+      }
+      List<SoyMsgBundle> msgBundles = Lists.newArrayListWithCapacity(futures.size());
+      for (Future<SoyMsgBundle> future : futures) {
+        try {
+          msgBundles.add(Uninterruptibles.getUninterruptibly(future));
+        } catch (ExecutionException e) {
+          Throwables.propagateIfPossible(e.getCause());
+          throw new RuntimeException(e.getCause());
+        }
+      }
+      return ExtractMsgsVisitor.mergeExtractedMsgs(msgBundles);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+
   /**
    * Prunes messages from a given message bundle, keeping only messages used in this Soy file set.
    *
@@ -883,7 +986,11 @@ public final class SoyFileSet {
     // Clear the SoyDoc strings because they use unnecessary memory.
     (new ClearSoyDocStringsVisitor()).exec(soyTree);
 
-    return baseTofuFactory.create(soyTree, tofuOptions.useCaching());
+    // Let the renderer stream lets and params that are printed at most once.
+    (new MarkSingleUseContentVisitor()).exec(soyTree);
+
+    return baseTofuFactory.create(
+        soyTree, tofuOptions.useCaching(), tofuOptions.getFragmentCacheMaxBytes());
   }
 
 
@@ -984,31 +1091,169 @@ public final class SoyFileSet {
       jsSrcMainProvider.get().genJsFiles(
           soyTree, jsSrcOptions, null, null, outputPathFormat, inputFilePathPrefix);
 
-    } else {
-      // Generating localized JS.
+    } else if (jsSrcOptions.shouldSpliceLocalizedMsgs()) {
+      // Generating localized JS by splicing messages into locale-independent JS.
+      genLocalizedJsFilesBySplicing(
+          soyTree, jsSrcOptions, locales, outputPathFormat, inputFilePathPrefix,
+          messageFilePathFormat);
+
+    } else if (locales.size() == 1 || jsSrcOptions.getLocaleConcurrency() == 1) {
+      // Generating localized JS, one locale at a time.
       for (String locale : locales) {
+        genLocalizedJsFiles(
+            soyTree, jsSrcOptions, locale, outputPathFormat, inputFilePathPrefix,
+            messageFilePathFormat);
+      }
+
+    } else {
+      // Generating localized JS, several locales at a time.
+      genLocalizedJsFilesInParallel(
+          soyTree, jsSrcOptions, locales, outputPathFormat, inputFilePathPrefix,
+          messageFilePathFormat);
+    }
+    return CompilationResult.success();
+  }
 
-        SoyFileSetNode soyTreeClone = soyTree.clone();
 
-        String msgFilePath = MainEntryPointUtils.buildFilePath(
-            messageFilePathFormat, locale, null, inputFilePathPrefix);
+  /**
+   * Generates the localized JS files for one locale.
+   *
+   * <p> Only reads the given Soy tree, so it may be called for several locales concurrently, as
+   * long as each call is on its own thread (JsSrcMain enters the thread-local API call scope).
+   *
+   * @param soyTree The Soy tree after middleend passes. Not modified.
+   * @param jsSrcOptions The compilation options for the JS Src output target.
+   * @param locale The locale to generate JS for.
+   * @param outputPathFormat The format string defining how to build the output file path
+   *     corresponding to an input file path.
+   * @param inputFilePathPrefix The prefix prepended to all input file paths (can be empty string).
+   * @param messageFilePathFormat The message file path format.
+   * @throws IOException If there is an error in opening/reading the message file or
+   *     opening/writing an output JS file.
+   */
+  private void genLocalizedJsFiles(
+      SoyFileSetNode soyTree, SoyJsSrcOptions jsSrcOptions, String locale,
+      String outputPathFormat, String inputFilePathPrefix, String messageFilePathFormat)
+      throws IOException {
+
+    SoyFileSetNode soyTreeClone = soyTree.clone();
+    SoyMsgBundle msgBundle =
+        createMsgBundleForLocale(locale, inputFilePathPrefix, messageFilePathFormat);
+    jsSrcMainProvider.get().genJsFiles(
+        soyTreeClone, jsSrcOptions, locale, msgBundle, outputPathFormat, inputFilePathPrefix);
+  }
+
+
+  /**
+   * Generates the localized JS files for several locales by generating JS with msg slots once per
+   * bidi global directionality, and splicing each locale's messages into it.
+   *
+   * @see JsSrcMain#genJsSrcWithMsgSlots
+   * @see #genLocalizedJsFiles
+   */
+  private void genLocalizedJsFilesBySplicing(
+      SoyFileSetNode soyTree, SoyJsSrcOptions jsSrcOptions, List<String> locales,
+      String outputPathFormat, String inputFilePathPrefix, String messageFilePathFormat)
+      throws IOException {
+
+    JsSrcMain jsSrcMain = jsSrcMainProvider.get();
+    boolean isBidiGlobalDirFromOptions =
+        jsSrcOptions.getBidiGlobalDir() != 0 || jsSrcOptions.getUseGoogIsRtlForBidiGlobalDir();
+    // The splicers for ltr and rtl locales, generated on first use.
+    Map<Boolean, MsgSlotSplicer> isRtlToSplicerMap = Maps.newHashMap();
+
+    for (String locale : locales) {
+      SoyMsgBundle msgBundle =
+          createMsgBundleForLocale(locale, inputFilePathPrefix, messageFilePathFormat);
+      // Same as the directionality derived from the msg bundle by ApiCallScopeUtils.
+      boolean isRtl = !isBidiGlobalDirFromOptions
+          && BidiGlobalDir.forStaticLocale(msgBundle.getLocaleString()).getStaticValue() < 0;
+
+      MsgSlotSplicer splicer = isRtlToSplicerMap.get(isRtl);
+      if (splicer == null) {
+        splicer = jsSrcMain.genJsSrcWithMsgSlots(soyTree.clone(), jsSrcOptions, isRtl);
+        isRtlToSplicerMap.put(isRtl, splicer);
+      }
+      jsSrcMain.writeJsFiles(
+          soyTree, splicer.splice(msgBundle), locale, outputPathFormat, inputFilePathPrefix);
+    }
+  }
+
+
+  /**
+   * Reads the translated messages file for the given locale.
+   *
+   * @param locale The locale.
+   * @param inputFilePathPrefix The prefix prepended to all input file paths (can be empty string).
+   * @param messageFilePathFormat The message file path format.
+   * @throws IOException If there is an error in opening/reading the message file, unless the
+   *     locale is an English one, in which case an empty bundle is returned.
+   */
+  private SoyMsgBundle createMsgBundleForLocale(
+      String locale, String inputFilePathPrefix, String messageFilePathFormat)
+      throws IOException {
+
+    String msgFilePath = MainEntryPointUtils.buildFilePath(
+        messageFilePathFormat, locale, null, inputFilePathPrefix);
+
+    SoyMsgBundle msgBundle =
+        msgBundleHandlerProvider.get().createFromFile(new File(msgFilePath));
+    if (msgBundle.getLocaleString() == null) {
+      // TODO: Remove this check (but make sure no projects depend on this behavior).
+      // There was an error reading the message file. We continue processing only if the locale
+      // begins with "en", because falling back to the Soy source will probably be fine.
+      if (!locale.startsWith("en")) {
+        throw new IOException("Error opening or reading message file " + msgFilePath);
+      }
+    }
+    return msgBundle;
+  }
+
 
-        SoyMsgBundle msgBundle =
-            msgBundleHandlerProvider.get().createFromFile(new File(msgFilePath));
-        if (msgBundle.getLocaleString() == null) {
-          // TODO: Remove this check (but make sure no projects depend on this behavior).
-          // There was an error reading the message file. We continue processing only if the locale
-          // begins with "en", because falling back to the Soy source will probably be fine.
-          if (!locale.startsWith("en")) {
-            throw new IOException("Error opening or reading message file " + msgFilePath);
+  /**
+   * Generates the localized JS files for several locales on a pool of
+   * {@link SoyJsSrcOptions#getLocaleConcurrency} worker threads. Each worker loads its locale's
+   * message bundle while the others generate code, and at most one Soy tree copy per worker is
+   * alive at a time.
+   *
+   * <p> If generating JS for some locale fails, the first failure (in locale order) is rethrown
+   * and the remaining work is cancelled.
+   *
+   * @see #genLocalizedJsFiles
+   */
+  private void genLocalizedJsFilesInParallel(
+      final SoyFileSetNode soyTree, final SoyJsSrcOptions jsSrcOptions, List<String> locales,
+      final String outputPathFormat, final String inputFilePathPrefix,
+      final String messageFilePathFormat)
+      throws IOException {
+
+    int numThreads = Math.min(jsSrcOptions.getLocaleConcurrency(), locales.size());
+    ExecutorService executor = Executors.newFixedThreadPool(
+        numThreads,
+        new ThreadFactoryBuilder().setNameFormat("soy-localized-jssrc-%d").setDaemon(true).build());
+    try {
+      List<Future<?>> futures = Lists.newArrayListWithCapacity(locales.size());
+      for (final String locale : locales) {
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override public Void call() throws IOException {
+            genLocalizedJsFiles(
+                soyTree, jsSrcOptions, locale, outputPathFormat, inputFilePathPrefix,
+                messageFilePathFormat);
+            return null;
           }
+        }));
+      }
+      for (Future<?> future : futures) {
+        try {
+          Uninterruptibles.getUninterruptibly(future);
+        } catch (ExecutionException e) {
+          Throwables.propagateIfPossible(e.getCause(), IOException.class);
+          throw new RuntimeException(e.getCause());
         }
-
-        jsSrcMainProvider.get().genJsFiles(
-            soyTreeClone, jsSrcOptions, locale, msgBundle, outputPathFormat, inputFilePathPrefix);
       }
+    } finally {
+      executor.shutdownNow();
     }
-    return CompilationResult.success();
   }
 
 
@@ -1066,6 +1311,11 @@ public final class SoyFileSet {
     // need to be injected, and that feels like overkill at this time.
     checkFunctionCallsVisitorFactory.create(declaredSyntaxVersion).exec(soyTree);
 
+    // Check that templates declared cache="true" are pure functions of their params.
+    TransitionalThrowingErrorReporter errorReporter = new TransitionalThrowingErrorReporter();
+    checkCachedTemplatesVisitor.exec(soyTree, errorReporter);
+    errorReporter.throwIfErrorsPresent();
+
     // Do renaming of package-relative class names.
     new ResolvePackageRelativeCssNamesVisitor().exec(soyTree);
 
@@ -1106,6 +1356,12 @@ public final class SoyFileSet {
           contextualAutoescaper.getSlicedRawTextNodes());
     }
 
+    // Remove insignificant whitespace from raw text, now that its contexts are known. Runs after
+    // the CSP pass, which would otherwise insert its nodes at outdated offsets.
+    if (generalOptions.minifyHtml()) {
+      HtmlMinificationPass.minify(contextualAutoescaper.getSlicedRawTextNodes());
+    }
+
     // Attempt to simplify the tree.
     (new ChangeCallsToPassAllDataVisitor()).exec(soyTree);
     simplifyVisitor.exec(soyTree);
@@ -1115,7 +1371,8 @@ public final class SoyFileSet {
   private void doContextualEscaping(SoyFileSetNode soyTree)
       throws SoySyntaxException {
     new CheckEscapingSanityVisitor().exec(soyTree);
-    List<TemplateNode> extraTemplates = contextualAutoescaper.rewrite(soyTree);
+    List<TemplateNode> extraTemplates =
+        contextualAutoescaper.rewrite(soyTree, generalOptions.getAutoescaperConcurrency());
     // TODO: Run the redundant template remover here and rename after CL 16642341 is in.
     if (!extraTemplates.isEmpty()) {
       // TODO: pull out somewhere else.  Ideally do the merge as part of the redundant template
@@ -104,6 +104,12 @@ public final class SoyMsgExtractor {
                   " the XliffMsgPlugin.")
   private String messagePluginModule = XliffMsgPluginModule.class.getName();
 
+  @Option(name = "--fileConcurrency",
+          usage = "The number of input files to extract messages from in parallel (default 1)." +
+                  " When greater than 1, each file is checked on its own, so errors that span" +
+                  " files (such as calls to undefined templates) are not reported.")
+  private int fileConcurrency = 1;
+
   /** The remaining arguments after parsing command-line flags. */
   @Argument
   private List<String> arguments = Lists.newArrayList();
@@ -160,7 +166,8 @@ public final class SoyMsgExtractor {
 
     SoyFileSet sfs = sfsBuilder.build();
 
-    SoyMsgBundle msgBundle = sfs.extractMsgs();
+    SoyMsgBundle msgBundle =
+        (fileConcurrency > 1) ? sfs.extractMsgsInParallel(fileConcurrency) : sfs.extractMsgs();
 
     SoyMsgBundleHandler msgBundleHandler = injector.getInstance(SoyMsgBundleHandler.class);
     OutputFileOptions options = new OutputFileOptions();
@@ -146,6 +146,22 @@ public final class SoyToJsSrcCompiler {
                   " an extension matching the message file format (case-insensitive).")
   private String messageFilePathFormat = "";
 
+  @Option(name = "--localeConcurrency",
+          usage = "[Only applicable if generating localized JS] The maximum number of locales to" +
+                  " generate JS for in parallel. Each locale in progress holds its own copy of" +
+                  " the parsed Soy files and translated messages, so raise this with care for" +
+                  " large projects. Defaults to 1 (one locale at a time).")
+  private int localeConcurrency = 1;
+
+  @Option(name = "--shouldSpliceLocalizedMsgs",
+          usage = "[Only applicable if generating localized JS] When this option is used, the JS" +
+                  " is generated once (or twice, for ltr and rtl locales) and each locale's" +
+                  " translated messages are then spliced into it, which is much faster for many" +
+                  " locales. Messages are defined with goog.getMsg, so the output requires the" +
+                  " Closure Library.",
+          handler = MainClassUtils.BooleanOptionHandler.class)
+  private boolean shouldSpliceLocalizedMsgs = false;
+
   @Option(name = "--shouldGenerateGoogMsgDefs",
           usage = "When this option is used, all 'msg' blocks will be turned into goog.getMsg" +
                   " definitions and corresponding usages. Must be used with either" +
@@ -299,6 +315,8 @@ public final class SoyToJsSrcCompiler {
     jsSrcOptions.setGoogMsgsAreExternal(googMsgsAreExternal);
     jsSrcOptions.setBidiGlobalDir(bidiGlobalDir);
     jsSrcOptions.setUseGoogIsRtlForBidiGlobalDir(useGoogIsRtlForBidiGlobalDir);
+    jsSrcOptions.setLocaleConcurrency(localeConcurrency);
+    jsSrcOptions.setShouldSpliceLocalizedMsgs(shouldSpliceLocalizedMsgs);
 
     // Compile.
     boolean generateLocalizedJs = !locales.isEmpty();
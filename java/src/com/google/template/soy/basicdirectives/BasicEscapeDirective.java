@@ -25,6 +25,7 @@ import com.google.template.soy.jssrc.restricted.SoyJsSrcPrintDirective;
 import com.google.template.soy.pysrc.restricted.PyExpr;
 import com.google.template.soy.pysrc.restricted.SoyPySrcPrintDirective;
 import com.google.template.soy.shared.restricted.Sanitizers;
+import com.google.template.soy.shared.restricted.SoyApiCallScopeFree;
 import com.google.template.soy.shared.restricted.SoyJavaPrintDirective;
 import com.google.template.soy.shared.restricted.SoyPurePrintDirective;
 
@@ -104,6 +105,7 @@ public abstract class BasicEscapeDirective
    */
   @Singleton
   @SoyPurePrintDirective
+  @SoyApiCallScopeFree
   static final class EscapeCssString extends BasicEscapeDirective {
 
     EscapeCssString() {
@@ -121,6 +123,7 @@ public abstract class BasicEscapeDirective
    */
   @Singleton
   @SoyPurePrintDirective
+  @SoyApiCallScopeFree
   static final class FilterCssValue extends BasicEscapeDirective {
 
     FilterCssValue() {
@@ -139,6 +142,7 @@ public abstract class BasicEscapeDirective
    */
   @Singleton
   @SoyPurePrintDirective
+  @SoyApiCallScopeFree
   static final class NormalizeHtml extends BasicEscapeDirective {
 
     NormalizeHtml() {
@@ -156,6 +160,7 @@ public abstract class BasicEscapeDirective
    */
   @Singleton
   @SoyPurePrintDirective
+  @SoyApiCallScopeFree
   static final class EscapeHtmlRcdata extends BasicEscapeDirective {
 
     EscapeHtmlRcdata() {
@@ -173,6 +178,7 @@ public abstract class BasicEscapeDirective
    */
   @Singleton
   @SoyPurePrintDirective
+  @SoyApiCallScopeFree
   static final class EscapeHtmlAttribute extends BasicEscapeDirective {
 
     EscapeHtmlAttribute() {
@@ -190,6 +196,7 @@ public abstract class BasicEscapeDirective
    */
   @Singleton
   @SoyPurePrintDirective
+  @SoyApiCallScopeFree
   static final class EscapeHtmlAttributeNospace extends BasicEscapeDirective {
 
     EscapeHtmlAttributeNospace() {
@@ -207,6 +214,7 @@ public abstract class BasicEscapeDirective
    */
   @Singleton
   @SoyPurePrintDirective
+  @SoyApiCallScopeFree
   static final class FilterHtmlAttributes extends BasicEscapeDirective {
 
     FilterHtmlAttributes() {
@@ -224,6 +232,7 @@ public abstract class BasicEscapeDirective
    */
   @Singleton
   @SoyPurePrintDirective
+  @SoyApiCallScopeFree
   static final class FilterHtmlElementName extends BasicEscapeDirective {
 
     FilterHtmlElementName() {
@@ -241,6 +250,7 @@ public abstract class BasicEscapeDirective
    */
   @Singleton
   @SoyPurePrintDirective
+  @SoyApiCallScopeFree
   static final class EscapeJsRegex extends BasicEscapeDirective {
 
     EscapeJsRegex() {
@@ -258,6 +268,7 @@ public abstract class BasicEscapeDirective
    */
   @Singleton
   @SoyPurePrintDirective
+  @SoyApiCallScopeFree
   static final class EscapeJsString extends BasicEscapeDirective {
 
     EscapeJsString() {
@@ -275,6 +286,7 @@ public abstract class BasicEscapeDirective
    */
   @Singleton
   @SoyPurePrintDirective
+  @SoyApiCallScopeFree
   static final class EscapeJsValue extends BasicEscapeDirective {
 
     EscapeJsValue() {
@@ -292,6 +304,7 @@ public abstract class BasicEscapeDirective
    */
   @Singleton
   @SoyPurePrintDirective
+  @SoyApiCallScopeFree
   static final class FilterNormalizeUri extends BasicEscapeDirective {
 
     FilterNormalizeUri() {
@@ -309,6 +322,7 @@ public abstract class BasicEscapeDirective
    */
   @Singleton
   @SoyPurePrintDirective
+  @SoyApiCallScopeFree
   static final class NormalizeUri extends BasicEscapeDirective {
 
     NormalizeUri() {
@@ -326,6 +340,7 @@ public abstract class BasicEscapeDirective
    */
   @Singleton
   @SoyPurePrintDirective
+  @SoyApiCallScopeFree
   static final class EscapeUri extends BasicEscapeDirective {
 
     EscapeUri() {
@@ -27,6 +27,7 @@ import com.google.template.soy.jssrc.restricted.JsExpr;
 import com.google.template.soy.jssrc.restricted.SoyJsSrcPrintDirective;
 import com.google.template.soy.pysrc.restricted.PyExpr;
 import com.google.template.soy.pysrc.restricted.SoyPySrcPrintDirective;
+import com.google.template.soy.shared.restricted.SoyApiCallScopeFree;
 import com.google.template.soy.shared.restricted.SoyJavaPrintDirective;
 import com.google.template.soy.shared.restricted.SoyPurePrintDirective;
 
@@ -44,6 +45,7 @@ import javax.inject.Singleton;
  */
 @Singleton
 @SoyPurePrintDirective
+@SoyApiCallScopeFree
 final class ChangeNewlineToBrDirective implements SanitizedContentOperator, SoyJavaPrintDirective,
     SoyJsSrcPrintDirective, SoyPySrcPrintDirective {
 
@@ -31,6 +31,7 @@ import com.google.template.soy.jssrc.restricted.SoyJsSrcPrintDirective;
 import com.google.template.soy.pysrc.restricted.PyExpr;
 import com.google.template.soy.pysrc.restricted.SoyPySrcPrintDirective;
 import com.google.template.soy.shared.restricted.Sanitizers;
+import com.google.template.soy.shared.restricted.SoyApiCallScopeFree;
 import com.google.template.soy.shared.restricted.SoyJavaPrintDirective;
 import com.google.template.soy.shared.restricted.SoyPurePrintDirective;
 import com.google.template.soy.shared.restricted.TagWhitelist.OptionalSafeTag;
@@ -58,6 +59,7 @@ import javax.inject.Singleton;
  */
 @Singleton
 @SoyPurePrintDirective
+@SoyApiCallScopeFree
 final class CleanHtmlDirective implements SoyJavaPrintDirective, SoyJsSrcPrintDirective,
     SoyPySrcPrintDirective {
 
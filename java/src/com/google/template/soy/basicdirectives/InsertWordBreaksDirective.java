@@ -26,6 +26,7 @@ import com.google.template.soy.data.UnsafeSanitizedContentOrdainer;
 import com.google.template.soy.data.restricted.StringData;
 import com.google.template.soy.jssrc.restricted.JsExpr;
 import com.google.template.soy.jssrc.restricted.SoyJsSrcPrintDirective;
+import com.google.template.soy.shared.restricted.SoyApiCallScopeFree;
 import com.google.template.soy.shared.restricted.SoyJavaPrintDirective;
 import com.google.template.soy.shared.restricted.SoyPurePrintDirective;
 
@@ -43,6 +44,7 @@ import javax.inject.Singleton;
  */
 @Singleton
 @SoyPurePrintDirective
+@SoyApiCallScopeFree
 public class InsertWordBreaksDirective
     implements SanitizedContentOperator, SoyJavaPrintDirective, SoyJsSrcPrintDirective {
 
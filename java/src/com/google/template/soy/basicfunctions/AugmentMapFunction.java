@@ -28,6 +28,7 @@ import com.google.template.soy.jssrc.restricted.SoyJsSrcFunction;
 import com.google.template.soy.pysrc.restricted.PyExpr;
 import com.google.template.soy.pysrc.restricted.PyFunctionExprBuilder;
 import com.google.template.soy.pysrc.restricted.SoyPySrcFunction;
+import com.google.template.soy.shared.restricted.SoyApiCallScopeFree;
 import com.google.template.soy.shared.restricted.SoyJavaFunction;
 import com.google.template.soy.shared.restricted.SoyPureFunction;
 
@@ -44,6 +45,7 @@ import javax.inject.Singleton;
  */
 @Singleton
 @SoyPureFunction
+@SoyApiCallScopeFree
 class AugmentMapFunction implements SoyJavaFunction, SoyJsSrcFunction, SoyPySrcFunction {
 
 
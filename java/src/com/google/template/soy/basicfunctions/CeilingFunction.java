@@ -23,6 +23,7 @@ import com.google.template.soy.jssrc.restricted.JsExpr;
 import com.google.template.soy.jssrc.restricted.SoyJsSrcFunction;
 import com.google.template.soy.pysrc.restricted.PyExpr;
 import com.google.template.soy.pysrc.restricted.SoyPySrcFunction;
+import com.google.template.soy.shared.restricted.SoyApiCallScopeFree;
 import com.google.template.soy.shared.restricted.SoyJavaFunction;
 import com.google.template.soy.shared.restricted.SoyPureFunction;
 
@@ -38,6 +39,7 @@ import javax.inject.Singleton;
  */
 @Singleton
 @SoyPureFunction
+@SoyApiCallScopeFree
 class CeilingFunction implements SoyJavaFunction, SoyJsSrcFunction, SoyPySrcFunction {
 
 
@@ -25,6 +25,7 @@ import com.google.template.soy.jssrc.restricted.SoyJsSrcFunction;
 import com.google.template.soy.pysrc.restricted.PyExpr;
 import com.google.template.soy.pysrc.restricted.PyListExpr;
 import com.google.template.soy.pysrc.restricted.SoyPySrcFunction;
+import com.google.template.soy.shared.restricted.SoyApiCallScopeFree;
 import com.google.template.soy.shared.restricted.SoyJavaFunction;
 import com.google.template.soy.shared.restricted.SoyPureFunction;
 
@@ -46,6 +47,7 @@ import javax.inject.Singleton;
  */
 @Singleton
 @SoyPureFunction
+@SoyApiCallScopeFree
 class KeysFunction implements SoyJavaFunction, SoyJsSrcFunction, SoyPySrcFunction {
 
 
@@ -26,6 +26,7 @@ import com.google.template.soy.jssrc.restricted.SoyJsCodeUtils;
 import com.google.template.soy.jssrc.restricted.SoyJsSrcFunction;
 import com.google.template.soy.pysrc.restricted.PyExpr;
 import com.google.template.soy.pysrc.restricted.SoyPySrcFunction;
+import com.google.template.soy.shared.restricted.SoyApiCallScopeFree;
 import com.google.template.soy.shared.restricted.SoyJavaFunction;
 
 import java.util.List;
@@ -39,6 +40,7 @@ import javax.inject.Singleton;
  *
  */
 @Singleton
+@SoyApiCallScopeFree
 class RandomIntFunction implements SoyJavaFunction, SoyJsSrcFunction, SoyPySrcFunction {
 
 
@@ -30,7 +30,8 @@ import com.google.template.soy.jssrc.restricted.JsExpr;
 import com.google.template.soy.jssrc.restricted.SoyJsSrcPrintDirective;
 import com.google.template.soy.pysrc.restricted.PyExpr;
 import com.google.template.soy.pysrc.restricted.SoyPySrcPrintDirective;
-import com.google.template.soy.shared.restricted.SoyJavaPrintDirective;
+import com.google.template.soy.shared.restricted.SoyJavaRenderContextPrintDirective;
+import com.google.template.soy.shared.restricted.SoyRenderContext;
 
 import java.util.List;
 import java.util.Set;
@@ -48,8 +49,8 @@ import javax.inject.Singleton;
  */
 @Singleton
 final class BidiSpanWrapDirective
-    implements SanitizedContentOperator, SoyJavaPrintDirective, SoyJsSrcPrintDirective,
-    SoyPySrcPrintDirective {
+    implements SanitizedContentOperator, SoyJavaRenderContextPrintDirective,
+    SoyJsSrcPrintDirective, SoyPySrcPrintDirective {
 
 
   /** Provider for the current bidi global directionality. */
@@ -83,12 +84,22 @@ final class BidiSpanWrapDirective
   }
 
   @Override public SoyValue applyForJava(SoyValue value, List<SoyValue> args) {
+    return applyForJavaHelper(value, args, bidiGlobalDirProvider.get());
+  }
+
+  @Override public SoyValue applyForJava(
+      SoyValue value, List<SoyValue> args, SoyRenderContext renderContext) {
+    return applyForJavaHelper(value, args, renderContext.getBidiGlobalDir());
+  }
+
+  private static SoyValue applyForJavaHelper(
+      SoyValue value, List<SoyValue> args, BidiGlobalDir bidiGlobalDir) {
     Dir valueDir = null;
     if (value instanceof SanitizedContent) {
       valueDir = ((SanitizedContent) value).getContentDirection();
     }
     BidiFormatter bidiFormatter =
-        SoyBidiUtils.getBidiFormatter(bidiGlobalDirProvider.get().getStaticValue());
+        SoyBidiUtils.getBidiFormatter(bidiGlobalDir.getStaticValue());
 
     // We always treat the value as HTML, because span-wrapping is only useful when its output will
     // be treated as HTML (without escaping), and because |bidiSpanWrap is not itself specified to
@@ -99,6 +110,9 @@ final class BidiSpanWrapDirective
     // a print with a |noAutoescape, in which case our input is just SoyData.) If the output will be
     // treated as HTML, the input had better be safe HTML/HTML-escaped (even if it isn't HTML
     // SanitizedData), or we have an XSS opportunity and a much bigger problem than bidi garbling.
+    if (valueDir == null) {
+      valueDir = SoyBidiUtils.estimateDirection(value, true /* isHtml */);
+    }
     String wrappedValue = bidiFormatter.spanWrapWithKnownDir(
         valueDir, value.coerceToString(), true /* isHtml */);
 
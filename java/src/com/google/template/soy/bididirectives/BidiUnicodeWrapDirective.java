@@ -30,7 +30,8 @@ import com.google.template.soy.jssrc.restricted.JsExpr;
 import com.google.template.soy.jssrc.restricted.SoyJsSrcPrintDirective;
 import com.google.template.soy.pysrc.restricted.PyExpr;
 import com.google.template.soy.pysrc.restricted.SoyPySrcPrintDirective;
-import com.google.template.soy.shared.restricted.SoyJavaPrintDirective;
+import com.google.template.soy.shared.restricted.SoyJavaRenderContextPrintDirective;
+import com.google.template.soy.shared.restricted.SoyRenderContext;
 
 import java.util.List;
 import java.util.Set;
@@ -48,7 +49,7 @@ import javax.inject.Singleton;
  */
 @Singleton
 final class BidiUnicodeWrapDirective
-    implements SoyJavaPrintDirective, SoyJsSrcPrintDirective, SoyPySrcPrintDirective {
+    implements SoyJavaRenderContextPrintDirective, SoyJsSrcPrintDirective, SoyPySrcPrintDirective {
 
 
   /** Provider for the current bidi global directionality. */
@@ -77,6 +78,16 @@ final class BidiUnicodeWrapDirective
   }
 
   @Override public SoyValue applyForJava(SoyValue value, List<SoyValue> args) {
+    return applyForJavaHelper(value, args, bidiGlobalDirProvider.get());
+  }
+
+  @Override public SoyValue applyForJava(
+      SoyValue value, List<SoyValue> args, SoyRenderContext renderContext) {
+    return applyForJavaHelper(value, args, renderContext.getBidiGlobalDir());
+  }
+
+  private static SoyValue applyForJavaHelper(
+      SoyValue value, List<SoyValue> args, BidiGlobalDir bidiGlobalDir) {
     ContentKind valueKind = null;
     Dir valueDir = null;
     if (value instanceof SanitizedContent) {
@@ -85,7 +96,7 @@ final class BidiUnicodeWrapDirective
       valueDir = sanitizedContent.getContentDirection();
     }
     BidiFormatter bidiFormatter =
-        SoyBidiUtils.getBidiFormatter(bidiGlobalDirProvider.get().getStaticValue());
+        SoyBidiUtils.getBidiFormatter(bidiGlobalDir.getStaticValue());
 
     // We treat the value as HTML if and only if it says it's HTML, even though in legacy usage, we
     // sometimes have an HTML string (not SanitizedContent) that is passed to an autoescape="false"
@@ -93,6 +104,9 @@ final class BidiUnicodeWrapDirective
     // escaping. We simply have no way of knowing if this is what is happening when we get
     // non-SanitizedContent input, and most of the time it isn't.
     boolean isHtml = valueKind == ContentKind.HTML;
+    if (valueDir == null) {
+      valueDir = SoyBidiUtils.estimateDirection(value, isHtml);
+    }
     String wrappedValue = bidiFormatter.unicodeWrapWithKnownDir(
         valueDir, value.coerceToString(), isHtml);
 
@@ -24,13 +24,13 @@ import com.google.template.soy.data.SoyValue;
 import com.google.template.soy.data.UnsafeSanitizedContentOrdainer;
 import com.google.template.soy.internal.i18n.BidiFormatter;
 import com.google.template.soy.internal.i18n.BidiGlobalDir;
-import com.google.template.soy.internal.i18n.BidiUtils;
 import com.google.template.soy.internal.i18n.SoyBidiUtils;
 import com.google.template.soy.jssrc.restricted.JsExpr;
 import com.google.template.soy.jssrc.restricted.SoyJsSrcFunction;
 import com.google.template.soy.pysrc.restricted.PyExpr;
 import com.google.template.soy.pysrc.restricted.SoyPySrcFunction;
-import com.google.template.soy.shared.restricted.SoyJavaFunction;
+import com.google.template.soy.shared.restricted.SoyJavaRenderContextFunction;
+import com.google.template.soy.shared.restricted.SoyRenderContext;
 
 import java.util.List;
 import java.util.Set;
@@ -48,7 +48,8 @@ import javax.inject.Singleton;
  *
  */
 @Singleton
-class BidiDirAttrFunction implements SoyJavaFunction, SoyJsSrcFunction, SoyPySrcFunction {
+class BidiDirAttrFunction
+    implements SoyJavaRenderContextFunction, SoyJsSrcFunction, SoyPySrcFunction {
 
 
   /** Provider for the current bidi global directionality. */
@@ -73,6 +74,14 @@ class BidiDirAttrFunction implements SoyJavaFunction, SoyJsSrcFunction, SoyPySrc
   }
 
   @Override public SoyValue computeForJava(List<SoyValue> args) {
+    return computeForJavaHelper(args, bidiGlobalDirProvider.get());
+  }
+
+  @Override public SoyValue computeForJava(List<SoyValue> args, SoyRenderContext renderContext) {
+    return computeForJavaHelper(args, renderContext.getBidiGlobalDir());
+  }
+
+  private static SoyValue computeForJavaHelper(List<SoyValue> args, BidiGlobalDir bidiGlobalDir) {
     SoyValue value = args.get(0);
     Dir valueDir = null;
     boolean isHtmlForValueDirEstimation = false;
@@ -86,11 +95,11 @@ class BidiDirAttrFunction implements SoyJavaFunction, SoyJsSrcFunction, SoyPySrc
     if (valueDir == null) {
       isHtmlForValueDirEstimation = isHtmlForValueDirEstimation ||
           (args.size() == 2 && args.get(1).booleanValue());
-      valueDir = BidiUtils.estimateDirection(value.coerceToString(), isHtmlForValueDirEstimation);
+      valueDir = SoyBidiUtils.estimateDirection(value, isHtmlForValueDirEstimation);
     }
 
     BidiFormatter bidiFormatter = SoyBidiUtils.getBidiFormatter(
-        bidiGlobalDirProvider.get().getStaticValue());
+        bidiGlobalDir.getStaticValue());
     String dirAttr = bidiFormatter.knownDirAttr(valueDir);
     return UnsafeSanitizedContentOrdainer.ordainAsSafe(dirAttr, ContentKind.ATTRIBUTES);
   }
@@ -26,7 +26,8 @@ import com.google.template.soy.jssrc.restricted.SoyJsSrcFunction;
 import com.google.template.soy.pysrc.restricted.PyExpr;
 import com.google.template.soy.pysrc.restricted.PyExprUtils;
 import com.google.template.soy.pysrc.restricted.SoyPySrcFunction;
-import com.google.template.soy.shared.restricted.SoyJavaFunction;
+import com.google.template.soy.shared.restricted.SoyJavaRenderContextFunction;
+import com.google.template.soy.shared.restricted.SoyRenderContext;
 
 import java.util.List;
 import java.util.Set;
@@ -40,7 +41,8 @@ import javax.inject.Singleton;
  *
  */
 @Singleton
-class BidiGlobalDirFunction implements SoyJavaFunction, SoyJsSrcFunction, SoyPySrcFunction {
+class BidiGlobalDirFunction
+    implements SoyJavaRenderContextFunction, SoyJsSrcFunction, SoyPySrcFunction {
 
 
   /** Provider for the current bidi global directionality. */
@@ -65,7 +67,15 @@ class BidiGlobalDirFunction implements SoyJavaFunction, SoyJsSrcFunction, SoyPyS
   }
 
   @Override public SoyValue computeForJava(List<SoyValue> args) {
-    return IntegerData.forValue(bidiGlobalDirProvider.get().getStaticValue());
+    return computeForJavaHelper(args, bidiGlobalDirProvider.get());
+  }
+
+  @Override public SoyValue computeForJava(List<SoyValue> args, SoyRenderContext renderContext) {
+    return computeForJavaHelper(args, renderContext.getBidiGlobalDir());
+  }
+
+  private static SoyValue computeForJavaHelper(List<SoyValue> args, BidiGlobalDir bidiGlobalDir) {
+    return IntegerData.forValue(bidiGlobalDir.getStaticValue());
   }
 
   @Override public JsExpr computeForJsSrc(List<JsExpr> args) {
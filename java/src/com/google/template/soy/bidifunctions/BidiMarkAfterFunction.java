@@ -28,7 +28,8 @@ import com.google.template.soy.jssrc.restricted.JsExpr;
 import com.google.template.soy.jssrc.restricted.SoyJsSrcFunction;
 import com.google.template.soy.pysrc.restricted.PyExpr;
 import com.google.template.soy.pysrc.restricted.SoyPySrcFunction;
-import com.google.template.soy.shared.restricted.SoyJavaFunction;
+import com.google.template.soy.shared.restricted.SoyJavaRenderContextFunction;
+import com.google.template.soy.shared.restricted.SoyRenderContext;
 
 import java.util.List;
 import java.util.Set;
@@ -46,7 +47,8 @@ import javax.inject.Singleton;
  *
  */
 @Singleton
-class BidiMarkAfterFunction implements SoyJavaFunction, SoyJsSrcFunction, SoyPySrcFunction {
+class BidiMarkAfterFunction
+    implements SoyJavaRenderContextFunction, SoyJsSrcFunction, SoyPySrcFunction {
 
 
   /** Provider for the current bidi global directionality. */
@@ -71,6 +73,14 @@ class BidiMarkAfterFunction implements SoyJavaFunction, SoyJsSrcFunction, SoyPyS
   }
 
   @Override public SoyValue computeForJava(List<SoyValue> args) {
+    return computeForJavaHelper(args, bidiGlobalDirProvider.get());
+  }
+
+  @Override public SoyValue computeForJava(List<SoyValue> args, SoyRenderContext renderContext) {
+    return computeForJavaHelper(args, renderContext.getBidiGlobalDir());
+  }
+
+  private static SoyValue computeForJavaHelper(List<SoyValue> args, BidiGlobalDir bidiGlobalDir) {
     SoyValue value = args.get(0);
     boolean isHtml = args.size() == 2 && args.get(1).booleanValue();
     Dir valueDir = null;
@@ -80,9 +90,9 @@ class BidiMarkAfterFunction implements SoyJavaFunction, SoyJsSrcFunction, SoyPyS
       isHtml = isHtml || sanitizedContent.getContentKind() == ContentKind.HTML;
     }
 
-    int bidiGlobalDir = bidiGlobalDirProvider.get().getStaticValue();
-    return StringData.forValue(SoyBidiUtils.getBidiFormatter(bidiGlobalDir).markAfterKnownDir(
-        valueDir, value.coerceToString(), isHtml));
+    return StringData.forValue(
+        SoyBidiUtils.getBidiFormatter(bidiGlobalDir.getStaticValue()).markAfterKnownDir(
+            valueDir, value.coerceToString(), isHtml));
   }
 
   @Override public JsExpr computeForJsSrc(List<JsExpr> args) {
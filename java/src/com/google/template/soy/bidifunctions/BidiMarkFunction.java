@@ -25,7 +25,8 @@ import com.google.template.soy.jssrc.restricted.JsExpr;
 import com.google.template.soy.jssrc.restricted.SoyJsSrcFunction;
 import com.google.template.soy.pysrc.restricted.PyExpr;
 import com.google.template.soy.pysrc.restricted.SoyPySrcFunction;
-import com.google.template.soy.shared.restricted.SoyJavaFunction;
+import com.google.template.soy.shared.restricted.SoyJavaRenderContextFunction;
+import com.google.template.soy.shared.restricted.SoyRenderContext;
 
 import java.util.List;
 import java.util.Set;
@@ -40,7 +41,8 @@ import javax.inject.Singleton;
  *
  */
 @Singleton
-class BidiMarkFunction implements SoyJavaFunction, SoyJsSrcFunction, SoyPySrcFunction {
+class BidiMarkFunction
+    implements SoyJavaRenderContextFunction, SoyJsSrcFunction, SoyPySrcFunction {
 
 
   /** Provider for the current bidi global directionality. */
@@ -65,8 +67,16 @@ class BidiMarkFunction implements SoyJavaFunction, SoyJsSrcFunction, SoyPySrcFun
   }
 
   @Override public SoyValue computeForJava(List<SoyValue> args) {
+    return computeForJavaHelper(args, bidiGlobalDirProvider.get());
+  }
+
+  @Override public SoyValue computeForJava(List<SoyValue> args, SoyRenderContext renderContext) {
+    return computeForJavaHelper(args, renderContext.getBidiGlobalDir());
+  }
+
+  private static SoyValue computeForJavaHelper(List<SoyValue> args, BidiGlobalDir bidiGlobalDir) {
     return StringData.forValue(
-        (bidiGlobalDirProvider.get().getStaticValue() < 0) ? "\u200F" /*RLM*/ : "\u200E" /*LRM*/);
+        (bidiGlobalDir.getStaticValue() < 0) ? "\u200F" /*RLM*/ : "\u200E" /*LRM*/);
   }
 
   @Override public JsExpr computeForJsSrc(List<JsExpr> args) {
@@ -26,7 +26,8 @@ import com.google.template.soy.jssrc.restricted.SoyJsSrcFunction;
 import com.google.template.soy.pysrc.restricted.PyExpr;
 import com.google.template.soy.pysrc.restricted.PyExprUtils;
 import com.google.template.soy.pysrc.restricted.SoyPySrcFunction;
-import com.google.template.soy.shared.restricted.SoyJavaFunction;
+import com.google.template.soy.shared.restricted.SoyJavaRenderContextFunction;
+import com.google.template.soy.shared.restricted.SoyRenderContext;
 
 import java.util.List;
 import java.util.Set;
@@ -41,7 +42,8 @@ import javax.inject.Singleton;
  *
  */
 @Singleton
-class BidiStartEdgeFunction implements SoyJavaFunction, SoyJsSrcFunction, SoyPySrcFunction {
+class BidiStartEdgeFunction
+    implements SoyJavaRenderContextFunction, SoyJsSrcFunction, SoyPySrcFunction {
 
 
   /** Provider for the current bidi global directionality. */
@@ -66,8 +68,16 @@ class BidiStartEdgeFunction implements SoyJavaFunction, SoyJsSrcFunction, SoyPyS
   }
 
   @Override public SoyValue computeForJava(List<SoyValue> args) {
+    return computeForJavaHelper(args, bidiGlobalDirProvider.get());
+  }
+
+  @Override public SoyValue computeForJava(List<SoyValue> args, SoyRenderContext renderContext) {
+    return computeForJavaHelper(args, renderContext.getBidiGlobalDir());
+  }
+
+  private static SoyValue computeForJavaHelper(List<SoyValue> args, BidiGlobalDir bidiGlobalDir) {
     return StringData.forValue(
-        (bidiGlobalDirProvider.get().getStaticValue() < 0) ? "right" : "left");
+        (bidiGlobalDir.getStaticValue() < 0) ? "right" : "left");
   }
 
   @Override public JsExpr computeForJsSrc(List<JsExpr> args) {
@@ -22,11 +22,12 @@ import com.google.template.soy.data.SanitizedContent;
 import com.google.template.soy.data.SanitizedContent.ContentKind;
 import com.google.template.soy.data.SoyValue;
 import com.google.template.soy.data.restricted.IntegerData;
-import com.google.template.soy.internal.i18n.BidiUtils;
+import com.google.template.soy.internal.i18n.SoyBidiUtils;
 import com.google.template.soy.jssrc.restricted.JsExpr;
 import com.google.template.soy.jssrc.restricted.SoyJsSrcFunction;
 import com.google.template.soy.pysrc.restricted.PyExpr;
 import com.google.template.soy.pysrc.restricted.SoyPySrcFunction;
+import com.google.template.soy.shared.restricted.SoyApiCallScopeFree;
 import com.google.template.soy.shared.restricted.SoyJavaFunction;
 
 import java.util.List;
@@ -41,6 +42,7 @@ import javax.inject.Singleton;
  *
  */
 @Singleton
+@SoyApiCallScopeFree
 class BidiTextDirFunction implements SoyJavaFunction, SoyJsSrcFunction, SoyPySrcFunction {
 
 
@@ -70,7 +72,7 @@ class BidiTextDirFunction implements SoyJavaFunction, SoyJsSrcFunction, SoyPySrc
     if (valueDir == null) {
       isHtmlForValueDirEstimation = isHtmlForValueDirEstimation ||
         (args.size() == 2 && args.get(1).booleanValue());
-      valueDir = BidiUtils.estimateDirection(value.coerceToString(), isHtmlForValueDirEstimation);
+      valueDir = SoyBidiUtils.estimateDirection(value, isHtmlForValueDirEstimation);
     }
     return IntegerData.forValue(valueDir.ord);
   }
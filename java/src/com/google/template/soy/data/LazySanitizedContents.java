@@ -32,5 +32,14 @@ public final class LazySanitizedContents {
     return SanitizedContent.createLazy(value, kind, SanitizedContents.getDefaultDir(kind));
   }
 
+  /**
+   * Creates a SanitizedContent that wraps the given thunk, which is expected to be rendered at most
+   * once.
+   */
+  public static SanitizedContent forSingleUseThunk(RenderableThunk value, ContentKind kind) {
+    return SanitizedContent.createSingleUseLazy(
+        value, kind, SanitizedContents.getDefaultDir(kind));
+  }
+
   private LazySanitizedContents() {}
 }
@@ -60,7 +60,23 @@ public abstract class SanitizedContent extends SoyData {
    *     necessary.
    */
   static SanitizedContent createLazy(RenderableThunk thunk, ContentKind kind, @Nullable Dir dir) {
-    return new LazyContent(thunk, kind, dir);
+    return new LazyContent(thunk, kind, dir, false);
+  }
+
+  /**
+   * Creates a lazy SanitizedContent object that is expected to be rendered at most once. Rendering
+   * it streams the thunk straight into the output without saving a copy.
+   *
+   * <p>Package-private. This is meant exclusively for use by the rendering infrastructure
+   *
+   * @param thunk A lazy thunk that renders the valid content.
+   * @param kind Describes the kind of string that content is.
+   * @param dir The content's direction; null if unknown and thus to be estimated when
+   *     necessary.
+   */
+  static SanitizedContent createSingleUseLazy(
+      RenderableThunk thunk, ContentKind kind, @Nullable Dir dir) {
+    return new LazyContent(thunk, kind, dir, true);
   }
 
   /**
@@ -208,19 +224,23 @@ public abstract class SanitizedContent extends SoyData {
 
     RenderableThunk thunk;
     String content;
+    final boolean isSingleUse;
 
-    LazyContent(RenderableThunk thunk, ContentKind contentKind, @Nullable Dir contentDir) {
+    LazyContent(
+        RenderableThunk thunk, ContentKind contentKind, @Nullable Dir contentDir,
+        boolean isSingleUse) {
       super(contentKind, contentDir);
       this.thunk = thunk;
+      this.isSingleUse = isSingleUse;
     }
 
     @Override
     public void render(Appendable appendable) throws IOException {
-      if (content == null) {
-        // TODO(lukes): in some cases we know that this will be the only time render is called on
-        // this value.  Consider modifying the render api to accept a 'single-shot' boolean so we
-        // can just call render() instead of renderAndSave().  Then we could save a potentially
-        // large amount of buffering.
+      if (content == null && isSingleUse) {
+        // This is expected to be the only time render is called on this value, so skip saving a
+        // copy. If it is rendered again anyway, the thunk is simply re-run.
+        thunk.render(appendable);
+      } else if (content == null) {
         content = thunk.renderAndSave(appendable);
         thunk = null;  // allow the thunk to be collected
       } else {
@@ -18,7 +18,7 @@ package com.google.template.soy.data;
 
 import com.google.common.collect.Maps;
 
-import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.ParametersAreNonnullByDefault;
 
@@ -30,6 +30,10 @@ import javax.annotation.ParametersAreNonnullByDefault;
  * providers, which is often a noop). Each value provider is expected to implement caching of its
  * own resolve() operation if desired.
  *
+ * <p>The cache is thread-safe, so a record can be shared by concurrent renders. In a race
+ * condition, getFieldProviderInternal() may be called twice for a field, but all callers get the
+ * provider that was cached first.
+ *
  * <p>Important: Until this API is more stable and this note is removed, users must not define
  * classes that extend this class.
  *
@@ -38,19 +42,36 @@ import javax.annotation.ParametersAreNonnullByDefault;
 public abstract class SoyAbstractCachingRecord extends SoyAbstractRecord {
 
 
+  /** Placeholder for caching that a field doesn't exist, since the map can't hold nulls. */
+  private static final SoyValueProvider NO_SUCH_FIELD = new SoyValueProvider() {
+    @Override public SoyValue resolve() {
+      throw new UnsupportedOperationException();
+    }
+    @Override public boolean equals(SoyValueProvider other) {
+      return this == other;
+    }
+  };
+
+
   /** Map of previously retrieved field providers. */
-  private final Map<String, SoyValueProvider> cachedFieldProviders = Maps.newHashMap();
+  private final ConcurrentMap<String, SoyValueProvider> cachedFieldProviders =
+      Maps.newConcurrentMap();
 
 
   @Override public final SoyValueProvider getFieldProvider(String name) {
 
-    if (cachedFieldProviders.containsKey(name)) {
-      return cachedFieldProviders.get(name);
-    } else {
-      SoyValueProvider result = getFieldProviderInternal(name);
-      cachedFieldProviders.put(name, result);
-      return result;
+    SoyValueProvider result = cachedFieldProviders.get(name);
+    if (result == null) {
+      result = getFieldProviderInternal(name);
+      if (result == null) {
+        result = NO_SUCH_FIELD;
+      }
+      SoyValueProvider racingResult = cachedFieldProviders.putIfAbsent(name, result);
+      if (racingResult != null) {
+        result = racingResult;
+      }
     }
+    return (result != NO_SUCH_FIELD) ? result : null;
   }
 
 
@@ -18,6 +18,8 @@ package com.google.template.soy.data;
 
 import com.google.common.base.Preconditions;
 
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
 import javax.annotation.Nullable;
 
 
@@ -25,7 +27,8 @@ import javax.annotation.Nullable;
  * A SoyValueProvider that lazily computes and caches its value.
  *
  * <p>SoyAbstractCachingValueProvider is thread-safe, but in a race condition, may compute its
- * value twice.
+ * value twice. Only the first computed value is kept though, so all callers of resolve() get the
+ * same value.
  *
  * <p>Important: Do not use outside of Soy code (treat as superpackage-private).
  *
@@ -41,11 +44,18 @@ public abstract class SoyAbstractCachingValueProvider implements SoyValueProvide
 
     public abstract void check(SoyValue value);
   }
+
+  /** Sets the resolved value if it's not set yet. */
+  private static final AtomicReferenceFieldUpdater<SoyAbstractCachingValueProvider, SoyValue>
+      RESOLVED_VALUE_UPDATER = AtomicReferenceFieldUpdater.newUpdater(
+          SoyAbstractCachingValueProvider.class, SoyValue.class, "resolvedValue");
+
   /**
    * The resolved value.
    * <p>
-   * This will be set to non-null the first time this is resolved. Note that SoyValue must not be
-   * null. This is volatile to indicate it will be tested and set atomically across threads.
+   * This will be set to non-null the first time this is resolved, and never changes afterwards.
+   * Note that SoyValue must not be null. This is volatile to indicate it will be tested and set
+   * atomically across threads.
    */
   private volatile SoyValue resolvedValue = null;
 
@@ -54,18 +64,22 @@ public abstract class SoyAbstractCachingValueProvider implements SoyValueProvide
   @Nullable private ValueAssertion valueAssertion;
 
   @Override public final SoyValue resolve() {
-    // NOTE: If this is used across threads, the worst that will happen is two different providers
-    // will be constructed, and an arbitrary one will win. Since setting a volatile reference is
-    // atomic, however, this is thread-safe. We keep a local cache here to avoid doing a memory
-    // read more than once in the cached case.
+    // NOTE: If this is used across threads, the worst that will happen is that the value will be
+    // computed twice. Only the first value to be set is kept (and returned by the other thread),
+    // so callers never see different instances. We keep a local cache here to avoid doing a
+    // memory read more than once in the cached case.
     SoyValue localResolvedValue = resolvedValue;
     if (localResolvedValue == null) {
+      ValueAssertion localValueAssertion = valueAssertion;
       localResolvedValue = compute();
-      for (ValueAssertion curr = valueAssertion; curr != null; curr = curr.next) {
+      for (ValueAssertion curr = localValueAssertion; curr != null; curr = curr.next) {
         curr.check(localResolvedValue);
       }
-      resolvedValue = localResolvedValue;
-      valueAssertion = null;
+      if (RESOLVED_VALUE_UPDATER.compareAndSet(this, null, localResolvedValue)) {
+        valueAssertion = null;
+      } else {
+        localResolvedValue = resolvedValue;
+      }
     }
     return localResolvedValue;
   }
@@ -73,8 +87,7 @@ public abstract class SoyAbstractCachingValueProvider implements SoyValueProvide
 
   @Override public boolean equals(SoyValueProvider other) {
     // NOTE: The identity check is essential. If the underlying SoyValue type requires instance
-    // equality, and resolve() is called by two different threads, it's possible that resolve()
-    // will return two different instances.
+    // equality, resolve() must be compared against itself as the same instance.
     return this == other || (other != null && resolve().equals(other.resolve()));
   }
 
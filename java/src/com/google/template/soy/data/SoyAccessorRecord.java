@@ -0,0 +1,307 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.data;
+
+import com.google.common.base.Ascii;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
+
+/**
+ * SoyRecord view of a Java object, such as a generated protocol buffer message, whose fields are
+ * read on demand through the object's getters.
+ *
+ * <p> A getter {@code getFooBar()} gives the field {@code fooBar}, and a boolean getter
+ * {@code isFoo()} gives the field {@code foo}, unless there's also a {@code getFoo()}. The
+ * framework getters of protocol buffer messages (such as {@code getDefaultInstanceForType()},
+ * {@code getAllFields()} and the {@code getFooBytes()} of string fields) are skipped. The
+ * getters of each class are found once and shared by all the records of the class, and each
+ * field is read and converted at most once per record, when a template first reads it. So
+ * converting an object with many fields for a template that reads few of them is cheap. Fields
+ * of list type are converted to lists whose items are converted on demand.
+ *
+ * <p> To have objects of some class converted this way, register the converter returned by
+ * {@link #converterFor} as a {@link SoyCustomValueConverter}.
+ *
+ * <p>Important: Until this API is more stable and this note is removed, users must not define
+ * classes that extend this class.
+ *
+ */
+@ParametersAreNonnullByDefault
+public final class SoyAccessorRecord extends SoyAbstractCachingRecord {
+
+
+  /**
+   * Names of getters of generated protocol buffer messages that don't read a field, besides the
+   * ones ending in "ForType" or "OrBuilder(List)". getAllFields() is keyed by field descriptors,
+   * which can't be converted to Soy data.
+   */
+  private static final ImmutableSet<String> FRAMEWORK_GETTER_NAMES = ImmutableSet.of(
+      "getAllFields", "getInitializationErrorString", "getSerializedSize", "getUnknownFields",
+      "isInitialized");
+
+
+  /** The objects whose records are being rendered by the current thread, to stop at cycles. */
+  private static final ThreadLocal<Set<Object>> OBJECTS_BEING_RENDERED =
+      new ThreadLocal<Set<Object>>() {
+        @Override protected Set<Object> initialValue() {
+          return Sets.newIdentityHashSet();
+        }
+      };
+
+
+  /**
+   * The getters of each class, by field name. Classes are weakly referenced so that they can be
+   * unloaded.
+   */
+  private static final LoadingCache<Class<?>, ImmutableSortedMap<String, Method>> GETTERS =
+      CacheBuilder.newBuilder()
+          .weakKeys()
+          .build(new CacheLoader<Class<?>, ImmutableSortedMap<String, Method>>() {
+            @Override public ImmutableSortedMap<String, Method> load(Class<?> cls) {
+              return findGetters(cls);
+            }
+          });
+
+
+  /**
+   * Creates a record view of a Java object.
+   * @param valueConverter The converter to use for the field values.
+   * @param object The object whose getters give the fields of the record.
+   */
+  public static SoyAccessorRecord forObject(SoyValueConverter valueConverter, Object object) {
+    return new SoyAccessorRecord(valueConverter, object, GETTERS.getUnchecked(object.getClass()));
+  }
+
+
+  /**
+   * Returns a converter of the instances of a class (including subclasses) to record views.
+   * @param cls The class of the objects to convert.
+   */
+  public static SoyCustomValueConverter converterFor(final Class<?> cls) {
+    return new SoyCustomValueConverter() {
+      @Override public SoyValueProvider convert(SoyValueConverter valueConverter, Object obj) {
+        return cls.isInstance(obj) ? forObject(valueConverter, obj) : null;
+      }
+    };
+  }
+
+
+  /**
+   * Private helper to find the getters of a class, by field name.
+   */
+  private static ImmutableSortedMap<String, Method> findGetters(Class<?> cls) {
+
+    Map<String, Method> getters = Maps.newHashMap();
+    for (Method method : cls.getMethods()) {
+      if (Modifier.isStatic(method.getModifiers())
+          || method.isBridge()
+          || method.getParameterTypes().length > 0
+          || method.getReturnType() == void.class
+          || method.getDeclaringClass() == Object.class) {
+        continue;
+      }
+      String methodName = method.getName();
+      if (methodName.endsWith("ForType") || methodName.endsWith("OrBuilder")
+          || methodName.endsWith("OrBuilderList") || FRAMEWORK_GETTER_NAMES.contains(methodName)) {
+        continue;  // not a field
+      }
+      if (isGetterName(methodName, "get")) {
+        getters.put(toFieldName(methodName.substring(3)), method);
+      } else if (isGetterName(methodName, "is") && method.getReturnType() == boolean.class) {
+        String fieldName = toFieldName(methodName.substring(2));
+        if (!getters.containsKey(fieldName)) {
+          getters.put(fieldName, method);
+        }
+      }
+    }
+
+    // Generated messages have a getFooBytes() for each string field foo, giving the UTF-8 bytes as
+    // a ByteString, which can't be converted to Soy data.
+    Iterator<Map.Entry<String, Method>> getterIterator = getters.entrySet().iterator();
+    while (getterIterator.hasNext()) {
+      Map.Entry<String, Method> entry = getterIterator.next();
+      String fieldName = entry.getKey();
+      if (fieldName.endsWith("Bytes") && entry.getValue().getReturnType() != String.class) {
+        Method stringGetter = getters.get(fieldName.substring(0, fieldName.length() - 5));
+        if (stringGetter != null && stringGetter.getReturnType() == String.class) {
+          getterIterator.remove();
+        }
+      }
+    }
+
+    if (!Modifier.isPublic(cls.getModifiers())) {
+      // Public methods of non-public classes can't be called through reflection without this.
+      for (Method method : getters.values()) {
+        method.setAccessible(true);
+      }
+    }
+    return ImmutableSortedMap.copyOf(getters);
+  }
+
+
+  private static boolean isGetterName(String methodName, String prefix) {
+    return methodName.length() > prefix.length() && methodName.startsWith(prefix)
+        && Character.isUpperCase(methodName.charAt(prefix.length()));
+  }
+
+
+  private static String toFieldName(String capitalizedName) {
+    return (Ascii.toLowerCase(capitalizedName.charAt(0)) + capitalizedName.substring(1)).intern();
+  }
+
+
+  // -----------------------------------------------------------------------------------------------
+  // SoyAccessorRecord body.
+
+
+  /** The converter to use for the field values. */
+  private final SoyValueConverter valueConverter;
+
+  /** The object whose getters give the fields. */
+  private final Object object;
+
+  /** The getters of the object's class, by field name. */
+  private final ImmutableSortedMap<String, Method> getters;
+
+
+  private SoyAccessorRecord(
+      SoyValueConverter valueConverter, Object object,
+      ImmutableSortedMap<String, Method> getters) {
+    this.valueConverter = valueConverter;
+    this.object = object;
+    this.getters = getters;
+  }
+
+
+  /** Returns the object whose getters give the fields. */
+  public Object getObject() {
+    return object;
+  }
+
+
+  // -----------------------------------------------------------------------------------------------
+  // SoyRecord.
+
+
+  @Override public boolean hasField(String name) {
+    return getters.containsKey(name);
+  }
+
+
+  @Override public SoyValueProvider getFieldProviderInternal(final String name) {
+    final Method getter = getters.get(name);
+    if (getter == null) {
+      return null;
+    }
+    return new SoyAbstractCachingValueProvider() {
+      @Override protected SoyValue compute() {
+        Object value;
+        try {
+          value = getter.invoke(object);
+        } catch (InvocationTargetException e) {
+          throw new SoyDataException(name, "Failed to read field.", e.getCause());
+        } catch (IllegalAccessException e) {
+          throw new SoyDataException(name, "Failed to read field.", e);
+        }
+        return valueConverter.convert(value).resolve();
+      }
+    };
+  }
+
+
+  // -----------------------------------------------------------------------------------------------
+  // SoyValue.
+
+
+  @Override public boolean equals(SoyValue other) {
+    // Instance equality, to match Javascript behavior.
+    return this == other;
+  }
+
+
+  @Override public boolean coerceToBoolean() {
+    return true;
+  }
+
+
+  /** Reads all the fields. */
+  @Override public String coerceToString() {
+    StringBuilder recordStr = new StringBuilder();
+    try {
+      render(recordStr);
+    } catch (IOException e) {
+      throw new RuntimeException(e);  // impossible
+    }
+    return recordStr.toString();
+  }
+
+
+  /**
+   * Reads all the fields. A record of an object that is already being rendered (through a cycle of
+   * references, such as a parent field) is rendered as {@code {...}}.
+   */
+  @Override public void render(Appendable appendable) throws IOException {
+    Set<Object> objectsBeingRendered = OBJECTS_BEING_RENDERED.get();
+    if (!objectsBeingRendered.add(object)) {
+      appendable.append("{...}");
+      return;
+    }
+    try {
+      renderFields(appendable);
+    } finally {
+      objectsBeingRendered.remove(object);
+    }
+  }
+
+
+  private void renderFields(Appendable appendable) throws IOException {
+    appendable.append('{');
+    boolean isFirst = true;
+    for (String name : getters.keySet()) {
+      if (isFirst) {
+        isFirst = false;
+      } else {
+        appendable.append(", ");
+      }
+      appendable.append(name).append(": ");
+      getField(name).render(appendable);
+    }
+    appendable.append('}');
+  }
+
+
+  @Override public String toString() {
+    return coerceToString();
+  }
+
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.data;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.collect.Maps;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+
+/**
+ * SoyRecord whose field values may be computed lazily, the first time a template reads them.
+ *
+ * <p> This is meant for injected data: the renderer can't know in advance which injected values
+ * the templates will read, so values that are expensive to compute can be given as a
+ * {@link Supplier}, which is called once, or as a {@link Future}, which the renderer
+ * flushes its output before blocking on (see {@link SoyFutureValueProvider}). Unread fields are
+ * never computed.
+ *
+ * <p> To tell which lazy fields are worth their cost, the record counts how many of them were
+ * computed (see {@link #getLazyFieldResolutionCount}).
+ *
+ * <p> Records are thread-safe, but are meant to be used for a single render, since the computed
+ * values are kept.
+ *
+ */
+@ParametersAreNonnullByDefault
+public final class SoyLazyRecord extends SoyAbstractRecord {
+
+
+  /**
+   * Creates a builder of a lazy record.
+   * @param valueHelper The instance of SoyValueHelper to use for converting the field values.
+   */
+  public static Builder builder(SoyValueHelper valueHelper) {
+    return new Builder(valueHelper);
+  }
+
+
+  /**
+   * Builder of a lazy record.
+   */
+  public static final class Builder {
+
+    private final SoyValueHelper valueHelper;
+
+    /** The fields added so far, in order. */
+    private final Map<String, SoyValueProvider> fieldProviders = Maps.newLinkedHashMap();
+
+    /** The number of fields computed by a supplier or a future. */
+    private int lazyFieldCount = 0;
+
+    /** Counts the lazy fields computed by the built record, if any. */
+    private final AtomicInteger lazyFieldResolutionCount = new AtomicInteger();
+
+    private Builder(SoyValueHelper valueHelper) {
+      this.valueHelper = valueHelper;
+    }
+
+    /**
+     * Adds a field with a known value.
+     * @param name The field name. Must not be added yet.
+     * @param value The field value, which is converted with the builder's SoyValueHelper. A
+     *     {@link Future} is only waited on if the field is read.
+     */
+    public Builder put(String name, @Nullable Object value) {
+      if (value instanceof Future<?>) {
+        // The future provider flushes the output before blocking on the future.
+        final SoyFutureValueProvider futureProvider =
+            new SoyFutureValueProvider(valueHelper, (Future<?>) value);
+        return putProvider(name, new LazyFieldProvider() {
+          @Override protected SoyValue computeValue() {
+            return futureProvider.resolve();
+          }
+        });
+      }
+      return putProvider(name, valueHelper.convert(value));
+    }
+
+    /**
+     * Adds a field whose value is computed the first time the field is read.
+     * @param name The field name. Must not be added yet.
+     * @param supplier Supplies the field value, which is converted with the builder's
+     *     SoyValueHelper. Called once, or in a race condition between concurrent reads of the
+     *     field, possibly twice.
+     */
+    public Builder putSupplier(String name, final Supplier<?> supplier) {
+      return putProvider(name, new LazyFieldProvider() {
+        @Override protected SoyValue computeValue() {
+          return valueHelper.convert(supplier.get()).resolve();
+        }
+      });
+    }
+
+    private Builder putProvider(String name, SoyValueProvider provider) {
+      Preconditions.checkArgument(
+          !fieldProviders.containsKey(name), "Field '%s' was already added.", name);
+      fieldProviders.put(name, provider);
+      if (provider instanceof LazyFieldProvider) {
+        lazyFieldCount++;
+      }
+      return this;
+    }
+
+    /** Builds the record. The builder must not be used afterwards. */
+    public SoyLazyRecord build() {
+      return new SoyLazyRecord(this);
+    }
+
+
+    /**
+     * Provider of a lazy field, which counts the computations of the field. Being a caching
+     * provider, the renderer checks the declared type of an injected param only when the field is
+     * read, rather than computing it when a template declaring the param is called.
+     */
+    private abstract class LazyFieldProvider extends SoyAbstractCachingValueProvider {
+
+      @Override protected final SoyValue compute() {
+        lazyFieldResolutionCount.incrementAndGet();
+        return computeValue();
+      }
+
+      /** Computes the field value. */
+      protected abstract SoyValue computeValue();
+    }
+  }
+
+
+  /** The field providers, in the order they were added. */
+  private final Map<String, SoyValueProvider> fieldProviders;
+
+  /** The number of fields computed by a supplier or a future. */
+  private final int lazyFieldCount;
+
+  /** The number of lazy fields that were computed. */
+  private final AtomicInteger lazyFieldResolutionCount;
+
+
+  private SoyLazyRecord(Builder builder) {
+    this.fieldProviders = Collections.unmodifiableMap(builder.fieldProviders);
+    this.lazyFieldCount = builder.lazyFieldCount;
+    this.lazyFieldResolutionCount = builder.lazyFieldResolutionCount;
+  }
+
+
+  /** Returns the number of fields computed by a supplier or a future. */
+  public int getLazyFieldCount() {
+    return lazyFieldCount;
+  }
+
+
+  /**
+   * Returns the number of lazy fields that were computed so far. In a race condition between
+   * concurrent reads of a field, the field may be counted twice.
+   */
+  public int getLazyFieldResolutionCount() {
+    return lazyFieldResolutionCount.get();
+  }
+
+
+  // -----------------------------------------------------------------------------------------------
+  // SoyRecord.
+
+
+  @Override public boolean hasField(String name) {
+    return fieldProviders.containsKey(name);
+  }
+
+
+  @Override public SoyValueProvider getFieldProvider(String name) {
+    return fieldProviders.get(name);
+  }
+
+
+  // -----------------------------------------------------------------------------------------------
+  // SoyValue.
+
+
+  @Override public boolean equals(SoyValue other) {
+    // Instance equality, to match Javascript behavior.
+    return this == other;
+  }
+
+
+  @Override public boolean coerceToBoolean() {
+    return true;
+  }
+
+
+  /** Computes all the lazy fields. */
+  @Override public String coerceToString() {
+    StringBuilder recordStr = new StringBuilder();
+    try {
+      render(recordStr);
+    } catch (IOException e) {
+      throw new RuntimeException(e);  // impossible
+    }
+    return recordStr.toString();
+  }
+
+
+  /** Computes all the lazy fields. */
+  @Override public void render(Appendable appendable) throws IOException {
+    appendable.append('{');
+    boolean isFirst = true;
+    for (Map.Entry<String, SoyValueProvider> entry : fieldProviders.entrySet()) {
+      if (isFirst) {
+        isFirst = false;
+      } else {
+        appendable.append(", ");
+      }
+      appendable.append(entry.getKey()).append(": ");
+      entry.getValue().resolve().render(appendable);
+    }
+    appendable.append('}');
+  }
+
+
+  @Override public String toString() {
+    return coerceToString();
+  }
+
+}
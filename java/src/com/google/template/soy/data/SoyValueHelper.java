@@ -26,6 +26,8 @@ import com.google.template.soy.data.internal.DictImpl;
 import com.google.template.soy.data.internal.EasyDictImpl;
 import com.google.template.soy.data.internal.EasyListImpl;
 import com.google.template.soy.data.internal.ListImpl;
+import com.google.template.soy.data.internal.RecordShape;
+import com.google.template.soy.data.internal.RecordShapeTable;
 import com.google.template.soy.data.restricted.BooleanData;
 import com.google.template.soy.data.restricted.FloatData;
 import com.google.template.soy.data.restricted.IntegerData;
@@ -72,6 +74,9 @@ public final class SoyValueHelper implements SoyValueConverter {
   @Inject(optional = true)
   private List<SoyCustomValueConverter> customValueConverters;
 
+  /** The shapes of the record-like dicts converted from Java maps lately. */
+  private final RecordShapeTable dictShapes = new RecordShapeTable();
+
 
   @Inject
   public SoyValueHelper() {}
@@ -150,11 +155,25 @@ public final class SoyValueHelper implements SoyValueConverter {
     // Create a dictionary backed by a map which has eagerly converted each value into a lazy
     // value provider. Specifically, the map iteration is done eagerly so that the lazy value
     // provider can cache its value.
-    ImmutableMap.Builder<String, SoyValueProvider> builder = ImmutableMap.builder();
+    int size = javaStringMap.size();
+    if (size > RecordShape.MAX_FIELD_COUNT) {
+      ImmutableMap.Builder<String, SoyValueProvider> builder = ImmutableMap.builder();
+      for (Map.Entry<String, ?> entry : javaStringMap.entrySet()) {
+        builder.put(entry.getKey(), convertLazy(entry.getValue()));
+      }
+      return DictImpl.forProviderMap(builder.build());
+    }
+
+    // Record-like maps only store their values, in the order of a shape shared with the maps with
+    // the same keys that this helper converted lately (e.g. the other elements of a list).
+    String[] fieldNames = new String[size];
+    SoyValueProvider[] providers = new SoyValueProvider[size];
+    int i = 0;
     for (Map.Entry<String, ?> entry : javaStringMap.entrySet()) {
-      builder.put(entry.getKey(), convertLazy(entry.getValue()));
+      fieldNames[i] = Preconditions.checkNotNull(entry.getKey());
+      providers[i++] = convertLazy(entry.getValue());
     }
-    return DictImpl.forProviderMap(builder.build());
+    return DictImpl.forShapedProviders(dictShapes.get(fieldNames), providers);
   }
 
 
@@ -51,6 +51,19 @@ public final class DictImpl extends AbstractDict {
   }
 
 
+  /**
+   * Creates a SoyDict implementation whose keys are the fields of a shared shape, and which only
+   * stores its values.
+   *
+   * @param shape The shape of the dict.
+   * @param providers The value providers, by field index of the shape. Not copied, so must not be
+   *     modified afterwards.
+   */
+  public static DictImpl forShapedProviders(RecordShape shape, SoyValueProvider[] providers) {
+    return new DictImpl(new ShapedProviderMap(shape, providers));
+  }
+
+
   private DictImpl(Map<String, ? extends SoyValueProvider> providerMap) {
     super(providerMap);
   }
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.data.internal;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * The layout of a record-like dict: its field names in order, and the index of each field.
+ *
+ * <p> Dicts converted from Java maps with the same keys in the same order (e.g. the elements of a
+ * list of records) share one shape (see {@link RecordShapeTable}), and each dict only stores its
+ * values in an array indexed by the shape, instead of carrying its own hash table.
+ *
+ * <p> Important: Do not use outside of Soy code (treat as superpackage-private).
+ *
+ */
+public final class RecordShape {
+
+
+  /**
+   * The max number of fields of a shape. Larger maps are more likely keyed by data than by field
+   * names, so they wouldn't share shapes.
+   */
+  public static final int MAX_FIELD_COUNT = 16;
+
+
+  /**
+   * Returns a new shape with the given field names.
+   * @param fieldNames The field names, in order. Must be distinct, and at most
+   *     {@link #MAX_FIELD_COUNT}.
+   */
+  public static RecordShape forFieldNames(ImmutableList<String> fieldNames) {
+    if (fieldNames.size() > MAX_FIELD_COUNT) {
+      throw new IllegalArgumentException(
+          "Record shapes have at most " + MAX_FIELD_COUNT + " fields (got " + fieldNames + ").");
+    }
+    return new RecordShape(fieldNames);
+  }
+
+
+  /** The field names, in order. */
+  private final ImmutableList<String> fieldNames;
+
+  /** The index of each field, by name. */
+  private final ImmutableMap<String, Integer> fieldIndices;
+
+
+  private RecordShape(ImmutableList<String> fieldNames) {
+    ImmutableMap.Builder<String, Integer> fieldIndicesBuilder = ImmutableMap.builder();
+    for (int i = 0; i < fieldNames.size(); i++) {
+      fieldIndicesBuilder.put(fieldNames.get(i), i);
+    }
+    this.fieldNames = fieldNames;
+    this.fieldIndices = fieldIndicesBuilder.build();  // checks that the names are distinct
+  }
+
+
+  /** Returns the number of fields. */
+  public int getFieldCount() {
+    return fieldNames.size();
+  }
+
+
+  /** Returns the field names, in order. */
+  public ImmutableList<String> getFieldNames() {
+    return fieldNames;
+  }
+
+
+  /** Returns the name of the field at the given index. */
+  public String getFieldName(int index) {
+    return fieldNames.get(index);
+  }
+
+
+  /**
+   * Returns whether this shape has exactly the given field names, in the same order.
+   * @param names The field names.
+   */
+  public boolean hasFieldNames(String[] names) {
+    if (names.length != fieldNames.size()) {
+      return false;
+    }
+    for (int i = 0; i < names.length; i++) {
+      String fieldName = fieldNames.get(i);
+      if (fieldName != names[i] && !fieldName.equals(names[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+
+  /**
+   * Returns the index of the field with the given name, or -1 if there's no such field.
+   * @param name The field name.
+   */
+  public int getFieldIndex(Object name) {
+    // Map keys are usually string literals and template field names are interned, so first try
+    // comparing by identity, which is cheaper than hashing for the few fields that records have.
+    for (int i = 0; i < fieldNames.size(); i++) {
+      if (fieldNames.get(i) == name) {
+        return i;
+      }
+    }
+    Integer index = fieldIndices.get(name);
+    return (index != null) ? index : -1;
+  }
+
+
+  @Override public String toString() {
+    return "RecordShape" + fieldNames;
+  }
+
+}
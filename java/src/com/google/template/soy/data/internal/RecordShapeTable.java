@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.data.internal;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A small table of the record shapes that one converter of Java maps used lately, so that the
+ * dicts it converts from maps with the same keys share a shape.
+ *
+ * <p> The table is bounded, since maps keyed by data get shapes too, which just displace other
+ * shapes. Each shape can go in one of two slots, so shapes used in alternation (such as those of
+ * the elements of two lists) usually both stay. Concurrent lookups may displace or duplicate
+ * shapes, which only makes fewer dicts share a shape.
+ *
+ * <p> Important: Do not use outside of Soy code (treat as superpackage-private).
+ *
+ */
+public final class RecordShapeTable {
+
+
+  /** The number of slots. A power of two. */
+  private static final int SLOT_COUNT = 32;
+
+
+  /**
+   * The shapes by slot. A shape goes in the even slot given by the hash of its field names, or in
+   * the odd slot after it. The even slot holds the shape added last.
+   */
+  private final AtomicReferenceArray<RecordShape> shapes = new AtomicReferenceArray<>(SLOT_COUNT);
+
+
+  /**
+   * Returns the shape with the given field names, which is the same instance as the last time
+   * while the shape stays in the table.
+   * @param fieldNames The field names, in order. Must be distinct, and at most
+   *     {@link RecordShape#MAX_FIELD_COUNT}.
+   */
+  public RecordShape get(String[] fieldNames) {
+    int hash = Arrays.hashCode(fieldNames);
+    int slot = (hash ^ (hash >>> 16)) & (SLOT_COUNT - 2);
+    RecordShape shape = shapes.get(slot);
+    if (shape != null && shape.hasFieldNames(fieldNames)) {
+      return shape;
+    }
+    RecordShape otherShape = shapes.get(slot + 1);
+    if (otherShape != null && otherShape.hasFieldNames(fieldNames)) {
+      return otherShape;
+    }
+    RecordShape newShape = RecordShape.forFieldNames(ImmutableList.copyOf(fieldNames));
+    shapes.set(slot + 1, shape);
+    shapes.set(slot, newShape);
+    return newShape;
+  }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.data.internal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.UnmodifiableIterator;
+import com.google.template.soy.data.SoyValueProvider;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable provider map that stores its values in an array indexed by a shared
+ * {@link RecordShape}, in the order of the shape's fields.
+ *
+ */
+final class ShapedProviderMap extends AbstractMap<String, SoyValueProvider> {
+
+
+  /** The shape giving the key at each index. */
+  private final RecordShape shape;
+
+  /** The values, by field index. */
+  private final SoyValueProvider[] values;
+
+
+  /**
+   * @param shape The shape giving the key at each index.
+   * @param values The values, by field index. Not copied, so must not be modified afterwards.
+   */
+  ShapedProviderMap(RecordShape shape, SoyValueProvider[] values) {
+    Preconditions.checkArgument(values.length == shape.getFieldCount());
+    this.shape = shape;
+    this.values = values;
+  }
+
+
+  @Override public int size() {
+    return values.length;
+  }
+
+
+  @Override public boolean containsKey(Object key) {
+    return shape.getFieldIndex(key) >= 0;
+  }
+
+
+  @Override public SoyValueProvider get(Object key) {
+    int index = shape.getFieldIndex(key);
+    return (index >= 0) ? values[index] : null;
+  }
+
+
+  @Override public Set<String> keySet() {
+    return new AbstractSet<String>() {
+      @Override public Iterator<String> iterator() {
+        return shape.getFieldNames().iterator();
+      }
+      @Override public int size() {
+        return values.length;
+      }
+      @Override public boolean contains(Object key) {
+        return containsKey(key);
+      }
+    };
+  }
+
+
+  @Override public Set<Map.Entry<String, SoyValueProvider>> entrySet() {
+    return new AbstractSet<Map.Entry<String, SoyValueProvider>>() {
+      @Override public Iterator<Map.Entry<String, SoyValueProvider>> iterator() {
+        return new UnmodifiableIterator<Map.Entry<String, SoyValueProvider>>() {
+          private int index = 0;
+          @Override public boolean hasNext() {
+            return index < values.length;
+          }
+          @Override public Map.Entry<String, SoyValueProvider> next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            Map.Entry<String, SoyValueProvider> entry =
+                new SimpleImmutableEntry<>(shape.getFieldName(index), values[index]);
+            index++;
+            return entry;
+          }
+        };
+      }
+      @Override public int size() {
+        return values.length;
+      }
+    };
+  }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.data.internal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.Maps;
+import com.google.template.soy.data.SoyRecord;
+import com.google.template.soy.data.SoyValueProvider;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Implementation of ParamStore for calling a template whose declared params are known, which
+ * stores the values of the declared params in an array, at the slots of the params.
+ *
+ * <p> The callee can then take its params' values from the array by slot instead of looking each
+ * one up by name. Params that the callee doesn't declare are kept in a map.
+ *
+ * <p> Important: Do not use outside of Soy code (treat as superpackage-private).
+ *
+ */
+public final class SlottedParamStore extends ParamStore {
+
+
+  /** Interner of the slot indices maps. Weak, so that unused maps can be garbage collected. */
+  private static final Interner<ImmutableMap<String, Integer>> SLOT_INDICES_INTERNER =
+      Interners.newWeakInterner();
+
+
+  /**
+   * Returns the canonical slot indices map for the given declared params, in which the slot of each
+   * param is its index in the list. Templates and the generated builders of their data get their
+   * maps from here, so that equal maps are the same instance.
+   * @param paramNames The names of the declared params, in slot order.
+   */
+  public static ImmutableMap<String, Integer> internSlotIndices(List<String> paramNames) {
+    ImmutableMap.Builder<String, Integer> slotIndices = ImmutableMap.builder();
+    for (int i = 0; i < paramNames.size(); i++) {
+      slotIndices.put(paramNames.get(i), i);
+    }
+    return SLOT_INDICES_INTERNER.intern(slotIndices.build());
+  }
+
+
+  /**
+   * Returns the param values by slot that the given data holds for a template, or null if the data
+   * isn't a SlottedParamStore built for the template.
+   * @param data The data the template is called with.
+   * @param slotIndices The template's param slot indices. The store must have been built with the
+   *     same instance, which holds for maps from {@link #internSlotIndices}.
+   */
+  @Nullable public static SoyValueProvider[] getSlots(
+      SoyRecord data, ImmutableMap<String, Integer> slotIndices) {
+    if (data instanceof SlottedParamStore) {
+      SlottedParamStore slottedData = (SlottedParamStore) data;
+      if (slottedData.slotIndices == slotIndices) {
+        return slottedData.slots;
+      }
+    }
+    return null;
+  }
+
+
+  /** The slot index of each declared param of the callee, by name. */
+  private final ImmutableMap<String, Integer> slotIndices;
+
+  /** The values of the declared params, by slot (null if not set). */
+  private final SoyValueProvider[] slots;
+
+  /** The values of params that the callee doesn't declare, or null if there are none. */
+  @Nullable private Map<String, SoyValueProvider> undeclaredParams;
+
+
+  /**
+   * @param slotIndices The slot index of each declared param of the callee, by name. The slot
+   *     indices must be 0 to the number of params - 1.
+   */
+  public SlottedParamStore(ImmutableMap<String, Integer> slotIndices) {
+    this.slotIndices = slotIndices;
+    this.slots = new SoyValueProvider[slotIndices.size()];
+  }
+
+
+  @Override public void setField(String name, @Nonnull SoyValueProvider valueProvider) {
+    Preconditions.checkNotNull(valueProvider);
+    Integer slot = slotIndices.get(name);
+    if (slot != null) {
+      slots[slot] = valueProvider;
+    } else {
+      if (undeclaredParams == null) {
+        undeclaredParams = Maps.newHashMap();
+      }
+      undeclaredParams.put(name, valueProvider);
+    }
+  }
+
+
+  /**
+   * Sets the value of the declared param at the given slot.
+   * @param slot The slot index of the param.
+   * @param valueProvider A provider of the param value.
+   */
+  public void setSlot(int slot, @Nonnull SoyValueProvider valueProvider) {
+    slots[slot] = Preconditions.checkNotNull(valueProvider);
+  }
+
+
+  @Override public boolean hasField(String name) {
+    return getFieldProvider(name) != null;
+  }
+
+
+  @Override public SoyValueProvider getFieldProvider(String name) {
+    Integer slot = slotIndices.get(name);
+    if (slot != null) {
+      return slots[slot];
+    }
+    return (undeclaredParams != null) ? undeclaredParams.get(name) : null;
+  }
+
+}
@@ -16,6 +16,9 @@
 
 package com.google.template.soy.data.restricted;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Lists;
 import com.google.template.soy.data.SoyData;
 import com.google.template.soy.data.SoyDataException;
@@ -23,6 +26,7 @@ import com.google.template.soy.data.SoyListData;
 import com.google.template.soy.data.SoyMapData;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Abstract superclass for a node in a Soy data tree that represents a collection of data (i.e. an
@@ -35,6 +39,17 @@ import java.util.List;
 public abstract class CollectionData extends SoyData {
 
 
+  /** The parts of key strings with multiple parts, by key string. */
+  private static final LoadingCache<String, String[]> KEY_PATHS =
+      CacheBuilder.newBuilder()
+          .maximumSize(10000)
+          .build(new CacheLoader<String, String[]>() {
+            @Override public String[] load(String keyStr) {
+              return split(keyStr, '.');
+            }
+          });
+
+
   // ------------ put() ------------
 
 
@@ -52,9 +67,10 @@ public abstract class CollectionData extends SoyData {
       throw new SoyDataException(
           "Varargs to put(...) must have an even number of arguments (key-value pairs).");
     }
+    BulkPutter bulkPutter = new BulkPutter();
     for (int i = 0; i < data.length; i += 2) {
       try {
-        put((String) data[i], SoyData.createFromExistingData(data[i + 1]));
+        bulkPutter.put((String) data[i], SoyData.createFromExistingData(data[i + 1]));
       } catch (ClassCastException cce) {
         throw new SoyDataException(
             "Attempting to add a mapping containing a non-string key (key type " +
@@ -64,6 +80,21 @@ public abstract class CollectionData extends SoyData {
   }
 
 
+  /**
+   * Puts multiple mappings in one call. Consecutive keys under the same parent location (e.g.
+   * "a.b.c" and "a.b.d") only look up the parent once.
+   * @param data The mappings to put. The keys must be valid key strings, and the values must be
+   *     valid Soy data values.
+   * @throws SoyDataException When attempting to add a mapping containing an invalid key.
+   */
+  public void putAll(Map<String, ?> data) {
+    BulkPutter bulkPutter = new BulkPutter();
+    for (Map.Entry<String, ?> entry : data.entrySet()) {
+      bulkPutter.put(entry.getKey(), SoyData.createFromExistingData(entry.getValue()));
+    }
+  }
+
+
   /**
    * Puts data into this data tree at the specified key string.
    * @param keyStr One or more map keys and/or list indices (separated by '.' if multiple parts).
@@ -72,31 +103,13 @@ public abstract class CollectionData extends SoyData {
    */
   public void put(String keyStr, SoyData value) {
 
-    List<String> keys = split(keyStr, '.');
-    int numKeys = keys.size();
-
-    CollectionData collectionData = this;
-    for (int i = 0; i <= numKeys - 2; ++i) {
-
-      SoyData nextSoyData = collectionData.getSingle(keys.get(i));
-      if (nextSoyData != null && !(nextSoyData instanceof CollectionData)) {
-        throw new SoyDataException(
-            "Failed to evaluate key string \"" + keyStr + "\" for put().");
-      }
-      CollectionData nextCollectionData = (CollectionData) nextSoyData;
-
-      if (nextCollectionData == null) {
-        // Create the SoyData object that will be bound to keys.get(i). We need to check the first
-        // part of keys[i+1] to know whether to create a SoyMapData or SoyListData (checking the
-        // first char is sufficient).
-        nextCollectionData =
-            (Character.isDigit(keys.get(i + 1).charAt(0))) ? new SoyListData() : new SoyMapData();
-        collectionData.putSingle(keys.get(i), nextCollectionData);
-      }
-      collectionData = nextCollectionData;
+    if (keyStr.indexOf('.') == -1) {
+      putSingle(keyStr, ensureValidValue(value));
+      return;
     }
 
-    collectionData.putSingle(keys.get(numKeys - 1), ensureValidValue(value));
+    String[] keys = parseKeyStr(keyStr);
+    getOrCreateParent(keyStr, keys).putSingle(keys[keys.length - 1], ensureValidValue(value));
   }
 
 
@@ -161,19 +174,24 @@ public abstract class CollectionData extends SoyData {
    */
   public void remove(String keyStr) {
 
-    List<String> keys = split(keyStr, '.');
-    int numKeys = keys.size();
+    if (keyStr.indexOf('.') == -1) {
+      removeSingle(keyStr);
+      return;
+    }
+
+    String[] keys = parseKeyStr(keyStr);
+    int numKeys = keys.length;
 
     CollectionData collectionData = this;
     for (int i = 0; i <= numKeys - 2; ++i) {
-      SoyData soyData = collectionData.getSingle(keys.get(i));
+      SoyData soyData = collectionData.getSingle(keys[i]);
       if (!(soyData instanceof CollectionData)) {
         return;
       }
       collectionData = (CollectionData) soyData;
     }
 
-    collectionData.removeSingle(keys.get(numKeys - 1));
+    collectionData.removeSingle(keys[numKeys - 1]);
   }
 
 
@@ -188,19 +206,23 @@ public abstract class CollectionData extends SoyData {
    */
   public SoyData get(String keyStr) {
 
-    List<String> keys = split(keyStr, '.');
-    int numKeys = keys.size();
+    if (keyStr.indexOf('.') == -1) {
+      return getSingle(keyStr);
+    }
+
+    String[] keys = parseKeyStr(keyStr);
+    int numKeys = keys.length;
 
     CollectionData collectionData = this;
     for (int i = 0; i <= numKeys - 2; ++i) {
-      SoyData soyData = collectionData.getSingle(keys.get(i));
+      SoyData soyData = collectionData.getSingle(keys[i]);
       if (!(soyData instanceof CollectionData)) {
         return null;
       }
       collectionData = (CollectionData) soyData;
     }
 
-    return collectionData.getSingle(keys.get(numKeys - 1));
+    return collectionData.getSingle(keys[numKeys - 1]);
   }
 
 
@@ -356,12 +378,104 @@ public abstract class CollectionData extends SoyData {
 
 
   /**
-   * Splits a string into tokens at the specified delimiter.
+   * Gets the parent collection of the location at the given key path, creating any missing
+   * collections along the path.
+   * @param keyStr The key string, for error messages.
+   * @param keys The parts of the key string.
+   * @return The collection holding the last part of the key path.
+   */
+  private CollectionData getOrCreateParent(String keyStr, String[] keys) {
+
+    CollectionData collectionData = this;
+    for (int i = 0; i <= keys.length - 2; ++i) {
+
+      SoyData nextSoyData = collectionData.getSingle(keys[i]);
+      if (nextSoyData != null && !(nextSoyData instanceof CollectionData)) {
+        throw new SoyDataException(
+            "Failed to evaluate key string \"" + keyStr + "\" for put().");
+      }
+      CollectionData nextCollectionData = (CollectionData) nextSoyData;
+
+      if (nextCollectionData == null) {
+        // Create the SoyData object that will be bound to keys[i]. We need to check the first
+        // part of keys[i+1] to know whether to create a SoyMapData or SoyListData (checking the
+        // first char is sufficient).
+        nextCollectionData =
+            (Character.isDigit(keys[i + 1].charAt(0))) ? new SoyListData() : new SoyMapData();
+        collectionData.putSingle(keys[i], nextCollectionData);
+      }
+      collectionData = nextCollectionData;
+    }
+
+    return collectionData;
+  }
+
+
+  /**
+   * Puts a sequence of mappings, remembering the parent collection of the last key path so that
+   * the next mapping under the same parent doesn't need to look it up again.
+   */
+  private final class BulkPutter {
+
+    /** The parts of the last key path with multiple parts, or null if none since a reset. */
+    private String[] lastKeys;
+
+    /** The parent collection of the last key path. */
+    private CollectionData lastParent;
+
+    void put(String keyStr, SoyData value) {
+
+      if (keyStr.indexOf('.') == -1) {
+        // The value may replace an ancestor of the remembered parent.
+        lastKeys = null;
+        putSingle(keyStr, ensureValidValue(value));
+        return;
+      }
+
+      String[] keys = parseKeyStr(keyStr);
+      if (!hasSameParentPath(keys, lastKeys)) {
+        lastParent = getOrCreateParent(keyStr, keys);
+        lastKeys = keys;
+      }
+      // Putting the last part only changes the contents of the parent, so the parent stays in
+      // place for the next mapping.
+      lastParent.putSingle(keys[keys.length - 1], ensureValidValue(value));
+    }
+  }
+
+
+  private static boolean hasSameParentPath(String[] keys, String[] otherKeys) {
+    if (otherKeys == null || otherKeys.length != keys.length) {
+      return false;
+    }
+    for (int i = 0; i < keys.length - 1; i++) {
+      if (!keys[i].equals(otherKeys[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+
+  /**
+   * Gets the parts of a key string with multiple parts (separated by '.'). Parsed key strings are
+   * cached, since the same key strings tend to be used over and over to build data trees.
+   * @param keyStr The key string.
+   * @return The parts of the key string. Must not be modified.
+   */
+  private static String[] parseKeyStr(String keyStr) {
+    return KEY_PATHS.getUnchecked(keyStr);
+  }
+
+
+  /**
+   * Splits a string into tokens at the specified delimiter. The tokens are interned, since they
+   * become the keys of the data tree's maps, and the same keys recur throughout a tree.
    * @param str The string to split.  Must not be null.
    * @param delim The delimiter character.
-   * @return A list of tokens. Will not return null.
+   * @return An array of tokens. Will not return null.
    */
-  private static List<String> split(String str, char delim) {
+  private static String[] split(String str, char delim) {
 
     List<String> result = Lists.newArrayList();
 
@@ -369,15 +483,15 @@ public abstract class CollectionData extends SoyData {
     while (true) {
       int currPartEnd = str.indexOf(delim, currPartStart);
       if (currPartEnd == -1) {
-        result.add(str.substring(currPartStart));
+        result.add(str.substring(currPartStart).intern());
         break;
       } else {
-        result.add(str.substring(currPartStart, currPartEnd));
+        result.add(str.substring(currPartStart, currPartEnd).intern());
         currPartStart = currPartEnd + 1;
       }
     }
 
-    return result;
+    return result.toArray(new String[result.size()]);
   }
 
 }
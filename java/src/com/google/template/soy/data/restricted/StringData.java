@@ -53,7 +53,16 @@ public abstract class StringData extends PrimitiveData {
    * Returns a StringData instance for the given {@link RenderableThunk}.
    */
   public static StringData forThunk(RenderableThunk thunk) {
-    return new LazyString(thunk);
+    return new LazyString(thunk, false);
+  }
+
+  /**
+   * Returns a StringData instance for the given {@link RenderableThunk}, which is expected to be
+   * rendered at most once. Rendering such an instance streams the thunk straight into the output
+   * without saving a copy. Rendering it again still works, but re-runs the thunk.
+   */
+  public static StringData forSingleUseThunk(RenderableThunk thunk) {
+    return new LazyString(thunk, true);
   }
 
 
@@ -115,13 +124,17 @@ public abstract class StringData extends PrimitiveData {
 
     RenderableThunk thunk;
     String content;
+    final boolean isSingleUse;
 
-    LazyString(RenderableThunk thunk) {
+    LazyString(RenderableThunk thunk, boolean isSingleUse) {
       this.thunk = thunk;
+      this.isSingleUse = isSingleUse;
     }
 
     @Override public void render(Appendable appendable) throws IOException {
-      if (content == null) {
+      if (content == null && isSingleUse) {
+        thunk.render(appendable);
+      } else if (content == null) {
         content = thunk.renderAndSave(appendable);
         thunk = null;  // allow the thunk to be collected
       } else {
@@ -38,7 +38,8 @@ public final class FieldAccessNode extends DataAccessNode {
   public FieldAccessNode(ExprNode base, String fieldName, boolean isNullSafe) {
     super(base, isNullSafe);
     Preconditions.checkArgument(fieldName != null);
-    this.fieldName = fieldName;
+    // Interned so that record lookups usually find the field by identity (see RecordShape).
+    this.fieldName = fieldName.intern();
   }
 
   private FieldAccessNode(FieldAccessNode orig) {
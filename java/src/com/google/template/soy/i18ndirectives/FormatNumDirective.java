@@ -16,8 +16,14 @@
 
 package com.google.template.soy.i18ndirectives;
 
+import com.google.common.base.Objects;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.template.soy.base.SoySyntaxException;
 import com.google.template.soy.data.SoyValue;
 import com.google.template.soy.data.restricted.NumberData;
@@ -25,7 +31,8 @@ import com.google.template.soy.data.restricted.StringData;
 import com.google.template.soy.jssrc.restricted.JsExpr;
 import com.google.template.soy.jssrc.restricted.SoyLibraryAssistedJsSrcPrintDirective;
 import com.google.template.soy.shared.restricted.ApiCallScopeBindingAnnotations.LocaleString;
-import com.google.template.soy.shared.restricted.SoyJavaPrintDirective;
+import com.google.template.soy.shared.restricted.SoyJavaRenderContextPrintDirective;
+import com.google.template.soy.shared.restricted.SoyRenderContext;
 
 import com.ibm.icu.text.CompactDecimalFormat;
 import com.ibm.icu.text.CompactDecimalFormat.CompactStyle;
@@ -35,6 +42,7 @@ import com.ibm.icu.util.ULocale;
 import java.util.List;
 import java.util.Set;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Provider;
 
@@ -55,7 +63,8 @@ import javax.inject.Provider;
    }
  *
  */
-class FormatNumDirective implements SoyJavaPrintDirective, SoyLibraryAssistedJsSrcPrintDirective {
+class FormatNumDirective
+    implements SoyJavaRenderContextPrintDirective, SoyLibraryAssistedJsSrcPrintDirective {
 
 
   // Map of format arguments to the Closure Format enum.
@@ -77,6 +86,24 @@ class FormatNumDirective implements SoyJavaPrintDirective, SoyLibraryAssistedJsS
   private static final ImmutableSet<String> REQUIRED_JS_LIBS =
       ImmutableSet.of("goog.i18n.NumberFormat");
 
+  // The format types supported in the Java environment.
+  private static final ImmutableSet<String> FORMAT_TYPES = ImmutableSet.of(
+      "decimal", "currency", "percent", "scientific", "compact_short", "compact_long");
+
+  // Max number of cached format prototypes. An app only uses a few combinations of locale, format
+  // type and numbers keyword, but the locale strings come from the outside.
+  private static final int MAX_CACHED_NUMBER_FORMATS = 1000;
+
+  // Prototypes of the formats that have been used, copied for each call.
+  private static final LoadingCache<NumberFormatKey, NumberFormat> NUMBER_FORMAT_PROTOTYPES =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_CACHED_NUMBER_FORMATS)
+          .build(new CacheLoader<NumberFormatKey, NumberFormat>() {
+            @Override public NumberFormat load(NumberFormatKey key) {
+              return createNumberFormat(key);
+            }
+          });
+
 
   /**
    * Provide the current Locale string.
@@ -109,40 +136,100 @@ class FormatNumDirective implements SoyJavaPrintDirective, SoyLibraryAssistedJsS
 
 
   @Override public SoyValue applyForJava(SoyValue value, List<SoyValue> args) {
-    ULocale uLocale = I18nUtils.parseULocale(localeStringProvider.get())
-        .setKeywordValue("numbers", "local");
-    if (args.size() > 1) {
-      // A keyword for ULocale was passed (like 'native', for instance, to use native characters).
-      uLocale = uLocale.setKeywordValue("numbers", args.get(1).stringValue());
-    }
+    return applyForJavaHelper(value, args, localeStringProvider.get());
+  }
+
+
+  @Override public SoyValue applyForJava(
+      SoyValue value, List<SoyValue> args, SoyRenderContext renderContext) {
+    return applyForJavaHelper(value, args, renderContext.getLocaleString());
+  }
+
 
-    NumberFormat numberFormat;
+  private static SoyValue applyForJavaHelper(
+      SoyValue value, List<SoyValue> args, @Nullable String localeString) {
     String formatType = args.isEmpty() ? "decimal" : args.get(0).stringValue();
+    if (!FORMAT_TYPES.contains(formatType)) {
+      throw SoySyntaxException.createWithoutMetaInfo("First argument to formatNum must be "
+          + "constant, and one of: 'decimal', 'currency', 'percent', 'scientific', "
+          + "'compact_short', or 'compact_long'.");
+    }
+    // A keyword for ULocale may be passed (like 'native', for instance, to use native characters).
+    String numbersKeyword = (args.size() > 1) ? args.get(1).stringValue() : "local";
+
+    NumberFormat numberFormatPrototype;
+    try {
+      numberFormatPrototype = NUMBER_FORMAT_PROTOTYPES.getUnchecked(
+          new NumberFormatKey(localeString, formatType, numbersKeyword));
+    } catch (UncheckedExecutionException e) {
+      // E.g. a malformed locale string.
+      throw Throwables.propagate(e.getCause());
+    }
+    // Formats aren't thread-safe, so each call formats with its own copy of the prototype.
+    NumberFormat numberFormat = (NumberFormat) numberFormatPrototype.clone();
+    return StringData.forValue(numberFormat.format(((NumberData) value).toFloat()));
+  }
+
+
+  /**
+   * Builds a new format, which is expensive (the locale's data has to be looked up and the format
+   * patterns parsed), so formats are built once per key and then copied.
+   */
+  private static NumberFormat createNumberFormat(NumberFormatKey key) {
+    ULocale uLocale = I18nUtils.parseULocale(key.localeString)
+        .setKeywordValue("numbers", key.numbersKeyword);
+
+    String formatType = key.formatType;
     if ("decimal".equals(formatType)) {
-      numberFormat = NumberFormat.getInstance(uLocale);
+      return NumberFormat.getInstance(uLocale);
     } else if ("percent".equals(formatType)) {
-      numberFormat = NumberFormat.getPercentInstance(uLocale);
+      return NumberFormat.getPercentInstance(uLocale);
     } else if ("currency".equals(formatType)) {
-      numberFormat = NumberFormat.getCurrencyInstance(uLocale);
+      return NumberFormat.getCurrencyInstance(uLocale);
     } else if ("scientific".equals(formatType)) {
-      numberFormat = NumberFormat.getScientificInstance(uLocale);
+      return NumberFormat.getScientificInstance(uLocale);
     } else if ("compact_short".equals(formatType)) {
       CompactDecimalFormat compactNumberFormat =
           CompactDecimalFormat.getInstance(uLocale, CompactStyle.SHORT);
       compactNumberFormat.setMaximumSignificantDigits(3);
-      numberFormat = compactNumberFormat;
+      return compactNumberFormat;
     } else if ("compact_long".equals(formatType)) {
       CompactDecimalFormat compactNumberFormat =
           CompactDecimalFormat.getInstance(uLocale, CompactStyle.LONG);
       compactNumberFormat.setMaximumSignificantDigits(3);
-      numberFormat = compactNumberFormat;
+      return compactNumberFormat;
     } else {
-      throw SoySyntaxException.createWithoutMetaInfo("First argument to formatNum must be "
-          + "constant, and one of: 'decimal', 'currency', 'percent', 'scientific', "
-          + "'compact_short', or 'compact_long'.");
+      throw new AssertionError("Unknown format type: " + formatType);
     }
+  }
 
-    return StringData.forValue(numberFormat.format(((NumberData) value).toFloat()));
+
+  /** The inputs that determine a format: the locale string, format type and numbers keyword. */
+  private static final class NumberFormatKey {
+
+    @Nullable final String localeString;
+    final String formatType;
+    final String numbersKeyword;
+
+    NumberFormatKey(@Nullable String localeString, String formatType, String numbersKeyword) {
+      this.localeString = localeString;
+      this.formatType = formatType;
+      this.numbersKeyword = numbersKeyword;
+    }
+
+    @Override public boolean equals(Object other) {
+      if (!(other instanceof NumberFormatKey)) {
+        return false;
+      }
+      NumberFormatKey otherKey = (NumberFormatKey) other;
+      return Objects.equal(localeString, otherKey.localeString)
+          && formatType.equals(otherKey.formatType)
+          && numbersKeyword.equals(otherKey.numbersKeyword);
+    }
+
+    @Override public int hashCode() {
+      return Objects.hashCode(localeString, formatType, numbersKeyword);
+    }
   }
 
 
@@ -24,6 +24,8 @@ import com.ibm.icu.lang.UProperty;
 import com.ibm.icu.lang.UScript;
 import com.ibm.icu.util.ULocale;
 
+import javax.annotation.Nullable;
+
 /**
  * Utility functions for performing common Bidi tests on strings.
  */
@@ -102,6 +104,86 @@ public class BidiUtils {
    */
   public static final String LEFT = "left";
 
+  /**
+   * Bit set by {@link #classifyAscii} when the scanned string contains an ASCII letter, i.e. a
+   * strongly LTR character.
+   */
+  private static final int ASCII_LETTER = 1;
+
+  /**
+   * Bit set by {@link #classifyAscii} when the scanned string contains an ASCII digit.
+   */
+  private static final int ASCII_DIGIT = 2;
+
+  /**
+   * Bit set by {@link #classifyAscii} when the scanned string contains a character that may start
+   * an HTML tag or entity.
+   */
+  private static final int ASCII_MARKUP = 4;
+
+  /**
+   * Returned by {@link #classifyAscii} when the string can't be classified by the ASCII fast path,
+   * i.e. it contains non-ASCII characters or (if HTML) tags or entities.
+   */
+  private static final int NOT_ASCII = -1;
+
+  /**
+   * The {@code ASCII_*} bits for each ASCII character.
+   */
+  private static final byte[] ASCII_CLASS = new byte[0x80];
+
+  static {
+    for (char c = 'a'; c <= 'z'; c++) {
+      ASCII_CLASS[c] = ASCII_LETTER;
+      ASCII_CLASS[Character.toUpperCase(c)] = ASCII_LETTER;
+    }
+    for (char c = '0'; c <= '9'; c++) {
+      ASCII_CLASS[c] = ASCII_DIGIT;
+    }
+    ASCII_CLASS['<'] = ASCII_MARKUP;
+    ASCII_CLASS['&'] = ASCII_MARKUP;
+  }
+
+  /**
+   * Scans the string in a single branch-free pass, checking whether it is pure ASCII and collecting
+   * the {@code ASCII_*} bits of its characters. Pure ASCII text contains no RTL characters and no
+   * explicit embeddings, so its directionality follows from these bits alone, without running the
+   * {@link DirectionalityEstimator}.
+   *
+   * @param str the string to scan
+   * @param isHtml whether str is HTML / HTML-escaped, in which case strings containing tags or
+   *     entities are not classified (the estimator knows how to skip them)
+   * @return the union of the {@code ASCII_*} bits of the characters in {@code str}, or
+   *     {@link #NOT_ASCII} if the fast path does not apply
+   */
+  private static int classifyAscii(String str, boolean isHtml) {
+    int allChars = 0;
+    int bits = 0;
+    for (int i = 0, length = str.length(); i < length; i++) {
+      char c = str.charAt(i);
+      allChars |= c;
+      bits |= ASCII_CLASS[c & 0x7F];
+    }
+    if (allChars >= 0x80 || (isHtml && (bits & ASCII_MARKUP) != 0)) {
+      return NOT_ASCII;
+    }
+    return bits;
+  }
+
+  /**
+   * Returns the directionality of a string all of whose strong characters are known to be LTR, i.e.
+   * {@link Dir#LTR} if it has any and {@link Dir#NEUTRAL} otherwise, or null if {@code str} can't
+   * be classified by the ASCII fast path.
+   */
+  @Nullable
+  private static Dir getAsciiStrongDir(String str, boolean isHtml) {
+    int bits = classifyAscii(str, isHtml);
+    if (bits == NOT_ASCII) {
+      return null;
+    }
+    return (bits & ASCII_LETTER) != 0 ? Dir.LTR : Dir.NEUTRAL;
+  }
+
   /**
    * An object that estimates the directionality of a given string by various methods.
    */
@@ -1037,6 +1119,10 @@ public class BidiUtils {
    * @return whether the string contains any LTR characters
    */
   public static boolean hasAnyLtr(String str, boolean isHtml) {
+    Dir asciiDir = getAsciiStrongDir(str, isHtml);
+    if (asciiDir != null) {
+      return asciiDir == Dir.LTR;
+    }
     return new DirectionalityEstimator(str, isHtml).hasAnyLtr(false /* countEmbedding */);
   }
 
@@ -1060,6 +1146,9 @@ public class BidiUtils {
    * @return whether the string contains any RTL characters
    */
   public static boolean hasAnyRtl(String str, boolean isHtml) {
+    if (classifyAscii(str, isHtml) != NOT_ASCII) {
+      return false;
+    }
     return new DirectionalityEstimator(str, isHtml).hasAnyRtl(false /* countEmbedding */);
   }
 
@@ -1084,6 +1173,10 @@ public class BidiUtils {
    * @param isHtml whether str is HTML / HTML-escaped
    */
   public static Dir getUnicodeDir(String str, boolean isHtml) {
+    Dir asciiDir = getAsciiStrongDir(str, isHtml);
+    if (asciiDir != null) {
+      return asciiDir;
+    }
     return new DirectionalityEstimator(str, isHtml).getUnicodeDir();
   }
 
@@ -1110,6 +1203,10 @@ public class BidiUtils {
    * @param isHtml whether str is HTML / HTML-escaped
    */
   public static Dir getEntryDir(String str, boolean isHtml) {
+    Dir asciiDir = getAsciiStrongDir(str, isHtml);
+    if (asciiDir != null) {
+      return asciiDir;
+    }
     return new DirectionalityEstimator(str, isHtml).getEntryDir();
   }
 
@@ -1137,6 +1234,10 @@ public class BidiUtils {
    * @param isHtml whether str is HTML / HTML-escaped
    */
   public static Dir getExitDir(String str, boolean isHtml) {
+    Dir asciiDir = getAsciiStrongDir(str, isHtml);
+    if (asciiDir != null) {
+      return asciiDir;
+    }
     return new DirectionalityEstimator(str, isHtml).getExitDir();
   }
 
@@ -1231,6 +1332,18 @@ public class BidiUtils {
    * @param isHtml whether str is HTML / HTML-escaped
    */
   public static Dir estimateDirection(String str, boolean isHtml) {
+    // Fast path for pure ASCII text: it is LTR if it has any letters, and neutral if it has neither
+    // letters nor digits. Only letterless text with digits needs the word count algorithm, which
+    // may still find it LTR (e.g. "-5" or "3 - 2 = 1").
+    int asciiBits = classifyAscii(str, isHtml);
+    if (asciiBits != NOT_ASCII) {
+      if ((asciiBits & ASCII_LETTER) != 0) {
+        return Dir.LTR;
+      }
+      if ((asciiBits & ASCII_DIGIT) == 0) {
+        return Dir.NEUTRAL;
+      }
+    }
     return new DirectionalityEstimator(str, isHtml).estimateDirectionByWordCount();
   }
 }
@@ -17,11 +17,17 @@
 package com.google.template.soy.internal.i18n;
 
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.template.soy.base.SoyBackendKind;
 import com.google.template.soy.data.Dir;
+import com.google.template.soy.data.SanitizedContent;
+import com.google.template.soy.data.SoyValue;
 
 import java.util.regex.Pattern;
 
+import javax.annotation.Nullable;
+
 
 /**
  * Bidi utilities for Soy code.
@@ -120,6 +126,81 @@ public class SoyBidiUtils {
       Pattern.compile("qbi|.*[-_]psrtl", Pattern.CASE_INSENSITIVE);
 
 
+  /**
+   * The longest content whose estimated directionality is kept in the content directionality cache.
+   * Longer values are estimated every time, so that the cache does not pin large strings.
+   */
+  private static final int MAX_CACHED_CONTENT_LENGTH = 1024;
+
+
+  /**
+   * Estimated directionality of recently seen SanitizedContent values that do not declare their
+   * own, keyed by content and whether it was estimated as HTML. Null when disabled (the default).
+   */
+  @Nullable private static volatile Cache<ContentDirKey, Dir> contentDirCache;
+
+
+  /**
+   * Enables (or disables) caching the estimated directionality of SanitizedContent values that do
+   * not declare their own, for use when the same values are bidi-wrapped over and over again.
+   * @param maxSize The maximum number of cached values, or 0 to disable the cache.
+   */
+  public static void setContentDirCacheSize(int maxSize) {
+    Preconditions.checkArgument(maxSize >= 0);
+    contentDirCache = maxSize == 0
+        ? null
+        : CacheBuilder.newBuilder().maximumSize(maxSize).<ContentDirKey, Dir>build();
+  }
+
+
+  /**
+   * Estimates the directionality of a value being bidi-formatted. Equivalent to
+   * {@link BidiUtils#estimateDirection(String, boolean)} on the value's string, but when the value
+   * is SanitizedContent and the content directionality cache is enabled, reuses the result of a
+   * previous estimation of the same content.
+   * @param value The value whose directionality is to be estimated.
+   * @param isHtml Whether the value is HTML / HTML-escaped.
+   * @return The value's estimated overall directionality.
+   */
+  public static Dir estimateDirection(SoyValue value, boolean isHtml) {
+    String content = value.coerceToString();
+    Cache<ContentDirKey, Dir> cache = contentDirCache;
+    if (cache == null || !(value instanceof SanitizedContent)
+        || content.length() > MAX_CACHED_CONTENT_LENGTH) {
+      return BidiUtils.estimateDirection(content, isHtml);
+    }
+    ContentDirKey key = new ContentDirKey(content, isHtml);
+    Dir dir = cache.getIfPresent(key);
+    if (dir == null) {
+      dir = BidiUtils.estimateDirection(content, isHtml);
+      cache.put(key, dir);
+    }
+    return dir;
+  }
+
+
+  /** Key of the content directionality cache. */
+  private static final class ContentDirKey {
+    final String content;
+    final boolean isHtml;
+
+    ContentDirKey(String content, boolean isHtml) {
+      this.content = content;
+      this.isHtml = isHtml;
+    }
+
+    @Override public boolean equals(Object other) {
+      return other instanceof ContentDirKey
+          && isHtml == ((ContentDirKey) other).isHtml
+          && content.equals(((ContentDirKey) other).content);
+    }
+
+    @Override public int hashCode() {
+      return isHtml ? ~content.hashCode() : content.hashCode();
+    }
+  }
+
+
   /**
    * Get a bidi formatter.
    * @param dir The directionality as an integer (ltr=1, rtl=-1).
@@ -79,6 +79,18 @@ public class SoyJsSrcOptions implements Cloneable {
    */
   private boolean useGoogIsRtlForBidiGlobalDir;
 
+  /**
+   * The maximum number of locales to generate localized JS for at the same time. Each locale in
+   * progress holds its own copy of the Soy tree and message bundle.
+   */
+  private int localeConcurrency;
+
+  /**
+   * Whether to generate localized JS by generating the code once (per bidi global directionality)
+   * and then splicing each locale's messages into it.
+   */
+  private boolean shouldSpliceLocalizedMsgs;
+
 
   public SoyJsSrcOptions() {
     shouldAllowDeprecatedSyntax = false;
@@ -93,6 +105,8 @@ public class SoyJsSrcOptions implements Cloneable {
     googMsgsAreExternal = false;
     bidiGlobalDir = 0;
     useGoogIsRtlForBidiGlobalDir = false;
+    localeConcurrency = 1;
+    shouldSpliceLocalizedMsgs = false;
   }
 
   private SoyJsSrcOptions(SoyJsSrcOptions orig) {
@@ -109,6 +123,8 @@ public class SoyJsSrcOptions implements Cloneable {
     this.googMsgsAreExternal = orig.googMsgsAreExternal;
     this.bidiGlobalDir = orig.bidiGlobalDir;
     this.useGoogIsRtlForBidiGlobalDir = orig.useGoogIsRtlForBidiGlobalDir;
+    this.localeConcurrency = orig.localeConcurrency;
+    this.shouldSpliceLocalizedMsgs = orig.shouldSpliceLocalizedMsgs;
   }
 
   /**
@@ -379,6 +395,55 @@ public class SoyJsSrcOptions implements Cloneable {
   }
 
 
+  /**
+   * Sets the maximum number of locales to generate localized JS for at the same time. The default
+   * of 1 generates the locales one after another on the calling thread. Larger values use that
+   * many worker threads, at the cost of holding that many copies of the Soy tree in memory.
+   *
+   * @param localeConcurrency The maximum number of locales to process concurrently (at least 1).
+   */
+  public void setLocaleConcurrency(int localeConcurrency) {
+    Preconditions.checkArgument(
+        localeConcurrency >= 1, "localeConcurrency must be at least 1, got %s", localeConcurrency);
+    this.localeConcurrency = localeConcurrency;
+  }
+
+
+  /**
+   * Returns the maximum number of locales to generate localized JS for at the same time.
+   */
+  public int getLocaleConcurrency() {
+    return localeConcurrency;
+  }
+
+
+  /**
+   * Sets whether to generate localized JS by generating the code once and then splicing each
+   * locale's messages into it, rather than generating the code from scratch for every locale.
+   * Only the text of the messages and the bidi global directionality differ between locales, so
+   * at most two code generations (ltr and rtl) are needed for any number of locales.
+   *
+   * <p> The spliced code defines all messages with goog.getMsg (filled with the locale's
+   * translations), as if shouldGenerateGoogMsgDefs were set, and thus requires the Closure Library.
+   * Unlike regular localized JS, it supports plural/select messages. The localeConcurrency option
+   * doesn't apply.
+   *
+   * @param shouldSpliceLocalizedMsgs The value to set.
+   */
+  public void setShouldSpliceLocalizedMsgs(boolean shouldSpliceLocalizedMsgs) {
+    this.shouldSpliceLocalizedMsgs = shouldSpliceLocalizedMsgs;
+  }
+
+
+  /**
+   * Returns whether to generate localized JS by generating the code once and then splicing each
+   * locale's messages into it.
+   */
+  public boolean shouldSpliceLocalizedMsgs() {
+    return shouldSpliceLocalizedMsgs;
+  }
+
+
   @Override public final SoyJsSrcOptions clone() {
     return new SoyJsSrcOptions(this);
   }
@@ -150,6 +150,9 @@ class GenJsCodeVisitor extends AbstractSoyNodeVisitor<List<String>> {
   /** Factory for creating an instance of GenJsExprsVisitor. */
   private final GenJsExprsVisitorFactory genJsExprsVisitorFactory;
 
+  /** Whether to generate slots for MsgSlotSplicer in place of msg texts and fallback choices. */
+  private boolean generatesMsgSlots;
+
   /** The contents of the generated JS files. */
   private List<String> jsFilesContents;
 
@@ -221,6 +224,14 @@ class GenJsCodeVisitor extends AbstractSoyNodeVisitor<List<String>> {
     return jsFilesContents;
   }
 
+  /**
+   * Sets whether to generate slots for MsgSlotSplicer in place of the msg texts and fallback
+   * choices of goog.getMsg definitions, so that the output can be localized by splicing.
+   */
+  void setGeneratesMsgSlots(boolean generatesMsgSlots) {
+    this.generatesMsgSlots = generatesMsgSlots;
+  }
+
   /**
    * This method must only be called by assistant visitors, in particular
    * GenJsCodeVisitorAssistantForMsgs.
@@ -737,7 +748,7 @@ class GenJsCodeVisitor extends AbstractSoyNodeVisitor<List<String>> {
     if (assistantForMsgs == null) {
       assistantForMsgs = new GenJsCodeVisitorAssistantForMsgs(
           this, jsSrcOptions, jsExprTranslator, genCallCodeUtils, isComputableAsJsExprsVisitor,
-          jsCodeBuilder, localVarTranslations, genJsExprsVisitor);
+          jsCodeBuilder, localVarTranslations, genJsExprsVisitor, generatesMsgSlots);
     }
     assistantForMsgs.visitForUseByMaster(node);
   }
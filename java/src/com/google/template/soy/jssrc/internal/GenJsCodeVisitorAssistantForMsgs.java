@@ -17,6 +17,7 @@
 package com.google.template.soy.jssrc.internal;
 
 import com.google.common.base.CaseFormat;
+import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
@@ -93,6 +94,9 @@ class GenJsCodeVisitorAssistantForMsgs extends AbstractSoyNodeVisitor<Void> {
    *  special functions) current in scope. */
   private final Deque<Map<String, JsExpr>> localVarTranslations;
 
+  /** Whether to generate slots for MsgSlotSplicer in place of msg texts and fallback choices. */
+  private final boolean generatesMsgSlots;
+
 
   /**
    * @param master The master GenJsCodeVisitor instance.
@@ -102,12 +106,14 @@ class GenJsCodeVisitorAssistantForMsgs extends AbstractSoyNodeVisitor<Void> {
    * @param jsCodeBuilder The current JsCodeBuilder.
    * @param localVarTranslations The current local var translations.
    * @param genJsExprsVisitor The current GenJsExprsVisitor.
+   * @param generatesMsgSlots Whether to generate slots for MsgSlotSplicer in place of the msg texts
+   *     and fallback choices.
    */
   GenJsCodeVisitorAssistantForMsgs(
       GenJsCodeVisitor master, SoyJsSrcOptions jsSrcOptions, JsExprTranslator jsExprTranslator,
       GenCallCodeUtils genCallCodeUtils, IsComputableAsJsExprsVisitor isComputableAsJsExprsVisitor,
       JsCodeBuilder jsCodeBuilder, Deque<Map<String, JsExpr>> localVarTranslations,
-      GenJsExprsVisitor genJsExprsVisitor) {
+      GenJsExprsVisitor genJsExprsVisitor, boolean generatesMsgSlots) {
     this.master = master;
     this.jsSrcOptions = jsSrcOptions;
     this.jsExprTranslator = jsExprTranslator;
@@ -116,6 +122,7 @@ class GenJsCodeVisitorAssistantForMsgs extends AbstractSoyNodeVisitor<Void> {
     this.jsCodeBuilder = jsCodeBuilder;
     this.localVarTranslations = localVarTranslations;
     this.genJsExprsVisitor = genJsExprsVisitor;
+    this.generatesMsgSlots = generatesMsgSlots;
   }
 
 
@@ -167,7 +174,8 @@ class GenJsCodeVisitorAssistantForMsgs extends AbstractSoyNodeVisitor<Void> {
       String googMsgVarName = buildGoogMsgVarNameHelper(node, msgNode);
 
       // Generate the goog.getMsg call.
-      GoogMsgCodeGenInfo googMsgCodeGenInfo = genGoogGetMsgCallHelper(googMsgVarName, msgNode);
+      GoogMsgCodeGenInfo googMsgCodeGenInfo =
+          genGoogGetMsgCallHelper(googMsgVarName, msgNode, node.getChildMsgId(msgNode));
 
       // Generate statement to set the final rendered msg var.
       jsCodeBuilder.appendLineStart("var ", node.getRenderedGoogMsgVarName(), " = ");
@@ -190,24 +198,27 @@ class GenJsCodeVisitorAssistantForMsgs extends AbstractSoyNodeVisitor<Void> {
           Lists.newArrayListWithCapacity(node.numChildren());
 
       // Generate the goog.getMsg calls for all children.
+      List<Long> childMsgIds = Lists.newArrayListWithCapacity(node.numChildren());
+      List<String> childGoogMsgVarNames = Lists.newArrayListWithCapacity(node.numChildren());
       for (MsgNode msgNode : node.getChildren()) {
         String googMsgVarName = buildGoogMsgVarNameHelper(node, msgNode);
-        childGoogMsgCodeGenInfos.add(genGoogGetMsgCallHelper(googMsgVarName, msgNode));
+        long msgId = node.getChildMsgId(msgNode);
+        childGoogMsgCodeGenInfos.add(genGoogGetMsgCallHelper(googMsgVarName, msgNode, msgId));
+        childMsgIds.add(msgId);
+        childGoogMsgVarNames.add(googMsgVarName);
       }
 
-      // Generate the goog.getMsgWithFallback call.
-      jsCodeBuilder.appendLineStart(
-          "var ", node.getRenderedGoogMsgVarName(), " = goog.getMsgWithFallback(");
-      boolean isFirst = true;
-      for (GoogMsgCodeGenInfo childGoogMsgCodeGenInfo : childGoogMsgCodeGenInfos) {
-        if (isFirst) {
-          isFirst = false;
-        } else {
-          jsCodeBuilder.append(", ");
-        }
-        jsCodeBuilder.append(childGoogMsgCodeGenInfo.googMsgVarName);
+      if (generatesMsgSlots) {
+        // The splicer picks the msg to use for each locale.
+        jsCodeBuilder.appendLine(
+            "var ", node.getRenderedGoogMsgVarName(), " = ",
+            MsgSlotSplicer.buildMsgFallbackSlot(childMsgIds, childGoogMsgVarNames), ";");
+      } else {
+        // Generate the goog.getMsgWithFallback call.
+        jsCodeBuilder.appendLine(
+            "var ", node.getRenderedGoogMsgVarName(), " = goog.getMsgWithFallback(",
+            Joiner.on(", ").join(childGoogMsgVarNames), ");");
       }
-      jsCodeBuilder.appendLineEnd(");");
 
       // Generate the goog.i18n.MessageFormat calls for child plural/select messages (if any), each
       // wrapped in an if-block that will only execute if that child is the chosen message.
@@ -246,10 +257,12 @@ class GenJsCodeVisitorAssistantForMsgs extends AbstractSoyNodeVisitor<Void> {
    *
    * @param googMsgVarName The goog.getMsg var name.
    * @param msgNode The msg to generate code for.
+   * @param msgId The id of the msg.
    * @return The GoogMsgCodeGenInfo object created in the process, which may be needed for
    *     generating postprocessing code (if the message is plural/select).
    */
-  private GoogMsgCodeGenInfo genGoogGetMsgCallHelper(String googMsgVarName, MsgNode msgNode) {
+  private GoogMsgCodeGenInfo genGoogGetMsgCallHelper(
+      String googMsgVarName, MsgNode msgNode, long msgId) {
 
     // Build the code for the message content.
     // TODO: We could build the msg parts once and save it as a field on the MsgNode or save it some
@@ -258,10 +271,15 @@ class GenJsCodeVisitorAssistantForMsgs extends AbstractSoyNodeVisitor<Void> {
     // decrease memory usage right now. The same memoization possibility also applies to the msg
     // parts with embedded ICU syntax (created in helper buildGoogMsgContentStr()).
     ImmutableList<SoyMsgPart> msgParts = MsgUtils.buildMsgParts(msgNode);
-    String googMsgContentStr = buildGoogMsgContentStr(msgParts, msgNode.isPlrselMsg());
+    // Note: For source messages, disallow ICU syntax chars that need escaping in raw text.
+    String googMsgContentStr = buildGoogMsgContentStr(msgParts, msgNode.isPlrselMsg(), false);
     // Escape non-ASCII characters since browsers are inconsistent in how they interpret utf-8 in
     // JS source files.
     String googMsgContentStrCode = BaseUtils.escapeToSoyString(googMsgContentStr, true);
+    if (generatesMsgSlots) {
+      googMsgContentStrCode = MsgSlotSplicer.buildMsgTextSlot(
+          msgId, msgNode.isPlrselMsg(), googMsgContentStrCode);
+    }
 
     // Build the individual code bits for each placeholder (i.e. "<placeholderName>: <exprCode>")
     // and each plural/select (i.e. "<varName>: <exprCode>").
@@ -315,13 +333,15 @@ class GenJsCodeVisitorAssistantForMsgs extends AbstractSoyNodeVisitor<Void> {
    *
    * @param msgParts The parts of the message.
    * @param doUseBracedPhs Whether to use braced placeholders.
+   * @param allowIcuEscapingInRawText Whether to escape ICU syntax chars in raw text (in
+   *     plural/select messages), rather than report them as an error.
    * @return The message content string for a goog.getMsg() call.
    */
-  private static String buildGoogMsgContentStr(
-      ImmutableList<SoyMsgPart> msgParts, boolean doUseBracedPhs) {
+  static String buildGoogMsgContentStr(
+      List<SoyMsgPart> msgParts, boolean doUseBracedPhs, boolean allowIcuEscapingInRawText) {
 
-    // Note: For source messages, disallow ICU syntax chars that need escaping in raw text.
-    msgParts = IcuSyntaxUtils.convertMsgPartsToEmbeddedIcuSyntax(msgParts, false);
+    msgParts = IcuSyntaxUtils.convertMsgPartsToEmbeddedIcuSyntax(
+        msgParts, allowIcuEscapingInRawText);
 
     StringBuilder msgStrSb = new StringBuilder();
 
@@ -107,6 +107,50 @@ public class JsSrcMain {
   public List<String> genJsSrc(
       SoyFileSetNode soyTree, SoyJsSrcOptions jsSrcOptions, @Nullable SoyMsgBundle msgBundle)
       throws SoySyntaxException {
+    return genJsSrcHelper(soyTree, jsSrcOptions, msgBundle, false);
+  }
+
+
+  /**
+   * Generates JS source code for all locales at once, to be localized by a {@link MsgSlotSplicer}.
+   * The code defines all messages with goog.getMsg (as if shouldGenerateGoogMsgDefs were set), but
+   * leaves their text to the splicer.
+   *
+   * <p> Other than the messages, the code only depends on the bidi global directionality. Unless
+   * the options specify it, the code is generated for the given static directionality, and only
+   * locales with that directionality should be spliced into it.
+   *
+   * @param soyTree The Soy parse tree to generate JS source code for.
+   * @param jsSrcOptions The compilation options relevant to this backend.
+   * @param isRtl Whether to generate code for rtl locales rather than ltr ones. Ignored if
+   *     {@code jsSrcOptions} specifies the bidi global directionality.
+   * @return The splicer for the generated JS files, which correspond one-to-one to the original
+   *     Soy source files.
+   * @throws SoySyntaxException If a syntax error is found.
+   */
+  public MsgSlotSplicer genJsSrcWithMsgSlots(
+      SoyFileSetNode soyTree, SoyJsSrcOptions jsSrcOptions, boolean isRtl)
+      throws SoySyntaxException {
+
+    SoyJsSrcOptions slotJsSrcOptions = jsSrcOptions.clone();
+    slotJsSrcOptions.setShouldGenerateGoogMsgDefs(true);
+    if (slotJsSrcOptions.getBidiGlobalDir() == 0
+        && !slotJsSrcOptions.getUseGoogIsRtlForBidiGlobalDir()) {
+      slotJsSrcOptions.setBidiGlobalDir(isRtl ? -1 : 1);
+    }
+    return new MsgSlotSplicer(genJsSrcHelper(soyTree, slotJsSrcOptions, null, true));
+  }
+
+
+  /**
+   * Private helper for genJsSrc() and genJsSrcWithMsgSlots().
+   * @param generatesMsgSlots Whether to generate slots for MsgSlotSplicer in place of the msg texts
+   *     (only applicable when generating goog.getMsg definitions).
+   */
+  private List<String> genJsSrcHelper(
+      SoyFileSetNode soyTree, SoyJsSrcOptions jsSrcOptions, @Nullable SoyMsgBundle msgBundle,
+      boolean generatesMsgSlots)
+      throws SoySyntaxException {
 
     // Generate code with the opt_ijData param if either (a) the user specified the compiler flag
     // --isUsingIjData or (b) any of the Soy code in the file set references injected data.
@@ -155,7 +199,9 @@ public class JsSrcMain {
       // Do the code generation.
       optimizeBidiCodeGenVisitorProvider.get().exec(soyTree);
       simplifyVisitor.exec(soyTree);
-      return genJsCodeVisitorProvider.get().exec(soyTree);
+      GenJsCodeVisitor genJsCodeVisitor = genJsCodeVisitorProvider.get();
+      genJsCodeVisitor.setGeneratesMsgSlots(generatesMsgSlots);
+      return genJsCodeVisitor.exec(soyTree);
 
     } finally {
       apiCallScope.exit();
@@ -183,6 +229,25 @@ public class JsSrcMain {
       throws SoySyntaxException, IOException {
 
     List<String> jsFileContents = genJsSrc(soyTree, jsSrcOptions, msgBundle);
+    writeJsFiles(soyTree, jsFileContents, locale, outputPathFormat, inputPathsPrefix);
+  }
+
+
+  /**
+   * Writes generated JS source files to disk.
+   *
+   * @param soyTree The Soy parse tree the JS source code was generated for.
+   * @param jsFileContents The generated JS source code, one string per Soy source file.
+   * @param locale The current locale that we're generating JS for, or null if not applicable.
+   * @param outputPathFormat The format string defining how to build the output file path
+   *     corresponding to an input file path.
+   * @param inputPathsPrefix The input path prefix, or empty string if none.
+   * @throws IOException If there is an error in opening/writing an output JS file.
+   */
+  public void writeJsFiles(
+      SoyFileSetNode soyTree, List<String> jsFileContents, @Nullable String locale,
+      String outputPathFormat, String inputPathsPrefix)
+      throws IOException {
 
     ImmutableList<SoyFileNode> srcsToCompile = ImmutableList.copyOf(Iterables.filter(
         soyTree.getChildren(), SoyFileNode.MATCH_SRC_FILENODE));
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.jssrc.internal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.template.soy.base.internal.BaseUtils;
+import com.google.template.soy.msgs.SoyMsgBundle;
+import com.google.template.soy.msgs.restricted.SoyMsg;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * Fills in the messages of JS code that was generated once for all locales.
+ *
+ * <p> Such code (see {@link JsSrcMain#genJsSrcWithMsgSlots}) defines every message with
+ * {@code goog.getMsg}, but has a slot in place of each message's text, and a slot in place of the
+ * {@code goog.getMsgWithFallback} choice of each message with fallbacks. For each locale,
+ * {@link #splice} copies the code while filling the slots from the locale's message bundle, so
+ * localizing only costs a pass over the code text rather than a whole code generation.
+ *
+ * <p> Important: Do not use outside of Soy code (treat as superpackage-private).
+ *
+ */
+public final class MsgSlotSplicer {
+
+
+  /**
+   * Delimits the slots in the generated code. Never appears elsewhere in it, since the code
+   * generator escapes control characters in all JS string literals.
+   */
+  private static final char SLOT_DELIMITER = '\u0000';
+
+  /** Slot kind for the text of a regular msg, followed by "{msgId}:{sourceTextCode}". */
+  private static final char MSG_TEXT_SLOT = 'T';
+
+  /** Slot kind for the text of a plural/select msg, followed by "{msgId}:{sourceTextCode}". */
+  private static final char PLRSEL_MSG_TEXT_SLOT = 'P';
+
+  /** Slot kind for a fallback choice, followed by "{msgId}:{googMsgVarName}" per msg, joined by
+   *  ','. */
+  private static final char MSG_FALLBACK_SLOT = 'F';
+
+
+  /**
+   * Builds the slot to generate in place of the JS string literal of a msg's text.
+   * @param msgId The id of the msg.
+   * @param isPlrselMsg Whether the msg is a plural/select msg.
+   * @param sourceTextCode The JS string literal of the msg's source text, used by locales that
+   *     don't have a translation.
+   */
+  static String buildMsgTextSlot(long msgId, boolean isPlrselMsg, String sourceTextCode) {
+    return new StringBuilder()
+        .append(SLOT_DELIMITER)
+        .append(isPlrselMsg ? PLRSEL_MSG_TEXT_SLOT : MSG_TEXT_SLOT)
+        .append(msgId).append(':').append(sourceTextCode)
+        .append(SLOT_DELIMITER)
+        .toString();
+  }
+
+
+  /**
+   * Builds the slot to generate in place of the {@code goog.getMsgWithFallback} call of a msg with
+   * fallbacks. It's filled with the var name of the first msg that has a translation, or of the
+   * first msg if none does (this is the choice InsertMsgsVisitor makes).
+   * @param msgIds The ids of the msg and its fallbacks, in order.
+   * @param googMsgVarNames The goog.getMsg var names of the msg and its fallbacks, in order.
+   */
+  static String buildMsgFallbackSlot(List<Long> msgIds, List<String> googMsgVarNames) {
+    Preconditions.checkArgument(msgIds.size() == googMsgVarNames.size());
+    StringBuilder slot = new StringBuilder().append(SLOT_DELIMITER).append(MSG_FALLBACK_SLOT);
+    for (int i = 0; i < msgIds.size(); i++) {
+      if (i > 0) {
+        slot.append(',');
+      }
+      slot.append(msgIds.get(i)).append(':').append(googMsgVarNames.get(i));
+    }
+    return slot.append(SLOT_DELIMITER).toString();
+  }
+
+
+  /** The generated JS files, with slots. */
+  private final ImmutableList<String> jsFileContents;
+
+
+  /**
+   * @param jsFileContents The generated JS files, with slots.
+   */
+  MsgSlotSplicer(List<String> jsFileContents) {
+    this.jsFileContents = ImmutableList.copyOf(jsFileContents);
+  }
+
+
+  /**
+   * Fills in the slots for one locale.
+   * @param msgBundle The locale's bundle of translated messages, or null to use the messages from
+   *     the Soy source.
+   * @return The localized JS files, in the same order as the generated ones.
+   */
+  public List<String> splice(@Nullable SoyMsgBundle msgBundle) {
+    ImmutableList.Builder<String> localizedJsFileContents = ImmutableList.builder();
+    for (String jsFileContent : jsFileContents) {
+      StringBuilder out = new StringBuilder(jsFileContent.length() + jsFileContent.length() / 8);
+      spliceFile(jsFileContent, msgBundle, out);
+      localizedJsFileContents.add(out.toString());
+    }
+    return localizedJsFileContents.build();
+  }
+
+
+  private static void spliceFile(
+      String jsFileContent, @Nullable SoyMsgBundle msgBundle, StringBuilder out) {
+
+    int copyStart = 0;
+    for (int slotStart = jsFileContent.indexOf(SLOT_DELIMITER); slotStart >= 0;
+         slotStart = jsFileContent.indexOf(SLOT_DELIMITER, copyStart)) {
+      int slotEnd = jsFileContent.indexOf(SLOT_DELIMITER, slotStart + 1);
+      out.append(jsFileContent, copyStart, slotStart);
+      appendSlotFilling(jsFileContent.substring(slotStart + 1, slotEnd), msgBundle, out);
+      copyStart = slotEnd + 1;
+    }
+    out.append(jsFileContent, copyStart, jsFileContent.length());
+  }
+
+
+  private static void appendSlotFilling(
+      String slot, @Nullable SoyMsgBundle msgBundle, StringBuilder out) {
+
+    char slotKind = slot.charAt(0);
+    switch (slotKind) {
+      case MSG_TEXT_SLOT:
+      case PLRSEL_MSG_TEXT_SLOT:
+        int colonIndex = slot.indexOf(':');
+        SoyMsg translation = getTranslation(msgBundle, slot.substring(1, colonIndex));
+        if (translation == null) {
+          out.append(slot, colonIndex + 1, slot.length());
+        } else {
+          // Translators may use ICU syntax characters, which need escaping in plural/select msgs.
+          out.append(BaseUtils.escapeToSoyString(
+              GenJsCodeVisitorAssistantForMsgs.buildGoogMsgContentStr(
+                  translation.getParts(), slotKind == PLRSEL_MSG_TEXT_SLOT, true),
+              true));
+        }
+        break;
+
+      case MSG_FALLBACK_SLOT:
+        String chosenGoogMsgVarName = null;
+        for (String msgIdAndVarName : slot.substring(1).split(",")) {
+          int separatorIndex = msgIdAndVarName.indexOf(':');
+          String googMsgVarName = msgIdAndVarName.substring(separatorIndex + 1);
+          if (chosenGoogMsgVarName == null) {
+            chosenGoogMsgVarName = googMsgVarName;
+          }
+          if (getTranslation(msgBundle, msgIdAndVarName.substring(0, separatorIndex)) != null) {
+            chosenGoogMsgVarName = googMsgVarName;
+            break;
+          }
+        }
+        out.append(chosenGoogMsgVarName);
+        break;
+
+      default:
+        throw new AssertionError("Unknown msg slot kind: " + slotKind);
+    }
+  }
+
+
+  @Nullable private static SoyMsg getTranslation(@Nullable SoyMsgBundle msgBundle, String msgId) {
+    return (msgBundle != null) ? msgBundle.getMsg(Long.parseLong(msgId)) : null;
+  }
+
+}
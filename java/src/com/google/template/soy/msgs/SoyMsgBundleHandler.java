@@ -24,6 +24,7 @@ import com.google.template.soy.base.internal.BaseUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
 import java.net.URL;
 import java.util.regex.Pattern;
 
@@ -179,6 +180,15 @@ public class SoyMsgBundleHandler {
       SoyMsgBundle msgBundle, OutputFileOptions options, File outputFile)
       throws IOException, SoyMsgException {
 
+    if (msgPlugin instanceof SoyStreamingMsgPlugin) {
+      // Write the file as it's generated, rather than building its whole content first.
+      BaseUtils.ensureDirsExistInPath(outputFile.getPath());
+      try (Writer out = Files.newWriter(outputFile, UTF_8)) {
+        ((SoyStreamingMsgPlugin) msgPlugin).writeExtractedMsgsFile(msgBundle, options, out);
+      }
+      return;
+    }
+
     CharSequence cs = msgPlugin.generateExtractedMsgsFile(msgBundle, options);
     BaseUtils.ensureDirsExistInPath(outputFile.getPath());
     Files.write(cs, outputFile, UTF_8);
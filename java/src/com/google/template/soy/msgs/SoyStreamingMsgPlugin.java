@@ -0,0 +1,48 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.msgs;
+
+import com.google.template.soy.msgs.SoyMsgBundleHandler.OutputFileOptions;
+
+import java.io.IOException;
+
+
+/**
+ * Plugin for implementing a specific message file format. Supports writing out extracted msgs
+ * files incrementally, so that a large file's content never has to be held in memory as a whole.
+ *
+ */
+public interface SoyStreamingMsgPlugin extends SoyMsgPlugin {
+
+
+  /**
+   * Writes the content of an extracted messages file (source messages to be translated) from a
+   * given message bundle object containing messages extracted from source files. The content must
+   * be the same as {@link #generateExtractedMsgsFile} builds.
+   *
+   * @param msgBundle The bundle of messages extracted from source files.
+   * @param options The options to use for generating the extracted messages file (e.g. the source
+   *     locale/language of the messages). Not all options will apply to all message plugins.
+   * @param out The Appendable to write the content of the extracted messages file to.
+   * @throws SoyMsgException If there was an error building the file content.
+   * @throws IOException If there was an error writing to out.
+   */
+  public void writeExtractedMsgsFile(
+      SoyMsgBundle msgBundle, OutputFileOptions options, Appendable out)
+      throws SoyMsgException, IOException;
+
+}
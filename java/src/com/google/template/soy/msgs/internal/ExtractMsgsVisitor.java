@@ -17,7 +17,9 @@
 package com.google.template.soy.msgs.internal;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
+import com.google.common.collect.PeekingIterator;
 import com.google.template.soy.msgs.SoyMsgBundle;
 import com.google.template.soy.msgs.internal.MsgUtils.MsgPartsAndIds;
 import com.google.template.soy.msgs.restricted.SoyMsg;
@@ -29,7 +31,9 @@ import com.google.template.soy.soytree.SoyFileSetNode;
 import com.google.template.soy.soytree.SoyNode;
 import com.google.template.soy.soytree.SoyNode.ParentSoyNode;
 
+import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
 
 
 /**
@@ -87,6 +91,61 @@ public class ExtractMsgsVisitor extends AbstractSoyNodeVisitor<SoyMsgBundle> {
   }
 
 
+  /**
+   * Merges the bundles of messages extracted from separate parts of a Soy file set (e.g. from each
+   * Soy file, in parallel) into the bundle that extracting from the whole file set at once would
+   * return. Since each bundle iterates in message id order, this is a k-way merge rather than a
+   * sort. As when extracting at once, if several bundles have a message with the same id, the one
+   * from the earliest bundle wins, and the source paths of the others are added to it.
+   *
+   * @param msgBundles The bundles of extracted messages (locale string is null), in the order of
+   *     the parts of the file set they were extracted from.
+   * @return A SoyMsgBundle containing all the messages (locale string is null).
+   */
+  public static SoyMsgBundle mergeExtractedMsgs(List<SoyMsgBundle> msgBundles) {
+
+    final List<PeekingIterator<SoyMsg>> iters = Lists.newArrayListWithCapacity(msgBundles.size());
+    // Queue of bundle indices, ordered by the id of each bundle's next message. Ties are broken by
+    // bundle index, so the earliest bundle's message comes first.
+    PriorityQueue<Integer> queue = new PriorityQueue<>(
+        Math.max(msgBundles.size(), 1),
+        new Comparator<Integer>() {
+          @Override public int compare(Integer index1, Integer index2) {
+            long id1 = iters.get(index1).peek().getId();
+            long id2 = iters.get(index2).peek().getId();
+            return (id1 != id2) ? (id1 < id2 ? -1 : 1) : index1.compareTo(index2);
+          }
+        });
+    for (SoyMsgBundle msgBundle : msgBundles) {
+      Preconditions.checkArgument(msgBundle.getLocaleString() == null);
+      iters.add(Iterators.peekingIterator(msgBundle.iterator()));
+      if (iters.get(iters.size() - 1).hasNext()) {
+        queue.add(iters.size() - 1);
+      }
+    }
+
+    List<SoyMsg> mergedMsgs = Lists.newArrayList();
+    SoyMsg lastMsg = null;
+    while (!queue.isEmpty()) {
+      int index = queue.poll();
+      SoyMsg msg = iters.get(index).next();
+      if (lastMsg != null && lastMsg.getId() == msg.getId()) {
+        for (String sourcePath : msg.getSourcePaths()) {
+          lastMsg.addSourcePath(sourcePath);
+        }
+      } else {
+        mergedMsgs.add(msg);
+        lastMsg = msg;
+      }
+      if (iters.get(index).hasNext()) {
+        queue.add(index);
+      }
+    }
+    // Note: SoyMsgBundleImpl doesn't need to sort the merged messages, since they're in id order.
+    return new SoyMsgBundleImpl(null, mergedMsgs);
+  }
+
+
   // -----------------------------------------------------------------------------------------------
   // Implementations for specific nodes.
 
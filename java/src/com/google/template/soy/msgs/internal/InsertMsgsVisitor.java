@@ -22,7 +22,9 @@ import com.google.template.soy.msgs.SoyMsgBundle;
 import com.google.template.soy.msgs.restricted.SoyMsg;
 import com.google.template.soy.msgs.restricted.SoyMsgPart;
 import com.google.template.soy.msgs.restricted.SoyMsgPlaceholderPart;
+import com.google.template.soy.msgs.restricted.SoyMsgPluralPart;
 import com.google.template.soy.msgs.restricted.SoyMsgRawTextPart;
+import com.google.template.soy.msgs.restricted.SoyMsgSelectPart;
 import com.google.template.soy.soytree.AbstractSoyNodeVisitor;
 import com.google.template.soy.soytree.MsgFallbackGroupNode;
 import com.google.template.soy.soytree.MsgHtmlTagNode;
@@ -36,6 +38,7 @@ import com.google.template.soy.soytree.SoyNode;
 import com.google.template.soy.soytree.SoyNode.BlockNode;
 import com.google.template.soy.soytree.SoyNode.ParentSoyNode;
 import com.google.template.soy.soytree.SoyNode.StandaloneNode;
+import com.google.template.soy.soytree.tofu.TranslatedPlrselMsgNode;
 
 import java.util.List;
 
@@ -44,15 +47,19 @@ import javax.annotation.Nullable;
 /**
  * Visitor for inserting translated messages into Soy tree. This pass replaces the
  * MsgFallbackGroupNodes in the tree with sequences of RawTextNodes and other nodes. The only
- * exception is plural/select messages. This pass currently does not replace MsgFallbackGroupNodes
- * that contain plural/select messages.
+ * exception is plural/select messages, which can't be expressed as a fixed sequence of nodes. A
+ * plural/select message with a translation is replaced by a TranslatedPlrselMsgNode, which holds
+ * the translation so that rendering it doesn't need the message bundle. A plural/select message
+ * without a translation is left in its MsgFallbackGroupNode, with the unused fallbacks removed, to
+ * be rendered from source.
  *
  * <p> Important: Do not use outside of Soy code (treat as superpackage-private).
  *
  * <p> If the Soy tree doesn't contain plural/select messages, then after this pass, the Soy tree
  * should no longer contain MsgFallbackGroupNodes, MsgNodes, MsgPlaceholderNodes, or
  * MsgHtmlTagNodes. If the Soy tree contains plural/select messages, then the only messages left in
- * the tree after this pass runs should be the plural/select messages.
+ * the tree after this pass runs should be the plural/select messages, and the rendered result of
+ * the tree no longer depends on the message bundle.
  *
  * <p> Note that the Soy tree is usually simplifiable after this pass is run (e.g. it usually
  * contains consecutive RawTextNodes). It's usually advisable to run a simplification pass after
@@ -92,10 +99,10 @@ public class InsertMsgsVisitor extends AbstractSoyNodeVisitor<Void> {
    * @param msgBundle The bundle of translated messages, or null to use the messages from the Soy
    *     source.
    * @param dontErrorOnPlrselMsgs If set to true, then this pass won't report an error when
-   *     encountering a plural or select message. Instead, plural and select messages will simply
-   *     not be replaced ({@code MsgNode} left in the tree as-is). If set to false, then this pass
-   *     will throw an {@link EncounteredPlrselMsgException} when encountering a plural or
-   *     select message.
+   *     encountering a plural or select message. Instead, plural and select messages will be
+   *     replaced by {@code TranslatedPlrselMsgNode}s if translated, else left in the tree to be
+   *     rendered from source. If set to false, then this pass will throw an
+   *     {@link EncounteredPlrselMsgException} when encountering a plural or select message.
    */
   public InsertMsgsVisitor(@Nullable SoyMsgBundle msgBundle, boolean dontErrorOnPlrselMsgs) {
     this.msgBundle = msgBundle;
@@ -121,13 +128,10 @@ public class InsertMsgsVisitor extends AbstractSoyNodeVisitor<Void> {
 
   @Override protected void visitMsgFallbackGroupNode(MsgFallbackGroupNode node) {
 
-    // Check for plural or select message. Either report error or don't replace.
-    for (MsgNode msg : node.getChildren()) {
-      if (msg.numChildren() == 1 &&
-          (msg.getChild(0) instanceof MsgSelectNode || msg.getChild(0) instanceof MsgPluralNode)) {
-        if (dontErrorOnPlrselMsgs) {
-          return;
-        } else {
+    // Check for plural or select message. Either report error or handle it below.
+    if (!dontErrorOnPlrselMsgs) {
+      for (MsgNode msg : node.getChildren()) {
+        if (isPlrselMsg(msg)) {
           throw new EncounteredPlrselMsgException(msg);
         }
       }
@@ -139,13 +143,26 @@ public class InsertMsgsVisitor extends AbstractSoyNodeVisitor<Void> {
       for (MsgNode msg : node.getChildren()) {
         SoyMsg translation = msgBundle.getMsg(MsgUtils.computeMsgIdForDualFormat(msg));
         if (translation != null) {
+          if (isPlrselTranslation(translation)) {
+            node.getParent().replaceChild(
+                node, new TranslatedPlrselMsgNode(nodeIdGen.genId(), node, msg, translation));
+            return;
+          }
           buildReplacementNodesFromTranslation(msg, translation);
           break;
         }
       }
     }
     if (currReplacementNodes == null) {
-      buildReplacementNodesFromSource(node.getChild(0));
+      MsgNode msg = node.getChild(0);
+      if (isPlrselMsg(msg)) {
+        // Leave the message to be rendered from source. Its fallbacks are never used.
+        while (node.numChildren() > 1) {
+          node.removeChild(1);
+        }
+        return;
+      }
+      buildReplacementNodesFromSource(msg);
     }
 
     // Replace this MsgFallbackGroupNode with the replacement nodes.
@@ -157,6 +174,28 @@ public class InsertMsgsVisitor extends AbstractSoyNodeVisitor<Void> {
   }
 
 
+  /**
+   * Private helper for visitMsgFallbackGroupNode() to determine whether a message is a plural or
+   * select message.
+   */
+  private static boolean isPlrselMsg(MsgNode msg) {
+    return msg.numChildren() == 1 &&
+        (msg.getChild(0) instanceof MsgSelectNode || msg.getChild(0) instanceof MsgPluralNode);
+  }
+
+
+  /**
+   * Private helper for visitMsgFallbackGroupNode() to determine whether a translation is of a
+   * plural or select message. Note that this goes by the translation's parts rather than by the
+   * source message, the same way the renderer does.
+   */
+  private static boolean isPlrselTranslation(SoyMsg translation) {
+    List<SoyMsgPart> parts = translation.getParts();
+    return !parts.isEmpty() &&
+        (parts.get(0) instanceof SoyMsgPluralPart || parts.get(0) instanceof SoyMsgSelectPart);
+  }
+
+
   /**
    * Private helper for visitMsgFallbackGroupNode() to build the list of replacement nodes for a
    * message from its translation.
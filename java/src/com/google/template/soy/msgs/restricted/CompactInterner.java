@@ -19,7 +19,8 @@ package com.google.template.soy.msgs.restricted;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 
-import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * An memory-efficient object canonicalizer.
@@ -28,12 +29,21 @@ import java.util.Random;
  * little over one reference per item interned. Standard HashMap based interners use many bytes
  * per object interned, partially defeating the memory savings of interning.
  *
+ * <p> It's safe to use from multiple threads. The table is split into segments by hash code.
+ * Finding an item that was already interned (by far the common case once the usual parts have
+ * been seen) doesn't lock at all, and adding a new item only locks its segment, so bundles can be
+ * compacted concurrently with one interner (see {@link #getShared} for the process-wide one, which
+ * compactors only use when asked to).
+ *
  */
 final class CompactInterner {
 
-  /** Initial size of the table. */
+  /** Initial size of the table, summed over all segments. */
   @VisibleForTesting static final int INITIAL_SIZE = 1024;
 
+  /** The number of segments. Must be a power of 2. */
+  private static final int SEGMENT_COUNT = 16;
+
   /**
    * The maximum expected number of collisions to tolerate before growing.
    *
@@ -60,19 +70,29 @@ final class CompactInterner {
    */
   private static final int GROWTH_DENOMINATOR = 4;
 
-  /** Hash table of all the items interned. */
-  private Object[] table;
+  /** The interner shared by all users in the process, so each distinct part is stored once. */
+  private static final CompactInterner SHARED = new CompactInterner();
 
-  /** Number of items in the table. */
-  private int count;
 
-  /** The total number of collisions, including collisions incurred during a rehash. */
-  private long collisions;
+  /**
+   * Returns the interner shared by all users in the process.
+   *
+   * <p> Items interned in it are never released.
+   */
+  static CompactInterner getShared() {
+    return SHARED;
+  }
+
+
+  /** The segments, selected by the top bits of the mixed hash code. */
+  private final Segment[] segments;
+
 
   public CompactInterner() {
-    table = new Object[INITIAL_SIZE];
-    count = 0;
-    collisions = 0;
+    segments = new Segment[SEGMENT_COUNT];
+    for (int i = 0; i < SEGMENT_COUNT; i++) {
+      segments[i] = new Segment(INITIAL_SIZE / SEGMENT_COUNT);
+    }
   }
 
 
@@ -83,64 +103,178 @@ final class CompactInterner {
    * <p> This operation performs in amortized constant time.
    */
   @SuppressWarnings("unchecked")  // If a.equals(b) then a and b have the same type.
-  public synchronized <T> T intern(T value) {
+  public <T> T intern(T value) {
     Preconditions.checkNotNull(value);
 
-    // Use a pseudo-random number generator to mix up the high and low bits of the hash code.
-    Random generator = new java.util.Random(value.hashCode());
-    int tries = 0;
-
-    while (true) {
-      int index = generator.nextInt(table.length);
-      Object candidate = table[index];
+    // Mix up the high and low bits of the hash code. The top bits select the segment, and the
+    // whole value seeds the segment's probe sequence.
+    long hash = value.hashCode() * 0x9E3779B97F4A7C15L;
+    Segment segment = segments[(int) (hash >>> 60) & (SEGMENT_COUNT - 1)];
 
+    // First look for the item without locking. Entries are never removed and a rehashed table
+    // holds the same entries, so any equal item found (even in a stale table) is the canonical one.
+    AtomicReferenceArray<Object> table = segment.table;
+    int length = table.length();
+    long probe = hash;
+    for (int tries = 0; tries < length; tries++) {
+      probe = nextProbe(probe);
+      Object candidate = table.get(probeIndex(probe, length));
       if (candidate == null) {
-        // Found a good place to hash it.
-        count++;
-        collisions += tries;
-        table[index] = value;
-        rehashIfNeeded();
-        return value;
+        break;
       }
-
       if (candidate.equals(value)) {
-        Preconditions.checkArgument(value.getClass() == candidate.getClass(),
-            "Interned objects are equals() but different classes: %s and %s", value, candidate);
+        checkSameClass(value, candidate);
+        segment.hits.incrementAndGet();
         return (T) candidate;
       }
+    }
 
-      tries++;
+    synchronized (segment) {
+      return (T) segment.internLocked(value, hash);
     }
   }
 
 
+  /** Returns a snapshot of the interning statistics. */
+  CompactInternerStats getStats() {
+    long hits = 0;
+    long misses = 0;
+    long collisions = 0;
+    long count = 0;
+    long tableSize = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        hits += segment.hits.get();
+        misses += segment.misses;
+        collisions += segment.collisions;
+        count += segment.count;
+        tableSize += segment.table.length();
+      }
+    }
+    return new CompactInternerStats(hits, misses, count, collisions, tableSize);
+  }
+
+
+  /** Advances a probe sequence (a linear congruential generator). */
+  private static long nextProbe(long probe) {
+    return probe * 6364136223846793005L + 1442695040888963407L;
+  }
+
+
+  /** Maps a probe to an index in [0, length), using the probe's well-mixed top 31 bits. */
+  private static int probeIndex(long probe, int length) {
+    return (int) (((probe >>> 33) * length) >>> 31);
+  }
+
+
+  private static void checkSameClass(Object value, Object candidate) {
+    Preconditions.checkArgument(value.getClass() == candidate.getClass(),
+        "Interned objects are equals() but different classes: %s and %s", value, candidate);
+  }
+
+
   /**
-   * Doubles the table size.
+   * One segment of the table. Its table is only written while holding the segment's lock, but may
+   * be read at any time.
    */
-  private void rehashIfNeeded() {
-    int currentSize = table.length;
-    if (currentSize - count >= currentSize / (MAX_EXPECTED_COLLISION_COUNT + 1)) {
-      // Still enough overhead.
-      return;
+  private static final class Segment {
+
+    /** Hash table of the items interned in this segment. Replaced (never resized) on growth. */
+    volatile AtomicReferenceArray<Object> table;
+
+    /** Number of items in the table. */
+    int count;
+
+    /** The total number of collisions, including collisions incurred during a rehash. */
+    long collisions;
+
+    /** The number of calls that added an item. */
+    long misses;
+
+    /** The number of calls that found an item that was already interned. */
+    final AtomicLong hits = new AtomicLong();
+
+    Segment(int initialSize) {
+      table = new AtomicReferenceArray<>(initialSize);
     }
 
-    Object[] oldTable = table;
-    // Grow the table so it increases by 1 / GROWTH_DENOMINATOR.
-    int newSize = currentSize + currentSize / GROWTH_DENOMINATOR;
 
-    table = new Object[newSize];
-    count = 0;
+    /** Interns the value. Must be called while holding the segment's lock. */
+    Object internLocked(Object value, long hash) {
+      AtomicReferenceArray<Object> currentTable = table;
+      int length = currentTable.length();
+      long probe = hash;
+      int tries = 0;
 
-    for (Object element : oldTable) {
-      if (element != null) {
-        intern(element);
+      while (true) {
+        probe = nextProbe(probe);
+        int index = probeIndex(probe, length);
+        Object candidate = currentTable.get(index);
+
+        if (candidate == null) {
+          // Found a good place to hash it.
+          count++;
+          misses++;
+          collisions += tries;
+          currentTable.set(index, value);
+          rehashIfNeeded();
+          return value;
+        }
+
+        if (candidate.equals(value)) {
+          // Added by another thread after this thread's unlocked lookup.
+          checkSameClass(value, candidate);
+          hits.incrementAndGet();
+          return candidate;
+        }
+
+        tries++;
       }
     }
+
+
+    /**
+     * Grows the table, if needed.
+     */
+    private void rehashIfNeeded() {
+      AtomicReferenceArray<Object> oldTable = table;
+      int currentSize = oldTable.length();
+      if (currentSize - count >= currentSize / (MAX_EXPECTED_COLLISION_COUNT + 1)) {
+        // Still enough overhead.
+        return;
+      }
+
+      // Grow the table so it increases by 1 / GROWTH_DENOMINATOR.
+      int newSize = currentSize + currentSize / GROWTH_DENOMINATOR;
+      AtomicReferenceArray<Object> newTable = new AtomicReferenceArray<>(newSize);
+
+      for (int i = 0; i < currentSize; i++) {
+        Object element = oldTable.get(i);
+        if (element == null) {
+          continue;
+        }
+        long probe = element.hashCode() * 0x9E3779B97F4A7C15L;
+        int index;
+        while (true) {
+          probe = nextProbe(probe);
+          index = probeIndex(probe, newSize);
+          if (newTable.get(index) == null) {
+            break;
+          }
+          collisions++;
+        }
+        newTable.set(index, element);
+      }
+
+      // Publish the filled table; readers of the old one still find all of its entries.
+      table = newTable;
+    }
   }
 
 
   @VisibleForTesting double getAverageCollisions() {
-    return 1.0 * collisions / count;
+    CompactInternerStats stats = getStats();
+    return 1.0 * stats.getCollisionCount() / stats.getDistinctCount();
   }
 
 
@@ -154,7 +288,8 @@ final class CompactInterner {
 
 
   @VisibleForTesting double getOverhead() {
-    return 1.0 * (table.length - count) / count;
+    CompactInternerStats stats = getStats();
+    return 1.0 * (stats.getTableSize() - stats.getDistinctCount()) / stats.getDistinctCount();
   }
 
 
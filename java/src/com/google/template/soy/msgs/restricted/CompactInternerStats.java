@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.msgs.restricted;
+
+/**
+ * A snapshot of the statistics of the interner that message bundles compacted with the shared
+ * interner share their parts through (see {@link SoyMsgBundleCompactor#getSharedInternerStats}).
+ *
+ * <p> Important: Only use this class from message plugins!
+ *
+ */
+public final class CompactInternerStats {
+
+
+  /** The number of intern calls that found an equal item that was already interned. */
+  private final long hitCount;
+
+  /** The number of intern calls that added a new item. */
+  private final long missCount;
+
+  /** The number of distinct items interned. */
+  private final long distinctCount;
+
+  /** The total number of probe collisions, including those incurred during rehashes. */
+  private final long collisionCount;
+
+  /** The total number of slots in the interner's tables. */
+  private final long tableSize;
+
+
+  CompactInternerStats(
+      long hitCount, long missCount, long distinctCount, long collisionCount, long tableSize) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.distinctCount = distinctCount;
+    this.collisionCount = collisionCount;
+    this.tableSize = tableSize;
+  }
+
+
+  /** Returns the number of intern calls that found an equal item that was already interned. */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+
+  /** Returns the number of intern calls that added a new item. */
+  public long getMissCount() {
+    return missCount;
+  }
+
+
+  /** Returns the number of distinct items interned. */
+  public long getDistinctCount() {
+    return distinctCount;
+  }
+
+
+  /** Returns the total number of probe collisions, including those incurred during rehashes. */
+  public long getCollisionCount() {
+    return collisionCount;
+  }
+
+
+  /** Returns the total number of slots in the interner's tables (each one reference). */
+  public long getTableSize() {
+    return tableSize;
+  }
+
+
+  /** Returns the proportion of intern calls that found an item that was already interned. */
+  public double getHitRate() {
+    long callCount = hitCount + missCount;
+    return (callCount == 0) ? 0 : 1.0 * hitCount / callCount;
+  }
+
+
+  @Override public String toString() {
+    return "CompactInternerStats{hits=" + hitCount + ", misses=" + missCount +
+        ", distinct=" + distinctCount + ", collisions=" + collisionCount +
+        ", tableSize=" + tableSize + "}";
+  }
+
+}
@@ -17,16 +17,13 @@
 package com.google.template.soy.msgs.restricted;
 
 import static com.google.common.base.Preconditions.checkArgument;
-import static com.google.common.base.Preconditions.checkState;
 
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
 import com.google.template.soy.msgs.SoyMsgBundle;
 
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.SortedMap;
@@ -36,94 +33,101 @@ import javax.annotation.Nullable;
 /**
  * Represents all renderable messages in a locale.
  *
- * <p> This saves significant memory from the normal SoyMsgBundleImpl, but doesn't store details
- * like message descriptions. This also has small runtime performance penalties, such as using
- * binary search instead of hash tables, constructing wrapper objects on the fly, and computing
- * properties of the message instead of storing them.
+ * <p> Lookups are optimized for rendering, at some cost in memory: each message is kept as a
+ * SoyMsg built once, at construction (without details like the message description, which
+ * rendering doesn't need), and found by its ID in an open-addressing hash table keyed by primitive
+ * longs, so {@link #getMsg} neither allocates nor boxes. The table is at most half full, so besides
+ * the messages it takes two to four slots (a long and a reference each) per message.
  *
  */
 final class RenderOnlySoyMsgBundleImpl implements SoyMsgBundle {
 
 
+  /** Marks an empty slot of the hash table. Message ID's are never negative. */
+  private static final long EMPTY_SLOT_ID = -1L;
+
+  /** Multiplier for Fibonacci hashing of message ID's (2^64 divided by the golden ratio). */
+  private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+
   /** The language/locale string of this bundle's messages. */
   private final String localeString;
 
+  /** The messages, sorted by ID, for iteration. */
+  private final SoyMsg[] msgsInIdOrder;
+
   /**
-   * Sorted array of message ID's that can be binary searched.
+   * The hash table's message ID's, or EMPTY_SLOT_ID for empty slots. The size is a power of two,
+   * at least twice the number of messages, so probe sequences stay short.
    *
-   * Importantly, this doesn't use any generic List type, to avoid wrapper Long objects.
+   * Importantly, this doesn't use any generic Map type, to avoid wrapper Long objects and entries.
    */
-  private final long[] idArray;
+  private final long[] slotIds;
 
-  /**
-   * Array containing either SoyMsgPart or ImmutableList<SoyMsgPart> in the same order as idArray.
-   */
-  private final Object[] valueArray;
+  /** The hash table's messages, in the same slots as slotIds. */
+  private final SoyMsg[] slotMsgs;
+
+  /** The right shift that turns a multiplied message ID into a slot index. */
+  private final int hashShift;
 
 
   /**
-   * Constructs a map of render-only soy messages. This implementation saves memory but doesn't
-   * store all fields necessary during extraction.
+   * Constructs a map of render-only soy messages. This implementation doesn't store all fields
+   * necessary during extraction.
    *
    * @param localeString The language/locale string of this bundle of messages, or null if unknown.
    *     Should only be null for bundles newly extracted from source files. Should always be set
    *     for bundles parsed from message files/resources.
-   * @param msgs The list of messages. List order will become the iteration order. Duplicate
-   *     message ID's are not permitted.
+   * @param msgs The list of messages. Iteration will be in ID order. Duplicate message ID's are
+   *     not permitted.
    */
   public RenderOnlySoyMsgBundleImpl(@Nullable String localeString, Iterable<SoyMsg> msgs) {
 
     this.localeString = localeString;
 
-    // First, build a sorted map from message ID to the message representation.
-    SortedMap<Long, Object> partsMap = Maps.newTreeMap();
+    // First, build a sorted map from message ID to the render-only message.
+    SortedMap<Long, SoyMsg> msgsMap = Maps.newTreeMap();
     for (SoyMsg msg : msgs) {
       checkArgument(Objects.equals(msg.getLocaleString(), localeString));
       checkArgument(msg.getAltId() < 0,
           "RenderOnlySoyMsgBundleImpl doesn't support alternate ID's.");
       long msgId = msg.getId();
-      checkArgument(!partsMap.containsKey(msgId),
+      checkArgument(!msgsMap.containsKey(msgId),
           "Duplicate messages are not permitted in the render-only impl.");
 
       List<SoyMsgPart> parts = msg.getParts();
       checkArgument(MsgPartUtils.hasPlrselPart(parts) == msg.isPlrselMsg(),
           "Message's plural/select status is inconsistent -- internal compiler bug.");
-      // Save memory: don't store the list if there's only one item.
-      if (parts.size() == 1) {
-        partsMap.put(msgId, parts.get(0));
-      } else {
-        partsMap.put(msgId, ImmutableList.copyOf(parts));
-      }
+      // Save memory: keep only what rendering needs.
+      msgsMap.put(msgId, new SoyMsg(msgId, localeString, msg.isPlrselMsg(), parts));
     }
-
-    // Using parallel long[] and Object[] arrays saves memory versus using a Map, because it avoids
-    // having to wrap the longs in a new Long(), and avoids wrapping the key/value pair in an
-    // Entry. Also, using a sorted array utilizes memory better, since unlike a hash table, you
-    // need neither a linked list nor empty spaces in the hash table.
-    idArray = new long[partsMap.size()];
-    valueArray = new Object[partsMap.size()];
-
-    // Build the arrays in the same order as the sorted map. Note we can't use toArray() since it
-    // won't create a primitive long[] (only Long wrappers).
-    int index = 0;
-    for (Map.Entry<Long, Object> entry : partsMap.entrySet()) {
-      idArray[index] = entry.getKey();
-      valueArray[index] = entry.getValue();
-      index++;
+    msgsInIdOrder = msgsMap.values().toArray(new SoyMsg[msgsMap.size()]);
+
+    // Build the hash table with linear probing, at a load factor of at most 1/2.
+    int numSlots = Integer.highestOneBit(Math.max(2 * msgsInIdOrder.length - 1, 1)) << 1;
+    hashShift = Long.SIZE - Integer.numberOfTrailingZeros(numSlots);
+    slotIds = new long[numSlots];
+    Arrays.fill(slotIds, EMPTY_SLOT_ID);
+    slotMsgs = new SoyMsg[numSlots];
+    for (SoyMsg msg : msgsInIdOrder) {
+      int slot = findSlot(msg.getId());
+      slotIds[slot] = msg.getId();
+      slotMsgs[slot] = msg;
     }
-    checkState(index == partsMap.size());
   }
 
 
   /**
-   * Brings a message back to life from only its ID and parts.
+   * Finds the slot of the hash table that holds the given message ID, or else the empty slot
+   * where it would be inserted.
    */
-  @SuppressWarnings("unchecked")  // The constructor guarantees the type of ImmutableList.
-  private SoyMsg resurrectMsg(long id, Object value) {
-    // Remember: If there's only one message part, we don't store the list wrapper.
-    ImmutableList<SoyMsgPart> parts = (value instanceof SoyMsgPart)
-        ? ImmutableList.of((SoyMsgPart) value) : ((ImmutableList<SoyMsgPart>) value);
-    return new SoyMsg(id, localeString, MsgPartUtils.hasPlrselPart(parts), parts);
+  private int findSlot(long msgId) {
+    int mask = slotIds.length - 1;
+    int slot = (int) ((msgId * HASH_MULTIPLIER) >>> hashShift);
+    while (slotIds[slot] != msgId && slotIds[slot] != EMPTY_SLOT_ID) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
   }
 
 
@@ -133,13 +137,24 @@ final class RenderOnlySoyMsgBundleImpl implements SoyMsgBundle {
 
 
   @Override public SoyMsg getMsg(long msgId) {
-    int index = Arrays.binarySearch(idArray, msgId);
-    return index >= 0 ? resurrectMsg(msgId, valueArray[index]) : null;
+    return (msgId >= 0) ? slotMsgs[findSlot(msgId)] : null;
   }
 
 
   @Override public int getNumMsgs() {
-    return idArray.length;
+    return msgsInIdOrder.length;
+  }
+
+
+  /**
+   * Estimates the memory taken by this bundle's lookup structures, i.e. its arrays and message
+   * objects, but not the message parts, which SoyMsgBundleCompactor shares among bundles.
+   * Assumes compressed object references.
+   * @return The estimated number of bytes.
+   */
+  long estimateFootprintBytes() {
+    // Each array has a 16-byte header; each SoyMsg object and its parts list take about 64 bytes.
+    return 3 * 16 + (long) slotIds.length * (8 + 4) + (long) msgsInIdOrder.length * (4 + 64);
   }
 
 
@@ -148,16 +163,14 @@ final class RenderOnlySoyMsgBundleImpl implements SoyMsgBundle {
       int index = 0;
 
       @Override public boolean hasNext() {
-        return index < idArray.length;
+        return index < msgsInIdOrder.length;
       }
 
       @Override public SoyMsg next() {
         if (!hasNext()) {
           throw new NoSuchElementException();
         }
-        SoyMsg result = resurrectMsg(idArray[index], valueArray[index]);
-        index++;
-        return result;
+        return msgsInIdOrder[index++];
       }
 
       @Override public void remove() {
@@ -16,6 +16,7 @@
 
 package com.google.template.soy.msgs.restricted;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.template.soy.internal.base.Pair;
 import com.google.template.soy.msgs.SoyMsgBundle;
@@ -36,6 +37,11 @@ import java.util.Objects;
  * <p> This saves an enormous amount of memory, especially since in gender/plural messages, there
  * are many repeated parts.
  *
+ * <p> Each instance has its own interner by default, which is released along with the instance.
+ * Instances created by {@link #withSharedInterner} share one process-wide interner instead, so
+ * identical parts of bundles compacted by different instances (for example, the bundles of
+ * different locales, loaded concurrently) are also stored only once. Compacting is thread-safe.
+ *
  */
 public final class SoyMsgBundleCompactor {
 
@@ -46,15 +52,47 @@ public final class SoyMsgBundleCompactor {
   /** The default case spec for select blocks. */
   private static final String DEFAULT_SELECT_CASE_SPEC = null;
 
-  private CompactInterner interner = new CompactInterner();
+  private final CompactInterner interner;
+
+
+  public SoyMsgBundleCompactor() {
+    this(new CompactInterner());
+  }
+
+
+  /**
+   * Returns a compactor that shares its interner with all other compactors created by this method.
+   *
+   * <p> The shared interner never releases the parts interned in it, even when the bundles that
+   * use them are garbage collected. So only use it when the set of bundles is fixed for the life
+   * of the process, not when bundles are reloaded or swapped in (every distinct part of every
+   * version would be retained).
+   */
+  public static SoyMsgBundleCompactor withSharedInterner() {
+    return new SoyMsgBundleCompactor(CompactInterner.getShared());
+  }
+
+
+  @VisibleForTesting SoyMsgBundleCompactor(CompactInterner interner) {
+    this.interner = interner;
+  }
+
+
+  /**
+   * Returns a snapshot of the statistics of the interner shared by the instances created by
+   * {@link #withSharedInterner}.
+   */
+  public static CompactInternerStats getSharedInternerStats() {
+    return CompactInterner.getShared().getStats();
+  }
 
 
   /**
    * Returns a more memory-efficient version of the internal message bundle.
    *
    * <p> Only enough information is retained for rendering; not enough for message extraction.
-   * As a side effect, this SoyMsgBundleCompactor instance will also retain references to parts
-   * of the messages in order to reuse identical objects.
+   * As a side effect, this instance's interner will also retain references to parts of the
+   * messages in order to reuse identical objects.
    */
   public SoyMsgBundle compact(SoyMsgBundle input) {
     ImmutableList.Builder<SoyMsg> builder = ImmutableList.builder();
@@ -60,6 +60,18 @@ public class SoyMsgBundleImpl implements SoyMsgBundle {
 
     this.localeString = localeString;
 
+    if (isInStrictIdOrder(msgs)) {
+      // Fast path (e.g. for merged extracted messages): there are no duplicates, and the list
+      // order is already the iteration order, so there's no need to sort.
+      ImmutableMap.Builder<Long, SoyMsg> msgMapBuilder = ImmutableMap.builder();
+      for (SoyMsg msg : msgs) {
+        checkArgument(Objects.equals(msg.getLocaleString(), localeString));
+        msgMapBuilder.put(msg.getId(), msg);
+      }
+      msgMap = msgMapBuilder.build();
+      return;
+    }
+
     SortedMap<Long, SoyMsg> tempMsgMap = Maps.newTreeMap();
     for (SoyMsg msg : msgs) {
       checkArgument(Objects.equals(msg.getLocaleString(), localeString));
@@ -80,6 +92,22 @@ public class SoyMsgBundleImpl implements SoyMsgBundle {
   }
 
 
+  /**
+   * Private helper for the constructor to check whether the given messages are sorted by strictly
+   * increasing message id.
+   */
+  private static boolean isInStrictIdOrder(List<SoyMsg> msgs) {
+    long prevMsgId = -1L;  // message ids are never negative
+    for (SoyMsg msg : msgs) {
+      if (msg.getId() <= prevMsgId) {
+        return false;
+      }
+      prevMsgId = msg.getId();
+    }
+    return true;
+  }
+
+
   @Override public String getLocaleString() {
     return localeString;
   }
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.parseinfo;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.template.soy.data.SoyRecord;
+import com.google.template.soy.data.SoyValueConverter;
+import com.google.template.soy.data.internal.SlottedParamStore;
+import com.google.template.soy.data.restricted.BooleanData;
+import com.google.template.soy.data.restricted.FloatData;
+import com.google.template.soy.data.restricted.IntegerData;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+
+/**
+ * Base class of the generated builders of the data for rendering a template, which have a typed
+ * setter per param of the template.
+ *
+ * <p> The built data holds the template's declared params in their param slots, so rendering the
+ * template takes the params from their slots without looking up each one by name, and without
+ * converting a Java map to Soy data first.
+ *
+ * <p> Important: Do not extend outside of Soy-generated code. User code that extends this class
+ * will be broken by future Soy changes.
+ *
+ * @param <B> The type of the generated builder.
+ */
+public abstract class SoyTemplateParamsBuilder<B extends SoyTemplateParamsBuilder<B>> {
+
+
+  /** The slot index of each declared param of the template, by name. */
+  private final ImmutableMap<String, Integer> paramSlotIndices;
+
+  /**
+   * The values of the declared params set so far, by slot. Java values are kept as they are, to be
+   * converted to Soy data when building.
+   */
+  private final Object[] paramSlots;
+
+  /** Whether each declared param has been set so far, by slot (the value may be null). */
+  private final boolean[] isParamSet;
+
+  /** The values of the indirect params set so far, or null if none. */
+  @Nullable private Map<String, Object> indirectParams;
+
+
+  /**
+   * Returns the slot index of each of the given declared params of a template, by name. Equal to
+   * (and the same instance as) the template's own map, so that rendering takes the params from
+   * their slots.
+   * @param paramNames The names of the declared params of the template, in the order the template
+   *     declares them.
+   */
+  protected static ImmutableMap<String, Integer> internParamSlotIndices(String... paramNames) {
+    return SlottedParamStore.internSlotIndices(Arrays.asList(paramNames));
+  }
+
+
+  /**
+   * @param paramSlotIndices The slot index of each declared param of the template, by name, in
+   *     the order the template declares them (see {@link #internParamSlotIndices}).
+   */
+  protected SoyTemplateParamsBuilder(ImmutableMap<String, Integer> paramSlotIndices) {
+    this.paramSlotIndices = paramSlotIndices;
+    this.paramSlots = new Object[paramSlotIndices.size()];
+    this.isParamSet = new boolean[paramSlotIndices.size()];
+  }
+
+
+  /**
+   * Sets the value of the declared param at the given slot. The value is converted to Soy data when
+   * building.
+   */
+  protected final B setParam(int slot, @Nullable Object value) {
+    paramSlots[slot] = value;
+    isParamSet[slot] = true;
+    return self();
+  }
+
+
+  /** Sets the value of the declared bool param at the given slot. */
+  protected final B setParam(int slot, boolean value) {
+    return setParam(slot, BooleanData.forValue(value));
+  }
+
+
+  /** Sets the value of the declared int param at the given slot. */
+  protected final B setParam(int slot, long value) {
+    return setParam(slot, IntegerData.forValue(value));
+  }
+
+
+  /** Sets the value of the declared float param at the given slot. */
+  protected final B setParam(int slot, double value) {
+    return setParam(slot, FloatData.forValue(value));
+  }
+
+
+  /**
+   * Sets the value of a param that the template doesn't declare but passes on to a callee. The
+   * value is converted to Soy data when building.
+   */
+  protected final B setIndirectParam(String name, @Nullable Object value) {
+    if (indirectParams == null) {
+      indirectParams = Maps.newHashMap();
+    }
+    indirectParams.put(name, value);
+    return self();
+  }
+
+
+  /**
+   * Builds the data to render the template with. Setting params afterwards doesn't affect the
+   * built data.
+   * @param valueConverter The converter of the param values to Soy data. Should be the
+   *     SoyValueHelper that the renderer uses for data maps (the injected one, if there are custom
+   *     value converters), so that params convert the same way as the entries of a data map.
+   */
+  public final SoyRecord build(SoyValueConverter valueConverter) {
+    SlottedParamStore data = new SlottedParamStore(paramSlotIndices);
+    for (int i = 0; i < paramSlots.length; i++) {
+      if (isParamSet[i]) {
+        data.setSlot(i, valueConverter.convert(paramSlots[i]));
+      }
+    }
+    if (indirectParams != null) {
+      for (Map.Entry<String, Object> entry : indirectParams.entrySet()) {
+        data.setField(entry.getKey(), valueConverter.convert(entry.getValue()));
+      }
+    }
+    return data;
+  }
+
+
+  @SuppressWarnings("unchecked")  // B is the type of the generated subclass.
+  private B self() {
+    return (B) this;
+  }
+
+}
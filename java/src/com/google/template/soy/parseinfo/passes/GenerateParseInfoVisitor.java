@@ -78,6 +78,8 @@ import java.util.SortedSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import javax.annotation.Nullable;
+
 /**
  * Visitor for generating Java classes containing the parse info.
  *
@@ -359,6 +361,7 @@ public class GenerateParseInfoVisitor extends AbstractSoyNodeVisitor<ImmutableMa
     ilb.appendLine("import com.google.common.collect.ImmutableSortedSet;");
     ilb.appendLine("import com.google.template.soy.parseinfo.SoyFileInfo;");
     ilb.appendLine("import com.google.template.soy.parseinfo.SoyTemplateInfo;");
+    ilb.appendLine("import com.google.template.soy.parseinfo.SoyTemplateParamsBuilder;");
 
     // ------ Class start. ------
     ilb.appendLine();
@@ -669,6 +672,8 @@ public class GenerateParseInfoVisitor extends AbstractSoyNodeVisitor<ImmutableMa
     ilb.decreaseIndent();
     ilb.appendLine("}");
 
+    appendParamsBuilder(ilb, node, transitiveParamMap.values());
+
     // ------ *SoyTemplateInfo class end. ------
     ilb.decreaseIndent();
     ilb.appendLine("}");
@@ -682,6 +687,89 @@ public class GenerateParseInfoVisitor extends AbstractSoyNodeVisitor<ImmutableMa
     ilb.decreaseIndent(2);
   }
 
+  /**
+   * Private helper for visitTemplateNode() to append the builder of the data for rendering the
+   * template, with a setter per transitive param. The template's own params are set in their param
+   * slots (see {@link TemplateNode#getParamSlotIndices}), and get setters typed by the param type.
+   *
+   * @param ilb The builder for the code.
+   * @param node The template.
+   * @param transitiveParams All transitive params of the template, its own params first.
+   */
+  private void appendParamsBuilder(
+      IndentedLinesBuilder ilb, TemplateNode node, Collection<TemplateParam> transitiveParams) {
+
+    ilb.appendLine();
+    ilb.appendLine("/** Builder for the data to render this template with. */");
+    ilb.appendLine("public static final class ParamsBuilder",
+        " extends SoyTemplateParamsBuilder<ParamsBuilder> {");
+    ilb.increaseIndent();
+
+    ilb.appendLine();
+    ilb.appendLine("private static final ImmutableMap<String, Integer> PARAM_SLOT_INDICES =");
+    ilb.increaseIndent(2);
+    List<String> paramNameSnippets = Lists.newArrayList();
+    for (TemplateParam param : node.getParams()) {
+      paramNameSnippets.add("\"" + param.name() + "\"");
+    }
+    appendListOrSetHelper(ilb, "internParamSlotIndices", paramNameSnippets);
+    ilb.appendLineEnd(";");
+    ilb.decreaseIndent(2);
+
+    ilb.appendLine();
+    ilb.appendLine("public ParamsBuilder() {");
+    ilb.increaseIndent();
+    ilb.appendLine("super(PARAM_SLOT_INDICES);");
+    ilb.decreaseIndent();
+    ilb.appendLine("}");
+
+    for (TemplateParam param : transitiveParams) {
+      String setterName = "set" + CaseFormat.UPPER_UNDERSCORE.to(
+          CaseFormat.UPPER_CAMEL, convertToUpperUnderscore(param.name()));
+      Integer slot = node.getParamSlotIndices().get(param.name());
+      ilb.appendLine();
+      if (slot != null) {
+        ilb.appendLine("public ParamsBuilder ", setterName, "(",
+            getParamsBuilderValueType(param.type()), " value) {");
+        ilb.increaseIndent();
+        ilb.appendLine("return setParam(", slot, ", value);");
+      } else {
+        ilb.appendLine("public ParamsBuilder ", setterName, "(Object value) {");
+        ilb.increaseIndent();
+        ilb.appendLine("return setIndirectParam(\"", param.name(), "\", value);");
+      }
+      ilb.decreaseIndent();
+      ilb.appendLine("}");
+    }
+
+    ilb.decreaseIndent();
+    ilb.appendLine("}");
+  }
+
+  /**
+   * Private helper for appendParamsBuilder() to get the Java type of the values of a param type.
+   *
+   * @param type The param type, or null if unknown.
+   * @return The Java type for the setter of the param.
+   */
+  private static String getParamsBuilderValueType(@Nullable SoyType type) {
+    if (type == null) {
+      return "Object";
+    }
+    switch (type.getKind()) {
+      case BOOL:
+        return "boolean";
+      case INT:
+        return "long";
+      case FLOAT:
+        return "double";
+      case STRING:
+        return "String";
+      default:
+        return "Object";
+    }
+  }
+
   /**
    * Private helper for visitSoyFileNode() and visitTemplateNode() to convert an identifier to upper
    * underscore format.
@@ -868,7 +956,8 @@ public class GenerateParseInfoVisitor extends AbstractSoyNodeVisitor<ImmutableMa
   }
 
   /**
-   * Private helper for appendImmutableList() and appendImmutableSortedSet().
+   * Private helper for appendImmutableList() and appendImmutableSortedSet(), and for
+   * appendParamsBuilder() to append the call interning the param slot indices.
    *
    * @param ilb The builder for the code.
    * @param creationFunctionSnippet Code snippet for the qualified name of the list or set creation
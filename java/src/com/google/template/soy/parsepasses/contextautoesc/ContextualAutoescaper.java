@@ -132,6 +132,23 @@ public final class ContextualAutoescaper {
    */
   public List<TemplateNode> rewrite(SoyFileSetNode fileSet)
       throws SoyAutoescapeException {
+    return rewrite(fileSet, 1);
+  }
+
+
+  /**
+   * Like {@link #rewrite(SoyFileSetNode)}, but infers templates that can't reach each other through
+   * calls in parallel. The result is the same as with {@link #rewrite(SoyFileSetNode)}.
+   *
+   * @param fileSet Modified in place.
+   * @param numThreads The maximum number of threads to infer templates on.
+   * @return Extra templates which were derived from templates under fileSet and which must be
+   *     compiled with fileSet to produce a correct output.
+   * @throws SoyAutoescapeException If it is impossible to statically determine the context of
+   *     portions of templates.
+   */
+  public List<TemplateNode> rewrite(SoyFileSetNode fileSet, int numThreads)
+      throws SoyAutoescapeException {
     // Defensively copy so our loops below hold.
     List<SoyFileNode> files = ImmutableList.copyOf(fileSet.getChildren());
 
@@ -155,15 +172,16 @@ public final class ContextualAutoescaper {
     Set<TemplateNode> templateNodesToType = callGraph.callersOf(
         Collections2.filter(allTemplates, IS_CONTEXTUAL));
     templateNodesToType.addAll(Collections2.filter(allTemplates, REQUIRES_INFERENCE));
-    for (TemplateNode templateNode : templateNodesToType) {
-      // In strict mode, the author specifies the kind of SanitizedContent to produce, and thus the
-      // context in which to escape.
-      Context startContext = (templateNode.getContentKind() != null) ?
-          Context.getStartContextForContentKind(templateNode.getContentKind()) :
-          Context.HTML_PCDATA;
-      InferenceEngine.inferTemplateEndContext(
-          templateNode, startContext, inferences, autoescapeCancellingDirectives,
-          slicedRawTextNodesBuilder);
+    if (numThreads > 1) {
+      slicedRawTextNodesBuilder.addAll(ParallelInference.inferTemplateEndContexts(
+          ImmutableList.copyOf(templateNodesToType), callGraph, inferences,
+          autoescapeCancellingDirectives, fileSet.getNodeIdGenerator(), numThreads));
+    } else {
+      for (TemplateNode templateNode : templateNodesToType) {
+        InferenceEngine.inferTemplateEndContext(
+            templateNode, getStartContext(templateNode), inferences,
+            autoescapeCancellingDirectives, slicedRawTextNodesBuilder);
+      }
     }
 
     // Store inferences so that after processing, clients can access the output contexts for
@@ -197,6 +215,17 @@ public final class ContextualAutoescaper {
     return slicedRawTextNodes;
   }
 
+  /**
+   * Returns the context in which to start inferring the given template.
+   */
+  static Context getStartContext(TemplateNode templateNode) {
+    // In strict mode, the author specifies the kind of SanitizedContent to produce, and thus the
+    // context in which to escape.
+    return (templateNode.getContentKind() != null) ?
+        Context.getStartContextForContentKind(templateNode.getContentKind()) :
+        Context.HTML_PCDATA;
+  }
+
   /**
    * Fills in the {@link Inferences} template name to node map.
    * @param files Modified in place.
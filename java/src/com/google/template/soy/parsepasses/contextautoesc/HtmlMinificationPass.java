@@ -0,0 +1,254 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.parsepasses.contextautoesc;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.template.soy.soytree.MsgNode;
+import com.google.template.soy.soytree.RawTextNode;
+import com.google.template.soy.soytree.SoyFileSetNode;
+import com.google.template.soy.soytree.SoytreeUtils;
+import com.google.template.soy.soytree.TemplateNode;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Removes insignificant whitespace from the raw text of contextually autoescaped templates, using
+ * the contexts found by the inference engine to tell where whitespace is insignificant:
+ * <ul>
+ *   <li>Runs of whitespace in HTML text and between the attributes of tags are collapsed to a
+ *       single space.
+ *   <li>Runs of whitespace in CSS are collapsed to a single space, which is dropped next to
+ *       {@code { } ; ,}.
+ *   <li>Runs of whitespace in JS are collapsed to a single space, or to a single newline if they
+ *       contain one, so that semicolon insertion is unaffected.
+ * </ul>
+ * Strings, comments, regular expressions, attribute values and RCDATA (e.g. {@code <textarea>})
+ * are left as is, as is the text of messages, which would change the message ids.
+ *
+ * <h3>Caveats</h3>
+ * <p>
+ * Whitespace in HTML text is significant within {@code <pre>} elements and elements styled with
+ * {@code white-space: pre}. Templates whose raw text has a {@code <pre>} tag keep their HTML text
+ * as is, but the output of templates called or printed within such elements is still collapsed.
+ *
+ * <p>
+ * Raw text nodes that a previous pass has split or that were sliced starting in different contexts
+ * are left as is.
+ *
+ */
+public final class HtmlMinificationPass {
+
+  private HtmlMinificationPass() {
+    // Not instantiable.
+  }
+
+
+  /** Matches the start of a {@code <pre>} tag. */
+  private static final Pattern PRE_TAG_START =
+      Pattern.compile("<pre\\b", Pattern.CASE_INSENSITIVE);
+
+  /** CSS punctuation next to which whitespace is insignificant. */
+  private static final String CSS_PUNCTUATION = "{};,";
+
+
+  /**
+   * Minifies the raw text of the given text nodes in place.
+   *
+   * @param slicedRawTextNodes The text nodes sliced by context by the contextual autoescaper.
+   */
+  public static void minify(Iterable<? extends SlicedRawTextNode> slicedRawTextNodes) {
+
+    // Hypotheses tried during inference may have sliced a text node starting in a context that was
+    // ruled out, so only nodes that were always sliced starting in the same context are minified.
+    Map<RawTextNode, SlicedRawTextNode> slicedRawTextNodesByNode = Maps.newLinkedHashMap();
+    Set<RawTextNode> ambiguousNodes = Sets.newHashSet();
+    for (SlicedRawTextNode slicedRawTextNode : slicedRawTextNodes) {
+      RawTextNode rawTextNode = slicedRawTextNode.getRawTextNode();
+      SlicedRawTextNode previous = slicedRawTextNodesByNode.put(rawTextNode, slicedRawTextNode);
+      if (previous != null
+          && previous.getStartContext().packedBits()
+              != slicedRawTextNode.getStartContext().packedBits()) {
+        ambiguousNodes.add(rawTextNode);
+      }
+    }
+
+    Map<TemplateNode, Boolean> hasPreTagByTemplate = Maps.newHashMap();
+    for (SlicedRawTextNode slicedRawTextNode : slicedRawTextNodesByNode.values()) {
+      RawTextNode rawTextNode = slicedRawTextNode.getRawTextNode();
+      if (ambiguousNodes.contains(rawTextNode)
+          || rawTextNode.getNearestAncestor(SoyFileSetNode.class) == null
+          || rawTextNode.getNearestAncestor(MsgNode.class) != null) {
+        continue;
+      }
+      TemplateNode template = rawTextNode.getNearestAncestor(TemplateNode.class);
+      Boolean hasPreTag = hasPreTagByTemplate.get(template);
+      if (hasPreTag == null) {
+        hasPreTag = hasPreTag(template);
+        hasPreTagByTemplate.put(template, hasPreTag);
+      }
+      minifyRawTextNode(slicedRawTextNode, !hasPreTag);
+    }
+  }
+
+
+  /**
+   * Replaces a text node with a minified one, unless minifying doesn't change its text.
+   *
+   * @param slicedRawTextNode The text node, sliced by context.
+   * @param isMinifyingHtmlText Whether to collapse whitespace in HTML text.
+   */
+  private static void minifyRawTextNode(
+      SlicedRawTextNode slicedRawTextNode, boolean isMinifyingHtmlText) {
+
+    RawTextNode rawTextNode = slicedRawTextNode.getRawTextNode();
+    String rawText = rawTextNode.getRawText();
+    StringBuilder minifiedText = new StringBuilder(rawText.length());
+    int offset = 0;
+    for (SlicedRawTextNode.RawTextSlice slice : slicedRawTextNode.getSlices()) {
+      int startOffset = slice.getStartOffset();
+      int endOffset = startOffset + slice.getLength();
+      minifiedText.append(rawText, offset, startOffset);
+      appendMinifiedSlice(
+          rawText.substring(startOffset, endOffset), slice.context, isMinifyingHtmlText,
+          minifiedText);
+      offset = endOffset;
+    }
+    minifiedText.append(rawText, offset, rawText.length());
+    if (minifiedText.length() == rawText.length()) {
+      return;  // Nothing was removed.
+    }
+
+    RawTextNode minifiedNode = new RawTextNode(rawTextNode.getId(), minifiedText.toString());
+    minifiedNode.setSourceLocation(rawTextNode.getSourceLocation());
+
+    // Make sure that the minified text ends in the same context, as the escaping of the content
+    // that follows depends on it.
+    Context endContext =
+        RawTextContextUpdater.processRawText(minifiedNode, slicedRawTextNode.getStartContext())
+            .getEndContext();
+    if (endContext.packedBits() == slicedRawTextNode.getEndContext().packedBits()) {
+      slicedRawTextNode.replaceNode(minifiedNode);
+    }
+  }
+
+
+  /**
+   * Appends a slice of raw text, minified according to the context it starts in.
+   *
+   * @param text The text of the slice.
+   * @param context The context the slice starts in.
+   * @param isMinifyingHtmlText Whether to collapse whitespace in HTML text.
+   * @param out The output to append to.
+   */
+  private static void appendMinifiedSlice(
+      String text, Context context, boolean isMinifyingHtmlText, StringBuilder out) {
+    if (context.delimType != Context.AttributeEndDelimiter.NONE) {
+      // An attribute value is a single slice, tagged with the context its value starts in (e.g. JS
+      // for onclick), which says nothing about the string literals within it.
+      out.append(text);
+      return;
+    }
+    switch (context.state) {
+      case HTML_PCDATA:
+        if (isMinifyingHtmlText) {
+          appendCollapsedWhitespace(text, false, out);
+        } else {
+          out.append(text);
+        }
+        break;
+      case HTML_TAG:
+        appendCollapsedWhitespace(text, false, out);
+        break;
+      case CSS:
+        StringBuilder collapsedText = new StringBuilder(text.length());
+        appendCollapsedWhitespace(text, false, collapsedText);
+        appendWithoutWhitespaceNextToCssPunctuation(collapsedText, out);
+        break;
+      case JS:
+        appendCollapsedWhitespace(text, true, out);
+        break;
+      default:
+        out.append(text);
+        break;
+    }
+  }
+
+
+  /**
+   * Appends text with each run of whitespace replaced by a single space, or by a single newline if
+   * the run has one and newlines are kept. Single whitespace characters are kept as is.
+   */
+  private static void appendCollapsedWhitespace(
+      String text, boolean isKeepingNewlines, StringBuilder out) {
+    int n = text.length();
+    for (int i = 0; i < n; ) {
+      char c = text.charAt(i);
+      if (!isHtmlWhitespace(c)) {
+        out.append(c);
+        ++i;
+        continue;
+      }
+      int runEnd = i + 1;
+      boolean hasNewline = c == '\n' || c == '\r';
+      while (runEnd < n && isHtmlWhitespace(text.charAt(runEnd))) {
+        hasNewline |= text.charAt(runEnd) == '\n' || text.charAt(runEnd) == '\r';
+        ++runEnd;
+      }
+      if (runEnd - i == 1) {
+        out.append(c);
+      } else {
+        out.append((isKeepingNewlines && hasNewline) ? '\n' : ' ');
+      }
+      i = runEnd;
+    }
+  }
+
+
+  /** Appends CSS with collapsed whitespace, dropping the whitespace next to punctuation. */
+  private static void appendWithoutWhitespaceNextToCssPunctuation(
+      CharSequence css, StringBuilder out) {
+    int n = css.length();
+    for (int i = 0; i < n; ++i) {
+      char c = css.charAt(i);
+      if (isHtmlWhitespace(c)
+          && ((i > 0 && CSS_PUNCTUATION.indexOf(css.charAt(i - 1)) >= 0)
+              || (i + 1 < n && CSS_PUNCTUATION.indexOf(css.charAt(i + 1)) >= 0))) {
+        continue;
+      }
+      out.append(c);
+    }
+  }
+
+
+  private static boolean isHtmlWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+  }
+
+
+  private static boolean hasPreTag(TemplateNode template) {
+    for (RawTextNode rawTextNode : SoytreeUtils.getAllNodesOfType(template, RawTextNode.class)) {
+      if (PRE_TAG_START.matcher(rawTextNode.getRawText()).find()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
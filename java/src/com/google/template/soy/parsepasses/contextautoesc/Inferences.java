@@ -24,12 +24,13 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.template.soy.base.internal.IdGenerator;
 import com.google.template.soy.shared.restricted.SoyPrintDirective;
+import com.google.template.soy.soytree.AbstractSoyNodeVisitor;
 import com.google.template.soy.soytree.CallNode;
 import com.google.template.soy.soytree.MsgFallbackGroupNode;
 import com.google.template.soy.soytree.PrintDirectiveNode;
 import com.google.template.soy.soytree.PrintNode;
-import com.google.template.soy.soytree.SoyFileSetNode;
 import com.google.template.soy.soytree.SoyNode;
+import com.google.template.soy.soytree.SoyNode.ParentSoyNode;
 import com.google.template.soy.soytree.SoyNode.StandaloneNode;
 import com.google.template.soy.soytree.SoytreeUtils;
 import com.google.template.soy.soytree.TemplateBasicNode;
@@ -69,6 +70,12 @@ import javax.annotation.Nullable;
  */
 final class Inferences {
 
+  /**
+   * The first of the temporary IDs that templates cloned during parallel inference get (see
+   * {@link #replaceTemporaryIds}). Far above the IDs of any input.
+   */
+  static final int FIRST_TEMPORARY_ID = 1 << 30;
+
   /** Null or an instance to inherit state from. */
   private final @Nullable Inferences parent;
 
@@ -103,9 +110,19 @@ final class Inferences {
    * An instance that inherits from a parent.
    */
   public Inferences(Inferences parent) {
+    this(parent, parent.idGen);
+  }
+
+  /**
+   * An instance that inherits from a parent, but generates the IDs of cloned templates with its own
+   * generator.
+   *
+   * @param idGen Used to generate unique IDs for cloned templates.
+   */
+  Inferences(Inferences parent, IdGenerator idGen) {
     this.parent = parent;
     this.autoescapeCancellingDirectives = parent.autoescapeCancellingDirectives;
-    this.idGen = parent.idGen;
+    this.idGen = idGen;
   }
 
   /**
@@ -256,60 +273,7 @@ final class Inferences {
     ImmutableList.Builder<TemplateNode> b = ImmutableList.builder();
 
     for (TemplateNode tn : lookupTemplates(baseName)) {
-      SoyFileHeaderInfo soyFileHeaderInfo = tn.getSoyFileHeaderInfo();
-
-      int cloneId = tn.getNearestAncestor(SoyFileSetNode.class).getNodeIdGenerator().genId();
-
-      // We need to use the unnamespaced name in the command text since we'll be inserting this
-      // template into a file node that already has a namespace declaration.
-      TemplateNode clone;
-      boolean useAttrStyleForName = tn.getCommandText().contains("name=");
-
-      if (tn instanceof TemplateBasicNode) {
-        TemplateBasicNode tbn = (TemplateBasicNode) tn;
-        String derivedPartialName = (tn.getPartialTemplateName() != null) ?
-            derivedName.substring(soyFileHeaderInfo.namespace.length()) : null;
-        clone =
-            (new TemplateBasicNodeBuilder(soyFileHeaderInfo))
-                .setId(cloneId)
-                .setCmdTextInfo(
-                    derivedName, derivedPartialName, useAttrStyleForName, tbn.isOverride(),
-                    tn.getVisibility(), tn.getAutoescapeMode(), tn.getContentKind(),
-                    tn.getRequiredCssNamespaces())
-                .setSoyDoc(tn.getSoyDoc())
-                .build();
-
-        if (! (derivedName.equals(clone.getTemplateName()) &&
-            Objects.equals(derivedPartialName, clone.getPartialTemplateName()))) {
-          throw new AssertionError();
-        }
-
-      } else if (tn instanceof TemplateDelegateNode) {
-        TemplateDelegateNode tdn = (TemplateDelegateNode) tn;
-        clone =
-            (new TemplateDelegateNodeBuilder(soyFileHeaderInfo))
-                .setId(cloneId)
-                .setCmdTextInfo(
-                    derivedName, tdn.getDelTemplateVariant(), tdn.getDelPriority(),
-                    tn.getAutoescapeMode(), tn.getContentKind(), tn.getRequiredCssNamespaces())
-                .setSoyDoc(tn.getSoyDoc())
-                .build();
-        if (! (derivedName.equals(((TemplateDelegateNode) clone).getDelTemplateName()))) {
-          throw new AssertionError();
-        }
-
-      } else {
-        throw new AssertionError("Unknown template node type: " + tn.getClass());
-      }
-      // Reassign all the local variable data which isn't maintained by the cloning process above.
-      clone.setMaxLocalVariableTableSize(tn.getMaxLocalVariableTableSize());
-      Iterator<TemplateParam> tnIterator = tn.getAllParams().iterator();
-      Iterator<TemplateParam> cloneIterator = clone.getAllParams().iterator();
-      while (tnIterator.hasNext()) {
-        cloneIterator.next().setLocalVariableIndex(tnIterator.next().localVariableIndex());
-      }
-      clone.setSourceLocation(tn.getSourceLocation());
-
+      TemplateNode clone = cloneTemplateWithoutChildren(tn, derivedName, idGen.genId());
       for (StandaloneNode child : tn.getChildren()) {
         clone.addChild(SoytreeUtils.cloneWithNewIds(child, idGen));
       }
@@ -322,17 +286,155 @@ final class Inferences {
     return clones;
   }
 
+  /**
+   * Clones a template without its children, changing the name.
+   */
+  private static TemplateNode cloneTemplateWithoutChildren(
+      TemplateNode tn, String derivedName, int cloneId) {
+    SoyFileHeaderInfo soyFileHeaderInfo = tn.getSoyFileHeaderInfo();
+
+    // We need to use the unnamespaced name in the command text since we'll be inserting this
+    // template into a file node that already has a namespace declaration.
+    TemplateNode clone;
+    boolean useAttrStyleForName = tn.getCommandText().contains("name=");
+
+    if (tn instanceof TemplateBasicNode) {
+      TemplateBasicNode tbn = (TemplateBasicNode) tn;
+      String derivedPartialName = (tn.getPartialTemplateName() != null) ?
+          derivedName.substring(soyFileHeaderInfo.namespace.length()) : null;
+      clone =
+          (new TemplateBasicNodeBuilder(soyFileHeaderInfo))
+              .setId(cloneId)
+              .setCmdTextInfo(
+                  derivedName, derivedPartialName, useAttrStyleForName, tbn.isOverride(),
+                  tn.getVisibility(), tn.getAutoescapeMode(), tn.getContentKind(),
+                  tn.getRequiredCssNamespaces())
+              .setSoyDoc(tn.getSoyDoc())
+              .build();
+
+      if (! (derivedName.equals(clone.getTemplateName()) &&
+          Objects.equals(derivedPartialName, clone.getPartialTemplateName()))) {
+        throw new AssertionError();
+      }
+
+    } else if (tn instanceof TemplateDelegateNode) {
+      TemplateDelegateNode tdn = (TemplateDelegateNode) tn;
+      clone =
+          (new TemplateDelegateNodeBuilder(soyFileHeaderInfo))
+              .setId(cloneId)
+              .setCmdTextInfo(
+                  derivedName, tdn.getDelTemplateVariant(), tdn.getDelPriority(),
+                  tn.getAutoescapeMode(), tn.getContentKind(), tn.getRequiredCssNamespaces())
+              .setSoyDoc(tn.getSoyDoc())
+              .build();
+      if (! (derivedName.equals(((TemplateDelegateNode) clone).getDelTemplateName()))) {
+        throw new AssertionError();
+      }
+
+    } else {
+      throw new AssertionError("Unknown template node type: " + tn.getClass());
+    }
+    // Reassign all the local variable data which isn't maintained by the cloning process above.
+    clone.setMaxLocalVariableTableSize(tn.getMaxLocalVariableTableSize());
+    Iterator<TemplateParam> tnIterator = tn.getAllParams().iterator();
+    Iterator<TemplateParam> cloneIterator = clone.getAllParams().iterator();
+    while (tnIterator.hasNext()) {
+      cloneIterator.next().setLocalVariableIndex(tnIterator.next().localVariableIndex());
+    }
+    clone.setSourceLocation(tn.getSourceLocation());
+    return clone;
+  }
+
   /**
    * Folds speculative decisions into the parent passed to the constructor.
    * This instance should not be used after folding.
    */
   public void foldIntoParent() {
-    parent.idToEscapingModes.putAll(idToEscapingModes);
-    parent.idToStartContext.putAll(idToStartContext);
-    parent.templateNameToEndContext.putAll(templateNameToEndContext);
-    parent.callIdToDerivedCalleeName.putAll(callIdToDerivedCalleeName);
-    parent.templatesByName.putAll(templatesByName);
-    parent.templatesChecked.addAll(templatesChecked);
+    foldInto(parent);
+  }
+
+  /**
+   * Copies the decisions of this instance into the given instance, typically an ancestor.
+   */
+  void foldInto(Inferences other) {
+    other.idToEscapingModes.putAll(idToEscapingModes);
+    other.idToStartContext.putAll(idToStartContext);
+    other.templateNameToEndContext.putAll(templateNameToEndContext);
+    other.callIdToDerivedCalleeName.putAll(callIdToDerivedCalleeName);
+    other.templatesByName.putAll(templatesByName);
+    other.templatesChecked.addAll(templatesChecked);
+  }
+
+  /**
+   * Replaces temporary IDs with final ones, both in the templates cloned by this instance and in
+   * its decisions. Temporary IDs start at {@link #FIRST_TEMPORARY_ID}, so they never collide with
+   * the IDs of the input.
+   *
+   * @param finalIds Maps the temporary ID {@code FIRST_TEMPORARY_ID + i} to the final ID
+   *     {@code finalIds.get(i)}.
+   */
+  void replaceTemporaryIds(final List<Integer> finalIds) {
+    AbstractSoyNodeVisitor<Void> idReplacer = new AbstractSoyNodeVisitor<Void>() {
+      @Override protected void visitSoyNode(SoyNode node) {
+        node.setId(toFinalId(node.getId(), finalIds));
+        if (node instanceof ParentSoyNode<?>) {
+          visitChildren((ParentSoyNode<?>) node);
+        }
+      }
+    };
+
+    // The internal names of delegate templates contain their ID, so those are cloned again with
+    // their final ID.
+    Map<String, String> finalTemplateNames = Maps.newHashMap();
+    for (Map.Entry<String, List<TemplateNode>> entry : templatesByName.entrySet()) {
+      ImmutableList.Builder<TemplateNode> finalTemplates = ImmutableList.builder();
+      for (TemplateNode template : entry.getValue()) {
+        idReplacer.exec(template);
+        if (template instanceof TemplateDelegateNode) {
+          TemplateNode finalTemplate =
+              cloneTemplateWithoutChildren(template, entry.getKey(), template.getId());
+          for (StandaloneNode child : ImmutableList.copyOf(template.getChildren())) {
+            template.removeChild(child);
+            finalTemplate.addChild(child);
+          }
+          finalTemplateNames.put(template.getTemplateName(), finalTemplate.getTemplateName());
+          template = finalTemplate;
+        }
+        finalTemplates.add(template);
+      }
+      entry.setValue(finalTemplates.build());
+    }
+
+    replaceKeys(idToEscapingModes, finalIds, null);
+    replaceKeys(idToStartContext, finalIds, null);
+    replaceKeys(callIdToDerivedCalleeName, finalIds, null);
+    replaceKeys(templateNameToEndContext, null, finalTemplateNames);
+  }
+
+  /**
+   * Replaces temporary IDs or template names among the keys of the given map, keeping the order of
+   * its entries.
+   */
+  private static <K, V> void replaceKeys(
+      Map<K, V> map, @Nullable List<Integer> finalIds,
+      @Nullable Map<String, String> finalTemplateNames) {
+    Map<K, V> copy = ImmutableMap.copyOf(map);
+    map.clear();
+    for (Map.Entry<K, V> entry : copy.entrySet()) {
+      Object key = entry.getKey();
+      if (finalIds != null) {
+        key = toFinalId((Integer) key, finalIds);
+      } else if (finalTemplateNames.containsKey(key)) {
+        key = finalTemplateNames.get(key);
+      }
+      @SuppressWarnings("unchecked")  // The replacement has the same type as the key.
+      K finalKey = (K) key;
+      map.put(finalKey, entry.getValue());
+    }
+  }
+
+  private static int toFinalId(int id, List<Integer> finalIds) {
+    return (id >= FIRST_TEMPORARY_ID) ? finalIds.get(id - FIRST_TEMPORARY_ID) : id;
   }
 
   /**
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.parsepasses.contextautoesc;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.template.soy.base.internal.IdGenerator;
+import com.google.template.soy.soytree.TemplateNode;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Infers templates in parallel, with the same result as inferring them one after another into a
+ * single {@link Inferences}.
+ *
+ * <p> The templates are split into groups that can't reach each other through calls (see
+ * {@link TemplateCallGraph#partitionIntoIndependentGroups}), so the inference of one group never
+ * reads or derives the templates of another, and the groups are inferred in parallel. Each
+ * template's decisions go to a layer of its own, and templates derived in the meantime get
+ * temporary IDs. Once all groups are inferred, the layers get final IDs from the file set's
+ * generator and are folded into the root inferences, both in the order of the templates. That's
+ * the order in which inferring the templates one after another would have generated the IDs and
+ * recorded the decisions, so the output is the same for any number of threads.
+ *
+ */
+final class ParallelInference {
+
+  private ParallelInference() {}
+
+
+  /**
+   * Infers the end contexts of the given templates, and chooses escaping directives for them.
+   *
+   * @param templateNodes The templates to infer, in the order to infer them one after another.
+   * @param callGraph The call graph of all templates.
+   * @param inferences Receives all suggested changes and inferences.
+   * @param autoescapeCancellingDirectives Soy directives that cancel autoescaping.
+   * @param idGen The generator of the final IDs of derived templates.
+   * @param numThreads The maximum number of groups of templates to infer in parallel.
+   * @return The raw text nodes sliced by context, in the order that inferring the templates one
+   *     after another would have produced them.
+   * @throws SoyAutoescapeException The exception that inferring the templates one after another
+   *     would have thrown.
+   */
+  static ImmutableList<SlicedRawTextNode> inferTemplateEndContexts(
+      List<TemplateNode> templateNodes, TemplateCallGraph callGraph, final Inferences inferences,
+      final Set<String> autoescapeCancellingDirectives, IdGenerator idGen, int numThreads)
+      throws SoyAutoescapeException {
+
+    List<List<TemplateNode>> groups = callGraph.partitionIntoIndependentGroups(templateNodes);
+    List<GroupResult> groupResults = Lists.newArrayListWithCapacity(groups.size());
+    ExecutorService executor = Executors.newFixedThreadPool(
+        Math.max(1, Math.min(numThreads, groups.size())),
+        new ThreadFactoryBuilder().setNameFormat("soy-autoescaper-%d").setDaemon(true).build());
+    try {
+      List<Future<GroupResult>> futures = Lists.newArrayListWithCapacity(groups.size());
+      for (final List<TemplateNode> group : groups) {
+        futures.add(executor.submit(new Callable<GroupResult>() {
+          @Override public GroupResult call() {
+            return inferGroup(group, inferences, autoescapeCancellingDirectives);
+          }
+        }));
+      }
+      for (Future<GroupResult> future : futures) {
+        try {
+          groupResults.add(Uninterruptibles.getUninterruptibly(future));
+        } catch (ExecutionException e) {
+          throw Throwables.propagate(e.getCause());
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    Map<TemplateNode, TemplateResult> templateResults = Maps.newIdentityHashMap();
+    for (GroupResult groupResult : groupResults) {
+      templateResults.putAll(groupResult.templateResults);
+    }
+
+    ImmutableList.Builder<SlicedRawTextNode> slicedRawTextNodes = ImmutableList.builder();
+    for (TemplateNode templateNode : templateNodes) {
+      TemplateResult templateResult = templateResults.get(templateNode);
+      if (templateResult == null) {
+        // The first template whose inference failed.
+        for (GroupResult groupResult : groupResults) {
+          if (groupResult.failedTemplateNode == templateNode) {
+            throw groupResult.failure;
+          }
+        }
+        throw new AssertionError("Template was not inferred: " + templateNode.getTemplateName());
+      }
+      List<Integer> finalIds = templateResult.groupResult.finalIds;
+      for (int i = templateResult.tempIdStart; i < templateResult.tempIdEnd; i++) {
+        int finalId = idGen.genId();
+        Preconditions.checkState(finalId < Inferences.FIRST_TEMPORARY_ID);
+        finalIds.add(finalId);
+      }
+      templateResult.inferences.replaceTemporaryIds(finalIds);
+      templateResult.inferences.foldInto(inferences);
+      slicedRawTextNodes.addAll(templateResult.slicedRawTextNodes);
+    }
+    return slicedRawTextNodes.build();
+  }
+
+
+  /**
+   * Infers a group of templates one after another, stopping at the first failure.
+   */
+  private static GroupResult inferGroup(
+      List<TemplateNode> group, Inferences inferences, Set<String> autoescapeCancellingDirectives) {
+
+    GroupResult groupResult = new GroupResult();
+    TemporaryIdGenerator tempIdGen = new TemporaryIdGenerator();
+    // Accumulates the layers of the group's templates, so each sees the decisions of the previous.
+    Inferences groupInferences = new Inferences(inferences, tempIdGen);
+    for (TemplateNode templateNode : group) {
+      Inferences templateInferences = new Inferences(groupInferences);
+      int tempIdStart = tempIdGen.count;
+      ImmutableList.Builder<SlicedRawTextNode> slicedRawTextNodesBuilder = ImmutableList.builder();
+      try {
+        InferenceEngine.inferTemplateEndContext(
+            templateNode, ContextualAutoescaper.getStartContext(templateNode), templateInferences,
+            autoescapeCancellingDirectives, slicedRawTextNodesBuilder);
+      } catch (SoyAutoescapeException e) {
+        groupResult.failedTemplateNode = templateNode;
+        groupResult.failure = e;
+        break;
+      }
+      templateInferences.foldIntoParent();
+      groupResult.templateResults.put(templateNode, new TemplateResult(
+          groupResult, templateInferences, tempIdStart, tempIdGen.count,
+          slicedRawTextNodesBuilder.build()));
+    }
+    return groupResult;
+  }
+
+
+  /**
+   * Generates the temporary IDs for the templates derived within a group, counting up from
+   * {@link Inferences#FIRST_TEMPORARY_ID}.
+   */
+  private static final class TemporaryIdGenerator implements IdGenerator {
+
+    /** The number of IDs generated so far. */
+    int count;
+
+    TemporaryIdGenerator() {
+      count = 0;
+    }
+
+    private TemporaryIdGenerator(TemporaryIdGenerator orig) {
+      this.count = orig.count;
+    }
+
+    @Override public int genId() {
+      return Inferences.FIRST_TEMPORARY_ID + count++;
+    }
+
+    @Override public TemporaryIdGenerator clone() {
+      return new TemporaryIdGenerator(this);
+    }
+  }
+
+
+  /**
+   * The result of inferring a group of templates.
+   */
+  private static final class GroupResult {
+
+    /** The results of the templates inferred successfully. */
+    final Map<TemplateNode, TemplateResult> templateResults = Maps.newIdentityHashMap();
+
+    /** The final IDs for the group's temporary IDs, filled in as the templates are merged. */
+    final List<Integer> finalIds = Lists.newArrayList();
+
+    /** The template whose inference failed, or null if all succeeded. */
+    TemplateNode failedTemplateNode;
+
+    /** The failure of failedTemplateNode. */
+    SoyAutoescapeException failure;
+  }
+
+
+  /**
+   * The result of inferring one template of a group.
+   */
+  private static final class TemplateResult {
+
+    final GroupResult groupResult;
+
+    /** The template's decisions, not including those of earlier templates of the group. */
+    final Inferences inferences;
+
+    /** The range of the template's temporary IDs, as counts of earlier generated IDs. */
+    final int tempIdStart;
+    final int tempIdEnd;
+
+    final ImmutableList<SlicedRawTextNode> slicedRawTextNodes;
+
+    TemplateResult(
+        GroupResult groupResult, Inferences inferences, int tempIdStart, int tempIdEnd,
+        ImmutableList<SlicedRawTextNode> slicedRawTextNodes) {
+      this.groupResult = groupResult;
+      this.inferences = inferences;
+      this.tempIdStart = tempIdStart;
+      this.tempIdEnd = tempIdEnd;
+      this.slicedRawTextNodes = slicedRawTextNodes;
+    }
+  }
+
+}
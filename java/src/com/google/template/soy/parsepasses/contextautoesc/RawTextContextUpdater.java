@@ -16,9 +16,11 @@
 
 package com.google.template.soy.parsepasses.contextautoesc;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.template.soy.data.SanitizedContent.ContentKind;
 import com.google.template.soy.internal.base.UnescapeUtils;
 import com.google.template.soy.soytree.RawTextNode;
@@ -30,6 +32,8 @@ import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import javax.annotation.Nullable;
+
 /**
  * Propagates {@link Context}s across raw text chunks using a state-machine parser for HTML/CSS/JS.
  *
@@ -57,12 +61,29 @@ final class RawTextContextUpdater {
    */
   public static SlicedRawTextNode processRawText(RawTextNode rawTextNode, Context context)
       throws SoyAutoescapeException {
+    return new RawTextContextUpdater(true).process(rawTextNode, context);
+  }
+
+
+  /**
+   * Like {@link #processRawText}, but finds each token by searching for the pattern of every
+   * transition of the current state separately, rather than for their combined pattern.
+   * Both must give the same results.
+   */
+  @VisibleForTesting
+  static SlicedRawTextNode processRawTextBySeparatePatterns(
+      RawTextNode rawTextNode, Context context) throws SoyAutoescapeException {
+    return new RawTextContextUpdater(false).process(rawTextNode, context);
+  }
+
+
+  private SlicedRawTextNode process(RawTextNode rawTextNode, Context context)
+      throws SoyAutoescapeException {
     SlicedRawTextNode slicedRawTextNode = new SlicedRawTextNode(rawTextNode, context);
     String rawText = rawTextNode.getRawText();
     int offset = 0;
     int length = rawText.length();
     while (offset < length) {
-      String unprocessedRawText = rawText.substring(offset);
       int startOffset = offset;
       int endOffset;
       Context startContext = context;
@@ -73,13 +94,12 @@ final class RawTextContextUpdater {
 
       // The end of the section to decode.  Either before a delimiter or > symbol that closes an
       // attribute, at the end of the rawText, or -1 if no decoding needs to happen.
-      int attrValueEnd = findEndOfAttributeValue(unprocessedRawText, context.delimType);
+      int attrValueEnd = findEndOfAttributeValue(rawText, offset, context.delimType);
       if (attrValueEnd == -1) {
         // Outside an attribute value.  No need to decode.
-        RawTextContextUpdater cu = new RawTextContextUpdater();
-        cu.processNextToken(unprocessedRawText, context);
-        endOffset = offset + cu.numCharsConsumed;
-        endContext = cu.next;
+        processNextToken(rawText, offset, context);
+        endOffset = offset + numCharsConsumed;
+        endContext = next;
 
       } else {
         // Inside an attribute value.  Find the end and decode up to it.
@@ -97,12 +117,11 @@ final class RawTextContextUpdater {
         //
         // We could take the cross-product of two languages to avoid decoding but that leads to
         // either an explosion in the number of states, or the amount of lookahead required.
-        int unprocessedRawTextLen = unprocessedRawText.length();
 
-        // The end of the attribute value relative to offset.
+        // The end of the attribute value.
         // At attrValueEnd, or attrValueend + 1 if a delimiter
         // needs to be consumed.
-        int attrEnd = attrValueEnd < unprocessedRawTextLen ?
+        int attrEnd = attrValueEnd < length ?
             attrValueEnd + context.delimType.text.length() : -1;
 
         // Decode so that the JavaScript rules work on attribute values like
@@ -120,23 +139,22 @@ final class RawTextContextUpdater {
         // We use this example more in the comments below.
 
         String attrValueTail = UnescapeUtils.unescapeHtml(
-            unprocessedRawText.substring(0, attrValueEnd));
+            rawText.substring(offset, attrValueEnd));
         // attrValueTail is "!\")" in the example above.
 
         // Recurse on the decoded value.
-        RawTextContextUpdater cu = new RawTextContextUpdater();
         Context attrContext = startContext;
-        while (attrValueTail.length() != 0) {
-          cu.processNextToken(attrValueTail, attrContext);
-          attrValueTail = attrValueTail.substring(cu.numCharsConsumed);
-          attrContext = cu.next;
+        for (int attrValueOffset = 0; attrValueOffset < attrValueTail.length();
+             attrValueOffset += numCharsConsumed) {
+          processNextToken(attrValueTail, attrValueOffset, attrContext);
+          attrContext = next;
         }
 
         // TODO: Maybe check that context is legal to leave an attribute in.  Throw if the attribute
         // ends inside a quoted string.
 
         if (attrEnd != -1) {
-          endOffset = offset + attrEnd;
+          endOffset = attrEnd;
           // rawText.charAt(endOffset) is now ">" in the example above.
 
           // When an attribute ends, we're back in the tag.
@@ -146,7 +164,7 @@ final class RawTextContextUpdater {
               .build();
         } else {
           // Whole tail is part of an unterminated attribute.
-          if (attrValueEnd != unprocessedRawTextLen) {
+          if (attrValueEnd != length) {
             throw new IllegalStateException();
           }
           endOffset = length;
@@ -164,18 +182,20 @@ final class RawTextContextUpdater {
 
   /**
    * @return The end of the attribute value of -1 if delim indicates we are not in an attribute.
-   *     {@code rawText.length()} if we are in an attribute but the end does not appear in rawText.
+   *     {@code rawText.length()} if we are in an attribute but the end does not appear in rawText
+   *     after offset.
    */
-  private static int findEndOfAttributeValue(String rawText, Context.AttributeEndDelimiter delim) {
+  private static int findEndOfAttributeValue(
+      String rawText, int offset, Context.AttributeEndDelimiter delim) {
     int rawTextLen = rawText.length();
     switch (delim) {
       case DOUBLE_QUOTE:
       case SINGLE_QUOTE:
-        int quote = rawText.indexOf(delim.text.charAt(0));
+        int quote = rawText.indexOf(delim.text.charAt(0), offset);
         return quote >= 0 ? quote : rawTextLen;
 
       case SPACE_OR_TAG_END:
-        for (int i = 0; i < rawTextLen; ++i) {
+        for (int i = offset; i < rawTextLen; ++i) {
           char ch = rawText.charAt(i);
           if (ch == '>' || Character.isWhitespace(ch)) {
             return i;
@@ -190,58 +210,158 @@ final class RawTextContextUpdater {
   }
 
 
-  /** The amount of rawText consumed. */
+  /** Whether to find tokens using the combined pattern of each state's transitions. */
+  private final boolean useCombinedPatterns;
+
+  /**
+   * The matchers of the combined patterns, by state.  Reset for each token, rather than allocating
+   * a matcher per token.
+   */
+  private final Map<Context.State, Matcher> combinedMatchers =
+      Maps.newEnumMap(Context.State.class);
+
+  /** The amount of text consumed by the last token. */
   private int numCharsConsumed;
 
   /** The context to which we transition. */
   private Context next;
 
-  private RawTextContextUpdater() {
-    // NOP
+  private RawTextContextUpdater(boolean useCombinedPatterns) {
+    this.useCombinedPatterns = useCombinedPatterns;
   }
 
   /**
    * Consume a portion of text and compute the next context.
    * Output is stored in member variables.
-   * @param text Non empty.
+   * @param text Non empty after start.
+   * @param start The offset in text of the portion to consume.
    */
-  private void processNextToken(String text, Context context) throws SoyAutoescapeException {
+  private void processNextToken(String text, int start, Context context)
+      throws SoyAutoescapeException {
     if (context.isErrorContext()) {  // The ERROR state is infectious.
-      this.numCharsConsumed = text.length();
+      this.numCharsConsumed = text.length() - start;
       this.next = context;
       return;
     }
 
     // Find the transition whose pattern matches earliest in the raw text.
+    Token token = useCombinedPatterns ?
+        findEarliestTokenByCombinedPattern(text, start, context) :
+        findEarliestTokenBySeparatePatterns(text, start, context);
+
+    if (token != null) {
+      this.next = token.transition.computeNextContext(context, token);
+      this.numCharsConsumed = token.matcher.end() - start;
+    } else {
+      this.next = Context.ERROR;
+      this.numCharsConsumed = text.length() - start;
+    }
+    if (numCharsConsumed == 0 && this.next.state == context.state) {
+      throw new IllegalStateException(
+          "Infinite loop at `" + text.substring(start) + "` / " + context);
+    }
+  }
+
+  /**
+   * Finds the transition whose pattern matches earliest in the text, in one search for the
+   * alternation of the patterns of all transitions of the context's state.
+   * If the transition that matches earliest is not applicable to the context, then transitions
+   * later in the text may be, so this falls back to searching for each pattern separately.
+   * @return The token, or null if no applicable transition matches.
+   */
+  @Nullable private Token findEarliestTokenByCombinedPattern(
+      String text, int start, Context context) {
+    TransitionTable table = TRANSITION_TABLES.get(context.state);
+    Matcher matcher = combinedMatchers.get(context.state);
+    if (matcher == null) {
+      matcher = table.combinedPattern.matcher(text);
+      combinedMatchers.put(context.state, matcher);
+    } else {
+      matcher.reset(text);
+    }
+    // With the default opaque and anchoring bounds, the region matches like a substring would.
+    matcher.region(start, text.length());
+    if (!matcher.find()) {
+      // None of the separate patterns match either.
+      return null;
+    }
+    // Among the alternatives that match at the earliest position, the first one matches, the same
+    // as the transition that comes first among those whose separate patterns match there.
+    for (int i = 0, n = table.transitions.size(); i < n; i++) {
+      int group = table.groupIndices[i];
+      if (matcher.start(group) != -1) {
+        Token token = new Token(table.transitions.get(i), matcher, group, text, start);
+        return token.transition.isApplicableTo(context, token) ?
+            token : findEarliestTokenBySeparatePatterns(text, start, context);
+      }
+    }
+    throw new AssertionError("No transition matched");
+  }
+
+  /**
+   * Finds the transition whose pattern matches earliest in the text, by searching for each
+   * pattern separately.
+   * @return The token, or null if no applicable transition matches.
+   */
+  @Nullable private static Token findEarliestTokenBySeparatePatterns(
+      String text, int start, Context context) {
     int earliestStart = Integer.MAX_VALUE;
-    int earliestEnd = -1;
-    Transition earliestTransition = null;
-    Matcher earliestMatcher = null;
+    Token earliestToken = null;
     for (Transition transition : TRANSITIONS.get(context.state)) {
-      Matcher matcher = transition.pattern.matcher(text);
+      Matcher matcher = transition.pattern.matcher(text).region(start, text.length());
       if (matcher.find()) {
-        int start = matcher.start();
-        if (start < earliestStart) {
-          int end = matcher.end();
-          if (transition.isApplicableTo(context, matcher)) {
-            earliestStart = start;
-            earliestEnd = end;
-            earliestTransition = transition;
-            earliestMatcher = matcher;
+        int tokenStart = matcher.start();
+        if (tokenStart < earliestStart) {
+          Token token = new Token(transition, matcher, 0, text, start);
+          if (transition.isApplicableTo(context, token)) {
+            earliestStart = tokenStart;
+            earliestToken = token;
           }
         }
       }
     }
+    return earliestToken;
+  }
 
-    if (earliestTransition != null) {
-      this.next = earliestTransition.computeNextContext(context, earliestMatcher);
-      this.numCharsConsumed = earliestEnd;
-    } else {
-      this.next = Context.ERROR;
-      this.numCharsConsumed = text.length();
+
+  /** A token matched by the pattern of a transition. */
+  private static final class Token {
+
+    /** The transition whose pattern matched. */
+    final Transition transition;
+
+    /** The matcher positioned at the token. */
+    final Matcher matcher;
+
+    /** The group of the matcher that holds the transition's pattern, or 0 for the whole match. */
+    private final int group;
+
+    /** The text searched for the token. */
+    private final String text;
+
+    /** The offset in text where the search for the token started. */
+    private final int searchStart;
+
+    Token(Transition transition, Matcher matcher, int group, String text, int searchStart) {
+      this.transition = transition;
+      this.matcher = matcher;
+      this.group = group;
+      this.text = text;
+      this.searchStart = searchStart;
     }
-    if (numCharsConsumed == 0 && this.next.state == context.state) {
-      throw new IllegalStateException("Infinite loop at `" + text + "` / " + context);
+
+    /**
+     * @param groupInPattern The number of a group in the transition's pattern, or 0 for the
+     *     whole token.
+     * @return The text matched by the group, or null if it did not participate in the match.
+     */
+    @Nullable String group(int groupInPattern) {
+      return matcher.group(group + groupInPattern);
+    }
+
+    /** The text from the start of the search for the token to the end. */
+    String getSearchedText() {
+      return text.substring(searchStart);
     }
   }
 
@@ -263,23 +383,22 @@ final class RawTextContextUpdater {
     }
 
     /**
-     * True iff this transition can produce a context after the text in rawText[0:matcher.end()].
-     * This should not destructively modify the matcher.
-     * Specifically, it should not call {@code find()} again.
-     * @param prior The context before the start of the token in matcher.
-     * @param matcher The token matched by {@code this.pattern}.
+     * True iff this transition can produce a context after the text up to the end of the token.
+     * @param prior The context before the start of the token.
+     * @param token The token matched by {@code this.pattern}.
      */
-    boolean isApplicableTo(Context prior, Matcher matcher) {
+    boolean isApplicableTo(Context prior, Token token) {
       return true;
     }
 
     /**
-     * Computes the context that this production transitions to after rawText[0:matcher.end()].
-     * @param prior The context prior to the token in matcher.
-     * @param matcher The token matched by {@code this.pattern}.
+     * Computes the context that this production transitions to after the text up to the end of
+     * the token.
+     * @param prior The context prior to the token.
+     * @param token The token matched by {@code this.pattern}.
      * @return The context after the given token.
      */
-    abstract Context computeNextContext(Context prior, Matcher matcher)
+    abstract Context computeNextContext(Context prior, Token token)
         throws SoyAutoescapeException;
   }
 
@@ -287,7 +406,7 @@ final class RawTextContextUpdater {
   /** A transition to a given context. */
   private static Transition makeTransitionTo(String regex, final ContentKind kind) {
     return new Transition(regex) {
-      @Override Context computeNextContext(Context prior, Matcher matcher) {
+      @Override Context computeNextContext(Context prior, Token token) {
         return prior.toBuilder().withStartKind(kind).build();
       }
     };
@@ -326,7 +445,7 @@ final class RawTextContextUpdater {
   /** A transition to a context in the body of an open tag for the given element. */
   private static Transition makeTransitionToTag(String regex, final Context.ElementType el) {
     return new Transition(regex) {
-      @Override Context computeNextContext(Context prior, Matcher matcher) {
+      @Override Context computeNextContext(Context prior, Token token) {
         return prior.toBuilder()
             .withState(Context.State.HTML_TAG)
             .withElType(el)
@@ -340,8 +459,8 @@ final class RawTextContextUpdater {
   private static Transition makeTemplateTagTransition() {
     String regex = regexForSpecialTagNamed("template", true);
     return new Transition(regex) {
-      @Override Context computeNextContext(Context prior, Matcher matcher) {
-        boolean isEndTag = "/".equals(matcher.group(1));
+      @Override Context computeNextContext(Context prior, Token token) {
+        boolean isEndTag = "/".equals(token.group(1));
         if (isEndTag && prior.templateNestDepth == 0) {
           return Context.ERROR;
         }
@@ -365,7 +484,7 @@ final class RawTextContextUpdater {
   /** A transition back to a context in the body of an open tag. */
   private static Transition makeTransitionBackToTag(String regex) {
     return new Transition(regex) {
-      @Override Context computeNextContext(Context prior, Matcher matcher) {
+      @Override Context computeNextContext(Context prior, Token token) {
         return prior.toBuilder()
             .withState(Context.State.HTML_TAG)
             .withoutAttrContext()
@@ -380,8 +499,8 @@ final class RawTextContextUpdater {
    */
   private static Transition makeTransitionToAttrName(String regex) {
     return new Transition(regex) {
-      @Override Context computeNextContext(Context prior, Matcher matcher) {
-        String attrName = matcher.group(1).toLowerCase(Locale.ENGLISH);
+      @Override Context computeNextContext(Context prior, Token token) {
+        String attrName = token.group(1).toLowerCase(Locale.ENGLISH);
         // Get the local name so we can treat xlink:href and svg:style as per HTML.
         int colon = attrName.lastIndexOf(':');
         String localName = attrName.substring(colon + 1);
@@ -411,7 +530,7 @@ final class RawTextContextUpdater {
   private static Transition makeTransitionToAttrValue(
       String regex, final Context.AttributeEndDelimiter delim) {
     return new Transition(regex) {
-      @Override Context computeNextContext(Context prior, Matcher matcher) {
+      @Override Context computeNextContext(Context prior, Token token) {
         return Context.computeContextAfterAttributeDelimiter(
             prior.elType, prior.attrType, delim, prior.templateNestDepth);
       }
@@ -444,7 +563,7 @@ final class RawTextContextUpdater {
    */
   private static Transition makeTransitionToState(String regex, final Context.State state) {
     return new Transition(regex) {
-      @Override Context computeNextContext(Context prior, Matcher matcher) {
+      @Override Context computeNextContext(Context prior, Token token) {
         return prior.derive(state).derive(Context.UriPart.NONE);
       }
     };
@@ -456,7 +575,7 @@ final class RawTextContextUpdater {
   private static Transition makeTransitionToJsString(
       String regex, final Context.State state) {
     return new Transition(regex) {
-      @Override Context computeNextContext(Context prior, Matcher matcher) {
+      @Override Context computeNextContext(Context prior, Token token) {
         return prior.toBuilder()
             .withState(state)
             .withSlashType(Context.JsFollowingSlash.NONE)
@@ -471,7 +590,7 @@ final class RawTextContextUpdater {
    */
   private static Transition makeTransitionToSelf(String regex) {
     return new Transition(regex) {
-      @Override Context computeNextContext(Context prior, Matcher matcher) {
+      @Override Context computeNextContext(Context prior, Token token) {
         return prior;
       }
     };
@@ -482,16 +601,16 @@ final class RawTextContextUpdater {
   // Matching at the end is lowest possible precedence.
 
   private static final Transition URI_PART_TRANSITION = new Transition("[?#]|\\z") {
-    @Override boolean isApplicableTo(Context prior, Matcher matcher) {
+    @Override boolean isApplicableTo(Context prior, Token token) {
       return true;
     }
-    @Override Context computeNextContext(Context prior, Matcher matcher) {
+    @Override Context computeNextContext(Context prior, Token token) {
       Context.UriPart uriPart = prior.uriPart;
       if (uriPart == Context.UriPart.START) {
         uriPart = Context.UriPart.PRE_QUERY;
       }
       if (uriPart != Context.UriPart.FRAGMENT) {
-        String match = matcher.group(0);
+        String match = token.group(0);
         if ("?".equals(match) && uriPart != Context.UriPart.UNKNOWN) {
           uriPart = Context.UriPart.QUERY;
         } else if ("#".equals(match)) {
@@ -507,10 +626,10 @@ final class RawTextContextUpdater {
    */
   private static Transition makeEndTagTransition(String tagName) {
     return new Transition("(?i)</" + tagName + "\\b") {
-      @Override boolean isApplicableTo(Context prior, Matcher matcher) {
+      @Override boolean isApplicableTo(Context prior, Token token) {
         return prior.attrType == Context.AttributeType.NONE;
       }
-      @Override Context computeNextContext(Context prior, Matcher matcher) {
+      @Override Context computeNextContext(Context prior, Token token) {
         return prior.toBuilder()
             .withState(Context.State.HTML_TAG)
             .withElType(Context.ElementType.NORMAL)
@@ -528,8 +647,8 @@ final class RawTextContextUpdater {
    */
   private static Transition makeCssUriTransition(String regex) {
     return new Transition(regex) {
-      @Override Context computeNextContext(Context prior, Matcher matcher) {
-        String delim = matcher.group(1);
+      @Override Context computeNextContext(Context prior, Token token) {
+        String delim = token.group(1);
         Context.State state;
         if ("\"".equals(delim)) {
           state = Context.State.CSS_DQ_URI;
@@ -551,7 +670,7 @@ final class RawTextContextUpdater {
    */
   private static Transition makeDivPreceder(String regex) {
     return new Transition(regex) {
-      @Override Context computeNextContext(Context prior, Matcher matcher) {
+      @Override Context computeNextContext(Context prior, Token token) {
         return prior.toBuilder()
             .withState(Context.State.JS)
             .withSlashType(Context.JsFollowingSlash.DIV_OP)
@@ -594,7 +713,7 @@ final class RawTextContextUpdater {
           makeTransitionToAttrName("(?i)^\\s*([a-z](?:[a-z0-9_:\\-]*[a-z0-9?])?)"),
           new Transition("^\\s*/?>") {
             @Override
-            Context computeNextContext(Context prior, Matcher matcher) {
+            Context computeNextContext(Context prior, Token token) {
               Context.Builder builder = prior.toBuilder();
               builder.withoutAttrContext();
               switch (prior.elType) {
@@ -696,7 +815,7 @@ final class RawTextContextUpdater {
           makeTransitionToJsString("'", Context.State.JS_SQ_STRING),
           new Transition("/") {
             @Override
-            Context computeNextContext(Context prior, Matcher matcher)
+            Context computeNextContext(Context prior, Token token)
                 throws SoyAutoescapeException {
               switch (prior.slashType) {
                 case DIV_OP:
@@ -710,8 +829,7 @@ final class RawTextContextUpdater {
                       .withSlashType(Context.JsFollowingSlash.NONE)
                       .build();
                 default:
-                  StringBuffer rest = new StringBuffer();
-                  matcher.appendTail(rest);
+                  String rest = token.getSearchedText();
                   throw SoyAutoescapeException.createWithoutMetaInfo(
                       "Slash (/) cannot follow the preceding branches since it is unclear " +
                           "whether the slash is a RegExp literal or division operator.  " +
@@ -723,9 +841,9 @@ final class RawTextContextUpdater {
           // quick and dirty check to update JsUtil.isRegexPreceder.
           new Transition("(?i)(?:[^</\"'\\s\\\\]|<(?!/script))+") {
             @Override
-            Context computeNextContext(Context prior, Matcher matcher) {
+            Context computeNextContext(Context prior, Token token) {
               return prior.derive(
-                  JsUtil.isRegexPreceder(matcher.group()) ?
+                  JsUtil.isRegexPreceder(token.group(0)) ?
                   Context.JsFollowingSlash.REGEX : Context.JsFollowingSlash.DIV_OP);
             }
           },
@@ -789,12 +907,12 @@ final class RawTextContextUpdater {
       .put(Context.State.HTML_RCDATA, ImmutableList.of(
           new Transition("</(\\w+)\\b") {
             @Override
-            boolean isApplicableTo(Context prior, Matcher matcher) {
-              String tagName = matcher.group(1).toUpperCase(Locale.ENGLISH);
+            boolean isApplicableTo(Context prior, Token token) {
+              String tagName = token.group(1).toUpperCase(Locale.ENGLISH);
               return prior.elType.name().equals(tagName);
             }
             @Override
-            Context computeNextContext(Context prior, Matcher matcher) {
+            Context computeNextContext(Context prior, Token token) {
               return prior.toBuilder()
                   .withState(Context.State.HTML_TAG)
                   .withElType(Context.ElementType.NORMAL)
@@ -807,6 +925,49 @@ final class RawTextContextUpdater {
       .put(Context.State.TEXT, ImmutableList.of(TRANSITION_TO_SELF))
       .build();
 
+  /**
+   * The transitions of a state, along with the alternation of their patterns, each in a group of
+   * its own.
+   */
+  private static final class TransitionTable {
+
+    final List<Transition> transitions;
+
+    /** Matches the earliest token of any of the transitions. */
+    final Pattern combinedPattern;
+
+    /** For each transition, the group of the combined pattern that holds its pattern. */
+    final int[] groupIndices;
+
+    TransitionTable(List<Transition> transitions) {
+      this.transitions = transitions;
+      this.groupIndices = new int[transitions.size()];
+      StringBuilder combinedRegex = new StringBuilder();
+      int group = 1;
+      for (int i = 0; i < transitions.size(); i++) {
+        Pattern pattern = transitions.get(i).pattern;
+        if (i != 0) {
+          combinedRegex.append('|');
+        }
+        // Inline flags like (?i) only apply up to the end of the enclosing group.
+        combinedRegex.append('(').append(pattern.pattern()).append(')');
+        groupIndices[i] = group;
+        group += 1 + pattern.matcher("").groupCount();
+      }
+      this.combinedPattern = Pattern.compile(combinedRegex.toString(), Pattern.DOTALL);
+    }
+  }
+
+  /** The transitions of each state, with their combined pattern. */
+  private static final Map<Context.State, TransitionTable> TRANSITION_TABLES;
+  static {
+    Map<Context.State, TransitionTable> tables = Maps.newEnumMap(Context.State.class);
+    for (Map.Entry<Context.State, List<Transition>> entry : TRANSITIONS.entrySet()) {
+      tables.put(entry.getKey(), new TransitionTable(entry.getValue()));
+    }
+    TRANSITION_TABLES = Maps.immutableEnumMap(tables);
+  }
+
   // TODO: If we need to deal with untrusted templates, then we need to make sure that tokens like
   // <!--, </script>, etc. are never split with empty strings.
   // We could do this by walking all possible paths through each template (both branches for ifs,
@@ -219,6 +219,11 @@ public final class SlicedRawTextNode {
     return Collections.unmodifiableList(slices);
   }
 
+  /** The context in which the text node starts. */
+  public Context getStartContext() {
+    return startContext;
+  }
+
   /** The context in which the text node ends. */
   public Context getEndContext() {
     return endContext;
@@ -18,14 +18,18 @@ package com.google.template.soy.parsepasses.contextautoesc;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import com.google.template.soy.soytree.AbstractSoyNodeVisitor;
 import com.google.template.soy.soytree.CallBasicNode;
+import com.google.template.soy.soytree.CallDelegateNode;
 import com.google.template.soy.soytree.SoyNode;
 import com.google.template.soy.soytree.SoyNode.ParentSoyNode;
 import com.google.template.soy.soytree.TemplateNode;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -40,6 +44,13 @@ final class TemplateCallGraph {
   /** The edges. */
   private final Multimap<TemplateNode, TemplateNode> callers = LinkedHashMultimap.create();
 
+  /**
+   * The edges that {@link #callersOf} doesn't follow: {@link CallDelegateNode delegate calls}, and
+   * calls within the params of basic calls. Inference descends into them too, so they connect
+   * templates for {@link #partitionIntoIndependentGroups}.
+   */
+  private final Multimap<TemplateNode, TemplateNode> otherCallers = LinkedHashMultimap.create();
+
   /**
    * @param templatesByName A map whose values are the vertices for the call graph, and whose
    *      keys are matched against {@link CallBasicNode#getCalleeName()} to come up with the edges.
@@ -52,14 +63,32 @@ final class TemplateCallGraph {
          * Finds calls in templates to build a call graph.
          */
         class CallGraphBuilder extends AbstractSoyNodeVisitor<Void> {
+          /** Whether the visited node is within the params of a basic call. */
+          private boolean isInCallBasicNode = false;
+
           @Override
           public void visitCallBasicNode(CallBasicNode call) {
             ImmutableList<TemplateNode> callees = templatesByName.get(call.getCalleeName());
             if (callees != null) {  // Might be a call to an external template.
               for (TemplateNode callee : callees) {
-                callers.put(callee, tn);
+                (isInCallBasicNode ? otherCallers : callers).put(callee, tn);
               }
             }
+            boolean wasInCallBasicNode = isInCallBasicNode;
+            isInCallBasicNode = true;
+            visitChildren(call);
+            isInCallBasicNode = wasInCallBasicNode;
+          }
+
+          @Override
+          public void visitCallDelegateNode(CallDelegateNode call) {
+            ImmutableList<TemplateNode> callees = templatesByName.get(call.getDelCalleeName());
+            if (callees != null) {
+              for (TemplateNode callee : callees) {
+                otherCallers.put(callee, tn);
+              }
+            }
+            visitChildren(call);
           }
 
           @Override protected void visitSoyNode(SoyNode node) {
@@ -85,6 +114,56 @@ final class TemplateCallGraph {
     return callerSet;
   }
 
+  /**
+   * Groups the given templates so that templates in different groups can't reach any common
+   * template through calls (basic or delegate, in either direction). Such groups can be inferred
+   * independently of each other.
+   *
+   * @param templates The templates to group.
+   * @return The groups, each in the order of the given templates, and ordered by their first
+   *     template.
+   */
+  List<List<TemplateNode>> partitionIntoIndependentGroups(Iterable<TemplateNode> templates) {
+    // Union-find over the call edges, so each weakly connected component has one representative.
+    Map<TemplateNode, TemplateNode> representatives = Maps.newHashMap();
+    for (Multimap<TemplateNode, TemplateNode> edges : ImmutableList.of(callers, otherCallers)) {
+      for (Map.Entry<TemplateNode, TemplateNode> edge : edges.entries()) {
+        TemplateNode calleeRepresentative = findRepresentative(edge.getKey(), representatives);
+        TemplateNode callerRepresentative = findRepresentative(edge.getValue(), representatives);
+        if (calleeRepresentative != callerRepresentative) {
+          representatives.put(calleeRepresentative, callerRepresentative);
+        }
+      }
+    }
+
+    Map<TemplateNode, List<TemplateNode>> groups = Maps.newLinkedHashMap();
+    for (TemplateNode templateNode : templates) {
+      TemplateNode representative = findRepresentative(templateNode, representatives);
+      List<TemplateNode> group = groups.get(representative);
+      if (group == null) {
+        group = Lists.newArrayList();
+        groups.put(representative, group);
+      }
+      group.add(templateNode);
+    }
+    return ImmutableList.copyOf(groups.values());
+  }
+
+  private static TemplateNode findRepresentative(
+      TemplateNode templateNode, Map<TemplateNode, TemplateNode> representatives) {
+    TemplateNode representative = templateNode;
+    for (TemplateNode next; (next = representatives.get(representative)) != null; ) {
+      representative = next;
+    }
+    // Compress the path, so later lookups are short.
+    for (TemplateNode node = templateNode; node != representative; ) {
+      TemplateNode next = representatives.get(node);
+      representatives.put(node, representative);
+      node = next;
+    }
+    return representative;
+  }
+
   private void addTransitively(TemplateNode callee, Set<? super TemplateNode> out) {
     for (TemplateNode caller : callers.get(callee)) {
       if (out.add(caller)) {
@@ -69,6 +69,12 @@ public class SoyGeneralOptions implements Cloneable {
   /** Whether to automatically mark scripts that appear literally in templates as allowed to run. */
   private boolean supportContentSecurityPolicy;
 
+  /** The number of threads to infer contextual autoescaping on. */
+  private int autoescaperConcurrency;
+
+  /** Whether to remove insignificant whitespace from contextually autoescaped templates. */
+  private boolean minifyHtml;
+
 
   public SoyGeneralOptions() {
     declaredSyntaxVersion = null;
@@ -77,6 +83,8 @@ public class SoyGeneralOptions implements Cloneable {
     cssHandlingScheme = CssHandlingScheme.LITERAL;
     compileTimeGlobals = null;
     supportContentSecurityPolicy = false;
+    autoescaperConcurrency = 1;
+    minifyHtml = false;
   }
 
   private SoyGeneralOptions(SoyGeneralOptions orig) {
@@ -86,6 +94,8 @@ public class SoyGeneralOptions implements Cloneable {
     this.cssHandlingScheme = orig.cssHandlingScheme;
     this.compileTimeGlobals = orig.compileTimeGlobals;
     this.supportContentSecurityPolicy = orig.supportContentSecurityPolicy;
+    this.autoescaperConcurrency = orig.autoescaperConcurrency;
+    this.minifyHtml = orig.minifyHtml;
   }
 
   /**
@@ -256,6 +266,41 @@ public class SoyGeneralOptions implements Cloneable {
     return supportContentSecurityPolicy;
   }
 
+  /**
+   * Sets the number of threads to infer contextual autoescaping on. Templates that can't reach each
+   * other through calls are inferred independently, so with more than one thread, such groups of
+   * templates are inferred in parallel. The output is the same for any number of threads.
+   * Defaults to 1.
+   */
+  public void setAutoescaperConcurrency(int autoescaperConcurrency) {
+    Preconditions.checkArgument(autoescaperConcurrency >= 1);
+    this.autoescaperConcurrency = autoescaperConcurrency;
+  }
+
+  /**
+   * Returns the number of threads to infer contextual autoescaping on.
+   */
+  public int getAutoescaperConcurrency() {
+    return autoescaperConcurrency;
+  }
+
+  /**
+   * Pass true to remove insignificant whitespace from the raw text of contextually autoescaped
+   * templates, in HTML text and tags, CSS and JS. Whitespace in HTML text is significant within
+   * {@code <pre>} elements, so templates whose text has a {@code <pre>} tag keep their HTML text,
+   * but this shouldn't be enabled if the output of other templates is put in such elements.
+   */
+  public void setMinifyHtml(boolean minifyHtml) {
+    this.minifyHtml = minifyHtml;
+  }
+
+  /**
+   * True when insignificant whitespace is removed from contextually autoescaped templates.
+   */
+  public boolean minifyHtml() {
+    return minifyHtml;
+  }
+
   @Override public final SoyGeneralOptions clone() {
     return new SoyGeneralOptions(this);
   }
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.shared.restricted;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+
+/**
+ * Annotation for a Soy function or print directive that doesn't read anything from the
+ * ApiCallScope (such as the locale or the bidi global directionality) when rendering, so Tofu
+ * needn't enter the scope around renders for it. Plugins that implement
+ * {@link SoyJavaRenderContextFunction} or {@link SoyJavaRenderContextPrintDirective} get these
+ * values from the render context instead, and needn't be annotated.
+ *
+ */
+@Target(TYPE)
+@Retention(RUNTIME)
+public @interface SoyApiCallScopeFree {}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.shared.restricted;
+
+import com.google.template.soy.data.SoyValue;
+
+import java.util.List;
+
+
+/**
+ * Interface for a Soy print directive implemented for Java runtime rendering whose result depends
+ * on the render context (e.g. the locale or the bidi global directionality).
+ *
+ * <p> During Tofu rendering, {@link #applyForJava(SoyValue, List, SoyRenderContext)} is called
+ * instead of {@link #applyForJava(SoyValue, List)}, and the render context is no longer available
+ * through providers bound in the ApiCallScope. The latter method is still used during optimization
+ * passes, which run within the ApiCallScope.
+ *
+ * <p> Important: This may only be used in implementing print directive plugins.
+ *
+ */
+public interface SoyJavaRenderContextPrintDirective extends SoyJavaPrintDirective {
+
+
+  /**
+   * Applies this directive on the given value, in the given render context.
+   *
+   * @param value The input to the directive. This is not necessarily a string. If a directive
+   *     only applies to string inputs, then it should first call {@code coerceToString()} on this
+   *     input value.
+   * @param args The directive's arguments, if any (often none).
+   * @param renderContext The context of the current render.
+   * @return The resulting value. Must be either {@code StringData} or {@code SanitizedContent}.
+   */
+  public SoyValue applyForJava(
+      SoyValue value, List<SoyValue> args, SoyRenderContext renderContext);
+
+}
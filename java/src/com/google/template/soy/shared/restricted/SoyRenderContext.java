@@ -0,0 +1,78 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.shared.restricted;
+
+import com.google.common.base.Preconditions;
+import com.google.template.soy.internal.i18n.BidiGlobalDir;
+import com.google.template.soy.msgs.SoyMsgBundle;
+
+import javax.annotation.Nullable;
+
+
+/**
+ * The values that are fixed for the duration of one Java render call and that some functions and
+ * directives depend on, such as the locale and the bidi global directionality. An instance is
+ * created for each top-level render and passed along explicitly to the functions and directives
+ * implementing {@link SoyJavaRenderContextFunction} or {@link SoyJavaRenderContextPrintDirective}.
+ *
+ * <p> Important: This may only be used in implementing function or print directive plugins.
+ *
+ */
+public final class SoyRenderContext {
+
+
+  /** The bundle of translated messages, or null to use the messages from the Soy source. */
+  @Nullable private final SoyMsgBundle msgBundle;
+
+  /** The locale string of the msg bundle, or null if not applicable. */
+  @Nullable private final String localeString;
+
+  /** The bidi global directionality (always static during Java rendering). */
+  private final BidiGlobalDir bidiGlobalDir;
+
+
+  /**
+   * @param msgBundle The bundle of translated messages, or null to use the messages from the Soy
+   *     source.
+   * @param bidiGlobalDir The bidi global directionality. Must be static.
+   */
+  public SoyRenderContext(@Nullable SoyMsgBundle msgBundle, BidiGlobalDir bidiGlobalDir) {
+    Preconditions.checkArgument(bidiGlobalDir.isStaticValue());
+    this.msgBundle = msgBundle;
+    this.localeString = (msgBundle != null) ? msgBundle.getLocaleString() : null;
+    this.bidiGlobalDir = bidiGlobalDir;
+  }
+
+
+  /** Returns the bundle of translated messages, or null if using the messages from the source. */
+  @Nullable public SoyMsgBundle getMsgBundle() {
+    return msgBundle;
+  }
+
+
+  /** Returns the current locale string, or null if not applicable. */
+  @Nullable public String getLocaleString() {
+    return localeString;
+  }
+
+
+  /** Returns the current bidi global directionality. */
+  public BidiGlobalDir getBidiGlobalDir() {
+    return bidiGlobalDir;
+  }
+
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.sharedpasses;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import com.google.template.soy.exprtree.AbstractExprNodeVisitor;
+import com.google.template.soy.exprtree.ExprNode;
+import com.google.template.soy.exprtree.ExprNode.ParentExprNode;
+import com.google.template.soy.exprtree.FunctionNode;
+import com.google.template.soy.shared.restricted.SoyFunction;
+import com.google.template.soy.shared.restricted.SoyPrintDirective;
+import com.google.template.soy.shared.restricted.SoyPureFunction;
+import com.google.template.soy.shared.restricted.SoyPurePrintDirective;
+import com.google.template.soy.soyparse.ErrorReporter;
+import com.google.template.soy.soyparse.SoyError;
+import com.google.template.soy.soytree.CallNode;
+import com.google.template.soy.soytree.LogNode;
+import com.google.template.soy.soytree.PrintDirectiveNode;
+import com.google.template.soy.soytree.SoyFileNode;
+import com.google.template.soy.soytree.SoyFileSetNode;
+import com.google.template.soy.soytree.SoytreeUtils;
+import com.google.template.soy.soytree.TemplateBasicNode;
+import com.google.template.soy.soytree.TemplateNode;
+import com.google.template.soy.soytree.TemplateRegistry;
+
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+/**
+ * Visitor that checks that templates declared with {@code cache="true"} are pure functions of their
+ * declared params, so that the renderer may cache their output.
+ *
+ * <p> A cached template, and every template it transitively calls, must not read injected data,
+ * call a plugin function that isn't a {@link SoyPureFunction}, apply a plugin print directive that
+ * isn't a {@link SoyPurePrintDirective}, or contain a {@code log} command. Also, a cached template
+ * must not pass all of its data to a callee ({@code data="all"}), since the callee would then
+ * render from the caller's data, which may hold more than the declared params.
+ *
+ * <p> Important: Do not use outside of Soy code (treat as superpackage-private).
+ *
+ */
+public class CheckCachedTemplatesVisitor {
+
+  private static final SoyError USES_IJ_DATA = SoyError.of(
+      "Template {0} is declared cache=\"true\" but {1} reads injected data (\"$ij\").");
+
+  private static final SoyError CALLS_NON_PURE_FUNCTION = SoyError.of(
+      "Template {0} is declared cache=\"true\" but {1} calls non-pure function ''{2}''.");
+
+  private static final SoyError APPLIES_NON_PURE_PRINT_DIRECTIVE = SoyError.of(
+      "Template {0} is declared cache=\"true\" but {1} applies non-pure print directive ''{2}''.");
+
+  private static final SoyError PASSES_ALL_DATA = SoyError.of(
+      "Template {0} is declared cache=\"true\" but passes all of its data to a callee"
+          + " (data=\"all\").");
+
+  private static final SoyError CONTAINS_LOG = SoyError.of(
+      "Template {0} is declared cache=\"true\" but {1} contains a '{'log'}' command.");
+
+
+  /** Injected Soy function definitions. */
+  private final Map<String, SoyFunction> soyFunctionsByName;
+
+  /** Injected Soy print directive definitions. */
+  private final Map<String, SoyPrintDirective> soyDirectivesByName;
+
+
+  @Inject
+  public CheckCachedTemplatesVisitor(
+      Map<String, SoyFunction> soyFunctionsByName,
+      Map<String, SoyPrintDirective> soyDirectivesByName) {
+    this.soyFunctionsByName = ImmutableMap.copyOf(soyFunctionsByName);
+    this.soyDirectivesByName = ImmutableMap.copyOf(soyDirectivesByName);
+  }
+
+
+  /**
+   * Runs this pass on the given Soy tree.
+   * @param soyTree The full Soy tree.
+   * @param errorReporter The error reporter to report the impure cached templates to.
+   */
+  public void exec(SoyFileSetNode soyTree, ErrorReporter errorReporter) {
+
+    FindTransitiveDepTemplatesVisitor findTransitiveDepTemplatesVisitor = null;
+
+    for (SoyFileNode soyFile : soyTree.getChildren()) {
+      for (TemplateNode template : soyFile.getChildren()) {
+        if (!(template instanceof TemplateBasicNode) || !((TemplateBasicNode) template).isCached()) {
+          continue;
+        }
+        if (findTransitiveDepTemplatesVisitor == null) {
+          findTransitiveDepTemplatesVisitor =
+              new FindTransitiveDepTemplatesVisitor(new TemplateRegistry(soyTree));
+        }
+
+        Set<TemplateNode> templatesToCheck = Sets.newLinkedHashSet();
+        templatesToCheck.add(template);
+        templatesToCheck.addAll(findTransitiveDepTemplatesVisitor.exec(template).depTemplateSet);
+        for (TemplateNode templateToCheck : templatesToCheck) {
+          checkTemplate(template, templateToCheck, errorReporter);
+        }
+
+        // Callees called with data="all" from a callee only get the data that the cached template
+        // passed on, so only the cached template's own calls are checked.
+        for (CallNode call : SoytreeUtils.getAllNodesOfType(template, CallNode.class, false)) {
+          if (call.isPassingAllData()) {
+            errorReporter.report(
+                template.getSourceLocation(), PASSES_ALL_DATA, template.getTemplateName());
+            break;
+          }
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Reports the impure constructs found directly within one template.
+   * @param cachedTemplate The template declared cache="true".
+   * @param template The cached template itself or one of its transitive callees.
+   * @param errorReporter The error reporter to report to.
+   */
+  private void checkTemplate(
+      TemplateNode cachedTemplate, TemplateNode template, ErrorReporter errorReporter) {
+
+    String cachedTemplateName = cachedTemplate.getTemplateName();
+    String culprit = (template == cachedTemplate) ? "it" : template.getTemplateName();
+
+    FindIjParamsInExprHelperVisitor findIjParamsVisitor = new FindIjParamsInExprHelperVisitor();
+    SoytreeUtils.execOnAllV2Exprs(template, findIjParamsVisitor);
+    if (!findIjParamsVisitor.getResult().isEmpty()) {
+      errorReporter.report(
+          cachedTemplate.getSourceLocation(), USES_IJ_DATA, cachedTemplateName, culprit);
+    }
+
+    FindNonPureFunctionsExprVisitor findNonPureFunctionsVisitor =
+        new FindNonPureFunctionsExprVisitor();
+    SoytreeUtils.execOnAllV2Exprs(template, findNonPureFunctionsVisitor);
+    for (String fnName : findNonPureFunctionsVisitor.nonPureFunctionNames) {
+      errorReporter.report(
+          cachedTemplate.getSourceLocation(), CALLS_NON_PURE_FUNCTION, cachedTemplateName, culprit,
+          fnName);
+    }
+
+    Set<String> nonPureDirectiveNames = Sets.newLinkedHashSet();
+    for (PrintDirectiveNode directiveNode :
+        SoytreeUtils.getAllNodesOfType(template, PrintDirectiveNode.class, false)) {
+      SoyPrintDirective directive = soyDirectivesByName.get(directiveNode.getName());
+      if (directive != null
+          && !directive.getClass().isAnnotationPresent(SoyPurePrintDirective.class)) {
+        nonPureDirectiveNames.add(directiveNode.getName());
+      }
+    }
+    for (String directiveName : nonPureDirectiveNames) {
+      errorReporter.report(
+          cachedTemplate.getSourceLocation(), APPLIES_NON_PURE_PRINT_DIRECTIVE, cachedTemplateName,
+          culprit, directiveName);
+    }
+
+    if (!SoytreeUtils.getAllNodesOfType(template, LogNode.class, false).isEmpty()) {
+      errorReporter.report(
+          cachedTemplate.getSourceLocation(), CONTAINS_LOG, cachedTemplateName, culprit);
+    }
+  }
+
+
+  /**
+   * Collects the names of plugin functions that aren't annotated {@link SoyPureFunction}.
+   * Nonplugin functions (such as {@code isFirst}) only depend on the template's own state.
+   */
+  private final class FindNonPureFunctionsExprVisitor extends AbstractExprNodeVisitor<Void> {
+
+    final Set<String> nonPureFunctionNames = Sets.newLinkedHashSet();
+
+    @Override protected void visitFunctionNode(FunctionNode node) {
+      SoyFunction fn = soyFunctionsByName.get(node.getFunctionName());
+      if (fn != null && !fn.getClass().isAnnotationPresent(SoyPureFunction.class)) {
+        nonPureFunctionNames.add(node.getFunctionName());
+      }
+      visitChildren(node);
+    }
+
+    @Override protected void visitExprNode(ExprNode node) {
+      if (node instanceof ParentExprNode) {
+        visitChildren((ParentExprNode) node);
+      }
+    }
+  }
+}
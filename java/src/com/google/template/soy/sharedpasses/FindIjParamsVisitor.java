@@ -19,6 +19,7 @@ package com.google.template.soy.sharedpasses;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.template.soy.sharedpasses.FindTransitiveDepTemplatesVisitor.TransitiveDepTemplatesInfo;
 import com.google.template.soy.soytree.SoyFileNode;
@@ -28,6 +29,8 @@ import com.google.template.soy.soytree.TemplateNode;
 import com.google.template.soy.soytree.TemplateRegistry;
 import com.google.template.soy.soytree.defn.TemplateParam;
 
+import java.util.BitSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -134,14 +137,7 @@ public class FindIjParamsVisitor {
 
       for (TemplateNode template : depsInfo.depTemplateSet) {
 
-        if (! templateToLocalIjParamsMap.containsKey(template)) {
-          FindIjParamsInExprHelperVisitor helperVisitor = new FindIjParamsInExprHelperVisitor();
-          SoytreeUtils.execOnAllV2Exprs(template, helperVisitor);
-          Set<String> localIjParams = helperVisitor.getResult();
-          templateToLocalIjParamsMap.put(template, localIjParams);
-        }
-
-        for (String localIjParam : templateToLocalIjParamsMap.get(template)) {
+        for (String localIjParam : getLocalIjParams(template)) {
           ijParamToCalleesMultimapBuilder.put(localIjParam, template);
         }
 
@@ -182,4 +178,124 @@ public class FindIjParamsVisitor {
     return resultMapBuilder.build();
   }
 
+
+  /**
+   * Precomputes the sets of injected params used by all templates, without the callees that use
+   * each param.
+   *
+   * <p> This is cheaper than {@link #execOnAllTemplates} when only the param sets are needed: each
+   * injected param is given an index, the set of a template is the union of the bit sets of its
+   * transitive callees, and templates whose sets are equal share one set instance.
+   *
+   * <p> Note: This method is not thread-safe. If you need to get injected params sets in a
+   * thread-safe manner, be sure to call this method only once and then use the precomputed map.
+   *
+   * @param soyTree The full Soy tree.
+   * @return A map from template node to the sorted set of injected params used by the template
+   *     and its transitive callees, for all templates.
+   */
+  public ImmutableMap<TemplateNode, ImmutableSortedSet<String>> execOnAllTemplatesForIjParamSets(
+      SoyFileSetNode soyTree) {
+
+    IjParamIndexer ijParamIndexer = new IjParamIndexer();
+    Map<TemplateNode, BitSet> templateToLocalIjParamBitsMap = Maps.newHashMap();
+    Map<TransitiveDepTemplatesInfo, ImmutableSortedSet<String>> depsInfoToIjParamSetMap =
+        Maps.newHashMap();
+    Map<BitSet, ImmutableSortedSet<String>> internedIjParamSets = Maps.newHashMap();
+
+    ImmutableMap.Builder<TemplateNode, ImmutableSortedSet<String>> resultMapBuilder =
+        ImmutableMap.builder();
+
+    for (SoyFileNode soyFile : soyTree.getChildren()) {
+      for (TemplateNode template : soyFile.getChildren()) {
+
+        TransitiveDepTemplatesInfo depsInfo = findTransitiveDepTemplatesVisitor.exec(template);
+        ImmutableSortedSet<String> ijParamSet = depsInfoToIjParamSetMap.get(depsInfo);
+
+        if (ijParamSet == null) {
+          BitSet ijParamBits = new BitSet();
+          for (TemplateNode depTemplate : depsInfo.depTemplateSet) {
+            BitSet localIjParamBits = templateToLocalIjParamBitsMap.get(depTemplate);
+            if (localIjParamBits == null) {
+              localIjParamBits = ijParamIndexer.getBits(getLocalIjParams(depTemplate));
+              for (TemplateParam injectedParam : depTemplate.getInjectedParams()) {
+                localIjParamBits.set(ijParamIndexer.getIndex(injectedParam.name()));
+              }
+              templateToLocalIjParamBitsMap.put(depTemplate, localIjParamBits);
+            }
+            ijParamBits.or(localIjParamBits);
+          }
+
+          ijParamSet = internedIjParamSets.get(ijParamBits);
+          if (ijParamSet == null) {
+            ijParamSet = ijParamIndexer.getNames(ijParamBits);
+            internedIjParamSets.put(ijParamBits, ijParamSet);
+          }
+          depsInfoToIjParamSetMap.put(depsInfo, ijParamSet);
+        }
+
+        resultMapBuilder.put(template, ijParamSet);
+      }
+    }
+
+    return resultMapBuilder.build();
+  }
+
+
+  /**
+   * Private helper to get the set of ij params used locally in a template (not counting the
+   * declared injected params), memoizing the result.
+   */
+  private Set<String> getLocalIjParams(TemplateNode template) {
+
+    Set<String> localIjParams = templateToLocalIjParamsMap.get(template);
+    if (localIjParams == null) {
+      FindIjParamsInExprHelperVisitor helperVisitor = new FindIjParamsInExprHelperVisitor();
+      SoytreeUtils.execOnAllV2Exprs(template, helperVisitor);
+      localIjParams = helperVisitor.getResult();
+      templateToLocalIjParamsMap.put(template, localIjParams);
+    }
+    return localIjParams;
+  }
+
+
+  /**
+   * Private helper for {@link #execOnAllTemplatesForIjParamSets} that gives each distinct ij param
+   * name a dense index.
+   */
+  private static final class IjParamIndexer {
+
+    /** Map from ij param name to its index. */
+    private final Map<String, Integer> ijParamToIndexMap = Maps.newHashMap();
+
+    /** The ij param names, by index. */
+    private final List<String> ijParams = Lists.newArrayList();
+
+    int getIndex(String ijParam) {
+      Integer index = ijParamToIndexMap.get(ijParam);
+      if (index == null) {
+        index = ijParams.size();
+        ijParams.add(ijParam);
+        ijParamToIndexMap.put(ijParam, index);
+      }
+      return index;
+    }
+
+    BitSet getBits(Iterable<String> ijParamsToIndex) {
+      BitSet bits = new BitSet();
+      for (String ijParam : ijParamsToIndex) {
+        bits.set(getIndex(ijParam));
+      }
+      return bits;
+    }
+
+    ImmutableSortedSet<String> getNames(BitSet bits) {
+      ImmutableSortedSet.Builder<String> namesBuilder = ImmutableSortedSet.naturalOrder();
+      for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+        namesBuilder.add(ijParams.get(i));
+      }
+      return namesBuilder.build();
+    }
+  }
+
 }
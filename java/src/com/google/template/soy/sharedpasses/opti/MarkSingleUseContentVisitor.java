@@ -0,0 +1,252 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.sharedpasses.opti;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+import com.google.template.soy.exprtree.AbstractExprNodeVisitor;
+import com.google.template.soy.exprtree.ExprNode;
+import com.google.template.soy.exprtree.ExprNode.ParentExprNode;
+import com.google.template.soy.exprtree.ExprRootNode;
+import com.google.template.soy.exprtree.VarRefNode;
+import com.google.template.soy.soytree.CallBasicNode;
+import com.google.template.soy.soytree.CallNode;
+import com.google.template.soy.soytree.CallParamContentNode;
+import com.google.template.soy.soytree.CallParamNode;
+import com.google.template.soy.soytree.ExprUnion;
+import com.google.template.soy.soytree.LetContentNode;
+import com.google.template.soy.soytree.PrintNode;
+import com.google.template.soy.soytree.SoyFileNode;
+import com.google.template.soy.soytree.SoyFileSetNode;
+import com.google.template.soy.soytree.SoyNode;
+import com.google.template.soy.soytree.SoyNode.ExprHolderNode;
+import com.google.template.soy.soytree.SoyNode.LocalVarNode;
+import com.google.template.soy.soytree.SoytreeUtils;
+import com.google.template.soy.soytree.TemplateBasicNode;
+import com.google.template.soy.soytree.TemplateNode;
+import com.google.template.soy.soytree.TemplateRegistry;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Visitor that marks the lets and params with content whose values are printed at most once, so
+ * that the renderer can stream their content straight into the output instead of saving a copy.
+ *
+ * <p> A value qualifies if it is referenced exactly once, that reference is the entire expression
+ * of a print node (print directives are allowed), and the print node is only nested in 'if' and
+ * 'switch' blocks between it and the scope of the value. A param additionally requires that the
+ * call is a basic call to a known template which doesn't pass its data on with {@code data="all"}.
+ *
+ * <p> Important: Do not use outside of Soy code (treat as superpackage-private).
+ *
+ * <p> {@link #exec} should be called on a full parse tree, after all passes that add or move
+ * nodes.
+ *
+ */
+public final class MarkSingleUseContentVisitor {
+
+
+  /** Registry of all templates in the Soy tree. */
+  private TemplateRegistry templateRegistry;
+
+  /** Cache of the variable references in each template, null for templates with V1 exprs. */
+  private Map<TemplateNode, VarRefsInfo> templateToVarRefsInfoMap;
+
+
+  /**
+   * Runs this pass on the given Soy tree.
+   * @param soyTree The full Soy tree.
+   */
+  public void exec(SoyFileSetNode soyTree) {
+
+    templateRegistry = new TemplateRegistry(soyTree);
+    templateToVarRefsInfoMap = Maps.newHashMap();
+
+    for (SoyFileNode soyFile : soyTree.getChildren()) {
+      for (TemplateNode template : soyFile.getChildren()) {
+        markTemplate(template);
+      }
+    }
+
+    templateRegistry = null;
+    templateToVarRefsInfoMap = null;
+  }
+
+
+  private void markTemplate(TemplateNode template) {
+
+    VarRefsInfo varRefsInfo = getVarRefsInfo(template);
+    if (varRefsInfo == null) {
+      return;
+    }
+
+    for (LetContentNode let : SoytreeUtils.getAllNodesOfType(template, LetContentNode.class)) {
+      String varName = let.getVarName();
+      if (varRefsInfo.localVarDecls.count(varName) == 1) {
+        let.setIsSingleUse(isPrintedOnce(
+            varName, varRefsInfo.varNameToRefHoldersMap.get(varName), let.getParent()));
+      }
+    }
+
+    for (CallBasicNode call : SoytreeUtils.getAllNodesOfType(template, CallBasicNode.class)) {
+      TemplateBasicNode callee = templateRegistry.getBasicTemplate(call.getCalleeName());
+      if (callee == null) {
+        continue;
+      }
+      VarRefsInfo calleeVarRefsInfo = getVarRefsInfo(callee);
+      if (calleeVarRefsInfo == null || calleeVarRefsInfo.passesAllData) {
+        continue;
+      }
+      for (CallParamNode param : call.getChildren()) {
+        String key = param.getKey();
+        if (param instanceof CallParamContentNode
+            && calleeVarRefsInfo.localVarDecls.count(key) == 0) {
+          ((CallParamContentNode) param).setIsSingleUse(
+              isPrintedOnce(key, calleeVarRefsInfo.varNameToRefHoldersMap.get(key), callee));
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Determines whether a variable's only reference prints it, at most once, within its scope.
+   * @param varName The name of the variable.
+   * @param refHolders The nodes holding each reference to the variable.
+   * @param scope The node whose descendants are in the variable's scope.
+   */
+  private static boolean isPrintedOnce(
+      String varName, List<ExprHolderNode> refHolders, SoyNode scope) {
+
+    if (refHolders.size() != 1 || !(refHolders.get(0) instanceof PrintNode)) {
+      return false;
+    }
+    PrintNode printNode = (PrintNode) refHolders.get(0);
+    ExprNode printExpr = printNode.getExprUnion().getExpr().getChild(0);
+    if (!(printExpr instanceof VarRefNode) || !((VarRefNode) printExpr).getName().equals(varName)) {
+      return false;
+    }
+
+    for (SoyNode node = printNode.getParent(); node != scope; node = node.getParent()) {
+      if (node == null) {
+        return false;
+      }
+      switch (node.getKind()) {
+        case IF_NODE:
+        case IF_COND_NODE:
+        case IF_ELSE_NODE:
+        case SWITCH_NODE:
+        case SWITCH_CASE_NODE:
+        case SWITCH_DEFAULT_NODE:
+          break;
+        default:
+          // Loops may print the value repeatedly, and other blocks (such as msgs and other lets)
+          // don't print their content directly.
+          return false;
+      }
+    }
+    return true;
+  }
+
+
+  /**
+   * Gets the variable references in the given template, computing them on first use.
+   * @return The info, or null if the template contains V1 expressions.
+   */
+  @Nullable private VarRefsInfo getVarRefsInfo(TemplateNode template) {
+    if (templateToVarRefsInfoMap.containsKey(template)) {
+      return templateToVarRefsInfoMap.get(template);
+    }
+    VarRefsInfo varRefsInfo = VarRefsInfo.compute(template);
+    templateToVarRefsInfoMap.put(template, varRefsInfo);
+    return varRefsInfo;
+  }
+
+
+  /**
+   * The variable references and local variable declarations in one template.
+   */
+  private static final class VarRefsInfo {
+
+    /** Map from variable name to the node holding each (non-injected) reference to it. */
+    final ListMultimap<String, ExprHolderNode> varNameToRefHoldersMap =
+        ArrayListMultimap.create();
+
+    /** The names of the local variables declared in the template, with multiplicity. */
+    final Multiset<String> localVarDecls = HashMultiset.create();
+
+    /** Whether the template contains a call with {@code data="all"}. */
+    boolean passesAllData;
+
+    @Nullable static VarRefsInfo compute(TemplateNode template) {
+
+      VarRefsInfo info = new VarRefsInfo();
+      for (ExprHolderNode holder : SoytreeUtils.getAllNodesOfType(template, ExprHolderNode.class)) {
+        CollectVarRefsVisitor collectVarRefsVisitor = new CollectVarRefsVisitor();
+        for (ExprUnion exprUnion : holder.getAllExprUnions()) {
+          ExprRootNode<?> expr = exprUnion.getExpr();
+          if (expr == null) {
+            return null;
+          }
+          collectVarRefsVisitor.exec(expr);
+        }
+        for (String varName : collectVarRefsVisitor.varNames) {
+          info.varNameToRefHoldersMap.put(varName, holder);
+        }
+      }
+      for (LocalVarNode localVarNode :
+          SoytreeUtils.getAllNodesOfType(template, LocalVarNode.class)) {
+        info.localVarDecls.add(localVarNode.getVarName());
+      }
+      for (CallNode call : SoytreeUtils.getAllNodesOfType(template, CallNode.class)) {
+        if (call.isPassingAllData()) {
+          info.passesAllData = true;
+        }
+      }
+      return info;
+    }
+  }
+
+
+  /**
+   * Collects the names of the non-injected variables referenced in an expression, once per
+   * reference.
+   */
+  private static final class CollectVarRefsVisitor extends AbstractExprNodeVisitor<Void> {
+
+    final List<String> varNames = Lists.newArrayList();
+
+    @Override protected void visitVarRefNode(VarRefNode node) {
+      if (!node.isInjected()) {
+        varNames.add(node.getName());
+      }
+    }
+
+    @Override protected void visitExprNode(ExprNode node) {
+      if (node instanceof ParentExprNode) {
+        visitChildren((ParentExprNode) node);
+      }
+    }
+  }
+}
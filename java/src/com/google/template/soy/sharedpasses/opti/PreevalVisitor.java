@@ -53,7 +53,7 @@ class PreevalVisitor extends EvalVisitor {
       SoyValueHelper valueHelper, Map<String, SoyJavaFunction> soyJavaFunctionsMap,
       Environment env) {
 
-    super(valueHelper, soyJavaFunctionsMap, null, env);
+    super(valueHelper, soyJavaFunctionsMap, null, env, null);
   }
 
 
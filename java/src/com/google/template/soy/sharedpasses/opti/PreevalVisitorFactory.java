@@ -21,6 +21,7 @@ import com.google.template.soy.data.SoyRecord;
 import com.google.template.soy.data.SoyValueHelper;
 import com.google.template.soy.shared.internal.SharedModule.Shared;
 import com.google.template.soy.shared.restricted.SoyJavaFunction;
+import com.google.template.soy.shared.restricted.SoyRenderContext;
 import com.google.template.soy.sharedpasses.render.Environment;
 import com.google.template.soy.sharedpasses.render.EvalVisitor.EvalVisitorFactory;
 
@@ -65,10 +66,11 @@ public class PreevalVisitorFactory implements EvalVisitorFactory {
 
 
   @Override public PreevalVisitor create(
-      @Nullable SoyRecord ijData, Environment env) {
+      @Nullable SoyRecord ijData, Environment env, @Nullable SoyRenderContext renderContext) {
 
-    // PreevalVisitor cannot handle ijData references.
-    Preconditions.checkArgument(ijData == null);
+    // PreevalVisitor cannot handle ijData references, and runs in the ApiCallScope rather than in a
+    // render context.
+    Preconditions.checkArgument(ijData == null && renderContext == null);
 
     return new PreevalVisitor(valueHelper, soyJavaFunctionsMap, env);
   }
@@ -65,7 +65,7 @@ class PrerenderVisitor extends RenderVisitor {
 
     super(
         soyJavaDirectivesMap, preevalVisitorFactory, outputBuf,
-        templateRegistry, SoyValueHelper.EMPTY_DICT, null, null, null, null, null);
+        templateRegistry, SoyValueHelper.EMPTY_DICT, null, null, null, null, null, null);
   }
 
 
@@ -21,6 +21,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import com.google.template.soy.data.SoyRecord;
 import com.google.template.soy.data.SoyValue;
 import com.google.template.soy.data.SoyValueProvider;
+import com.google.template.soy.data.internal.SlottedParamStore;
 import com.google.template.soy.data.restricted.BooleanData;
 import com.google.template.soy.data.restricted.IntegerData;
 import com.google.template.soy.data.restricted.NullData;
@@ -31,6 +32,10 @@ import com.google.template.soy.soytree.TemplateNode;
 import com.google.template.soy.soytree.defn.LoopVar;
 import com.google.template.soy.soytree.defn.TemplateParam;
 
+import java.util.List;
+
+import javax.annotation.Nullable;
+
 /**
  * The local variable table.
  * 
@@ -93,14 +98,25 @@ public abstract class Environment {
       // seed the lvt with the params
       this.localVariableTable = new SoyValueProvider[template.getMaxLocalVariableTableSize()];
       this.data = data;
-      for (TemplateParam param : template.getAllParams()) {
-        SoyValueProvider provider = 
-            (param.isInjected() ? ijData : data).getFieldProvider(param.name());
-        if (provider == null) {
-          provider = param.isRequired() ? UndefinedData.INSTANCE : NullData.INSTANCE;
-        }
-        localVariableTable[param.localVariableIndex()] = provider;
+      // If the caller passed the params by slot, take them from their slots rather than by name.
+      SoyValueProvider[] paramSlots =
+          SlottedParamStore.getSlots(data, template.getParamSlotIndices());
+      List<TemplateParam> params = template.getParams();
+      for (int i = 0; i < params.size(); i++) {
+        TemplateParam param = params.get(i);
+        seedParam(param,
+            (paramSlots != null) ? paramSlots[i] : data.getFieldProvider(param.name()));
+      }
+      for (TemplateParam param : template.getInjectedParams()) {
+        seedParam(param, ijData.getFieldProvider(param.name()));
+      }
+    }
+
+    private void seedParam(TemplateParam param, @Nullable SoyValueProvider provider) {
+      if (provider == null) {
+        provider = param.isRequired() ? UndefinedData.INSTANCE : NullData.INSTANCE;
       }
+      localVariableTable[param.localVariableIndex()] = provider;
     }
 
     @Override void bind(VarDefn var, SoyValueProvider value) {
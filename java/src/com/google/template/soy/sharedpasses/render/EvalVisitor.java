@@ -26,6 +26,10 @@ import static com.google.template.soy.shared.internal.SharedRuntime.negative;
 import static com.google.template.soy.shared.internal.SharedRuntime.plus;
 import static com.google.template.soy.shared.internal.SharedRuntime.times;
 
+import com.google.common.base.Optional;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Lists;
 import com.google.template.soy.data.SoyAbstractValue;
 import com.google.template.soy.data.SoyEasyDict;
@@ -39,6 +43,7 @@ import com.google.template.soy.data.restricted.IntegerData;
 import com.google.template.soy.data.restricted.NullData;
 import com.google.template.soy.data.restricted.StringData;
 import com.google.template.soy.data.restricted.UndefinedData;
+import com.google.template.soy.exprtree.AbstractOperatorNode;
 import com.google.template.soy.exprtree.AbstractReturningExprNodeVisitor;
 import com.google.template.soy.exprtree.BooleanNode;
 import com.google.template.soy.exprtree.DataAccessNode;
@@ -72,7 +77,10 @@ import com.google.template.soy.exprtree.StringNode;
 import com.google.template.soy.exprtree.VarRefNode;
 import com.google.template.soy.shared.internal.NonpluginFunction;
 import com.google.template.soy.shared.restricted.SoyJavaFunction;
+import com.google.template.soy.shared.restricted.SoyJavaRenderContextFunction;
+import com.google.template.soy.shared.restricted.SoyRenderContext;
 import com.google.template.soy.soytree.defn.LoopVar;
+import com.google.template.soy.types.SoyType;
 
 import java.io.IOException;
 import java.util.List;
@@ -102,12 +110,32 @@ public class EvalVisitor extends AbstractReturningExprNodeVisitor<SoyValue> {
      *
      * @param ijData The current injected data.
      * @param env The current environment.
+     * @param renderContext The context of the current render, or null if not rendering.
      * @return The newly created EvalVisitor instance.
      */
-    public EvalVisitor create(@Nullable SoyRecord ijData, Environment env);
+    public EvalVisitor create(
+        @Nullable SoyRecord ijData, Environment env, @Nullable SoyRenderContext renderContext);
   }
 
 
+  /**
+   * The kind of the unboxed result of each operator evaluated so far (see {@link #unboxedKind}),
+   * absent if it must be evaluated on boxed values. Computed once per node rather than on every
+   * evaluation, which would walk the operator's subtree again at each level of a nested
+   * expression. Weak, by identity, so that the nodes of discarded trees can be garbage collected.
+   * (Simplification may later replace an operand with a literal of its value, which only keeps
+   * the operator unboxable.)
+   */
+  private static final LoadingCache<AbstractOperatorNode, Optional<SoyType.Kind>> UNBOXED_KINDS =
+      CacheBuilder.newBuilder()
+          .weakKeys()
+          .build(new CacheLoader<AbstractOperatorNode, Optional<SoyType.Kind>>() {
+            @Override public Optional<SoyType.Kind> load(AbstractOperatorNode node) {
+              return Optional.fromNullable(computeUnboxedKind(node));
+            }
+          });
+
+
   /** Instance of SoyValueHelper to use. */
   private final SoyValueHelper valueHelper;
 
@@ -120,21 +148,27 @@ public class EvalVisitor extends AbstractReturningExprNodeVisitor<SoyValue> {
   /** The current environment. */
   private final Environment env;
 
+  /** The context of the current render, or null if not rendering (e.g. when preevaluating). */
+  @Nullable private final SoyRenderContext renderContext;
+
   /**
    * @param soyJavaFunctionsMap Map of all SoyJavaFunctions (name to function). Can be
    *     null if the subclass that is calling this constructor plans to override the default
    *     implementation of {@code computeFunction()}.
    * @param ijData The current injected data.
    * @param env The current environment.
+   * @param renderContext The context of the current render, or null if not rendering. Functions
+   *     implementing SoyJavaRenderContextFunction are only passed the context if it's not null.
    */
   protected EvalVisitor(
       SoyValueHelper valueHelper, @Nullable Map<String, SoyJavaFunction> soyJavaFunctionsMap,
-      @Nullable SoyRecord ijData, Environment env) {
+      @Nullable SoyRecord ijData, Environment env, @Nullable SoyRenderContext renderContext) {
 
     this.valueHelper = valueHelper;
     this.soyJavaFunctionsMap = soyJavaFunctionsMap;
     this.ijData = ijData;
     this.env = checkNotNull(env);
+    this.renderContext = renderContext;
   }
 
 
@@ -371,6 +405,10 @@ public class EvalVisitor extends AbstractReturningExprNodeVisitor<SoyValue> {
 
 
   @Override protected SoyValue visitNegativeOpNode(NegativeOpNode node) {
+    SoyValue unboxedResult = visitUnboxedOpNode(node);
+    if (unboxedResult != null) {
+      return unboxedResult;
+    }
     return negative(visit(node.getChild(0)));
   }
 
@@ -383,16 +421,28 @@ public class EvalVisitor extends AbstractReturningExprNodeVisitor<SoyValue> {
 
 
   @Override protected SoyValue visitTimesOpNode(TimesOpNode node) {
+    SoyValue unboxedResult = visitUnboxedOpNode(node);
+    if (unboxedResult != null) {
+      return unboxedResult;
+    }
     return times(visit(node.getChild(0)), visit(node.getChild(1)));
   }
 
 
   @Override protected SoyValue visitDivideByOpNode(DivideByOpNode node) {
+    SoyValue unboxedResult = visitUnboxedOpNode(node);
+    if (unboxedResult != null) {
+      return unboxedResult;
+    }
     return FloatData.forValue(dividedBy(visit(node.getChild(0)), visit(node.getChild(1))));
   }
 
 
   @Override protected SoyValue visitModOpNode(ModOpNode node) {
+    SoyValue unboxedResult = visitUnboxedOpNode(node);
+    if (unboxedResult != null) {
+      return unboxedResult;
+    }
 
     SoyValue operand0 = visit(node.getChild(0));
     SoyValue operand1 = visit(node.getChild(1));
@@ -401,43 +451,74 @@ public class EvalVisitor extends AbstractReturningExprNodeVisitor<SoyValue> {
 
 
   @Override protected SoyValue visitPlusOpNode(PlusOpNode node) {
+    SoyValue unboxedResult = visitUnboxedOpNode(node);
+    if (unboxedResult != null) {
+      return unboxedResult;
+    }
     return plus(visit(node.getChild(0)), visit(node.getChild(1)));
   }
 
 
   @Override protected SoyValue visitMinusOpNode(MinusOpNode node) {
+    SoyValue unboxedResult = visitUnboxedOpNode(node);
+    if (unboxedResult != null) {
+      return unboxedResult;
+    }
     return minus(visit(node.getChild(0)), visit(node.getChild(1)));
   }
 
 
   @Override protected SoyValue visitLessThanOpNode(LessThanOpNode node) {
+    SoyValue unboxedResult = visitUnboxedOpNode(node);
+    if (unboxedResult != null) {
+      return unboxedResult;
+    }
     return BooleanData.forValue(lessThan(visit(node.getChild(0)), visit(node.getChild(1))));
   }
 
 
   @Override protected SoyValue visitGreaterThanOpNode(GreaterThanOpNode node) {
+    SoyValue unboxedResult = visitUnboxedOpNode(node);
+    if (unboxedResult != null) {
+      return unboxedResult;
+    }
     // note the argument reversal
     return BooleanData.forValue(lessThan(visit(node.getChild(1)), visit(node.getChild(0))));
   }
 
 
   @Override protected SoyValue visitLessThanOrEqualOpNode(LessThanOrEqualOpNode node) {
+    SoyValue unboxedResult = visitUnboxedOpNode(node);
+    if (unboxedResult != null) {
+      return unboxedResult;
+    }
     return BooleanData.forValue(lessThanOrEqual(visit(node.getChild(0)), visit(node.getChild(1))));
   }
 
 
   @Override protected SoyValue visitGreaterThanOrEqualOpNode(GreaterThanOrEqualOpNode node) {
+    SoyValue unboxedResult = visitUnboxedOpNode(node);
+    if (unboxedResult != null) {
+      return unboxedResult;
+    }
     // note the argument reversal
     return BooleanData.forValue(lessThanOrEqual(visit(node.getChild(1)), visit(node.getChild(0))));
   }
 
   @Override protected SoyValue visitEqualOpNode(EqualOpNode node) {
-
+    SoyValue unboxedResult = visitUnboxedOpNode(node);
+    if (unboxedResult != null) {
+      return unboxedResult;
+    }
     return convertResult(equal(visit(node.getChild(0)), visit(node.getChild(1))));
   }
 
 
   @Override protected SoyValue visitNotEqualOpNode(NotEqualOpNode node) {
+    SoyValue unboxedResult = visitUnboxedOpNode(node);
+    if (unboxedResult != null) {
+      return unboxedResult;
+    }
     return convertResult(!equal(visit(node.getChild(0)), visit(node.getChild(1))));
   }
 
@@ -530,6 +611,9 @@ public class EvalVisitor extends AbstractReturningExprNodeVisitor<SoyValue> {
       SoyJavaFunction fn, List<SoyValue> args, FunctionNode fnNode) {
 
     try {
+      if (renderContext != null && fn instanceof SoyJavaRenderContextFunction) {
+        return ((SoyJavaRenderContextFunction) fn).computeForJava(args, renderContext);
+      }
       return fn.computeForJava(args);
     } catch (Exception e) {
       throw RenderException.create(
@@ -580,6 +664,306 @@ public class EvalVisitor extends AbstractReturningExprNodeVisitor<SoyValue> {
   }
 
 
+  // -----------------------------------------------------------------------------------------------
+  // Unboxed evaluation of int/float subexpressions.
+
+
+  /**
+   * Evaluates an arithmetic or comparison operator without boxing intermediate results, if the
+   * static types of its operands (as computed by ResolveExpressionTypesVisitor) are int or float.
+   * Only the result of the whole int/float subtree rooted at the given node is boxed.
+   *
+   * <p> Static types are only used to pick the primitive path. Every operand that is not itself an
+   * unboxable operator or a literal is checked at runtime, and if its value turns out to have a
+   * different type (e.g. an element of a list whose element type is not enforced), evaluation is
+   * abandoned and the caller must evaluate the operator on boxed values instead, which evaluates
+   * the operands again. So the path is only taken if all the leaves of the subtree are literals
+   * and data references (see {@link #isUnboxedOperand}), which are cheap to evaluate twice, and
+   * never for function calls or other operators.
+   *
+   * @param node The operator node to evaluate.
+   * @return The boxed result, or null if the node must be evaluated on boxed values.
+   */
+  @Nullable private SoyValue visitUnboxedOpNode(AbstractOperatorNode node) {
+    SoyType.Kind kind = unboxedKind(node);
+    if (kind == null) {
+      return null;
+    }
+    try {
+      switch (kind) {
+        case INT:
+          return convertResult(computeUnboxedLong(node));
+        case FLOAT:
+          return convertResult(computeUnboxedDouble(node));
+        case BOOL:
+          return convertResult(computeUnboxedComparison(node));
+        default:
+          throw new AssertionError();
+      }
+    } catch (UnboxedTypeMismatch e) {
+      return null;
+    }
+  }
+
+
+  /**
+   * Evaluates an expression that is statically typed as int.
+   * @throws UnboxedTypeMismatch If the value turns out not to be an IntegerData.
+   */
+  private long evalLong(ExprNode node) {
+    if (node instanceof IntegerNode) {
+      return ((IntegerNode) node).getValue();
+    }
+    if (node instanceof AbstractOperatorNode) {
+      // An unboxed operand (see isUnboxedOperand()) that is an operator is unboxable.
+      return computeUnboxedLong((AbstractOperatorNode) node);
+    }
+    SoyValue value = visit(node);
+    if (value instanceof IntegerData) {
+      return value.longValue();
+    }
+    throw UnboxedTypeMismatch.INSTANCE;
+  }
+
+
+  /**
+   * Evaluates an expression that is statically typed as int or float.
+   * @throws UnboxedTypeMismatch If the value turns out not to be a number of the static type.
+   */
+  private double evalDouble(ExprNode node) {
+    if (node instanceof FloatNode) {
+      return ((FloatNode) node).getValue();
+    }
+    if (staticKind(node) == SoyType.Kind.INT) {
+      return evalLong(node);
+    }
+    if (node instanceof AbstractOperatorNode) {
+      // An unboxed operand (see isUnboxedOperand()) that is an operator is unboxable.
+      return computeUnboxedDouble((AbstractOperatorNode) node);
+    }
+    SoyValue value = visit(node);
+    if (value instanceof FloatData) {
+      return value.floatValue();
+    }
+    throw UnboxedTypeMismatch.INSTANCE;
+  }
+
+
+  /**
+   * Computes an operator for which {@link #unboxedKind} is int. Same semantics as the boxed
+   * implementations in SharedRuntime for two IntegerData operands.
+   */
+  private long computeUnboxedLong(AbstractOperatorNode node) {
+    switch (node.getKind()) {
+      case NEGATIVE_OP_NODE:
+        return -evalLong(node.getChild(0));
+      case TIMES_OP_NODE:
+        return evalLong(node.getChild(0)) * evalLong(node.getChild(1));
+      case MOD_OP_NODE:
+        return evalLong(node.getChild(0)) % evalLong(node.getChild(1));
+      case PLUS_OP_NODE:
+        return evalLong(node.getChild(0)) + evalLong(node.getChild(1));
+      case MINUS_OP_NODE:
+        return evalLong(node.getChild(0)) - evalLong(node.getChild(1));
+      default:
+        throw new AssertionError();
+    }
+  }
+
+
+  /**
+   * Computes an operator for which {@link #unboxedKind} is float. Same semantics as the boxed
+   * implementations in SharedRuntime when at least one operand is a FloatData (or, for division,
+   * always).
+   */
+  private double computeUnboxedDouble(AbstractOperatorNode node) {
+    switch (node.getKind()) {
+      case NEGATIVE_OP_NODE:
+        return -evalDouble(node.getChild(0));
+      case TIMES_OP_NODE:
+        return evalDouble(node.getChild(0)) * evalDouble(node.getChild(1));
+      case DIVIDE_BY_OP_NODE:
+        return evalDouble(node.getChild(0)) / evalDouble(node.getChild(1));
+      case PLUS_OP_NODE:
+        return evalDouble(node.getChild(0)) + evalDouble(node.getChild(1));
+      case MINUS_OP_NODE:
+        return evalDouble(node.getChild(0)) - evalDouble(node.getChild(1));
+      default:
+        throw new AssertionError();
+    }
+  }
+
+
+  /**
+   * Computes a comparison operator for which {@link #unboxedKind} is bool. Compares as longs if
+   * both operands are ints, and as doubles otherwise, like SharedRuntime and NumberData.equals().
+   */
+  private boolean computeUnboxedComparison(AbstractOperatorNode node) {
+    ExprNode operand0 = node.getChild(0);
+    ExprNode operand1 = node.getChild(1);
+    if (staticKind(operand0) == SoyType.Kind.INT && staticKind(operand1) == SoyType.Kind.INT) {
+      long value0 = evalLong(operand0);
+      long value1 = evalLong(operand1);
+      switch (node.getKind()) {
+        case LESS_THAN_OP_NODE: return value0 < value1;
+        case GREATER_THAN_OP_NODE: return value0 > value1;
+        case LESS_THAN_OR_EQUAL_OP_NODE: return value0 <= value1;
+        case GREATER_THAN_OR_EQUAL_OP_NODE: return value0 >= value1;
+        case EQUAL_OP_NODE: return value0 == value1;
+        case NOT_EQUAL_OP_NODE: return value0 != value1;
+        default: throw new AssertionError();
+      }
+    } else {
+      double value0 = evalDouble(operand0);
+      double value1 = evalDouble(operand1);
+      switch (node.getKind()) {
+        case LESS_THAN_OP_NODE: return value0 < value1;
+        case GREATER_THAN_OP_NODE: return value0 > value1;
+        case LESS_THAN_OR_EQUAL_OP_NODE: return value0 <= value1;
+        case GREATER_THAN_OR_EQUAL_OP_NODE: return value0 >= value1;
+        case EQUAL_OP_NODE: return value0 == value1;
+        case NOT_EQUAL_OP_NODE: return value0 != value1;
+        default: throw new AssertionError();
+      }
+    }
+  }
+
+
+  /**
+   * Returns the kind of the result if the given node is an operator that can be evaluated without
+   * boxing (int, float or bool), or null otherwise.
+   */
+  @Nullable private static SoyType.Kind unboxedKind(ExprNode node) {
+    return (node instanceof AbstractOperatorNode)
+        ? UNBOXED_KINDS.getUnchecked((AbstractOperatorNode) node).orNull() : null;
+  }
+
+
+  /**
+   * Computes {@link #unboxedKind} for an operator. The kinds of the operator's operands are
+   * themselves memoized.
+   */
+  @Nullable private static SoyType.Kind computeUnboxedKind(AbstractOperatorNode node) {
+    switch (node.getKind()) {
+      case NEGATIVE_OP_NODE:
+        SoyType.Kind operandKind = operandKind(((NegativeOpNode) node).getChild(0));
+        return operandKind == SoyType.Kind.INT || operandKind == SoyType.Kind.FLOAT
+            ? operandKind : null;
+      case TIMES_OP_NODE:
+      case PLUS_OP_NODE:
+      case MINUS_OP_NODE:
+        return numericKind(node);
+      case MOD_OP_NODE:
+        return numericKind(node) == SoyType.Kind.INT ? SoyType.Kind.INT : null;
+      case DIVIDE_BY_OP_NODE:
+        return numericKind(node) != null ? SoyType.Kind.FLOAT : null;
+      case LESS_THAN_OP_NODE:
+      case GREATER_THAN_OP_NODE:
+      case LESS_THAN_OR_EQUAL_OP_NODE:
+      case GREATER_THAN_OR_EQUAL_OP_NODE:
+      case EQUAL_OP_NODE:
+      case NOT_EQUAL_OP_NODE:
+        return numericKind(node) != null ? SoyType.Kind.BOOL : null;
+      default:
+        return null;
+    }
+  }
+
+
+  /**
+   * Returns int if both operands of the given binary operator are statically typed as int, float
+   * if both are statically typed as int or float, and null otherwise.
+   */
+  @Nullable private static SoyType.Kind numericKind(AbstractOperatorNode node) {
+    SoyType.Kind kind0 = operandKind(node.getChild(0));
+    SoyType.Kind kind1 = operandKind(node.getChild(1));
+    if (kind0 == SoyType.Kind.INT && kind1 == SoyType.Kind.INT) {
+      return SoyType.Kind.INT;
+    }
+    if ((kind0 == SoyType.Kind.INT || kind0 == SoyType.Kind.FLOAT)
+        && (kind1 == SoyType.Kind.INT || kind1 == SoyType.Kind.FLOAT)) {
+      return SoyType.Kind.FLOAT;
+    }
+    return null;
+  }
+
+
+  /**
+   * Returns the kind of the static type of the given operand of an operator, or null if it can't
+   * be evaluated unboxed.
+   */
+  @Nullable private static SoyType.Kind operandKind(ExprNode node) {
+    return isUnboxedOperand(node) ? staticKind(node) : null;
+  }
+
+
+  /**
+   * Returns whether the given operand of an operator can be part of an unboxed subtree: a
+   * literal, a data reference, or an unboxable operator whose operands are such. Other operands,
+   * such as function calls, may be expensive or observable, and must not be evaluated again by
+   * the boxed fallback.
+   */
+  private static boolean isUnboxedOperand(ExprNode node) {
+    switch (node.getKind()) {
+      case INTEGER_NODE:
+      case FLOAT_NODE:
+        return true;
+      case VAR_REF_NODE:
+      case FIELD_ACCESS_NODE:
+      case ITEM_ACCESS_NODE:
+        return isDataRef(node);
+      default:
+        return unboxedKind(node) != null;
+    }
+  }
+
+
+  /**
+   * Returns whether the given node is a data reference whose evaluation only reads data: a
+   * variable, or field or item accesses on one, with literal or data reference keys.
+   */
+  private static boolean isDataRef(ExprNode node) {
+    switch (node.getKind()) {
+      case VAR_REF_NODE:
+        return true;
+      case FIELD_ACCESS_NODE:
+        return isDataRef(((FieldAccessNode) node).getBaseExprChild());
+      case ITEM_ACCESS_NODE:
+        ItemAccessNode itemAccess = (ItemAccessNode) node;
+        ExprNode key = itemAccess.getKeyExprChild();
+        return isDataRef(itemAccess.getBaseExprChild())
+            && (key.getKind() == ExprNode.Kind.INTEGER_NODE
+                || key.getKind() == ExprNode.Kind.STRING_NODE
+                || isDataRef(key));
+      default:
+        return false;
+    }
+  }
+
+
+  /**
+   * Returns the kind of the static type of the given node, or null if it has not been resolved.
+   */
+  @Nullable private static SoyType.Kind staticKind(ExprNode node) {
+    SoyType type = node.getType();
+    return type != null ? type.getKind() : null;
+  }
+
+
+  /**
+   * Thrown when an operand of an unboxed evaluation does not have the value type that its static
+   * type promised. Preallocated and stackless, since it only ever triggers the boxed fallback.
+   */
+  private static final class UnboxedTypeMismatch extends RuntimeException {
+
+    static final UnboxedTypeMismatch INSTANCE = new UnboxedTypeMismatch();
+
+    private UnboxedTypeMismatch() {
+      super(null, null, false /* enableSuppression */, false /* writableStackTrace */);
+    }
+  }
+
+
   // -----------------------------------------------------------------------------------------------
   // Private helpers.
 
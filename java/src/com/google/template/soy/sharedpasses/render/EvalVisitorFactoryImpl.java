@@ -20,6 +20,7 @@ import com.google.template.soy.data.SoyRecord;
 import com.google.template.soy.data.SoyValueHelper;
 import com.google.template.soy.shared.internal.SharedModule.Shared;
 import com.google.template.soy.shared.restricted.SoyJavaFunction;
+import com.google.template.soy.shared.restricted.SoyRenderContext;
 import com.google.template.soy.sharedpasses.render.EvalVisitor.EvalVisitorFactory;
 
 import java.util.Map;
@@ -53,9 +54,10 @@ public class EvalVisitorFactoryImpl implements EvalVisitorFactory {
   }
 
 
-  @Override public EvalVisitor create(@Nullable SoyRecord ijData, Environment env) {
+  @Override public EvalVisitor create(
+      @Nullable SoyRecord ijData, Environment env, @Nullable SoyRenderContext renderContext) {
 
-    return new EvalVisitor(valueHelper, soyJavaFunctionsMap, ijData, env);
+    return new EvalVisitor(valueHelper, soyJavaFunctionsMap, ijData, env, renderContext);
   }
 
 }
@@ -32,9 +32,9 @@ import com.google.template.soy.data.SoyValue;
 import com.google.template.soy.data.SoyValueProvider;
 import com.google.template.soy.data.UnsafeSanitizedContentOrdainer;
 import com.google.template.soy.data.internal.AugmentedParamStore;
-import com.google.template.soy.data.internal.BasicParamStore;
 import com.google.template.soy.data.internal.ParamStore;
 import com.google.template.soy.data.internal.RenderableThunk;
+import com.google.template.soy.data.internal.SlottedParamStore;
 import com.google.template.soy.data.restricted.IntegerData;
 import com.google.template.soy.data.restricted.NullData;
 import com.google.template.soy.data.restricted.StringData;
@@ -45,6 +45,8 @@ import com.google.template.soy.msgs.SoyMsgBundle;
 import com.google.template.soy.shared.SoyCssRenamingMap;
 import com.google.template.soy.shared.SoyIdRenamingMap;
 import com.google.template.soy.shared.restricted.SoyJavaPrintDirective;
+import com.google.template.soy.shared.restricted.SoyJavaRenderContextPrintDirective;
+import com.google.template.soy.shared.restricted.SoyRenderContext;
 import com.google.template.soy.sharedpasses.render.EvalVisitor.EvalVisitorFactory;
 import com.google.template.soy.soytree.AbstractSoyNodeVisitor;
 import com.google.template.soy.soytree.CallBasicNode;
@@ -76,6 +78,7 @@ import com.google.template.soy.soytree.SoyNode.RenderUnitNode;
 import com.google.template.soy.soytree.SwitchCaseNode;
 import com.google.template.soy.soytree.SwitchDefaultNode;
 import com.google.template.soy.soytree.SwitchNode;
+import com.google.template.soy.soytree.TemplateBasicNode;
 import com.google.template.soy.soytree.TemplateDelegateNode;
 import com.google.template.soy.soytree.TemplateDelegateNode.DelTemplateKey;
 import com.google.template.soy.soytree.TemplateNode;
@@ -85,6 +88,7 @@ import com.google.template.soy.soytree.XidNode;
 import com.google.template.soy.soytree.defn.LocalVar;
 import com.google.template.soy.soytree.defn.LoopVar;
 import com.google.template.soy.soytree.defn.TemplateParam;
+import com.google.template.soy.soytree.tofu.TranslatedPlrselMsgNode;
 import com.google.template.soy.types.SoyType.Kind;
 
 import java.io.Flushable;
@@ -132,6 +136,10 @@ public class RenderVisitor extends AbstractSoyNodeVisitor<Void> {
   /** The bundle of translated messages, or null to use the messages from the Soy source. */
   protected final SoyMsgBundle msgBundle;
 
+  /** The context of the current render, passed to functions and directives that depend on it. Null
+   *  when not rendering (e.g. when prerendering). */
+  @Nullable protected final SoyRenderContext renderContext;
+
   /** xid renaming map. */
   protected final SoyIdRenamingMap xidRenamingMap;
 
@@ -172,6 +180,7 @@ public class RenderVisitor extends AbstractSoyNodeVisitor<Void> {
    *     known to be irrelevant.
    * @param msgBundle The bundle of translated messages, or null to use the messages from the Soy
    *     source.
+   * @param renderContext The context of the current render, or null if not rendering.
    * @param cssRenamingMap The CSS renaming map, or null if not applicable.
    * @param xidRenamingMap The 'xid' renaming map, or null if not applicable.
    */
@@ -181,6 +190,7 @@ public class RenderVisitor extends AbstractSoyNodeVisitor<Void> {
       @Nullable TemplateRegistry templateRegistry, SoyRecord data,
       @Nullable SoyRecord ijData,
       @Nullable Set<String> activeDelPackageNames, @Nullable SoyMsgBundle msgBundle,
+      @Nullable SoyRenderContext renderContext,
       @Nullable SoyIdRenamingMap xidRenamingMap, @Nullable SoyCssRenamingMap cssRenamingMap) {
 
     Preconditions.checkNotNull(data);
@@ -192,6 +202,7 @@ public class RenderVisitor extends AbstractSoyNodeVisitor<Void> {
     this.ijData = ijData;
     this.activeDelPackageNames = activeDelPackageNames;
     this.msgBundle = msgBundle;
+    this.renderContext = renderContext;
     this.xidRenamingMap = xidRenamingMap;
     this.cssRenamingMap = cssRenamingMap;
 
@@ -235,7 +246,8 @@ public class RenderVisitor extends AbstractSoyNodeVisitor<Void> {
 
     return new RenderVisitor(
         soyJavaDirectivesMap, evalVisitorFactory, outputBuf, templateRegistry,
-        data, ijData, activeDelPackageNames, msgBundle, xidRenamingMap, cssRenamingMap);
+        data, ijData, activeDelPackageNames, msgBundle, renderContext, xidRenamingMap,
+        cssRenamingMap);
   }
 
   /**
@@ -272,19 +284,35 @@ public class RenderVisitor extends AbstractSoyNodeVisitor<Void> {
 
 
   @Override protected void visitMsgFallbackGroupNode(MsgFallbackGroupNode node) {
+    renderMsg(node, node.getEscapingDirectiveNames());
+  }
+
+
+  @Override protected void visitTranslatedPlrselMsgNode(TranslatedPlrselMsgNode node) {
+    renderMsg(node, node.getEscapingDirectiveNames());
+  }
+
+
+  /**
+   * Private helper for visitMsgFallbackGroupNode() and visitTranslatedPlrselMsgNode() to render a
+   * message using the assistant for messages.
+   * @param node The MsgFallbackGroupNode or TranslatedPlrselMsgNode to render.
+   * @param escapingDirectiveNames The escaping directives to apply to the whole message.
+   */
+  private void renderMsg(SoyNode node, List<String> escapingDirectiveNames) {
     if (assistantForMsgs == null) {
       assistantForMsgs = new RenderVisitorAssistantForMsgs(this, msgBundle);
     }
-    if (!node.getEscapingDirectiveNames().isEmpty()) {
+    if (!escapingDirectiveNames.isEmpty()) {
       // The entire message needs to be escaped, so we need to render to a temporary buffer.
       // Fortunately, for most messages (in HTML context) this is unnecessary.
       pushOutputBuf(new StringBuilder());
     }
     assistantForMsgs.visitForUseByMaster(node);
-    if (!node.getEscapingDirectiveNames().isEmpty()) {
+    if (!escapingDirectiveNames.isEmpty()) {
       // Escape the entire message with the required directives.
       SoyValue wholeMsg = StringData.forValue(popOutputBuf().toString());
-      for (String directiveName : node.getEscapingDirectiveNames()) {
+      for (String directiveName : escapingDirectiveNames) {
         wholeMsg = applyDirective(directiveName, wholeMsg, ImmutableList.<SoyValue>of(), node);
       }
       append(currOutputBuf, wholeMsg.stringValue());
@@ -365,7 +393,7 @@ public class RenderVisitor extends AbstractSoyNodeVisitor<Void> {
 
 
   @Override protected void visitLetContentNode(LetContentNode node) {
-    env.bind(node.getVar(), renderRenderUnitNode(node));
+    env.bind(node.getVar(), renderRenderUnitNode(node, node.isSingleUse()));
   }
 
 
@@ -575,8 +603,9 @@ public class RenderVisitor extends AbstractSoyNodeVisitor<Void> {
       ParamStore mutableCallData;
 
       if (dataToPass == null) {
-        // Case 3: Not passing data and passing params.
-        mutableCallData = new BasicParamStore();
+        // Case 3: Not passing data and passing params. The callee is known, so the params it
+        // declares are passed in its param slots.
+        mutableCallData = new SlottedParamStore(callee.getParamSlotIndices());
       } else {
         // Case 4: Passing data and passing params.
         mutableCallData = new AugmentedParamStore(dataToPass);
@@ -590,9 +619,10 @@ public class RenderVisitor extends AbstractSoyNodeVisitor<Void> {
               lazyEval(((CallParamValueNode) child).getValueExprUnion().getExpr(), child));
 
         } else if (child instanceof CallParamContentNode) {
+          CallParamContentNode contentChild = (CallParamContentNode) child;
           mutableCallData.setField(
               child.getKey(),
-              renderRenderUnitNode((CallParamContentNode) child));
+              renderRenderUnitNode(contentChild, contentChild.isSingleUse()));
 
         } else {
           throw new AssertionError();
@@ -604,6 +634,14 @@ public class RenderVisitor extends AbstractSoyNodeVisitor<Void> {
 
     // ------ Render the callee template with the callData built above. ------
 
+    if (callee instanceof TemplateBasicNode && ((TemplateBasicNode) callee).isCached()) {
+      String cachedOutput = renderCachedTemplate((TemplateBasicNode) callee, callData, node);
+      if (cachedOutput != null) {
+        appendCalleeOutput(node, callee, cachedOutput);
+        return;
+      }
+    }
+
     if (node.getEscapingDirectiveNames().isEmpty()) {
       // No escaping at the call site -- render directly into the output buffer.
       RenderVisitor rv = this.createHelperInstance(currOutputBuf, callData);
@@ -620,27 +658,72 @@ public class RenderVisitor extends AbstractSoyNodeVisitor<Void> {
       // - Only create this temporary buffer when contexts mismatch. We could run a pre-pass that
       // eliminates escaping directives when all callers are known.
       // - Instead of creating a temporary buffer and copying, wrap with an escaping StringBuilder.
-      StringBuilder calleeBuilder = new StringBuilder();
-      RenderVisitor rv = this.createHelperInstance(calleeBuilder, callData);
-      try {
-        rv.renderTemplate(callee, node.getParamsToRuntimeCheck(callee));
-      } catch (RenderException re) {
-        // The {call .XXX} failed to render - a new partial stack trace element is added to capture
-        // this template call.
-        throw re.addStackTraceElement(node);
-      }
-      SoyValue resultData = (callee.getContentKind() != null) ?
-          UnsafeSanitizedContentOrdainer.ordainAsSafe(
-              calleeBuilder.toString(), callee.getContentKind()) :
-          StringData.forValue(calleeBuilder.toString());
-      for (String directiveName : node.getEscapingDirectiveNames()) {
-        resultData = applyDirective(directiveName, resultData, ImmutableList.<SoyValue>of(), node);
-      }
-      append(currOutputBuf, resultData, node);
+      appendCalleeOutput(node, callee, renderTemplateToString(callee, callData, node));
     }
   }
 
 
+  /**
+   * Renders a call to a template declared with {@code cache="true"}. The default implementation
+   * returns null, which means the callee is rendered normally. Backends that keep a fragment cache
+   * override this to serve the callee's output from the cache.
+   *
+   * @param callee The called template.
+   * @param callData The data the callee is being called with.
+   * @param node The call node.
+   * @return The callee's rendered output, or null to render the callee normally.
+   */
+  @Nullable protected String renderCachedTemplate(
+      TemplateBasicNode callee, SoyRecord callData, CallNode node) {
+    return null;
+  }
+
+
+  /**
+   * Renders a called template into a new string.
+   *
+   * @param callee The called template.
+   * @param callData The data to call the template with.
+   * @param node The call node.
+   * @return The callee's rendered output.
+   */
+  protected final String renderTemplateToString(
+      TemplateNode callee, SoyRecord callData, CallNode node) {
+
+    StringBuilder calleeBuilder = new StringBuilder();
+    RenderVisitor rv = this.createHelperInstance(calleeBuilder, callData);
+    try {
+      rv.renderTemplate(callee, node.getParamsToRuntimeCheck(callee));
+    } catch (RenderException re) {
+      // The {call .XXX} failed to render - a new partial stack trace element is added to capture
+      // this template call.
+      throw re.addStackTraceElement(node);
+    }
+    return calleeBuilder.toString();
+  }
+
+
+  /**
+   * Appends the already rendered output of a called template, applying the call site's escaping
+   * directives if any.
+   */
+  private void appendCalleeOutput(CallNode node, TemplateNode callee, String calleeOutput) {
+
+    if (node.getEscapingDirectiveNames().isEmpty()) {
+      append(currOutputBuf, calleeOutput);
+      return;
+    }
+
+    SoyValue resultData = (callee.getContentKind() != null) ?
+        UnsafeSanitizedContentOrdainer.ordainAsSafe(calleeOutput, callee.getContentKind()) :
+        StringData.forValue(calleeOutput);
+    for (String directiveName : node.getEscapingDirectiveNames()) {
+      resultData = applyDirective(directiveName, resultData, ImmutableList.<SoyValue>of(), node);
+    }
+    append(currOutputBuf, resultData, node);
+  }
+
+
   @Override protected void visitCallParamNode(CallParamNode node) {
     // In this visitor, we never directly visit a CallParamNode.
     throw new AssertionError();
@@ -714,7 +797,14 @@ public class RenderVisitor extends AbstractSoyNodeVisitor<Void> {
     popOutputBuf();
   }
 
-  private SoyValue renderRenderUnitNode(final RenderUnitNode renderUnitNode) {
+  /**
+   * Private helper to create the lazy value of a let or param with content.
+   * @param renderUnitNode The let or param whose children render the value.
+   * @param isSingleUse Whether the value is printed at most once, in which case its content is
+   *     streamed straight into the output instead of being saved.
+   */
+  private SoyValue renderRenderUnitNode(
+      final RenderUnitNode renderUnitNode, boolean isSingleUse) {
     RenderableThunk thunk = new RenderableThunk() {
       @Override public void render(Appendable appendable) throws IOException {
         renderBlock(renderUnitNode, appendable);
@@ -722,9 +812,11 @@ public class RenderVisitor extends AbstractSoyNodeVisitor<Void> {
     };
     ContentKind contentKind = renderUnitNode.getContentKind();
     if (contentKind != null) {
-      return LazySanitizedContents.forThunk(thunk, contentKind);
+      return isSingleUse
+          ? LazySanitizedContents.forSingleUseThunk(thunk, contentKind)
+          : LazySanitizedContents.forThunk(thunk, contentKind);
     } else {
-      return StringData.forThunk(thunk);
+      return isSingleUse ? StringData.forSingleUseThunk(thunk) : StringData.forThunk(thunk);
     }
   }
 
@@ -741,7 +833,7 @@ public class RenderVisitor extends AbstractSoyNodeVisitor<Void> {
 
     // Lazily initialize evalVisitor.
     if (evalVisitor == null) {
-      evalVisitor = evalVisitorFactory.create(ijData, env);
+      evalVisitor = evalVisitorFactory.create(ijData, env, renderContext);
     }
 
     try {
@@ -834,6 +926,10 @@ public class RenderVisitor extends AbstractSoyNodeVisitor<Void> {
     }
 
     try {
+      if (renderContext != null && directive instanceof SoyJavaRenderContextPrintDirective) {
+        return ((SoyJavaRenderContextPrintDirective) directive).applyForJava(
+            value, args, renderContext);
+      }
       return directive.applyForJava(value, args);
     } catch (RuntimeException e) {
       throw RenderException.createWithSource(
@@ -44,6 +44,7 @@ import com.google.template.soy.soytree.MsgSelectCaseNode;
 import com.google.template.soy.soytree.MsgSelectDefaultNode;
 import com.google.template.soy.soytree.MsgSelectNode;
 import com.google.template.soy.soytree.SoyNode;
+import com.google.template.soy.soytree.tofu.TranslatedPlrselMsgNode;
 
 import com.ibm.icu.text.PluralRules;
 import com.ibm.icu.util.ULocale;
@@ -126,13 +127,9 @@ class RenderVisitorAssistantForMsgs extends AbstractSoyNodeVisitor<Void> {
     if (!msgParts.isEmpty()) {
       SoyMsgPart firstPart = msgParts.get(0);
 
-      if (firstPart instanceof SoyMsgPluralPart) {
-        (new PlrselMsgPartsVisitor(msg, new ULocale(translation.getLocaleString())))
-            .visitPart((SoyMsgPluralPart) firstPart);
-
-      } else if (firstPart instanceof SoyMsgSelectPart) {
-        (new PlrselMsgPartsVisitor(msg, new ULocale(translation.getLocaleString())))
-            .visitPart((SoyMsgSelectPart) firstPart);
+      if (firstPart instanceof SoyMsgPluralPart || firstPart instanceof SoyMsgSelectPart) {
+        renderPlrselMsgFromTranslation(msg, firstPart,
+            PluralRules.forLocale(new ULocale(translation.getLocaleString())));
 
       } else {
         for (SoyMsgPart msgPart : msgParts) {
@@ -155,6 +152,23 @@ class RenderVisitorAssistantForMsgs extends AbstractSoyNodeVisitor<Void> {
   }
 
 
+  /**
+   * Private helper to render a plural/select message from its translation.
+   * @param msg The message.
+   * @param plrselPart The translated plural or select part.
+   * @param pluralRules The plural rules of the translation's locale.
+   */
+  private void renderPlrselMsgFromTranslation(
+      MsgNode msg, SoyMsgPart plrselPart, PluralRules pluralRules) {
+
+    if (plrselPart instanceof SoyMsgPluralPart) {
+      (new PlrselMsgPartsVisitor(msg, pluralRules)).visitPart((SoyMsgPluralPart) plrselPart);
+    } else {
+      (new PlrselMsgPartsVisitor(msg, pluralRules)).visitPart((SoyMsgSelectPart) plrselPart);
+    }
+  }
+
+
   /**
    * Private helper for visitMsgFallbackGroupNode() to render a message from its source.
    */
@@ -163,6 +177,13 @@ class RenderVisitorAssistantForMsgs extends AbstractSoyNodeVisitor<Void> {
   }
 
 
+  @Override protected void visitTranslatedPlrselMsgNode(TranslatedPlrselMsgNode node) {
+    // The translation was looked up when the node was built, so the msgBundle isn't needed.
+    renderPlrselMsgFromTranslation(
+        node.getChild(0), node.getTranslatedPlrselPart(), node.getPluralRules());
+  }
+
+
   @Override protected void visitMsgNode(MsgNode node) {
     throw new AssertionError();
   }
@@ -270,8 +291,8 @@ class RenderVisitorAssistantForMsgs extends AbstractSoyNodeVisitor<Void> {
     /** The parent message node for the parts dealt here. */
     private final MsgNode msgNode;
 
-    /** The locale for the translated message considered. */
-    private final ULocale locale;
+    /** The plural rules of the locale for the translated message considered. */
+    private final PluralRules pluralRules;
 
     /** Holds the value of the remainder for the current enclosing plural part. */
     private double currentPluralRemainderValue;
@@ -280,11 +301,11 @@ class RenderVisitorAssistantForMsgs extends AbstractSoyNodeVisitor<Void> {
     /**
      * Constructor.
      * @param msgNode The parent message node for the parts dealt here.
-     * @param locale The locale of the Soy message.
+     * @param pluralRules The plural rules of the locale of the Soy message.
      */
-    public PlrselMsgPartsVisitor(MsgNode msgNode, ULocale locale) {
+    public PlrselMsgPartsVisitor(MsgNode msgNode, PluralRules pluralRules) {
       this.msgNode = msgNode;
-      this.locale = locale;
+      this.pluralRules = pluralRules;
     }
 
 
@@ -410,7 +431,7 @@ class RenderVisitorAssistantForMsgs extends AbstractSoyNodeVisitor<Void> {
 
       if (caseParts == null && hasNonExplicitCases) {
         // Didn't match any numeric value.  Check which plural rule it matches.
-        String pluralKeyword = PluralRules.forLocale(locale).select(currentPluralRemainderValue);
+        String pluralKeyword = pluralRules.select(currentPluralRemainderValue);
         SoyMsgPluralCaseSpec.Type correctCaseType =
             new SoyMsgPluralCaseSpec(pluralKeyword).getType();
 
@@ -22,6 +22,7 @@ import com.google.template.soy.shared.SoyCssRenamingMap;
 import com.google.template.soy.shared.SoyIdRenamingMap;
 import com.google.template.soy.shared.internal.SharedModule.Shared;
 import com.google.template.soy.shared.restricted.SoyJavaPrintDirective;
+import com.google.template.soy.shared.restricted.SoyRenderContext;
 import com.google.template.soy.sharedpasses.render.EvalVisitor.EvalVisitorFactory;
 import com.google.template.soy.soytree.TemplateRegistry;
 
@@ -69,6 +70,7 @@ public class RenderVisitorFactory {
    *     when known to be irrelevant, i.e. when not using delegates feature.
    * @param msgBundle The bundle of translated messages, or null to use the messages from the
    *     Soy source.
+   * @param renderContext The context of the current render.
    * @param xidRenamingMap The 'xid' renaming map, or null if not applicable.
    * @param cssRenamingMap The CSS renaming map, or null if not applicable.
    * @return The newly created RenderVisitor instance.
@@ -77,11 +79,12 @@ public class RenderVisitorFactory {
       Appendable outputBuf, TemplateRegistry templateRegistry, SoyRecord data,
       @Nullable SoyRecord ijData,
       @Nullable Set<String> activeDelPackageNames, @Nullable SoyMsgBundle msgBundle,
+      @Nullable SoyRenderContext renderContext,
       @Nullable SoyIdRenamingMap xidRenamingMap, @Nullable SoyCssRenamingMap cssRenamingMap) {
 
     return new RenderVisitor(
         soyJavaDirectivesMap, evalVisitorFactory, outputBuf, templateRegistry, data, ijData,
-        activeDelPackageNames, msgBundle, xidRenamingMap, cssRenamingMap);
+        activeDelPackageNames, msgBundle, renderContext, xidRenamingMap, cssRenamingMap);
   }
 
 }
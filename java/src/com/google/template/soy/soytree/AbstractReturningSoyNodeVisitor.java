@@ -21,6 +21,7 @@ import com.google.template.soy.soytree.SoyNode.LoopNode;
 import com.google.template.soy.soytree.SoyNode.MsgSubstUnitNode;
 import com.google.template.soy.soytree.jssrc.GoogMsgDefNode;
 import com.google.template.soy.soytree.jssrc.GoogMsgRefNode;
+import com.google.template.soy.soytree.tofu.TranslatedPlrselMsgNode;
 
 
 /**
@@ -68,6 +69,9 @@ public abstract class AbstractReturningSoyNodeVisitor<R>
       case GOOG_MSG_DEF_NODE: return visitGoogMsgDefNode((GoogMsgDefNode) node);
       case GOOG_MSG_REF_NODE: return visitGoogMsgRefNode((GoogMsgRefNode) node);
 
+      case TRANSLATED_PLRSEL_MSG_NODE:
+        return visitTranslatedPlrselMsgNode((TranslatedPlrselMsgNode) node);
+
       case MSG_FALLBACK_GROUP_NODE: return visitMsgFallbackGroupNode((MsgFallbackGroupNode) node);
       case MSG_NODE: return visitMsgNode((MsgNode) node);
       case MSG_PLURAL_NODE: return visitMsgPluralNode((MsgPluralNode) node);
@@ -153,6 +157,10 @@ public abstract class AbstractReturningSoyNodeVisitor<R>
     return visitSoyNode(node);
   }
 
+  protected R visitTranslatedPlrselMsgNode(TranslatedPlrselMsgNode node) {
+    return visitSoyNode(node);
+  }
+
   protected R visitMsgFallbackGroupNode(MsgFallbackGroupNode node) {
     return visitSoyNode(node);
   }
@@ -23,6 +23,7 @@ import com.google.template.soy.soytree.SoyNode.MsgSubstUnitNode;
 import com.google.template.soy.soytree.SoyNode.ParentSoyNode;
 import com.google.template.soy.soytree.jssrc.GoogMsgDefNode;
 import com.google.template.soy.soytree.jssrc.GoogMsgRefNode;
+import com.google.template.soy.soytree.tofu.TranslatedPlrselMsgNode;
 
 
 /**
@@ -70,6 +71,9 @@ public abstract class AbstractSoyNodeVisitor<R> extends AbstractNodeVisitor<SoyN
       case GOOG_MSG_DEF_NODE: visitGoogMsgDefNode((GoogMsgDefNode) node); break;
       case GOOG_MSG_REF_NODE: visitGoogMsgRefNode((GoogMsgRefNode) node); break;
 
+      case TRANSLATED_PLRSEL_MSG_NODE:
+        visitTranslatedPlrselMsgNode((TranslatedPlrselMsgNode) node); break;
+
       case MSG_FALLBACK_GROUP_NODE: visitMsgFallbackGroupNode((MsgFallbackGroupNode) node); break;
       case MSG_NODE: visitMsgNode((MsgNode) node); break;
       case MSG_PLURAL_NODE: visitMsgPluralNode((MsgPluralNode) node); break;
@@ -179,6 +183,10 @@ public abstract class AbstractSoyNodeVisitor<R> extends AbstractNodeVisitor<SoyN
     visitSoyNode(node);
   }
 
+  protected void visitTranslatedPlrselMsgNode(TranslatedPlrselMsgNode node) {
+    visitSoyNode(node);
+  }
+
   protected void visitMsgFallbackGroupNode(MsgFallbackGroupNode node) {
     visitSoyNode(node);
   }
@@ -50,6 +50,9 @@ public final class CallParamContentNode extends CallParamNode implements RenderU
   /** The param's content kind, or null if no 'kind' attribute was present. */
   @Nullable private final ContentKind contentKind;
 
+  /** Whether the value of this param is printed at most once (see {@link #isSingleUse}). */
+  private boolean isSingleUse;
+
 
   /**
    * @param id The id for this node.
@@ -73,6 +76,7 @@ public final class CallParamContentNode extends CallParamNode implements RenderU
     this.parentMixin = new MixinParentNode<>(orig.parentMixin, this);
     this.key = orig.key;
     this.contentKind = orig.contentKind;
+    this.isSingleUse = orig.isSingleUse;
   }
 
 
@@ -91,6 +95,24 @@ public final class CallParamContentNode extends CallParamNode implements RenderU
   }
 
 
+  /**
+   * Returns whether the value of this param is known to be printed at most once and never otherwise
+   * read, so that the renderer may stream its content straight into the output instead of saving
+   * a copy.
+   */
+  public boolean isSingleUse() {
+    return isSingleUse;
+  }
+
+
+  /**
+   * Sets whether the value of this param is printed at most once.
+   */
+  public void setIsSingleUse(boolean isSingleUse) {
+    this.isSingleUse = isSingleUse;
+  }
+
+
   // -----------------------------------------------------------------------------------------------
   // ParentSoyNode stuff.
   // Note: Most concrete nodes simply inherit this functionality from AbstractParentCommandNode or
@@ -47,6 +47,9 @@ public final class LetContentNode extends LetNode implements RenderUnitNode {
   /** The let node's content kind, or null if no 'kind' attribute was present. */
   @Nullable private final ContentKind contentKind;
 
+  /** Whether the value of this let is printed at most once (see {@link #isSingleUse}). */
+  private boolean isSingleUse;
+
 
   private LetContentNode(int id, String localVarName, String commandText, ContentKind contentKind) {
     super(id, localVarName, commandText);
@@ -63,6 +66,7 @@ public final class LetContentNode extends LetNode implements RenderUnitNode {
     super(orig);
     this.parentMixin = new MixinParentNode<>(orig.parentMixin, this);
     this.contentKind = orig.contentKind;
+    this.isSingleUse = orig.isSingleUse;
   }
 
 
@@ -84,6 +88,24 @@ public final class LetContentNode extends LetNode implements RenderUnitNode {
   }
 
 
+  /**
+   * Returns whether the value of this let is known to be printed at most once and never otherwise
+   * read, so that the renderer may stream its content straight into the output instead of saving
+   * a copy.
+   */
+  public boolean isSingleUse() {
+    return isSingleUse;
+  }
+
+
+  /**
+   * Sets whether the value of this let is printed at most once.
+   */
+  public void setIsSingleUse(boolean isSingleUse) {
+    this.isSingleUse = isSingleUse;
+  }
+
+
   // -----------------------------------------------------------------------------------------------
   // ParentSoyNode stuff.
   // Note: Most concrete nodes simply inherit this functionality from AbstractParentCommandNode or
@@ -55,6 +55,8 @@ public interface SoyNode extends Node {
     GOOG_MSG_DEF_NODE,
     GOOG_MSG_REF_NODE,
 
+    TRANSLATED_PLRSEL_MSG_NODE,
+
     MSG_FALLBACK_GROUP_NODE,
     MSG_NODE,
     MSG_PLURAL_NODE,
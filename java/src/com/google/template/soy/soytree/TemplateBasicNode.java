@@ -30,6 +30,9 @@ public final class TemplateBasicNode extends TemplateNode {
   /** Whether this template overrides another (always false for syntax version V2). */
   private final boolean isOverride;
 
+  /** Whether the output of this template may be cached by the renderer (attribute cache="true"). */
+  private final boolean isCached;
+
   /**
    * Main constructor. This is package-private because TemplateBasicNode instances should be built
    * using TemplateBasicNodeBuilder.
@@ -37,6 +40,7 @@ public final class TemplateBasicNode extends TemplateNode {
    * @param nodeBuilder Builder containing template initialization params.
    * @param soyFileHeaderInfo Info from the containing Soy file's header declarations.
    * @param isOverride Whether this template overrides another (always false for syntax version V2).
+   * @param isCached Whether the output of this template may be cached by the renderer.
    * @param visibility Visibility of this template.
    * @param params The params from template header or SoyDoc. Null if no decls and no SoyDoc.
    */
@@ -44,10 +48,12 @@ public final class TemplateBasicNode extends TemplateNode {
       TemplateBasicNodeBuilder nodeBuilder,
       SoyFileHeaderInfo soyFileHeaderInfo,
       boolean isOverride,
+      boolean isCached,
       Visibility visibility,
       ImmutableList<TemplateParam> params) {
     super(nodeBuilder, "template", soyFileHeaderInfo, visibility, params);
     this.isOverride = isOverride;
+    this.isCached = isCached;
   }
 
   /**
@@ -57,6 +63,7 @@ public final class TemplateBasicNode extends TemplateNode {
   private TemplateBasicNode(TemplateBasicNode orig) {
     super(orig);
     this.isOverride = orig.isOverride;
+    this.isCached = orig.isCached;
   }
 
   @Override public Kind getKind() {
@@ -68,6 +75,14 @@ public final class TemplateBasicNode extends TemplateNode {
     return isOverride;
   }
 
+  /**
+   * Returns whether the output of this template may be cached by the renderer. Such a template must
+   * be a pure function of its declared params, which CheckCachedTemplatesVisitor verifies.
+   */
+  public boolean isCached() {
+    return isCached;
+  }
+
   @Override public TemplateBasicNode clone() {
     return new TemplateBasicNode(this);
   }
@@ -59,12 +59,16 @@ public class TemplateBasicNodeBuilder extends TemplateNodeBuilder {
           new Attribute("kind", NodeContentKinds.getAttributeValues(), null),
           new Attribute("requirecss", Attribute.ALLOW_ALL_VALUES, null),
           new Attribute("cssbase", Attribute.ALLOW_ALL_VALUES, null),
-          new Attribute("visibility", Visibility.getAttributeValues(), null));
+          new Attribute("visibility", Visibility.getAttributeValues(), null),
+          new Attribute("cache", Attribute.BOOLEAN_VALUES, "false"));
 
 
   /** Whether this template overrides another (always false for syntax version V2). */
   private Boolean isOverride;
 
+  /** Whether the output of this template may be cached by the renderer. */
+  private boolean isCached;
+
   /**
    * @param soyFileHeaderInfo Info from the containing Soy file's header declarations.
    */
@@ -156,6 +160,8 @@ public class TemplateBasicNodeBuilder extends TemplateNodeBuilder {
       this.isOverride = overrideAttr.equals("true");
     }
 
+    this.isCached = attributes.get("cache").equals("true");
+
     // See go/soy-visibility for why this is considered "legacy private".
     if (attributes.get("private").equals("true")) {
       visibility = Visibility.LEGACY_PRIVATE;
@@ -259,6 +265,7 @@ public class TemplateBasicNodeBuilder extends TemplateNodeBuilder {
 
   @Override public TemplateBasicNode build() {
     Preconditions.checkState(id != null && isSoyDocSet && cmdText != null);
-    return new TemplateBasicNode(this, soyFileHeaderInfo, isOverride, visibility, params);
+    return new TemplateBasicNode(
+        this, soyFileHeaderInfo, isOverride, isCached, visibility, params);
   }
 }
@@ -17,10 +17,12 @@
 package com.google.template.soy.soytree;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.template.soy.base.SourceLocation;
 import com.google.template.soy.data.SanitizedContent.ContentKind;
+import com.google.template.soy.data.internal.SlottedParamStore;
 import com.google.template.soy.soytree.SoyNode.RenderUnitNode;
 import com.google.template.soy.soytree.defn.HeaderParam;
 import com.google.template.soy.soytree.defn.TemplateParam;
@@ -120,6 +122,13 @@ public abstract class TemplateNode extends AbstractBlockCommandNode implements R
   /** The injected params from template header. Null if no decls. */
   @Nullable private ImmutableList<TemplateParam> injectedParams;
 
+  /**
+   * The slot index of each param from template header or SoyDoc, by name. The slots are in the
+   * order of the params, and calls to this template may pass the params' values by slot. Interned
+   * (see SlottedParamStore.internSlotIndices()), like the maps of the generated data builders.
+   */
+  private final ImmutableMap<String, Integer> paramSlotIndices;
+
   private int maxLocalVariableTableSize = -1;
 
   /**
@@ -166,6 +175,12 @@ public abstract class TemplateNode extends AbstractBlockCommandNode implements R
     // Note: These used to be nullable, but now return an empty list.
     this.params = regularParams.build();
     this.injectedParams = injectedParams.build();
+
+    List<String> paramNames = Lists.newArrayListWithCapacity(this.params.size());
+    for (TemplateParam param : this.params) {
+      paramNames.add(param.name());
+    }
+    this.paramSlotIndices = SlottedParamStore.internSlotIndices(paramNames);
   }
 
   /**
@@ -187,6 +202,7 @@ public abstract class TemplateNode extends AbstractBlockCommandNode implements R
     this.soyDocDesc = orig.soyDocDesc;
     this.params = orig.params;  // immutable
     this.injectedParams = orig.injectedParams;
+    this.paramSlotIndices = orig.paramSlotIndices;
     this.maxLocalVariableTableSize = orig.maxLocalVariableTableSize;
   }
 
@@ -293,6 +309,14 @@ public abstract class TemplateNode extends AbstractBlockCommandNode implements R
     return params;
   }
 
+  /**
+   * Returns the slot index of each param from template header or SoyDoc, by name. The slot of a
+   * param is its index in {@link #getParams}.
+   */
+  public ImmutableMap<String, Integer> getParamSlotIndices() {
+    return paramSlotIndices;
+  }
+
   /** Returns the injected params from template header. */
   public List<TemplateParam> getInjectedParams() {
     return injectedParams;
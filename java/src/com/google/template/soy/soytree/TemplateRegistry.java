@@ -18,6 +18,7 @@ package com.google.template.soy.soytree;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.template.soy.base.SoySyntaxException;
@@ -89,6 +90,17 @@ public final class TemplateRegistry {
    * @param soyTree The Soy tree from which to build a template registry.
    */
   public TemplateRegistry(SoyFileSetNode soyTree) {
+    this(getAllTemplates(soyTree));
+  }
+
+
+  /**
+   * Constructor for a registry over an explicit list of templates. The templates may come from
+   * different Soy trees, which allows registries that differ in only a few templates to share the
+   * rest of their nodes.
+   * @param templates The templates from which to build a template registry.
+   */
+  public TemplateRegistry(Iterable<? extends TemplateNode> templates) {
 
     // ------ Iterate through all templates to collect data. ------
 
@@ -97,65 +109,63 @@ public final class TemplateRegistry {
     Map<DelTemplateKey, Map<Integer, Map<String, TemplateDelegateNode>>> tempDelTemplatesMap =
         new LinkedHashMap<>();
 
-    for (SoyFileNode soyFile : soyTree.getChildren()) {
-      for (TemplateNode template : soyFile.getChildren()) {
-
-        if (template instanceof TemplateBasicNode) {
-          // Case 1: Basic template.
-          tempBasicTemplatesMap.put(template.getTemplateName(), (TemplateBasicNode) template);
-
-        } else {
-          // Case 2: Delegate template.
-          TemplateDelegateNode delTemplate = (TemplateDelegateNode) template;
-          DelTemplateKey delTemplateKey = delTemplate.getDelTemplateKey();
-
-          // Add to tempDelTemplateNameToKeysMap.
-          String delTemplateName = delTemplate.getDelTemplateName();
-          Set<DelTemplateKey> keys = tempDelTemplateNameToKeysMap.get(delTemplateName);
-          if (keys == null) {
-            keys = Sets.newLinkedHashSet();
-            tempDelTemplateNameToKeysMap.put(delTemplateName, keys);
-          }
-          keys.add(delTemplateKey);
+    for (TemplateNode template : templates) {
 
-          // Add to tempDelTemplatesMap.
-          int delPriority = delTemplate.getDelPriority();
-          String delPackageName = delTemplate.getDelPackageName();
+      if (template instanceof TemplateBasicNode) {
+        // Case 1: Basic template.
+        tempBasicTemplatesMap.put(template.getTemplateName(), (TemplateBasicNode) template);
 
-          Map<Integer, Map<String, TemplateDelegateNode>> tempDivisions =
-              tempDelTemplatesMap.get(delTemplateKey);
-          if (tempDivisions == null) {
-            tempDivisions = new LinkedHashMap<>();
-            tempDelTemplatesMap.put(delTemplateKey, tempDivisions);
-          }
+      } else {
+        // Case 2: Delegate template.
+        TemplateDelegateNode delTemplate = (TemplateDelegateNode) template;
+        DelTemplateKey delTemplateKey = delTemplate.getDelTemplateKey();
 
-          Map<String, TemplateDelegateNode> tempDivision = tempDivisions.get(delPriority);
-          if (tempDivision == null) {
-            tempDivision = new LinkedHashMap<>();
-            tempDivisions.put(delPriority, tempDivision);
-          }
+        // Add to tempDelTemplateNameToKeysMap.
+        String delTemplateName = delTemplate.getDelTemplateName();
+        Set<DelTemplateKey> keys = tempDelTemplateNameToKeysMap.get(delTemplateName);
+        if (keys == null) {
+          keys = Sets.newLinkedHashSet();
+          tempDelTemplateNameToKeysMap.put(delTemplateName, keys);
+        }
+        keys.add(delTemplateKey);
+
+        // Add to tempDelTemplatesMap.
+        int delPriority = delTemplate.getDelPriority();
+        String delPackageName = delTemplate.getDelPackageName();
 
-          if (tempDivision.containsKey(delPackageName)) {
-            TemplateDelegateNode prevTemplate = tempDivision.get(delPackageName);
-            String prevTemplateFilePath =
-                prevTemplate.getNearestAncestor(SoyFileNode.class).getFilePath();
-            String currTemplateFilePath =
-                delTemplate.getNearestAncestor(SoyFileNode.class).getFilePath();
-            String errorMsgPrefix = (delPackageName == null) ?
-                "Found two default implementations" :
-                "Found two implementations in the same delegate package";
-            if (currTemplateFilePath != null && currTemplateFilePath.equals(prevTemplateFilePath)) {
-              throw SoySyntaxException.createWithoutMetaInfo(String.format(
-                  errorMsgPrefix + " for delegate template '%s', both in the file %s.",
-                  delTemplateKey, currTemplateFilePath));
-            } else {
-              throw SoySyntaxException.createWithoutMetaInfo(String.format(
-                  errorMsgPrefix + " for delegate template '%s', in files %s and %s.",
-                  delTemplateKey, prevTemplateFilePath, currTemplateFilePath));
-            }
+        Map<Integer, Map<String, TemplateDelegateNode>> tempDivisions =
+            tempDelTemplatesMap.get(delTemplateKey);
+        if (tempDivisions == null) {
+          tempDivisions = new LinkedHashMap<>();
+          tempDelTemplatesMap.put(delTemplateKey, tempDivisions);
+        }
+
+        Map<String, TemplateDelegateNode> tempDivision = tempDivisions.get(delPriority);
+        if (tempDivision == null) {
+          tempDivision = new LinkedHashMap<>();
+          tempDivisions.put(delPriority, tempDivision);
+        }
+
+        if (tempDivision.containsKey(delPackageName)) {
+          TemplateDelegateNode prevTemplate = tempDivision.get(delPackageName);
+          String prevTemplateFilePath =
+              prevTemplate.getNearestAncestor(SoyFileNode.class).getFilePath();
+          String currTemplateFilePath =
+              delTemplate.getNearestAncestor(SoyFileNode.class).getFilePath();
+          String errorMsgPrefix = (delPackageName == null) ?
+              "Found two default implementations" :
+              "Found two implementations in the same delegate package";
+          if (currTemplateFilePath != null && currTemplateFilePath.equals(prevTemplateFilePath)) {
+            throw SoySyntaxException.createWithoutMetaInfo(String.format(
+                errorMsgPrefix + " for delegate template '%s', both in the file %s.",
+                delTemplateKey, currTemplateFilePath));
+          } else {
+            throw SoySyntaxException.createWithoutMetaInfo(String.format(
+                errorMsgPrefix + " for delegate template '%s', in files %s and %s.",
+                delTemplateKey, prevTemplateFilePath, currTemplateFilePath));
           }
-          tempDivision.put(delPackageName, delTemplate);
         }
+        tempDivision.put(delPackageName, delTemplate);
       }
     }
 
@@ -191,6 +201,19 @@ public final class TemplateRegistry {
   }
 
 
+  /**
+   * Returns all templates in the given Soy tree, in file order.
+   * @param soyTree The Soy tree to collect templates from.
+   */
+  private static List<TemplateNode> getAllTemplates(SoyFileSetNode soyTree) {
+    List<TemplateNode> templates = Lists.newArrayList();
+    for (SoyFileNode soyFile : soyTree.getChildren()) {
+      templates.addAll(soyFile.getChildren());
+    }
+    return templates;
+  }
+
+
   /**
    * Returns a map from basic template name to node.
    */
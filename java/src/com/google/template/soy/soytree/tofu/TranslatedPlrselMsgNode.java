@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.soytree.tofu;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.template.soy.msgs.restricted.SoyMsg;
+import com.google.template.soy.msgs.restricted.SoyMsgPart;
+import com.google.template.soy.msgs.restricted.SoyMsgPluralPart;
+import com.google.template.soy.msgs.restricted.SoyMsgSelectPart;
+import com.google.template.soy.soytree.AbstractParentSoyNode;
+import com.google.template.soy.soytree.MsgFallbackGroupNode;
+import com.google.template.soy.soytree.MsgNode;
+import com.google.template.soy.soytree.SoyNode.SplitLevelTopNode;
+import com.google.template.soy.soytree.SoyNode.StandaloneNode;
+import com.google.template.soy.soytree.SoyNode.StatementNode;
+
+import com.ibm.icu.text.PluralRules;
+import com.ibm.icu.util.ULocale;
+
+import java.util.List;
+
+/**
+ * Represents a plural/select message together with its translation, looked up once when the
+ * translations were inserted into the Soy tree (see InsertMsgsVisitor), so that rendering it
+ * doesn't need the message bundle.
+ *
+ * <p> Important: Do not use outside of Soy code (treat as superpackage-private).
+ *
+ * <p> The only child is the {@code MsgNode} that the translation is for. Its placeholder, plural
+ * and select nodes are the ones the translated parts refer to by name.
+ *
+ */
+public final class TranslatedPlrselMsgNode extends AbstractParentSoyNode<MsgNode>
+    implements StandaloneNode, SplitLevelTopNode<MsgNode>, StatementNode {
+
+
+  /** The translated plural or select part, holding the translated cases. */
+  private final SoyMsgPart translatedPlrselPart;
+
+  /** The plural rules of the translation's locale. */
+  private final PluralRules pluralRules;
+
+  /** Escaping directives names to apply to the rendered message (see MsgFallbackGroupNode). */
+  private final ImmutableList<String> escapingDirectiveNames;
+
+
+  /**
+   * Regular constructor. Note that this new node is meant to replace origMsgFbGrpNode, so this
+   * constructor will move msg from origMsgFbGrpNode to this new node (i.e. origMsgFbGrpNode is
+   * destructively modified).
+   *
+   * @param id The id for this node.
+   * @param origMsgFbGrpNode The original MsgFallbackGroupNode that this node is based off. Note
+   *     this original node will be destructively modified.
+   * @param msg The plural/select message in origMsgFbGrpNode that has the translation.
+   * @param translation The translation of msg.
+   */
+  public TranslatedPlrselMsgNode(
+      int id, MsgFallbackGroupNode origMsgFbGrpNode, MsgNode msg, SoyMsg translation) {
+    super(id);
+
+    List<SoyMsgPart> parts = translation.getParts();
+    Preconditions.checkArgument(
+        !parts.isEmpty() &&
+        (parts.get(0) instanceof SoyMsgPluralPart || parts.get(0) instanceof SoyMsgSelectPart));
+    this.translatedPlrselPart = parts.get(0);
+    this.pluralRules = PluralRules.forLocale(new ULocale(translation.getLocaleString()));
+    this.escapingDirectiveNames = origMsgFbGrpNode.getEscapingDirectiveNames();
+
+    // Move msg under this node.
+    origMsgFbGrpNode.removeChild(msg);
+    this.addChild(msg);
+  }
+
+
+  /**
+   * Copy constructor.
+   * @param orig The node to copy.
+   */
+  private TranslatedPlrselMsgNode(TranslatedPlrselMsgNode orig) {
+    super(orig);
+    this.translatedPlrselPart = orig.translatedPlrselPart;  // immutable
+    this.pluralRules = orig.pluralRules;  // immutable
+    this.escapingDirectiveNames = orig.escapingDirectiveNames;
+  }
+
+
+  @Override public Kind getKind() {
+    return Kind.TRANSLATED_PLRSEL_MSG_NODE;
+  }
+
+
+  /** Returns the translated plural or select part, a SoyMsgPluralPart or a SoyMsgSelectPart. */
+  public SoyMsgPart getTranslatedPlrselPart() {
+    return translatedPlrselPart;
+  }
+
+
+  /** Returns the plural rules of the translation's locale. */
+  public PluralRules getPluralRules() {
+    return pluralRules;
+  }
+
+
+  /**
+   * Returns the escaping directives, applied from left to right.
+   */
+  public ImmutableList<String> getEscapingDirectiveNames() {
+    return escapingDirectiveNames;
+  }
+
+
+  @Override public String toSourceString() {
+    return "[TranslatedPlrselMsgNode " + getChild(0).toSourceString() + "{/msg}]";
+  }
+
+
+  @Override public BlockNode getParent() {
+    return (BlockNode) super.getParent();
+  }
+
+
+  @Override public TranslatedPlrselMsgNode clone() {
+    return new TranslatedPlrselMsgNode(this);
+  }
+
+}
@@ -86,6 +86,22 @@ public interface SoyTofu {
       @Nullable SoyMsgBundle msgBundle, @Nullable SoyCssRenamingMap cssRenamingMap);
 
 
+  /**
+   * Makes the given SoyMsgBundle the current one for its locale, replacing the previous one (if
+   * any). Renderers that select their messages by locale (see {@link Renderer#setLocale}) use the
+   * locale's current bundle as of the start of each render, so renders in progress finish with the
+   * previous bundle. This picks up new translations without recompiling.
+   *
+   * <p> When {@code isCaching()} is true, the cache is first primed with the new bundle (for each
+   * SoyCssRenamingMap that the previous bundle was cached with, or just null), while renders keep
+   * using the previous bundle. After the swap, the previous bundle is evicted from the cache, and
+   * is no longer added back to it by renders (only by {@link #addToCache}).
+   *
+   * @param msgBundle The new message bundle. Must have a locale string.
+   */
+  public void swapMsgBundle(SoyMsgBundle msgBundle);
+
+
   /**
    * Gets a new Renderer for a template.
    *
@@ -179,6 +195,10 @@ public interface SoyTofu {
 
     /**
      * Sets the injected data to call the template with. Can be null if not used.
+     *
+     * <p> Injected values that are expensive to compute can be given in a
+     * {@link com.google.template.soy.data.SoyLazyRecord}, so that only the values that the
+     * templates read are computed.
      */
     public Renderer setIjData(SoyRecord ijData);
 
@@ -192,6 +212,14 @@ public interface SoyTofu {
      */
     public Renderer setMsgBundle(SoyMsgBundle msgBundle);
 
+    /**
+     * Sets the locale whose current bundle of translated messages (see
+     * {@link SoyTofu#swapMsgBundle}) to use, or null to use the bundle set by
+     * {@link #setMsgBundle}. If the locale has no current bundle when rendering, then rendering
+     * fails with a SoyTofuException.
+     */
+    public Renderer setLocale(String localeString);
+
     /**
      * Sets the ID renaming map.
      */
@@ -16,6 +16,7 @@
 
 package com.google.template.soy.tofu;
 
+import com.google.common.base.Preconditions;
 
 /**
  * Compilation options for the Tofu backend.
@@ -24,13 +25,22 @@ package com.google.template.soy.tofu;
 public class SoyTofuOptions implements Cloneable {
 
 
+  /** Default memory budget for the cached output of templates declared cache="true". */
+  public static final long DEFAULT_FRAGMENT_CACHE_MAX_BYTES = 16L * 1024 * 1024;
+
+
   /** Whether the resulting SoyTofu instance should cache intermediate results after substitutions
    *  from the SoyMsgBundle and the SoyCssRenamingMap. */
   private boolean useCaching;
 
+  /** Approximate memory budget, in bytes, for the cached output of templates declared
+   *  cache="true". */
+  private long fragmentCacheMaxBytes;
+
 
   public SoyTofuOptions() {
     useCaching = false;
+    fragmentCacheMaxBytes = DEFAULT_FRAGMENT_CACHE_MAX_BYTES;
   }
 
 
@@ -66,6 +76,28 @@ public class SoyTofuOptions implements Cloneable {
   }
 
 
+  /**
+   * Sets the approximate memory budget, in bytes, for the cached output of templates declared with
+   * {@code cache="true"}. When the budget is exceeded, the least recently used outputs are evicted.
+   * Set to 0 to disable output caching, in which case such templates are rendered on every call.
+   *
+   * @param fragmentCacheMaxBytes The value to set.
+   */
+  public void setFragmentCacheMaxBytes(long fragmentCacheMaxBytes) {
+    Preconditions.checkArgument(fragmentCacheMaxBytes >= 0);
+    this.fragmentCacheMaxBytes = fragmentCacheMaxBytes;
+  }
+
+
+  /**
+   * Returns the approximate memory budget, in bytes, for the cached output of templates declared
+   * with {@code cache="true"}.
+   */
+  public long getFragmentCacheMaxBytes() {
+    return fragmentCacheMaxBytes;
+  }
+
+
   @Override public SoyTofuOptions clone() {
     try {
       return (SoyTofuOptions) super.clone();
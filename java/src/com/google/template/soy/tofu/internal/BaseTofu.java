@@ -17,9 +17,13 @@
 package com.google.template.soy.tofu.internal;
 
 import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 import com.google.template.soy.data.SanitizedContent;
@@ -28,6 +32,7 @@ import com.google.template.soy.data.SoyValueHelper;
 import com.google.template.soy.data.UnsafeSanitizedContentOrdainer;
 import com.google.template.soy.data.internalutils.NodeContentKinds;
 import com.google.template.soy.internal.base.Pair;
+import com.google.template.soy.internal.i18n.BidiGlobalDir;
 import com.google.template.soy.msgs.SoyMsgBundle;
 import com.google.template.soy.msgs.internal.InsertMsgsVisitor;
 import com.google.template.soy.parseinfo.SoyTemplateInfo;
@@ -36,22 +41,33 @@ import com.google.template.soy.shared.SoyIdRenamingMap;
 import com.google.template.soy.shared.internal.ApiCallScopeUtils;
 import com.google.template.soy.shared.internal.GuiceSimpleScope;
 import com.google.template.soy.shared.restricted.ApiCallScopeBindingAnnotations.ApiCall;
+import com.google.template.soy.shared.restricted.SoyRenderContext;
 import com.google.template.soy.sharedpasses.FindIjParamsVisitor;
-import com.google.template.soy.sharedpasses.FindIjParamsVisitor.IjParamsInfo;
 import com.google.template.soy.sharedpasses.RenameCssVisitor;
 import com.google.template.soy.sharedpasses.opti.SimplifyVisitor;
 import com.google.template.soy.sharedpasses.render.RenderException;
 import com.google.template.soy.sharedpasses.render.RenderVisitor;
+import com.google.template.soy.soytree.CssNode;
+import com.google.template.soy.soytree.MsgFallbackGroupNode;
+import com.google.template.soy.soytree.SoyFileNode;
 import com.google.template.soy.soytree.SoyFileSetNode;
+import com.google.template.soy.soytree.SoytreeUtils;
+import com.google.template.soy.soytree.TemplateBasicNode;
 import com.google.template.soy.soytree.TemplateNode;
 import com.google.template.soy.soytree.TemplateRegistry;
 import com.google.template.soy.soytree.Visibility;
 import com.google.template.soy.tofu.SoyTofu;
 import com.google.template.soy.tofu.SoyTofuException;
+import com.google.template.soy.tofu.SoyTofuOptions;
 
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.Nullable;
 
@@ -77,6 +93,15 @@ public class BaseTofu implements SoyTofu {
      *     the msgBundle and the cssRenamingMap.
      */
     public BaseTofu create(SoyFileSetNode soyTree, boolean isCaching);
+
+    /**
+     * @param soyTree The Soy parse tree containing all the files in the Soy file set.
+     * @param isCaching Whether this instance caches intermediate Soy trees after substitutions from
+     *     the msgBundle and the cssRenamingMap.
+     * @param fragmentCacheMaxBytes The approximate memory budget for the cached output of templates
+     *     declared cache="true", or 0 to disable output caching.
+     */
+    public BaseTofu create(SoyFileSetNode soyTree, boolean isCaching, long fragmentCacheMaxBytes);
   }
 
 
@@ -99,16 +124,50 @@ public class BaseTofu implements SoyTofu {
    *  and the cssRenamingMap. */
   private final boolean isCaching;
 
-  /** Map of cached template registries. Only applicable when isCaching is true. */
-  private final
-  Map<Pair<SoyMsgBundle, SoyCssRenamingMap>, TemplateRegistry> cachedTemplateRegistries;
+  /** The ids of all templates whose content depends on the msgBundle or the cssRenamingMap. Only
+   *  these templates are cloned for each cached template registry. Only applicable when isCaching
+   *  is true. */
+  private final ImmutableSet<Integer> localeSensitiveTemplateIds;
+
+  /** Simplified copy of the Soy tree, whose templates are shared by all cached template registries
+   *  except where they depend on the msgBundle or the cssRenamingMap. Simplified outside of the
+   *  scope of any key, so that nothing that depends on the locale is folded into it. Built on first
+   *  use. Only applicable when isCaching is true. */
+  private SoyFileSetNode sharedSimplifiedSoyTree;
+
+  /** Map of cached template registries. Read without locking, but only modified while holding
+   *  cacheLock. Only applicable when isCaching is true. */
+  private final ConcurrentMap<Pair<SoyMsgBundle, SoyCssRenamingMap>, TemplateRegistry>
+      cachedTemplateRegistries;
+
+  /** Lock held while building template registries and modifying the cache. */
+  private final Object cacheLock = new Object();
+
+  /** The msg bundles that swapMsgBundle() replaced, which renders no longer add to the cache.
+   *  Guarded by cacheLock. Only applicable when isCaching is true. */
+  private final Set<SoyMsgBundle> retiredMsgBundles =
+      Collections.newSetFromMap(new WeakHashMap<SoyMsgBundle, Boolean>());
+
+  /** Map from locale string to the current msg bundle of the locale (see swapMsgBundle()). */
+  private final ConcurrentMap<String, SoyMsgBundle> localeToMsgBundleMap =
+      new ConcurrentHashMap<>();
 
   /** The template registry used for no-caching mode of rendering. Applicable when isCaching is
    *  false or when isCaching is true but doAddToCache is false. */
   private final TemplateRegistry templateRegistryForNoCaching;
 
-  /** Map from template node to injected params info for all templates. */
-  private final ImmutableMap<TemplateNode, IjParamsInfo> templateToIjParamsInfoMap;
+  /** Map from template node to the set of injected params used by the template and its transitive
+   *  callees, for all templates. Templates with equal sets share one instance. */
+  private final ImmutableMap<TemplateNode, ImmutableSortedSet<String>> templateToIjParamSetMap;
+
+  /** Cache for the output of templates declared cache="true", or null if there are no such
+   *  templates or output caching is disabled. */
+  @Nullable private final TemplateFragmentCache fragmentCache;
+
+  /** Map from msg bundle locale string to bidi global directionality, since deriving the latter
+   *  from the former is too slow to do on every render. */
+  private final ConcurrentMap<String, BidiGlobalDir> localeToBidiGlobalDirMap =
+      new ConcurrentHashMap<>();
 
 
   /**
@@ -125,6 +184,28 @@ public class BaseTofu implements SoyTofu {
       SoyValueHelper valueHelper, @ApiCall GuiceSimpleScope apiCallScope,
       TofuRenderVisitorFactory tofuRenderVisitorFactory, SimplifyVisitor simplifyVisitor,
       @Assisted SoyFileSetNode soyTree, @Assisted boolean isCaching) {
+    this(valueHelper, apiCallScope, tofuRenderVisitorFactory, simplifyVisitor, soyTree, isCaching,
+        SoyTofuOptions.DEFAULT_FRAGMENT_CACHE_MAX_BYTES);
+  }
+
+
+  /**
+   * @param valueHelper Instance of SoyValueHelper to use.
+   * @param apiCallScope The scope object that manages the API call scope.
+   * @param tofuRenderVisitorFactory Factory for creating an instance of TofuRenderVisitor.
+   * @param simplifyVisitor The instance of SimplifyVisitor to use.
+   * @param soyTree The Soy parse tree containing all the files in the Soy file set.
+   * @param isCaching Whether this instance caches intermediate Soy trees after substitutions from
+   *     the msgBundle and the cssRenamingMap.
+   * @param fragmentCacheMaxBytes The approximate memory budget for the cached output of templates
+   *     declared cache="true", or 0 to disable output caching.
+   */
+  @AssistedInject
+  public BaseTofu(
+      SoyValueHelper valueHelper, @ApiCall GuiceSimpleScope apiCallScope,
+      TofuRenderVisitorFactory tofuRenderVisitorFactory, SimplifyVisitor simplifyVisitor,
+      @Assisted SoyFileSetNode soyTree, @Assisted boolean isCaching,
+      @Assisted long fragmentCacheMaxBytes) {
 
     this.valueHelper = valueHelper;
     this.apiCallScope = apiCallScope;
@@ -134,16 +215,20 @@ public class BaseTofu implements SoyTofu {
     this.isCaching = isCaching;
 
     if (isCaching) {
-      cachedTemplateRegistries = Maps.newHashMap();
+      localeSensitiveTemplateIds = findLocaleSensitiveTemplateIds(soyTree);
+      cachedTemplateRegistries = new ConcurrentHashMap<>();
       addToCache(null, null);
     } else {
+      localeSensitiveTemplateIds = null;
       cachedTemplateRegistries = null;
     }
     SoyFileSetNode soyTreeForNoCaching = soyTree.clone();
     templateRegistryForNoCaching = buildTemplateRegistry(soyTreeForNoCaching);
-    templateToIjParamsInfoMap =
-        (new FindIjParamsVisitor(templateRegistryForNoCaching)).execOnAllTemplates(
+    templateToIjParamSetMap =
+        (new FindIjParamsVisitor(templateRegistryForNoCaching)).execOnAllTemplatesForIjParamSets(
             soyTreeForNoCaching);
+    fragmentCache = (fragmentCacheMaxBytes > 0 && hasCachedTemplates(soyTree)) ?
+        new TemplateFragmentCache(fragmentCacheMaxBytes) : null;
   }
 
 
@@ -173,13 +258,71 @@ public class BaseTofu implements SoyTofu {
       throw new SoyTofuException("Cannot addToCache() when isCaching is false.");
     }
 
-    apiCallScope.enter();
-    try {
-      ApiCallScopeUtils.seedSharedParams(
-          apiCallScope, msgBundle, 0 /*use msgBundle locale's direction, ltr if null*/);
-      getCachedTemplateRegistry(Pair.of(msgBundle, cssRenamingMap), true);
-    } finally {
-      apiCallScope.exit();
+    synchronized (cacheLock) {
+      retiredMsgBundles.remove(msgBundle);
+    }
+    getCachedTemplateRegistry(Pair.of(msgBundle, cssRenamingMap), true);
+  }
+
+
+  @Override public void swapMsgBundle(SoyMsgBundle msgBundle) {
+    String localeString = msgBundle.getLocaleString();
+    if (localeString == null) {
+      throw new SoyTofuException("Cannot swapMsgBundle() for a msg bundle without a locale.");
+    }
+    if (!isCaching) {
+      retireCachedFragments(localeToMsgBundleMap.put(localeString, msgBundle), msgBundle);
+      return;
+    }
+
+    synchronized (cacheLock) {
+      SoyMsgBundle oldMsgBundle = localeToMsgBundleMap.get(localeString);
+
+      // Prime the cache with the new bundle before making it current, so that renders of the
+      // locale keep hitting the cache.
+      Set<SoyCssRenamingMap> cssRenamingMaps = Sets.newLinkedHashSet();
+      if (oldMsgBundle != null) {
+        for (Pair<SoyMsgBundle, SoyCssRenamingMap> key : cachedTemplateRegistries.keySet()) {
+          if (key.first == oldMsgBundle) {
+            cssRenamingMaps.add(key.second);
+          }
+        }
+      }
+      if (cssRenamingMaps.isEmpty()) {
+        cssRenamingMaps.add(null);
+      }
+      retiredMsgBundles.remove(msgBundle);
+      for (SoyCssRenamingMap cssRenamingMap : cssRenamingMaps) {
+        getCachedTemplateRegistry(Pair.of(msgBundle, cssRenamingMap), true);
+      }
+
+      localeToMsgBundleMap.put(localeString, msgBundle);
+
+      // Renders that already got a registry for the old bundle finish with it. Renders that got
+      // the old bundle but not yet its registry fall back to the no-caching mode of rendering.
+      if (oldMsgBundle != null && oldMsgBundle != msgBundle) {
+        retiredMsgBundles.add(oldMsgBundle);
+        Iterator<Pair<SoyMsgBundle, SoyCssRenamingMap>> keyIterator =
+            cachedTemplateRegistries.keySet().iterator();
+        while (keyIterator.hasNext()) {
+          if (keyIterator.next().first == oldMsgBundle) {
+            keyIterator.remove();
+          }
+        }
+      }
+      retireCachedFragments(oldMsgBundle, msgBundle);
+    }
+  }
+
+
+  /**
+   * Removes the cached template outputs rendered with a msg bundle that swapMsgBundle() replaced.
+   * @param oldMsgBundle The replaced msg bundle, or null if there was none.
+   * @param msgBundle The new msg bundle.
+   */
+  private void retireCachedFragments(@Nullable SoyMsgBundle oldMsgBundle, SoyMsgBundle msgBundle) {
+    if (fragmentCache != null && oldMsgBundle != null && oldMsgBundle != msgBundle) {
+      fragmentCache.invalidateMsgBundle(oldMsgBundle);
     }
   }
 
@@ -205,12 +348,20 @@ public class BaseTofu implements SoyTofu {
     if (template == null) {
       throw new SoyTofuException("Template '" + templateName + "' not found.");
     }
-    IjParamsInfo ijParamsInfo = templateToIjParamsInfoMap.get(template);
     // TODO: Ideally we'd check that there are no external calls, but we find that in practice many
     // users have written templates that conditionally call to undefined templates. Instead,
     // we'll return a best effor set of what we have here, and over time, we'll encourage users to
     // enforce the "assertNoExternalCalls" flag.
-    return ijParamsInfo.ijParamSet;
+    return templateToIjParamSetMap.get(template);
+  }
+
+
+  /**
+   * Returns the hit and eviction statistics of the cache for the output of templates declared
+   * cache="true", or null if there is no such cache.
+   */
+  @Nullable public CacheStats getFragmentCacheStats() {
+    return (fragmentCache != null) ? fragmentCache.stats() : null;
   }
 
 
@@ -241,32 +392,151 @@ public class BaseTofu implements SoyTofu {
    *     corresponding template registry.
    * @param doAddToCache Whether to add this combination to the cache in the case that it's not
    *     found in the cache.
+   * <p> A msg bundle that swapMsgBundle() replaced is never added back to the cache here, since it
+   * would never be evicted again.
+   *
    * @return The corresponding template registry, or null if not found in cache and doAddToCache is
-   *     false.
+   *     false or the msg bundle was replaced.
    */
   private TemplateRegistry getCachedTemplateRegistry(
       Pair<SoyMsgBundle, SoyCssRenamingMap> key, boolean doAddToCache) {
 
-    // This precondition check is for SimplifyVisitor, which we use below after making substitutions
-    // from the SoyMsgBundle and SoyCssRenamingMap. While SimplifyVisitor will work correctly
-    // outside of an active apiCallScope, always running it within the apiCallScope allows it to
-    // potentially do more, such as apply bidi functions/directives that require bidiGlobalDir to be
-    // in scope.
-    Preconditions.checkState(apiCallScope.isActive());
-
     TemplateRegistry templateRegistry = cachedTemplateRegistries.get(key);
-    if (templateRegistry == null) {
-      if (!doAddToCache) {
-        return null;
+    if (templateRegistry != null || !doAddToCache) {
+      return templateRegistry;
+    }
+
+    synchronized (cacheLock) {
+      templateRegistry = cachedTemplateRegistries.get(key);
+      if (templateRegistry != null || retiredMsgBundles.contains(key.first)) {
+        return templateRegistry;
+      }
+      // We use SimplifyVisitor while building the registry, after making substitutions from the
+      // SoyMsgBundle and SoyCssRenamingMap. While SimplifyVisitor will work correctly outside of an
+      // active apiCallScope, always running it within the apiCallScope allows it to potentially do
+      // more, such as apply bidi functions/directives that require bidiGlobalDir to be in scope.
+      // This only applies to the templates cloned for the key (see buildCachedTemplateRegistry()).
+      // Rendering only needs the apiCallScope for some plugins (see renderMain()).
+      apiCallScope.enter();
+      try {
+        ApiCallScopeUtils.seedSharedParams(
+            apiCallScope, key.first, 0 /*use msgBundle locale's direction, ltr if null*/);
+        templateRegistry = buildCachedTemplateRegistry(key.first, key.second);
+      } finally {
+        apiCallScope.exit();
       }
-      SoyFileSetNode soyTreeClone = soyTree.clone();
-      (new InsertMsgsVisitor(key.first, true)).exec(soyTreeClone);
-      (new RenameCssVisitor(key.second)).exec(soyTreeClone);
-      simplifyVisitor.exec(soyTreeClone);
-      templateRegistry = buildTemplateRegistry(soyTreeClone);
       cachedTemplateRegistries.put(key, templateRegistry);
+      return templateRegistry;
     }
-    return templateRegistry;
+  }
+
+
+  /**
+   * Builds the template registry for the given msgBundle and cssRenamingMap.
+   *
+   * <p> Rather than cloning the whole Soy tree, this clones only the templates that contain msgs or
+   * css tags, makes the substitutions in them, and reuses the templates of the shared simplified
+   * tree for everything else. The shared tree is simplified in an occurrence of the apiCallScope of
+   * its own, in which nothing is seeded, so functions and directives that read the locale or the
+   * bidi global directionality from the scope fail to preevaluate there and are left for rendering.
+   * Thus the simplified form of a template without msgs or css tags is the same for every key.
+   *
+   * @param msgBundle The bundle of translated messages, or null to use the messages from the Soy
+   *     source.
+   * @param cssRenamingMap Map for renaming selectors in 'css' tags, or null if not used.
+   * @return The newly built template registry.
+   */
+  private TemplateRegistry buildCachedTemplateRegistry(
+      @Nullable SoyMsgBundle msgBundle, @Nullable SoyCssRenamingMap cssRenamingMap) {
+
+    if (sharedSimplifiedSoyTree == null) {
+      SoyFileSetNode simplifiedSoyTree = soyTree.clone();
+      apiCallScope.enter();
+      try {
+        simplifyVisitor.exec(simplifiedSoyTree);
+      } finally {
+        apiCallScope.exit();
+      }
+      sharedSimplifiedSoyTree = simplifiedSoyTree;
+    }
+
+    // Build a partial tree holding copies of only the locale-sensitive templates. Clones keep the
+    // node ids of the original, which lets us match them up with the shared templates below.
+    SoyFileSetNode localizedSoyTree =
+        new SoyFileSetNode(soyTree.getId(), soyTree.getNodeIdGenerator().clone());
+    for (SoyFileNode soyFile : soyTree.getChildren()) {
+      SoyFileNode soyFileClone = null;
+      for (TemplateNode template : soyFile.getChildren()) {
+        if (localeSensitiveTemplateIds.contains(template.getId())) {
+          soyFileClone = soyFile.clone();
+          break;
+        }
+      }
+      if (soyFileClone == null) {
+        continue;
+      }
+      for (TemplateNode template : Lists.newArrayList(soyFileClone.getChildren())) {
+        if (!localeSensitiveTemplateIds.contains(template.getId())) {
+          soyFileClone.removeChild(template);
+        }
+      }
+      localizedSoyTree.addChild(soyFileClone);
+    }
+
+    (new InsertMsgsVisitor(msgBundle, true)).exec(localizedSoyTree);
+    (new RenameCssVisitor(cssRenamingMap)).exec(localizedSoyTree);
+    simplifyVisitor.exec(localizedSoyTree);
+
+    Map<Integer, TemplateNode> localizedTemplates = Maps.newHashMap();
+    for (SoyFileNode soyFile : localizedSoyTree.getChildren()) {
+      for (TemplateNode template : soyFile.getChildren()) {
+        localizedTemplates.put(template.getId(), template);
+      }
+    }
+
+    List<TemplateNode> templates = Lists.newArrayList();
+    for (SoyFileNode soyFile : sharedSimplifiedSoyTree.getChildren()) {
+      for (TemplateNode template : soyFile.getChildren()) {
+        TemplateNode localizedTemplate = localizedTemplates.get(template.getId());
+        templates.add(localizedTemplate != null ? localizedTemplate : template);
+      }
+    }
+    return new TemplateRegistry(templates);
+  }
+
+
+  /**
+   * Returns whether any template in the given Soy tree is declared cache="true".
+   */
+  private static boolean hasCachedTemplates(SoyFileSetNode soyTree) {
+    for (SoyFileNode soyFile : soyTree.getChildren()) {
+      for (TemplateNode template : soyFile.getChildren()) {
+        if (template instanceof TemplateBasicNode && ((TemplateBasicNode) template).isCached()) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+
+  /**
+   * Finds the templates whose content depends on the msgBundle or the cssRenamingMap, i.e. those
+   * containing msgs or css tags.
+   * @param soyTree The Soy tree to search.
+   * @return The ids of the locale-sensitive templates.
+   */
+  private static ImmutableSet<Integer> findLocaleSensitiveTemplateIds(SoyFileSetNode soyTree) {
+    ImmutableSet.Builder<Integer> ids = ImmutableSet.builder();
+    for (SoyFileNode soyFile : soyTree.getChildren()) {
+      for (TemplateNode template : soyFile.getChildren()) {
+        if (!SoytreeUtils.getAllNodesOfType(template, MsgFallbackGroupNode.class, false).isEmpty()
+            || !SoytreeUtils.getAllNodesOfType(template, CssNode.class, false).isEmpty()) {
+          ids.add(template.getId());
+        }
+      }
+    }
+    return ids.build();
   }
 
 
@@ -296,12 +566,20 @@ public class BaseTofu implements SoyTofu {
       activeDelPackageNames = Collections.emptySet();
     }
 
-    apiCallScope.enter();
+    SoyRenderContext renderContext = createRenderContext(msgBundle);
 
+    // Plugins that don't implement the render context interfaces may still inject the msg bundle,
+    // the locale or the bidi global directionality from the apiCallScope, so if any are installed,
+    // the scope is entered and seeded for them as well.
+    boolean isEnteringApiCallScope = tofuRenderVisitorFactory.isApiCallScopeNeeded();
+    if (isEnteringApiCallScope) {
+      apiCallScope.enter();
+    }
     try {
-      // Seed the scoped parameters.
-      ApiCallScopeUtils.seedSharedParams(
-          apiCallScope, msgBundle, 0 /*use msgBundle locale's direction, ltr if null*/);
+      if (isEnteringApiCallScope) {
+        ApiCallScopeUtils.seedSharedParams(
+            apiCallScope, msgBundle, renderContext.getBidiGlobalDir());
+      }
 
       // Do the rendering.
       TemplateRegistry cachedTemplateRegistry = isCaching ?
@@ -309,22 +587,50 @@ public class BaseTofu implements SoyTofu {
       // Note: cachedTemplateRegistry may be null even when isCaching is true (specifically, if
       // doAddToCache is false).
       if (cachedTemplateRegistry != null) {
-        // Note: Still need to pass msgBundle because we currently don't cache plural/select msgs.
+        // Note: The cached templates no longer depend on msgBundle, since all msgs were resolved
+        // when building the registry (plural/select msgs into TranslatedPlrselMsgNodes).
         return renderMainHelper(
             cachedTemplateRegistry, outputBuf, templateName, data, ijData, activeDelPackageNames,
-            msgBundle, null, null);
+            null, renderContext, null, null);
       } else {
         return renderMainHelper(
             templateRegistryForNoCaching, outputBuf, templateName, data, ijData,
-            activeDelPackageNames, msgBundle, idRenamingMap, cssRenamingMap);
+            activeDelPackageNames, msgBundle, renderContext, idRenamingMap, cssRenamingMap);
       }
 
     } finally {
-      apiCallScope.exit();
+      if (isEnteringApiCallScope) {
+        apiCallScope.exit();
+      }
     }
   }
 
 
+  /**
+   * Creates the context for rendering with the given msgBundle. The render context replaces the
+   * apiCallScope during rendering, so that each render doesn't have to enter a new scope
+   * occurrence and seed it, unless some installed plugin still reads the scope.
+   *
+   * @param msgBundle The bundle of translated messages, or null to use the messages from the Soy
+   *     source.
+   * @return The render context, whose bidi global directionality is that of the msgBundle locale,
+   *     or ltr if there's no msgBundle.
+   */
+  private SoyRenderContext createRenderContext(@Nullable SoyMsgBundle msgBundle) {
+
+    String localeString = (msgBundle != null) ? msgBundle.getLocaleString() : null;
+    if (localeString == null) {
+      return new SoyRenderContext(msgBundle, BidiGlobalDir.forStaticIsRtl(false));
+    }
+    BidiGlobalDir bidiGlobalDir = localeToBidiGlobalDirMap.get(localeString);
+    if (bidiGlobalDir == null) {
+      bidiGlobalDir = BidiGlobalDir.forStaticLocale(localeString);
+      localeToBidiGlobalDirMap.putIfAbsent(localeString, bidiGlobalDir);
+    }
+    return new SoyRenderContext(msgBundle, bidiGlobalDir);
+  }
+
+
   /**
    * Renders a template and appends the result to a StringBuilder.
    *
@@ -336,14 +642,15 @@ public class BaseTofu implements SoyTofu {
    * @param activeDelPackageNames The set of active delegate package names.
    * @param msgBundle The bundle of translated messages, or null to use the messages from the Soy
    *     source.
+   * @param renderContext The context of this render.
    * @param cssRenamingMap Map for renaming selectors in 'css' tags, or null if not used.
    * @return The template that was rendered.
    */
   private TemplateNode renderMainHelper(
       TemplateRegistry templateRegistry, Appendable outputBuf, String templateName,
       @Nullable SoyRecord data, @Nullable SoyRecord ijData, Set<String> activeDelPackageNames,
-      @Nullable SoyMsgBundle msgBundle, @Nullable SoyIdRenamingMap idRenamingMap,
-      @Nullable SoyCssRenamingMap cssRenamingMap) {
+      @Nullable SoyMsgBundle msgBundle, SoyRenderContext renderContext,
+      @Nullable SoyIdRenamingMap idRenamingMap, @Nullable SoyCssRenamingMap cssRenamingMap) {
 
     TemplateNode template = templateRegistry.getBasicTemplate(templateName);
     if (template == null) {
@@ -359,7 +666,7 @@ public class BaseTofu implements SoyTofu {
     try {
       RenderVisitor rv = tofuRenderVisitorFactory.create(
           outputBuf, templateRegistry, data, ijData, activeDelPackageNames, msgBundle,
-          idRenamingMap, cssRenamingMap);
+          renderContext, idRenamingMap, cssRenamingMap, fragmentCache);
       rv.exec(template);
 
     } catch (RenderException re) {
@@ -384,6 +691,7 @@ public class BaseTofu implements SoyTofu {
     private SoyRecord data;
     private SoyRecord ijData;
     private SoyMsgBundle msgBundle;
+    private String localeString;
     private SoyIdRenamingMap idRenamingMap;
     private SoyCssRenamingMap cssRenamingMap;
     private Set<String> activeDelPackageNames;
@@ -402,6 +710,7 @@ public class BaseTofu implements SoyTofu {
       this.ijData = null;
       this.activeDelPackageNames = null;
       this.msgBundle = null;
+      this.localeString = null;
       this.cssRenamingMap = null;
       this.idRenamingMap = null;
       this.doAddToCache = true;
@@ -442,6 +751,11 @@ public class BaseTofu implements SoyTofu {
       return this;
     }
 
+    @Override public Renderer setLocale(String localeString) {
+      this.localeString = localeString;
+      return this;
+    }
+
     @Override public Renderer setIdRenamingMap(SoyIdRenamingMap idRenamingMap) {
       this.idRenamingMap = idRenamingMap;
       return this;
@@ -471,7 +785,7 @@ public class BaseTofu implements SoyTofu {
 
     @Override public SanitizedContent.ContentKind render(Appendable out) {
       TemplateNode template = baseTofu.renderMain(
-          out, templateName, data, ijData, activeDelPackageNames, msgBundle, idRenamingMap,
+          out, templateName, data, ijData, activeDelPackageNames, getMsgBundle(), idRenamingMap,
           cssRenamingMap, doAddToCache);
       if (contentKindExplicitlySet || template.getContentKind() != null) {
         // Enforce the content kind if:
@@ -486,7 +800,7 @@ public class BaseTofu implements SoyTofu {
     @Override public SanitizedContent renderStrict() {
       StringBuilder sb = new StringBuilder();
       TemplateNode template = baseTofu.renderMain(
-          sb, templateName, data, ijData, activeDelPackageNames, msgBundle, idRenamingMap,
+          sb, templateName, data, ijData, activeDelPackageNames, getMsgBundle(), idRenamingMap,
           cssRenamingMap, doAddToCache);
       enforceContentKind(template);
       // Use the expected instead of actual content kind; that way, if an HTML template is rendered
@@ -494,6 +808,23 @@ public class BaseTofu implements SoyTofu {
       return UnsafeSanitizedContentOrdainer.ordainAsSafe(sb.toString(), expectedContentKind);
     }
 
+    /**
+     * Gets the msg bundle to render with: the current bundle of the locale if a locale was set.
+     * @throws SoyTofuException If the locale has no current bundle.
+     */
+    private SoyMsgBundle getMsgBundle() {
+      if (localeString == null) {
+        return msgBundle;
+      }
+      SoyMsgBundle localeMsgBundle = baseTofu.localeToMsgBundleMap.get(localeString);
+      if (localeMsgBundle == null) {
+        throw new SoyTofuException(
+            "Attempting to render with locale '" + localeString + "', which has no msg bundle" +
+            " (see swapMsgBundle()).");
+      }
+      return localeMsgBundle;
+    }
+
     private void enforceContentKind(TemplateNode template) {
       if (expectedContentKind == SanitizedContent.ContentKind.TEXT) {
         // Allow any template to be called as text. This is consistent with the fact that
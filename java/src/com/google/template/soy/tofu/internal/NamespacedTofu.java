@@ -98,6 +98,11 @@ class NamespacedTofu implements SoyTofu {
   }
 
 
+  @Override public void swapMsgBundle(SoyMsgBundle msgBundle) {
+    baseTofu.swapMsgBundle(msgBundle);
+  }
+
+
   @Override public Renderer newRenderer(SoyTemplateInfo templateInfo) {
     return baseTofu.newRenderer(templateInfo);
   }
@@ -0,0 +1,334 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.tofu.internal;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
+import com.google.common.primitives.Ints;
+import com.google.template.soy.data.Dir;
+import com.google.template.soy.data.SanitizedContent;
+import com.google.template.soy.data.SoyList;
+import com.google.template.soy.data.SoyMap;
+import com.google.template.soy.data.SoyRecord;
+import com.google.template.soy.data.SoyValue;
+import com.google.template.soy.data.internal.ParamStore;
+import com.google.template.soy.data.restricted.BooleanData;
+import com.google.template.soy.data.restricted.FloatData;
+import com.google.template.soy.data.restricted.IntegerData;
+import com.google.template.soy.data.restricted.NullData;
+import com.google.template.soy.data.restricted.StringData;
+import com.google.template.soy.data.restricted.UndefinedData;
+import com.google.template.soy.msgs.SoyMsgBundle;
+import com.google.template.soy.shared.SoyCssRenamingMap;
+import com.google.template.soy.shared.SoyIdRenamingMap;
+import com.google.template.soy.soytree.TemplateBasicNode;
+import com.google.template.soy.soytree.TemplateRegistry;
+import com.google.template.soy.soytree.defn.TemplateParam;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+/**
+ * Cache of the rendered output of templates declared with {@code cache="true"}.
+ *
+ * <p> An entry is keyed by the template, a fingerprint of the values of its declared params, and
+ * everything else that can affect its output: the template registry, the msg bundle (which also
+ * determines the bidi global directionality), the renaming maps, and the active delegate packages.
+ * Keys refer to the registry, the msg bundle and the renaming maps by generation ids rather than
+ * holding them, so that cached outputs don't keep a replaced msg bundle or registry in memory;
+ * entries of an object that is garbage collected are never hit again, and are evicted in time.
+ * Entries are evicted in approximately least-recently-used order once the total size of the cached
+ * outputs exceeds the byte budget.
+ *
+ * <p> Important: Do not use outside of Soy code (treat as superpackage-private).
+ *
+ */
+final class TemplateFragmentCache {
+
+
+  /** Rough per-entry overhead of the cache and key objects, in bytes. */
+  private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+
+  /** The underlying cache from key to rendered output. */
+  private final Cache<Key, String> cache;
+
+  /** The generation id of each object that keys depend on by identity. Weak, by identity. */
+  private final ConcurrentMap<Object, Long> generationIds = new MapMaker().weakKeys().makeMap();
+
+  /** The last generation id given out. 0 is the id of null. */
+  private final AtomicLong lastGenerationId = new AtomicLong();
+
+
+  /**
+   * @param maxBytes The approximate memory budget for the cached outputs.
+   */
+  TemplateFragmentCache(long maxBytes) {
+    Preconditions.checkArgument(maxBytes > 0);
+    this.cache = CacheBuilder.newBuilder()
+        .maximumWeight(maxBytes)
+        .weigher(new Weigher<Key, String>() {
+          @Override public int weigh(Key key, String output) {
+            // Strings take two bytes per char.
+            return Ints.saturatedCast(
+                ENTRY_OVERHEAD_BYTES + 2L * (key.paramsFingerprint.length() + output.length()));
+          }
+        })
+        .recordStats()
+        .build();
+  }
+
+
+  /**
+   * Returns the cached output for the given key, or null if not cached.
+   */
+  @Nullable String get(Key key) {
+    return cache.getIfPresent(key);
+  }
+
+
+  /**
+   * Caches the rendered output for the given key.
+   */
+  void put(Key key, String output) {
+    cache.put(key, output);
+  }
+
+
+  /**
+   * Returns the key of a template output.
+   * @param templateRegistry The template registry the template is rendered with.
+   * @param templateName The name of the template.
+   * @param paramsFingerprint The fingerprint of the values of the template's declared params (see
+   *     {@link #fingerprintDeclaredParams}).
+   * @param msgBundle The msg bundle the template is rendered with, if any.
+   * @param xidRenamingMap The xid renaming map the template is rendered with, if any.
+   * @param cssRenamingMap The css renaming map the template is rendered with, if any.
+   * @param activeDelPackageNames The active delegate packages, if any.
+   */
+  Key newKey(
+      TemplateRegistry templateRegistry, String templateName, String paramsFingerprint,
+      @Nullable SoyMsgBundle msgBundle, @Nullable SoyIdRenamingMap xidRenamingMap,
+      @Nullable SoyCssRenamingMap cssRenamingMap, @Nullable Set<String> activeDelPackageNames) {
+    return new Key(
+        getGenerationId(templateRegistry), templateName, paramsFingerprint,
+        getGenerationId(msgBundle), getGenerationId(xidRenamingMap),
+        getGenerationId(cssRenamingMap), activeDelPackageNames);
+  }
+
+
+  /**
+   * Removes the outputs rendered with the given msg bundle, such as one that swapMsgBundle()
+   * replaced. Renders still using the bundle afterwards cache their outputs anew.
+   */
+  void invalidateMsgBundle(SoyMsgBundle msgBundle) {
+    Long msgBundleId = generationIds.remove(msgBundle);
+    if (msgBundleId == null) {
+      return;
+    }
+    Iterator<Key> keyIterator = cache.asMap().keySet().iterator();
+    while (keyIterator.hasNext()) {
+      if (keyIterator.next().msgBundleId == msgBundleId) {
+        keyIterator.remove();
+      }
+    }
+  }
+
+
+  /**
+   * Returns the hit and eviction statistics of this cache.
+   */
+  CacheStats stats() {
+    return cache.stats();
+  }
+
+
+  /**
+   * Copies the values of a template's declared params into a new ParamStore and computes a
+   * fingerprint of them. The template should be rendered with the returned ParamStore rather than
+   * the original call data, so that its output depends on nothing but the fingerprinted values.
+   *
+   * @param template The template being called.
+   * @param callData The data the template is being called with.
+   * @param declaredParamsData The ParamStore to copy the declared params' values into.
+   * @return The fingerprint, or null if some param value is of a type that can't be fingerprinted
+   *     (such as a record that isn't a map), in which case the call should not be cached.
+   */
+  @Nullable static String fingerprintDeclaredParams(
+      TemplateBasicNode template, SoyRecord callData, ParamStore declaredParamsData) {
+
+    StringBuilder fingerprint = new StringBuilder();
+    for (TemplateParam param : template.getParams()) {
+      String name = param.name();
+      if (!callData.hasField(name)) {
+        fingerprint.append("-;");
+        continue;
+      }
+      SoyValue value = callData.getField(name);
+      if (!appendFingerprint(fingerprint, value)) {
+        return null;
+      }
+      declaredParamsData.setField(name, value);
+    }
+    return fingerprint.toString();
+  }
+
+
+  /**
+   * Appends an unambiguous encoding of the given value to the fingerprint.
+   * @return Whether the value could be fingerprinted.
+   */
+  private static boolean appendFingerprint(StringBuilder fingerprint, @Nullable SoyValue value) {
+
+    if (value == null || value instanceof UndefinedData) {
+      fingerprint.append("u;");
+    } else if (value instanceof NullData) {
+      fingerprint.append("n;");
+    } else if (value instanceof BooleanData) {
+      fingerprint.append(value.booleanValue() ? "t;" : "f;");
+    } else if (value instanceof IntegerData) {
+      fingerprint.append('i').append(value.longValue()).append(';');
+    } else if (value instanceof FloatData) {
+      fingerprint.append('d').append(value.floatValue()).append(';');
+    } else if (value instanceof StringData) {
+      appendString(fingerprint.append('s'), value.stringValue());
+    } else if (value instanceof SanitizedContent) {
+      SanitizedContent content = (SanitizedContent) value;
+      Dir dir = content.getContentDirection();
+      fingerprint.append('c').append(content.getContentKind().ordinal())
+          .append(dir == null ? "" : dir.name()).append(',');
+      appendString(fingerprint, content.getContent());
+    } else if (value instanceof SoyList) {
+      SoyList list = (SoyList) value;
+      int length = list.length();
+      fingerprint.append('l').append(length).append('[');
+      for (int i = 0; i < length; i++) {
+        if (!appendFingerprint(fingerprint, list.get(i))) {
+          return false;
+        }
+      }
+      fingerprint.append(']');
+    } else if (value instanceof SoyMap) {
+      // Iteration order of a SoyMap is undefined, so sort the entries by their encoding.
+      SoyMap map = (SoyMap) value;
+      List<String> entries = Lists.newArrayListWithCapacity(map.getItemCnt());
+      for (SoyValue itemKey : map.getItemKeys()) {
+        StringBuilder entry = new StringBuilder();
+        if (!appendFingerprint(entry, itemKey)
+            || !appendFingerprint(entry, map.getItem(itemKey))) {
+          return false;
+        }
+        entries.add(entry.toString());
+      }
+      Collections.sort(entries);
+      fingerprint.append('m').append(entries.size()).append('[');
+      for (String entry : entries) {
+        fingerprint.append(entry);
+      }
+      fingerprint.append(']');
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+
+  private static void appendString(StringBuilder fingerprint, String str) {
+    fingerprint.append(str.length()).append(':').append(str);
+  }
+
+
+  /**
+   * Returns the generation id of the given object, which no other object in this cache's lifetime
+   * has, or 0 for null.
+   */
+  private long getGenerationId(@Nullable Object obj) {
+    if (obj == null) {
+      return 0;
+    }
+    Long id = generationIds.get(obj);
+    if (id == null) {
+      Long newId = lastGenerationId.incrementAndGet();
+      id = generationIds.putIfAbsent(obj, newId);
+      if (id == null) {
+        id = newId;
+      }
+    }
+    return id;
+  }
+
+
+  /**
+   * Key of a cached template output.
+   */
+  static final class Key {
+
+    private final long templateRegistryId;
+    private final String templateName;
+    private final String paramsFingerprint;
+    private final long msgBundleId;
+    private final long xidRenamingMapId;
+    private final long cssRenamingMapId;
+    @Nullable private final Set<String> activeDelPackageNames;
+    private final int hashCode;
+
+    private Key(
+        long templateRegistryId, String templateName, String paramsFingerprint, long msgBundleId,
+        long xidRenamingMapId, long cssRenamingMapId, @Nullable Set<String> activeDelPackageNames) {
+      this.templateRegistryId = templateRegistryId;
+      this.templateName = templateName;
+      this.paramsFingerprint = paramsFingerprint;
+      this.msgBundleId = msgBundleId;
+      this.xidRenamingMapId = xidRenamingMapId;
+      this.cssRenamingMapId = cssRenamingMapId;
+      this.activeDelPackageNames = activeDelPackageNames;
+      this.hashCode = Objects.hashCode(
+          templateRegistryId, templateName, paramsFingerprint, msgBundleId, xidRenamingMapId,
+          cssRenamingMapId, activeDelPackageNames);
+    }
+
+    @Override public boolean equals(Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key otherKey = (Key) other;
+      return templateRegistryId == otherKey.templateRegistryId
+          && msgBundleId == otherKey.msgBundleId
+          && xidRenamingMapId == otherKey.xidRenamingMapId
+          && cssRenamingMapId == otherKey.cssRenamingMapId
+          && templateName.equals(otherKey.templateName)
+          && paramsFingerprint.equals(otherKey.paramsFingerprint)
+          && Objects.equal(activeDelPackageNames, otherKey.activeDelPackageNames);
+    }
+
+    @Override public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -19,6 +19,7 @@ package com.google.template.soy.tofu.internal;
 import com.google.template.soy.data.SoyRecord;
 import com.google.template.soy.data.SoyValueHelper;
 import com.google.template.soy.shared.restricted.SoyJavaFunction;
+import com.google.template.soy.shared.restricted.SoyRenderContext;
 import com.google.template.soy.sharedpasses.render.Environment;
 import com.google.template.soy.sharedpasses.render.EvalVisitor;
 
@@ -43,12 +44,13 @@ class TofuEvalVisitor extends EvalVisitor {
    * @param soyJavaFunctionsMap Map of all SoyJavaFunctions (name to function).
    * @param ijData The current injected data.
    * @param env The current environment.
+   * @param renderContext The context of the current render, or null if not rendering.
    */
   protected TofuEvalVisitor(
       SoyValueHelper valueHelper, @Nullable Map<String, SoyJavaFunction> soyJavaFunctionsMap,
-      @Nullable SoyRecord ijData, Environment env) {
+      @Nullable SoyRecord ijData, Environment env, @Nullable SoyRenderContext renderContext) {
 
-    super(valueHelper, soyJavaFunctionsMap, ijData, env);
+    super(valueHelper, soyJavaFunctionsMap, ijData, env, renderContext);
   }
 
 }
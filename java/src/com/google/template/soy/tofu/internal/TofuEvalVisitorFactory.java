@@ -19,6 +19,7 @@ package com.google.template.soy.tofu.internal;
 import com.google.template.soy.data.SoyRecord;
 import com.google.template.soy.data.SoyValueHelper;
 import com.google.template.soy.shared.restricted.SoyJavaFunction;
+import com.google.template.soy.shared.restricted.SoyRenderContext;
 import com.google.template.soy.sharedpasses.render.Environment;
 import com.google.template.soy.sharedpasses.render.EvalVisitor;
 import com.google.template.soy.sharedpasses.render.EvalVisitor.EvalVisitorFactory;
@@ -54,9 +55,9 @@ class TofuEvalVisitorFactory implements EvalVisitorFactory {
 
 
   @Override public EvalVisitor create(
-      @Nullable SoyRecord ijData, Environment env) {
+      @Nullable SoyRecord ijData, Environment env, @Nullable SoyRenderContext renderContext) {
 
-    return new TofuEvalVisitor(valueHelper, soyJavaFunctionsMap, ijData, env);
+    return new TofuEvalVisitor(valueHelper, soyJavaFunctionsMap, ijData, env, renderContext);
   }
 
 }
@@ -17,11 +17,16 @@
 package com.google.template.soy.tofu.internal;
 
 import com.google.template.soy.data.SoyRecord;
+import com.google.template.soy.data.internal.BasicParamStore;
+import com.google.template.soy.data.internal.ParamStore;
 import com.google.template.soy.msgs.SoyMsgBundle;
 import com.google.template.soy.shared.SoyCssRenamingMap;
 import com.google.template.soy.shared.SoyIdRenamingMap;
 import com.google.template.soy.shared.restricted.SoyJavaPrintDirective;
+import com.google.template.soy.shared.restricted.SoyRenderContext;
 import com.google.template.soy.sharedpasses.render.RenderVisitor;
+import com.google.template.soy.soytree.CallNode;
+import com.google.template.soy.soytree.TemplateBasicNode;
 import com.google.template.soy.soytree.TemplateRegistry;
 
 import java.util.Map;
@@ -41,6 +46,11 @@ import javax.annotation.Nullable;
 class TofuRenderVisitor extends RenderVisitor {
 
 
+  /** Cache for the output of templates declared cache="true", or null if output caching is
+   *  disabled. */
+  @Nullable private final TemplateFragmentCache fragmentCache;
+
+
   /**
    * @param soyJavaDirectivesMap Map of all SoyJavaPrintDirectives (name to directive).
    * @param tofuEvalVisitorFactory Factory for creating an instance of TofuEvalVisitor.
@@ -53,20 +63,25 @@ class TofuRenderVisitor extends RenderVisitor {
    *     known to be irrelevant.
    * @param msgBundle The bundle of translated messages, or null to use the messages from the
    *     Soy source.
+   * @param renderContext The context of the current render.
    * @param xidRenamingMap The 'xid' renaming map, or null if not applicable.
    * @param cssRenamingMap The CSS renaming map, or null if not applicable.
+   * @param fragmentCache Cache for the output of templates declared cache="true", or null if
+   *     output caching is disabled.
    */
   protected TofuRenderVisitor(
       Map<String, SoyJavaPrintDirective> soyJavaDirectivesMap,
       TofuEvalVisitorFactory tofuEvalVisitorFactory, Appendable outputBuf,
       @Nullable TemplateRegistry templateRegistry, SoyRecord data, @Nullable SoyRecord ijData,
       @Nullable Set<String> activeDelPackageNames,
-      @Nullable SoyMsgBundle msgBundle, @Nullable SoyIdRenamingMap xidRenamingMap,
-      @Nullable SoyCssRenamingMap cssRenamingMap) {
+      @Nullable SoyMsgBundle msgBundle, @Nullable SoyRenderContext renderContext,
+      @Nullable SoyIdRenamingMap xidRenamingMap, @Nullable SoyCssRenamingMap cssRenamingMap,
+      @Nullable TemplateFragmentCache fragmentCache) {
 
     super(
         soyJavaDirectivesMap, tofuEvalVisitorFactory, outputBuf, templateRegistry, data, ijData,
-        activeDelPackageNames, msgBundle, xidRenamingMap, cssRenamingMap);
+        activeDelPackageNames, msgBundle, renderContext, xidRenamingMap, cssRenamingMap);
+    this.fragmentCache = fragmentCache;
   }
 
 
@@ -74,8 +89,34 @@ class TofuRenderVisitor extends RenderVisitor {
 
     return new TofuRenderVisitor(
         soyJavaDirectivesMap, (TofuEvalVisitorFactory) evalVisitorFactory, outputBuf,
-        templateRegistry, data, ijData, activeDelPackageNames, msgBundle,
-        xidRenamingMap, cssRenamingMap);
+        templateRegistry, data, ijData, activeDelPackageNames, msgBundle, renderContext,
+        xidRenamingMap, cssRenamingMap, fragmentCache);
+  }
+
+
+  @Override @Nullable protected String renderCachedTemplate(
+      TemplateBasicNode callee, SoyRecord callData, CallNode node) {
+
+    if (fragmentCache == null) {
+      return null;
+    }
+
+    ParamStore declaredParamsData = new BasicParamStore();
+    String paramsFingerprint =
+        TemplateFragmentCache.fingerprintDeclaredParams(callee, callData, declaredParamsData);
+    if (paramsFingerprint == null) {
+      return null;  // some param value can't be fingerprinted, so render normally
+    }
+
+    TemplateFragmentCache.Key key = fragmentCache.newKey(
+        templateRegistry, callee.getTemplateName(), paramsFingerprint, msgBundle, xidRenamingMap,
+        cssRenamingMap, activeDelPackageNames);
+    String output = fragmentCache.get(key);
+    if (output == null) {
+      output = renderTemplateToString(callee, declaredParamsData, node);
+      fragmentCache.put(key, output);
+    }
+    return output;
   }
 
 }
@@ -20,7 +20,12 @@ import com.google.template.soy.data.SoyRecord;
 import com.google.template.soy.msgs.SoyMsgBundle;
 import com.google.template.soy.shared.SoyCssRenamingMap;
 import com.google.template.soy.shared.SoyIdRenamingMap;
+import com.google.template.soy.shared.restricted.SoyApiCallScopeFree;
+import com.google.template.soy.shared.restricted.SoyJavaFunction;
 import com.google.template.soy.shared.restricted.SoyJavaPrintDirective;
+import com.google.template.soy.shared.restricted.SoyJavaRenderContextFunction;
+import com.google.template.soy.shared.restricted.SoyJavaRenderContextPrintDirective;
+import com.google.template.soy.shared.restricted.SoyRenderContext;
 import com.google.template.soy.soytree.TemplateRegistry;
 import com.google.template.soy.tofu.internal.TofuModule.Tofu;
 
@@ -45,13 +50,48 @@ class TofuRenderVisitorFactory {
   /** Factory for creating an instance of TofuEvalVisitor. */
   private final TofuEvalVisitorFactory tofuEvalVisitorFactory;
 
+  /** Whether some installed function or directive may read its values from the apiCallScope when
+   *  rendering, rather than from the render context. */
+  private final boolean isApiCallScopeNeeded;
+
 
   @Inject
   public TofuRenderVisitorFactory(
       @Tofu Map<String, SoyJavaPrintDirective> soyJavaDirectivesMap,
+      @Tofu Map<String, SoyJavaFunction> soyJavaFunctionsMap,
       TofuEvalVisitorFactory tofuEvalVisitorFactory) {
     this.soyJavaDirectivesMap = soyJavaDirectivesMap;
     this.tofuEvalVisitorFactory = tofuEvalVisitorFactory;
+
+    boolean isApiCallScopeNeeded = false;
+    for (SoyJavaFunction function : soyJavaFunctionsMap.values()) {
+      isApiCallScopeNeeded |= mayReadApiCallScope(function, SoyJavaRenderContextFunction.class);
+    }
+    for (SoyJavaPrintDirective directive : soyJavaDirectivesMap.values()) {
+      isApiCallScopeNeeded |=
+          mayReadApiCallScope(directive, SoyJavaRenderContextPrintDirective.class);
+    }
+    this.isApiCallScopeNeeded = isApiCallScopeNeeded;
+  }
+
+
+  /**
+   * Returns whether some installed function or directive may read the msg bundle, the locale or
+   * the bidi global directionality from the apiCallScope when rendering, in which case the scope
+   * must be entered and seeded around each render.
+   *
+   * <p> A plugin may inject them from the apiCallScope unless it implements the render context
+   * interfaces or is annotated {@link SoyApiCallScopeFree}, as are the functions and directives
+   * that come with Soy and don't use these values.
+   */
+  public boolean isApiCallScopeNeeded() {
+    return isApiCallScopeNeeded;
+  }
+
+
+  private static boolean mayReadApiCallScope(Object plugin, Class<?> renderContextInterface) {
+    return !renderContextInterface.isInstance(plugin)
+        && !plugin.getClass().isAnnotationPresent(SoyApiCallScopeFree.class);
   }
 
 
@@ -66,19 +106,25 @@ class TofuRenderVisitorFactory {
    *     when known to be irrelevant, i.e. when not using delegates feature.
    * @param msgBundle The bundle of translated messages, or null to use the messages from the
    *     Soy source.
+   * @param renderContext The context of the current render.
    * @param xidRenamingMap The 'xid' renaming map, or null if not applicable.
    * @param cssRenamingMap The CSS renaming map, or null if not applicable.
+   * @param fragmentCache Cache for the output of templates declared cache="true", or null if
+   *     output caching is disabled.
    * @return The newly created TofuRenderVisitor instance.
    */
   public TofuRenderVisitor create(
       Appendable outputBuf, TemplateRegistry templateRegistry, SoyRecord data,
       @Nullable SoyRecord ijData,
       @Nullable Set<String> activeDelPackageNames, @Nullable SoyMsgBundle msgBundle,
-      @Nullable SoyIdRenamingMap xidRenamingMap, @Nullable SoyCssRenamingMap cssRenamingMap) {
+      SoyRenderContext renderContext,
+      @Nullable SoyIdRenamingMap xidRenamingMap, @Nullable SoyCssRenamingMap cssRenamingMap,
+      @Nullable TemplateFragmentCache fragmentCache) {
 
     return new TofuRenderVisitor(
         soyJavaDirectivesMap, tofuEvalVisitorFactory, outputBuf, templateRegistry, data, ijData,
-        activeDelPackageNames, msgBundle, xidRenamingMap, cssRenamingMap);
+        activeDelPackageNames, msgBundle, renderContext, xidRenamingMap, cssRenamingMap,
+        fragmentCache);
   }
 
 }
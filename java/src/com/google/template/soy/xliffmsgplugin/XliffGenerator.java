@@ -17,7 +17,6 @@
 package com.google.template.soy.xliffmsgplugin;
 
 import com.google.common.collect.ImmutableMap;
-import com.google.template.soy.base.internal.IndentedLinesBuilder;
 import com.google.template.soy.internal.base.CharEscaper;
 import com.google.template.soy.internal.base.CharEscapers;
 import com.google.template.soy.msgs.SoyMsgBundle;
@@ -26,13 +25,14 @@ import com.google.template.soy.msgs.restricted.SoyMsgPart;
 import com.google.template.soy.msgs.restricted.SoyMsgPlaceholderPart;
 import com.google.template.soy.msgs.restricted.SoyMsgRawTextPart;
 
+import java.io.IOException;
 import java.util.Map;
 
 import javax.annotation.Nullable;
 
 
 /**
- * Static function for generating the output XLIFF file content from a SoyMsgBundle of extracted
+ * Static functions for generating the output XLIFF file content from a SoyMsgBundle of extracted
  * messages.
  *
  * <p> XLIFF specification: http://docs.oasis-open.org/xliff/xliff-core/xliff-core.html
@@ -54,6 +54,12 @@ class XliffGenerator {
           .put("text/xml", "xml")
           .build();
 
+  /** Indentation of the 'trans-unit' tags, which are nested in 'xliff', 'file' and 'body'. */
+  private static final String TRANS_UNIT_INDENT = "      ";
+
+  /** Indentation of the content of the 'trans-unit' tags. */
+  private static final String TRANS_UNIT_CONTENT_INDENT = TRANS_UNIT_INDENT + "  ";
+
 
   /**
    * Generates the output XLIFF file content for a given SoyMsgBundle.
@@ -69,84 +75,103 @@ class XliffGenerator {
   static CharSequence generateXliff(
       SoyMsgBundle msgBundle, String sourceLocaleString, @Nullable String targetLocaleString) {
 
+    StringBuilder sb = new StringBuilder();
+    try {
+      generateXliff(msgBundle, sourceLocaleString, targetLocaleString, sb);
+    } catch (IOException e) {
+      throw new AssertionError("StringBuilder doesn't throw IOException.");
+    }
+    return sb;
+  }
+
+
+  /**
+   * Generates the output XLIFF file content for a given SoyMsgBundle, writing it out one message
+   * at a time rather than building the whole content in memory.
+   *
+   * @param msgBundle The SoyMsgBundle to process.
+   * @param sourceLocaleString The source language/locale string of the messages.
+   * @param targetLocaleString The target language/locale string of the messages (optional). See
+   *     {@link #generateXliff(SoyMsgBundle, String, String)}.
+   * @param out The Appendable to write the generated XLIFF file content to.
+   * @throws IOException If there's an error while writing to out.
+   */
+  static void generateXliff(
+      SoyMsgBundle msgBundle, String sourceLocaleString, @Nullable String targetLocaleString,
+      Appendable out) throws IOException {
+
     CharEscaper attributeEscaper = CharEscapers.xmlEscaper();
     CharEscaper contentEscaper = CharEscapers.xmlContentEscaper();
 
     boolean hasTarget = targetLocaleString != null && targetLocaleString.length() > 0;
 
-    IndentedLinesBuilder ilb = new IndentedLinesBuilder(2);
-    ilb.appendLine("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
-    ilb.appendLine("<xliff version=\"1.2\" xmlns=\"urn:oasis:names:tc:xliff:document:1.2\">");
-    ilb.increaseIndent();
-    ilb.appendLineStart(
-        "<file original=\"SoyMsgBundle\" datatype=\"x-soy-msg-bundle\"", " xml:space=\"preserve\"",
-        " source-language=\"", attributeEscaper.escape(sourceLocaleString), "\"");
+    out.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    out.append("<xliff version=\"1.2\" xmlns=\"urn:oasis:names:tc:xliff:document:1.2\">\n");
+    out.append("  <file original=\"SoyMsgBundle\" datatype=\"x-soy-msg-bundle\"")
+        .append(" xml:space=\"preserve\"")
+        .append(" source-language=\"").append(attributeEscaper.escape(sourceLocaleString))
+        .append("\"");
     if (hasTarget) {
-      ilb.appendParts(" target-language=\"", attributeEscaper.escape(targetLocaleString), "\"");
+      out.append(" target-language=\"").append(attributeEscaper.escape(targetLocaleString))
+          .append("\"");
     }
-    ilb.appendLineEnd(">");
-    ilb.increaseIndent();
-    ilb.appendLine("<body>");
-    ilb.increaseIndent();
+    out.append(">\n");
+    out.append("    <body>\n");
 
     for (SoyMsg msg : msgBundle) {
 
       // Begin 'trans-unit'.
-      ilb.appendLineStart("<trans-unit id=\"", Long.toString(msg.getId()), "\"");
+      out.append(TRANS_UNIT_INDENT).append("<trans-unit id=\"")
+          .append(Long.toString(msg.getId())).append("\"");
       String contentType = msg.getContentType();
       if (contentType != null && contentType.length() > 0) {
         String xliffDatatype = CONTENT_TYPE_TO_XLIFF_DATATYPE_MAP.get(contentType);
         if (xliffDatatype == null) {
           xliffDatatype = contentType;  // just use the contentType string
         }
-        ilb.appendParts(" datatype=\"", attributeEscaper.escape(xliffDatatype), "\"");
+        out.append(" datatype=\"").append(attributeEscaper.escape(xliffDatatype)).append("\"");
       }
-      ilb.appendLineEnd(">");
-      ilb.increaseIndent();
+      out.append(">\n");
 
       // Source.
-      ilb.appendLineStart("<source>");
+      out.append(TRANS_UNIT_CONTENT_INDENT).append("<source>");
       for (SoyMsgPart msgPart : msg.getParts()) {
         if (msgPart instanceof SoyMsgRawTextPart) {
           String rawText = ((SoyMsgRawTextPart) msgPart).getRawText();
-          ilb.append(contentEscaper.escape(rawText));
+          out.append(contentEscaper.escape(rawText));
         } else {
           String placeholderName = ((SoyMsgPlaceholderPart) msgPart).getPlaceholderName();
-          ilb.appendParts("<x id=\"", attributeEscaper.escape(placeholderName), "\"/>");
+          out.append("<x id=\"").append(attributeEscaper.escape(placeholderName)).append("\"/>");
         }
       }
-      ilb.appendLineEnd("</source>");
+      out.append("</source>\n");
 
       // Target.
       if (hasTarget) {
-        ilb.appendLine("<target/>");
+        out.append(TRANS_UNIT_CONTENT_INDENT).append("<target/>\n");
       }
 
       // Description and meaning.
       String desc = msg.getDesc();
       if (desc != null && desc.length() > 0) {
-        ilb.appendLine(
-            "<note priority=\"1\" from=\"description\">", contentEscaper.escape(desc), "</note>");
+        out.append(TRANS_UNIT_CONTENT_INDENT)
+            .append("<note priority=\"1\" from=\"description\">")
+            .append(contentEscaper.escape(desc)).append("</note>\n");
       }
       String meaning = msg.getMeaning();
       if (meaning != null && meaning.length() > 0) {
-        ilb.appendLine(
-            "<note priority=\"1\" from=\"meaning\">", contentEscaper.escape(meaning), "</note>");
+        out.append(TRANS_UNIT_CONTENT_INDENT)
+            .append("<note priority=\"1\" from=\"meaning\">")
+            .append(contentEscaper.escape(meaning)).append("</note>\n");
       }
 
       // End 'trans-unit'.
-      ilb.decreaseIndent();
-      ilb.appendLine("</trans-unit>");
+      out.append(TRANS_UNIT_INDENT).append("</trans-unit>\n");
     }
 
-    ilb.decreaseIndent();
-    ilb.appendLine("</body>");
-    ilb.decreaseIndent();
-    ilb.appendLine("</file>");
-    ilb.decreaseIndent();
-    ilb.appendLine("</xliff>");
-
-    return ilb;
+    out.append("    </body>\n");
+    out.append("  </file>\n");
+    out.append("</xliff>\n");
   }
 
 }
@@ -19,10 +19,12 @@ package com.google.template.soy.xliffmsgplugin;
 import com.google.template.soy.msgs.SoyMsgBundle;
 import com.google.template.soy.msgs.SoyMsgBundleHandler.OutputFileOptions;
 import com.google.template.soy.msgs.SoyMsgException;
-import com.google.template.soy.msgs.SoyMsgPlugin;
+import com.google.template.soy.msgs.SoyStreamingMsgPlugin;
 
 import org.xml.sax.SAXException;
 
+import java.io.IOException;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -31,7 +33,7 @@ import javax.inject.Singleton;
  *
  */
 @Singleton
-public class XliffMsgPlugin implements SoyMsgPlugin {
+public class XliffMsgPlugin implements SoyStreamingMsgPlugin {
 
 
   @Inject
@@ -47,6 +49,15 @@ public class XliffMsgPlugin implements SoyMsgPlugin {
   }
 
 
+  @Override public void writeExtractedMsgsFile(
+      SoyMsgBundle msgBundle, OutputFileOptions options, Appendable out)
+      throws SoyMsgException, IOException {
+
+    XliffGenerator.generateXliff(
+        msgBundle, options.getSourceLocaleString(), options.getTargetLocaleString(), out);
+  }
+
+
   @Override public SoyMsgBundle parseTranslatedMsgsFile(String translatedMsgsFileContent)
       throws SoyMsgException {
 
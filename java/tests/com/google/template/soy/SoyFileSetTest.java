@@ -0,0 +1,265 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.io.Files;
+import com.google.template.soy.jssrc.SoyJsSrcOptions;
+import com.google.template.soy.msgs.restricted.SoyMsg;
+import com.google.template.soy.shared.SoyAstCache;
+import com.google.template.soy.shared.SoyGeneralOptions;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Unit tests for SoyFileSet.
+ *
+ */
+public class SoyFileSetTest extends TestCase {
+
+
+  private static final String SOY_FILE_CONTENT =
+      "{namespace ns autoescape=\"strict\"}\n" +
+      "\n" +
+      "/***/\n" +
+      "{template .hello}\n" +
+      "  {msg desc=\"Greeting.\"}Hello{/msg}\n" +
+      "{/template}\n";
+
+  private static final List<String> LOCALES = ImmutableList.of("en", "de", "fr", "es", "it");
+
+
+  private File tmpDir;
+
+
+  @Override protected void setUp() throws Exception {
+    super.setUp();
+    tmpDir = Files.createTempDir();
+  }
+
+
+  @Override protected void tearDown() throws Exception {
+    for (File file : tmpDir.listFiles()) {
+      file.delete();
+    }
+    tmpDir.delete();
+    super.tearDown();
+  }
+
+
+  public void testCompileToLocalizedJsSrcFilesInParallel() throws Exception {
+
+    long msgId = Iterables.getOnlyElement(newSoyFileSet().extractMsgs()).getId();
+    for (String locale : LOCALES.subList(1, LOCALES.size())) {
+      writeXliffFile(locale, msgId, "Hello-" + locale);
+    }
+
+    SoyJsSrcOptions jsSrcOptions = new SoyJsSrcOptions();
+    newSoyFileSet().compileToJsSrcFiles(
+        tmpDir + "/serial_{LOCALE}.js", "", jsSrcOptions, LOCALES,
+        tmpDir + "/{LOCALE}.xlf");
+    jsSrcOptions.setLocaleConcurrency(3);
+    newSoyFileSet().compileToJsSrcFiles(
+        tmpDir + "/parallel_{LOCALE}.js", "", jsSrcOptions, LOCALES,
+        tmpDir + "/{LOCALE}.xlf");
+
+    for (String locale : LOCALES) {
+      String serialJs = readFile("serial_" + locale + ".js");
+      assertThat(serialJs).contains(locale.equals("en") ? "Hello" : "Hello-" + locale);
+      assertThat(readFile("parallel_" + locale + ".js")).isEqualTo(serialJs);
+    }
+  }
+
+
+  public void testCompileToLocalizedJsSrcFilesBySplicing() throws Exception {
+
+    long msgId = Iterables.getOnlyElement(newSoyFileSet().extractMsgs()).getId();
+    for (String locale : ImmutableList.of("de", "ar")) {
+      writeXliffFile(locale, msgId, "Hello-" + locale);
+    }
+
+    SoyJsSrcOptions jsSrcOptions = new SoyJsSrcOptions();
+    jsSrcOptions.setShouldSpliceLocalizedMsgs(true);
+    newSoyFileSet().compileToJsSrcFiles(
+        tmpDir + "/{LOCALE}.js", "", jsSrcOptions, ImmutableList.of("en", "de", "ar"),
+        tmpDir + "/{LOCALE}.xlf");
+
+    // Without translations, the output is the same as when generating goog.getMsg definitions.
+    SoyJsSrcOptions googMsgsJsSrcOptions = new SoyJsSrcOptions();
+    googMsgsJsSrcOptions.setShouldGenerateGoogMsgDefs(true);
+    googMsgsJsSrcOptions.setBidiGlobalDir(1);
+    assertThat(readFile("en.js")).isEqualTo(
+        Iterables.getOnlyElement(newSoyFileSet().compileToJsSrc(googMsgsJsSrcOptions, null)));
+    assertThat(readFile("de.js")).isEqualTo(readFile("en.js").replace("'Hello'", "'Hello-de'"));
+    assertThat(readFile("ar.js")).contains("goog.getMsg('Hello-ar')");
+  }
+
+
+  public void testCompileToLocalizedJsSrcFilesInParallelWithMissingMsgFile() throws Exception {
+
+    SoyJsSrcOptions jsSrcOptions = new SoyJsSrcOptions();
+    jsSrcOptions.setLocaleConcurrency(2);
+    try {
+      newSoyFileSet().compileToJsSrcFiles(
+          tmpDir + "/{LOCALE}.js", "", jsSrcOptions, LOCALES, tmpDir + "/{LOCALE}.xlf");
+      fail("Expected IOException.");
+    } catch (IOException e) {
+      // The first locale that fails is reported.
+      assertThat(e.getMessage()).contains(File.separator + "de.xlf");
+    }
+  }
+
+
+  public void testExtractMsgsInParallel() throws Exception {
+
+    SoyFileSet.Builder sfsBuilder = SoyFileSet.builder();
+    for (int i = 0; i < 5; i++) {
+      sfsBuilder.add(
+          "{namespace ns" + i + " autoescape=\"strict\"}\n" +
+          "\n" +
+          "/***/\n" +
+          "{template .hello}\n" +
+          "  {msg desc=\"Greeting.\"}Hello{/msg}\n" +
+          "  {msg desc=\"\"}Msg " + i + "{/msg}\n" +
+          "  {call ns" + (i + 1) + ".hello /}\n" +
+          "{/template}\n",
+          "test" + i + ".soy");
+    }
+    SoyFileSet sfs = sfsBuilder.build();
+
+    // Each file is checked on its own, so the call to the undefined template ns5.hello is allowed.
+    List<SoyMsg> parallelMsgs = ImmutableList.copyOf(sfs.extractMsgsInParallel(3));
+    List<SoyMsg> serialMsgs = ImmutableList.copyOf(sfs.extractMsgs());
+    assertThat(parallelMsgs).hasSize(6);
+    assertThat(parallelMsgs).isEqualTo(serialMsgs);
+    for (int i = 0; i < parallelMsgs.size(); i++) {
+      assertThat(parallelMsgs.get(i).getSourcePaths())
+          .isEqualTo(serialMsgs.get(i).getSourcePaths());
+    }
+
+    // With one thread or one file, the messages are extracted serially.
+    assertThat(ImmutableList.copyOf(sfs.extractMsgsInParallel(1))).isEqualTo(serialMsgs);
+    SoyFileSet singleFileSfs = SoyFileSet.builder()
+        .add("{namespace ns}\n\n/***/\n{template .hello}\n  {msg desc=\"\"}Hi{/msg}\n{/template}\n",
+            "single.soy")
+        .build();
+    assertThat(ImmutableList.copyOf(singleFileSfs.extractMsgsInParallel(3)))
+        .isEqualTo(ImmutableList.copyOf(singleFileSfs.extractMsgs()));
+  }
+
+
+  public void testExtractMsgsInParallelWithAstCache() throws Exception {
+
+    SoyAstCache cache = new SoyAstCache();
+    SoyFileSet.Builder sfsBuilder = SoyFileSet.builder().setSoyAstCache(cache);
+    for (int i = 0; i < 4; i++) {
+      sfsBuilder.add(
+          "{namespace ns" + i + "}\n\n/***/\n{template .hello}\n" +
+          "  {msg desc=\"\"}Msg " + i + "{/msg}\n{/template}\n",
+          "test" + i + ".soy");
+    }
+    SoyFileSet sfs = sfsBuilder.build();
+
+    // The workers parse with their own node id generators, not the cache's, which would make them
+    // take turns.
+    int nextCacheNodeId = cache.getNodeIdGenerator().genId() + 1;
+    List<SoyMsg> parallelMsgs = ImmutableList.copyOf(sfs.extractMsgsInParallel(2));
+    assertThat(cache.getNodeIdGenerator().genId()).isEqualTo(nextCacheNodeId);
+    assertThat(parallelMsgs).hasSize(4);
+    assertThat(parallelMsgs).isEqualTo(ImmutableList.copyOf(sfs.extractMsgs()));
+  }
+
+
+  public void testCompileToJsSrcWithParallelAutoescaping() throws Exception {
+
+    List<String> jsFileContents = null;
+    for (int autoescaperConcurrency : new int[] {1, 4}) {
+      SoyGeneralOptions generalOptions = new SoyGeneralOptions();
+      generalOptions.setAutoescaperConcurrency(autoescaperConcurrency);
+      SoyFileSet.Builder sfsBuilder = SoyFileSet.builder();
+      sfsBuilder.setGeneralOptions(generalOptions);
+      for (int i = 0; i < 4; i++) {
+        sfsBuilder.add(
+            "{namespace ns" + i + " autoescape=\"deprecated-contextual\"}\n" +
+            "\n" +
+            "/** @param x */\n" +
+            "{template .main}\n" +
+            "  <a href=\"{call .url}{param x: $x /}{/call}\"\n" +
+            "     onclick=\"{delcall ns.handler" + i + "}{param x: $x /}{/delcall}\">{$x}</a>\n" +
+            "  <script>var x = {call .url}{param x: $x /}{/call};</script>\n" +
+            "{/template}\n" +
+            "\n" +
+            "/** @param x */\n" +
+            "{template .url private=\"true\"}\n" +
+            "  /x?{$x}\n" +
+            "{/template}\n" +
+            "\n" +
+            "/** @param x */\n" +
+            "{deltemplate ns.handler" + i + "}\n" +
+            "  alert({$x})\n" +
+            "{/deltemplate}\n",
+            "test" + i + ".soy");
+      }
+      List<String> parallelJsFileContents =
+          sfsBuilder.build().compileToJsSrc(new SoyJsSrcOptions(), null);
+      if (jsFileContents == null) {
+        jsFileContents = parallelJsFileContents;
+        // Templates were derived for the attribute and script contexts.
+        assertThat(jsFileContents.get(3)).contains("__C");
+      } else {
+        assertThat(parallelJsFileContents).isEqualTo(jsFileContents);
+      }
+    }
+  }
+
+
+  private static SoyFileSet newSoyFileSet() {
+    return SoyFileSet.builder().add(SOY_FILE_CONTENT, "test.soy").build();
+  }
+
+
+  private void writeXliffFile(String locale, long msgId, String translation) throws IOException {
+    Files.write(
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+        "<xliff version=\"1.2\" xmlns=\"urn:oasis:names:tc:xliff:document:1.2\">\n" +
+        "  <file original=\"SoyMsgBundle\" datatype=\"x-soy-msg-bundle\" xml:space=\"preserve\"" +
+        " source-language=\"en\" target-language=\"" + locale + "\">\n" +
+        "    <body>\n" +
+        "      <trans-unit id=\"" + msgId + "\" datatype=\"html\">\n" +
+        "        <source>Hello</source>\n" +
+        "        <target>" + translation + "</target>\n" +
+        "      </trans-unit>\n" +
+        "    </body>\n" +
+        "  </file>\n" +
+        "</xliff>\n",
+        new File(tmpDir, locale + ".xlf"), UTF_8);
+  }
+
+
+  private String readFile(String name) throws IOException {
+    return Files.toString(new File(tmpDir, name), UTF_8);
+  }
+
+}
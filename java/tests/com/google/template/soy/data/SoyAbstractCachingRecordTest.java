@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.data;
+
+import com.google.template.soy.data.restricted.StringData;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for SoyAbstractCachingRecord.
+ *
+ */
+public class SoyAbstractCachingRecordTest extends TestCase {
+
+
+  /** Record with the field "foo", whose providers are created anew on each internal lookup. */
+  private static class TestRecord extends SoyAbstractCachingRecord {
+
+    final AtomicInteger lookupCount = new AtomicInteger();
+
+    @Override public SoyValueProvider getFieldProviderInternal(String name) {
+      lookupCount.incrementAndGet();
+      return name.equals("foo") ? StringData.forValue("bar") : null;
+    }
+
+    @Override public boolean hasField(String name) {
+      return name.equals("foo");
+    }
+
+    @Override public boolean equals(SoyValue other) {
+      return this == other;
+    }
+
+    @Override public boolean coerceToBoolean() {
+      return true;
+    }
+
+    @Override public String coerceToString() {
+      return "{foo: bar}";
+    }
+
+    @Override public void render(Appendable appendable) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+
+  public void testCaching() {
+
+    TestRecord record = new TestRecord();
+    SoyValueProvider fooProvider = record.getFieldProvider("foo");
+    assertEquals("bar", fooProvider.resolve().stringValue());
+    assertSame(fooProvider, record.getFieldProvider("foo"));
+    assertEquals("bar", record.getField("foo").stringValue());
+    assertEquals(1, record.lookupCount.get());
+
+    // Missing fields are cached too.
+    assertNull(record.getFieldProvider("boo"));
+    assertNull(record.getField("boo"));
+    assertEquals(2, record.lookupCount.get());
+  }
+
+
+  public void testConcurrentLookups() throws Exception {
+
+    final CountDownLatch latch = new CountDownLatch(2);
+    final TestRecord record = new TestRecord() {
+      @Override public SoyValueProvider getFieldProviderInternal(String name) {
+        // Makes both threads look up the field before either caches it.
+        latch.countDown();
+        try {
+          latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          throw new AssertionError(e);
+        }
+        return super.getFieldProviderInternal(name);
+      }
+    };
+    Callable<SoyValueProvider> getFoo = new Callable<SoyValueProvider>() {
+      @Override public SoyValueProvider call() {
+        return record.getFieldProvider("foo");
+      }
+    };
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<SoyValueProvider> result1 = executor.submit(getFoo);
+      Future<SoyValueProvider> result2 = executor.submit(getFoo);
+      // Both threads get the provider that was cached first.
+      assertSame(result1.get(), result2.get());
+      assertSame(result1.get(), record.getFieldProvider("foo"));
+      assertEquals(2, record.lookupCount.get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+}
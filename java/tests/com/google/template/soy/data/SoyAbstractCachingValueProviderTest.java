@@ -18,9 +18,16 @@ package com.google.template.soy.data;
 
 import com.google.template.soy.data.SoyAbstractCachingValueProvider.ValueAssertion;
 import com.google.template.soy.data.restricted.IntegerData;
+import com.google.template.soy.data.restricted.StringData;
 
 import junit.framework.TestCase;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -119,4 +126,35 @@ public class SoyAbstractCachingValueProviderTest extends TestCase {
     assertTrue(assertion2.hasBeenCalled);
     assertTrue(assertion3.hasBeenCalled);
   }
+
+  public void testConcurrentResolves() throws Exception {
+    final CountDownLatch latch = new CountDownLatch(2);
+    final SoyAbstractCachingValueProvider value = new SoyAbstractCachingValueProvider() {
+      @Override protected SoyValue compute() {
+        // Makes both threads compute the value before either sets it.
+        latch.countDown();
+        try {
+          latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          throw new AssertionError(e);
+        }
+        return StringData.forValue("foo");
+      }
+    };
+    Callable<SoyValue> resolve = new Callable<SoyValue>() {
+      @Override public SoyValue call() {
+        return value.resolve();
+      }
+    };
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<SoyValue> result1 = executor.submit(resolve);
+      Future<SoyValue> result2 = executor.submit(resolve);
+      // Both threads get the instance that was set first.
+      assertSame(result1.get(), result2.get());
+      assertSame(result1.get(), value.resolve());
+    } finally {
+      executor.shutdown();
+    }
+  }
 }
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.data;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Provides;
+import com.google.template.soy.data.restricted.NullData;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for SoyAccessorRecord.
+ *
+ */
+public class SoyAccessorRecordTest extends TestCase {
+
+
+  /** Object with getters, which counts the reads of its name. */
+  private static class Person {
+
+    int nameReadCount = 0;
+
+    public String getName() {
+      nameReadCount++;
+      return "Alice";
+    }
+
+    public boolean isAdmin() {
+      return true;
+    }
+
+    public boolean isActive() {
+      return false;
+    }
+
+    public String getActive() {
+      return "yes";
+    }
+
+    public List<Integer> getLuckyNumbers() {
+      return ImmutableList.of(3, 7);
+    }
+
+    public Object getBoss() {
+      return null;
+    }
+
+    public String getBroken() {
+      throw new IllegalStateException("broken");
+    }
+
+    public String getPrefix(String prefix) {
+      return prefix;
+    }
+
+    public static String getVersion() {
+      return "1";
+    }
+  }
+
+
+  /** Stand-in for com.google.protobuf.ByteString. */
+  private static final class ByteString {}
+
+
+  /**
+   * Object shaped like a protocol buffer message generated for
+   * {@code message TreeNode { optional string name = 1; optional TreeNode parent = 2;
+   * repeated TreeNode children = 3; }}, with the same public getters.
+   */
+  private static final class TreeNode {
+
+    private static final TreeNode DEFAULT_INSTANCE = new TreeNode("", null);
+
+    private final String name;
+    private final TreeNode parent;
+    private final List<TreeNode> children = Lists.newArrayList();
+
+    TreeNode(String name, TreeNode parent) {
+      this.name = name;
+      this.parent = parent;
+      if (parent != null) {
+        parent.children.add(this);
+      }
+    }
+
+    public static TreeNode getDefaultInstance() {
+      return DEFAULT_INSTANCE;
+    }
+
+    public TreeNode getDefaultInstanceForType() {
+      return DEFAULT_INSTANCE;
+    }
+
+    public Object getParserForType() {
+      return null;
+    }
+
+    public Map<Object, Object> getAllFields() {
+      return ImmutableMap.<Object, Object>of(new Object(), name);
+    }
+
+    public Object getUnknownFields() {
+      return new Object();
+    }
+
+    public int getSerializedSize() {
+      return 0;
+    }
+
+    public boolean isInitialized() {
+      return true;
+    }
+
+    public boolean hasName() {
+      return !name.isEmpty();
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public ByteString getNameBytes() {
+      return new ByteString();
+    }
+
+    public boolean hasParent() {
+      return parent != null;
+    }
+
+    public TreeNode getParent() {
+      return parent != null ? parent : DEFAULT_INSTANCE;
+    }
+
+    public TreeNode getParentOrBuilder() {
+      return getParent();
+    }
+
+    public List<TreeNode> getChildrenList() {
+      return children;
+    }
+
+    public List<TreeNode> getChildrenOrBuilderList() {
+      return children;
+    }
+
+    public int getChildrenCount() {
+      return children.size();
+    }
+
+    public TreeNode getChildren(int index) {
+      return children.get(index);
+    }
+  }
+
+
+  public void testFields() {
+
+    Person person = new Person();
+    SoyAccessorRecord record =
+        SoyAccessorRecord.forObject(SoyValueHelper.UNCUSTOMIZED_INSTANCE, person);
+    assertSame(person, record.getObject());
+
+    assertTrue(record.hasField("name"));
+    assertTrue(record.hasField("admin"));
+    assertFalse(record.hasField("prefix"));
+    assertFalse(record.hasField("version"));
+    assertFalse(record.hasField("class"));
+    assertNull(record.getField("prefix"));
+    assertEquals(0, person.nameReadCount);
+
+    assertEquals("Alice", record.getField("name").stringValue());
+    assertEquals("Alice", record.getField("name").stringValue());
+    assertEquals(1, person.nameReadCount);
+    assertTrue(record.getField("admin").booleanValue());
+    // A getter is preferred to a boolean getter of the same field.
+    assertEquals("yes", record.getField("active").stringValue());
+    assertEquals(7, ((SoyList) record.getField("luckyNumbers")).get(1).integerValue());
+    assertTrue(record.getField("boss") instanceof NullData);
+
+    try {
+      record.getField("broken");
+      fail();
+    } catch (SoyDataException expected) {
+      assertTrue(expected.getCause() instanceof IllegalStateException);
+    }
+  }
+
+
+  public void testGeneratedMessage() {
+
+    SoyValueHelper valueHelper =
+        Guice.createInjector(new AbstractModule() {
+          @Override protected void configure() {}
+
+          @Provides List<SoyCustomValueConverter> provideSoyCustomValueConverters() {
+            return ImmutableList.of(SoyAccessorRecord.converterFor(TreeNode.class));
+          }
+        })
+        .getInstance(SoyValueHelper.class);
+    TreeNode root = new TreeNode("root", null);
+    TreeNode leaf = new TreeNode("leaf", root);
+    SoyRecord record = (SoyRecord) valueHelper.convert(leaf);
+
+    // The framework getters are skipped, but recursive fields aren't.
+    for (String field : ImmutableList.of("childrenCount", "childrenList", "name", "parent")) {
+      assertTrue(field, record.hasField(field));
+    }
+    for (String frameworkField : ImmutableList.of(
+        "allFields", "childrenOrBuilderList", "defaultInstanceForType", "initialized",
+        "nameBytes", "parentOrBuilder", "parserForType", "serializedSize", "unknownFields")) {
+      assertFalse(frameworkField, record.hasField(frameworkField));
+    }
+    assertEquals("root", ((SoyRecord) record.getField("parent")).getField("name").stringValue());
+    assertEquals(
+        "leaf",
+        ((SoyRecord) ((SoyList) ((SoyRecord) record.getField("parent"))
+            .getField("childrenList")).get(0)).getField("name").stringValue());
+
+    // Rendering stops at cycles, such as the one between a node and its parent, and the default
+    // instance, which is its own parent.
+    assertEquals(
+        "{childrenCount: 0, childrenList: [], name: leaf, parent: {childrenCount: 1, "
+            + "childrenList: [{...}], name: root, parent: {childrenCount: 0, childrenList: [], "
+            + "name: , parent: {...}}}}",
+        record.coerceToString());
+  }
+
+
+  public void testConverter() {
+
+    SoyCustomValueConverter converter = SoyAccessorRecord.converterFor(Person.class);
+    assertNull(converter.convert(SoyValueHelper.UNCUSTOMIZED_INSTANCE, "Alice"));
+    SoyValueProvider converted =
+        converter.convert(SoyValueHelper.UNCUSTOMIZED_INSTANCE, new Person() {});
+    assertEquals("Alice", ((SoyRecord) converted).getField("name").stringValue());
+
+    // Records can be nested in other data.
+    SoyDict dict = SoyValueHelper.UNCUSTOMIZED_INSTANCE.newEasyDictFromJavaStringMap(
+        ImmutableMap.of("person", converted));
+    assertEquals(
+        "Alice", ((SoyRecord) dict.getField("person")).getField("name").stringValue());
+  }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.data;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.template.soy.SoyFileSet;
+import com.google.template.soy.tofu.SoyTofuException;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for SoyLazyRecord.
+ *
+ */
+public class SoyLazyRecordTest extends TestCase {
+
+
+  /** Supplier that counts its calls. */
+  private static class CountingSupplier implements Supplier<Object> {
+
+    final AtomicInteger callCount = new AtomicInteger();
+    private final Object value;
+
+    CountingSupplier(Object value) {
+      this.value = value;
+    }
+
+    @Override public Object get() {
+      callCount.incrementAndGet();
+      return value;
+    }
+  }
+
+
+  public void testLazyFields() {
+
+    CountingSupplier fooSupplier = new CountingSupplier("foo");
+    CountingSupplier barSupplier = new CountingSupplier(ImmutableList.of(1, 2));
+    SettableFuture<String> bazFuture = SettableFuture.create();
+    SoyLazyRecord record = SoyLazyRecord.builder(SoyValueHelper.UNCUSTOMIZED_INSTANCE)
+        .put("boo", 3)
+        .putSupplier("foo", fooSupplier)
+        .putSupplier("bar", barSupplier)
+        .put("baz", bazFuture)
+        .build();
+    assertEquals(3, record.getLazyFieldCount());
+    assertEquals(0, record.getLazyFieldResolutionCount());
+
+    assertTrue(record.hasField("foo"));
+    assertFalse(record.hasField("moo"));
+    assertNull(record.getFieldProvider("moo"));
+    assertEquals(3, record.getField("boo").integerValue());
+    assertEquals(0, record.getLazyFieldResolutionCount());
+
+    assertEquals("foo", record.getField("foo").stringValue());
+    assertEquals("foo", record.getField("foo").stringValue());
+    assertEquals(1, fooSupplier.callCount.get());
+    assertEquals(0, barSupplier.callCount.get());
+    assertEquals(1, record.getLazyFieldResolutionCount());
+
+    bazFuture.set("baz");
+    assertEquals("baz", record.getField("baz").stringValue());
+    assertEquals(2, record.getLazyFieldResolutionCount());
+
+    assertEquals("{boo: 3, foo: foo, bar: [1, 2], baz: baz}", record.coerceToString());
+    assertEquals(1, barSupplier.callCount.get());
+    assertEquals(3, record.getLazyFieldResolutionCount());
+  }
+
+
+  public void testDuplicateField() {
+
+    SoyLazyRecord.Builder builder =
+        SoyLazyRecord.builder(SoyValueHelper.UNCUSTOMIZED_INSTANCE).put("foo", 1);
+    try {
+      builder.putSupplier("foo", new CountingSupplier(2));
+      fail();
+    } catch (IllegalArgumentException expected) {}
+  }
+
+
+  public void testRenderingWithLazyIjData() {
+
+    SoyFileSet soyFileSet = SoyFileSet.builder()
+        .add("{namespace ns autoescape=\"strict\"}\n" +
+            "\n" +
+            "/***/\n" +
+            "{template .main}\n" +
+            "  {@inject isFoo: bool}\n" +
+            "  {@inject foo: string}\n" +
+            "  {@inject bar: string}\n" +
+            "  {if $isFoo}{$foo}{else}{$bar}{/if}\n" +
+            "{/template}\n",
+            "test.soy")
+        .build();
+
+    // The declared types of the injected params are checked when the fields are read, so unread
+    // fields aren't computed.
+    CountingSupplier fooSupplier = new CountingSupplier("Foo");
+    Supplier<Object> barSupplier = new Supplier<Object>() {
+      @Override public Object get() {
+        throw new AssertionError("Unread field was computed.");
+      }
+    };
+    SoyLazyRecord ijData = SoyLazyRecord.builder(SoyValueHelper.UNCUSTOMIZED_INSTANCE)
+        .put("isFoo", true)
+        .putSupplier("foo", fooSupplier)
+        .putSupplier("bar", barSupplier)
+        .build();
+    assertEquals("Foo", soyFileSet.compileToTofu().newRenderer("ns.main")
+        .setIjData(ijData)
+        .render());
+    assertEquals(1, fooSupplier.callCount.get());
+    assertEquals(1, ijData.getLazyFieldResolutionCount());
+
+    // The types of the fields that are read are still checked.
+    ijData = SoyLazyRecord.builder(SoyValueHelper.UNCUSTOMIZED_INSTANCE)
+        .put("isFoo", true)
+        .putSupplier("foo", new CountingSupplier(5))
+        .putSupplier("bar", barSupplier)
+        .build();
+    try {
+      soyFileSet.compileToTofu().newRenderer("ns.main").setIjData(ijData).render();
+      fail();
+    } catch (SoyTofuException expected) {
+      assertTrue(expected.getMessage().contains("Parameter type mismatch"));
+    }
+  }
+
+}
@@ -87,6 +87,40 @@ public class SoyMapDataTest extends TestCase {
   }
 
 
+  public void testPutAll() {
+
+    Map<String, Object> data = Maps.newLinkedHashMap();
+    data.put("moo", 3);
+    data.put("boo.list.0", 1);
+    data.put("boo.list.1", 2);
+    data.put("boo.foo", "a");
+    data.put("boo.goo", "b");
+    data.put("boo", new SoyMapData("replaced", true));
+    data.put("boo.too", "c");
+    data.put("zoo.hoo", null);
+
+    SoyMapData smd = new SoyMapData();
+    smd.putAll(data);
+    // Mappings under a replaced parent go into a new parent rather than the replaced one.
+    assertEquals("c", smd.getString("boo.too"));
+    assertNull(smd.get("boo.foo"));
+    assertEquals(true, smd.getBoolean("boo.replaced"));
+    assertEquals(3, smd.getInteger("moo"));
+    assertTrue(smd.get("zoo.hoo") instanceof NullData);
+
+    SoyMapData smd2 = new SoyMapData();
+    smd2.putAll(ImmutableMap.of("boo.foo", "a", "boo.goo", "b", "boo.list.0", 1, "boo.list.1", 2));
+    assertEquals("{boo: {foo: a, goo: b, list: [1, 2]}}", smd2.toString());
+
+    // Same as putting the mappings one at a time.
+    SoyMapData smd3 = new SoyMapData();
+    for (Map.Entry<String, Object> entry : data.entrySet()) {
+      smd3.put(entry.getKey(), SoyData.createFromExistingData(entry.getValue()));
+    }
+    assertEquals(smd3.toString(), smd.toString());
+  }
+
+
   public void testConstruction() {
 
     Map<String, Object> existingMap = Maps.newHashMap();
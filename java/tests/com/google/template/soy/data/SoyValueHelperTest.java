@@ -112,6 +112,28 @@ public class SoyValueHelperTest extends TestCase {
   }
 
 
+  public void testConvertMapsWithSameKeys() {
+
+    SoyList list = (SoyList) UNCUSTOMIZED_HELPER.convert(ImmutableList.of(
+        ImmutableMap.of("name", "a", "id", 1),
+        ImmutableMap.of("name", "b", "id", 2),
+        ImmutableMap.of("id", 3, "name", "c"),
+        ImmutableMap.of("name", "d"),
+        ImmutableMap.of()));
+    assertEquals("[{name: a, id: 1}, {name: b, id: 2}, {id: 3, name: c}, {name: d}, {}]",
+        list.coerceToString());
+    for (int i = 0; i < 3; i++) {
+      SoyDict dict = (SoyDict) list.get(i);
+      assertEquals(i + 1, dict.getField("id").integerValue());
+      assertEquals(2, dict.getItemCnt());
+      assertNull(dict.getField("boo"));
+    }
+    assertEquals("d", ((SoyDict) list.get(3)).getField("name").stringValue());
+    assertFalse(((SoyDict) list.get(3)).hasField("id"));
+    assertEquals(0, ((SoyDict) list.get(4)).getItemCnt());
+  }
+
+
   public void testConvertFuture() {
     assertTrue(
         UNCUSTOMIZED_HELPER.convert(Futures.immediateFuture("future"))
@@ -17,6 +17,7 @@
 
 package com.google.template.soy.data.internal;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
@@ -123,4 +124,30 @@ public class DictImplTest extends TestCase {
     assertNull(dict.getItem(BOO));
     assertNull(dict.getItemProvider(BOO));
   }
+
+
+  public void testShapedDict() {
+
+    StringData FOO = StringData.forValue("foo");
+
+    RecordShape shape = RecordShape.forFieldNames(ImmutableList.of("too", "foo"));
+    SoyDict dict = DictImpl.forShapedProviders(
+        shape, new SoyValueProvider[] {BooleanData.TRUE, FloatData.forValue(3.14)});
+    assertEquals("{too: true, foo: 3.14}", dict.coerceToString());
+    assertTrue(dict.hasField("foo"));
+    assertEquals(3.14, dict.getField("foo").floatValue());
+    assertFalse(dict.hasField("boo"));
+    assertNull(dict.getField("boo"));
+    assertNull(dict.getFieldProvider("boo"));
+    assertEquals(2, dict.getItemCnt());
+    assertEquals("too", Iterables.getFirst(dict.getItemKeys(), null).stringValue());
+    assertTrue(dict.hasItem(FOO));
+    assertEquals(3.14, dict.getItem(FOO).floatValue());
+
+    Map<String, ? extends SoyValueProvider> m = dict.asJavaStringMap();
+    assertEquals(
+        ImmutableMap.of("too", BooleanData.TRUE, "foo", FloatData.forValue(3.14)), m);
+    assertEquals(ImmutableList.of("too", "foo"), ImmutableList.copyOf(m.keySet()));
+    assertEquals(true, dict.asResolvedJavaStringMap().get("too").booleanValue());
+  }
 }
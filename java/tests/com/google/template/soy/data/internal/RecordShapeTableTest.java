@@ -0,0 +1,56 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.data.internal;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for RecordShapeTable.
+ *
+ */
+public class RecordShapeTableTest extends TestCase {
+
+
+  public void testSharedShapes() {
+
+    RecordShapeTable table = new RecordShapeTable();
+    RecordShape shape = table.get(new String[] {"boo", "foo"});
+    assertEquals("foo", shape.getFieldName(1));
+    assertSame(shape, table.get(new String[] {"boo", new String("foo")}));
+    assertNotSame(shape, table.get(new String[] {"foo", "boo"}));
+
+    // Shapes used in alternation stay in the table.
+    RecordShape otherShape = table.get(new String[] {"goo"});
+    for (int i = 0; i < 3; i++) {
+      assertSame(shape, table.get(new String[] {"boo", "foo"}));
+      assertSame(otherShape, table.get(new String[] {"goo"}));
+    }
+  }
+
+
+  public void testBounded() {
+
+    RecordShapeTable table = new RecordShapeTable();
+    RecordShape shape = table.get(new String[] {"boo"});
+    // Maps keyed by data displace the shapes in the table instead of piling up.
+    for (int i = 0; i < 1000; i++) {
+      table.get(new String[] {"key" + i});
+    }
+    assertNotSame(shape, table.get(new String[] {"boo"}));
+  }
+
+}
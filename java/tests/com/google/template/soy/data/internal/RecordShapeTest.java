@@ -0,0 +1,67 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.data.internal;
+
+import com.google.common.collect.ImmutableList;
+
+import junit.framework.TestCase;
+
+import java.util.Collections;
+
+/**
+ * Unit tests for RecordShape.
+ *
+ */
+public class RecordShapeTest extends TestCase {
+
+
+  public void testFieldIndices() {
+
+    RecordShape shape = RecordShape.forFieldNames(ImmutableList.of("boo", "foo", "goo"));
+    assertEquals(3, shape.getFieldCount());
+    assertEquals("foo", shape.getFieldName(1));
+    assertEquals(0, shape.getFieldIndex("boo"));
+    assertEquals(2, shape.getFieldIndex("goo"));
+    // Names that aren't the same instance are found too.
+    assertEquals(1, shape.getFieldIndex(new String("foo")));
+    assertEquals(-1, shape.getFieldIndex("too"));
+    assertEquals(-1, shape.getFieldIndex(null));
+  }
+
+
+  public void testHasFieldNames() {
+
+    RecordShape shape = RecordShape.forFieldNames(ImmutableList.of("boo", "foo"));
+    assertTrue(shape.hasFieldNames(new String[] {"boo", new String("foo")}));
+    assertFalse(shape.hasFieldNames(new String[] {"foo", "boo"}));
+    assertFalse(shape.hasFieldNames(new String[] {"boo"}));
+  }
+
+
+  public void testInvalidFieldNames() {
+
+    try {
+      RecordShape.forFieldNames(ImmutableList.of("boo", "boo"));
+      fail();
+    } catch (IllegalArgumentException expected) {}
+    try {
+      RecordShape.forFieldNames(ImmutableList.copyOf(
+          Collections.nCopies(RecordShape.MAX_FIELD_COUNT + 1, "boo")));
+      fail();
+    } catch (IllegalArgumentException expected) {}
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.data.internal;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.template.soy.data.SoyValueProvider;
+import com.google.template.soy.data.restricted.IntegerData;
+import com.google.template.soy.data.restricted.StringData;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for SlottedParamStore.
+ *
+ */
+public class SlottedParamStoreTest extends TestCase {
+
+
+  private static final ImmutableMap<String, Integer> SLOT_INDICES =
+      SlottedParamStore.internSlotIndices(ImmutableList.of("boo", "foo"));
+
+
+  public void testInternSlotIndices() {
+
+    assertEquals(ImmutableMap.of("boo", 0, "foo", 1), SLOT_INDICES);
+    assertSame(
+        SLOT_INDICES,
+        SlottedParamStore.internSlotIndices(Lists.newArrayList("boo", "foo")));
+    assertEquals(
+        ImmutableMap.of("foo", 0, "boo", 1),
+        SlottedParamStore.internSlotIndices(ImmutableList.of("foo", "boo")));
+  }
+
+
+  public void testSetAndGetFields() {
+
+    SlottedParamStore paramStore = new SlottedParamStore(SLOT_INDICES);
+    paramStore.setField("foo", IntegerData.forValue(1));
+    paramStore.setField("goo", StringData.forValue("undeclared"));
+
+    assertTrue(paramStore.hasField("foo"));
+    assertEquals(1, paramStore.getField("foo").integerValue());
+    assertFalse(paramStore.hasField("boo"));
+    assertNull(paramStore.getFieldProvider("boo"));
+    assertTrue(paramStore.hasField("goo"));
+    assertEquals("undeclared", paramStore.getField("goo").stringValue());
+    assertFalse(paramStore.hasField("moo"));
+  }
+
+
+  public void testGetSlots() {
+
+    SlottedParamStore paramStore = new SlottedParamStore(SLOT_INDICES);
+    paramStore.setField("foo", IntegerData.forValue(1));
+
+    SoyValueProvider[] slots = SlottedParamStore.getSlots(paramStore, SLOT_INDICES);
+    assertEquals(2, slots.length);
+    assertNull(slots[0]);
+    assertEquals(1, slots[1].resolve().integerValue());
+
+    // The slots are only handed out for the slot indices instance the store was built with.
+    assertNull(SlottedParamStore.getSlots(paramStore, ImmutableMap.of("foo", 0, "boo", 1)));
+    assertNull(SlottedParamStore.getSlots(paramStore, ImmutableMap.of("boo", 0, "foo", 1)));
+    assertNull(SlottedParamStore.getSlots(new BasicParamStore(), SLOT_INDICES));
+  }
+
+}
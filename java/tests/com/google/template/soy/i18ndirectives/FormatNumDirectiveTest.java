@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.i18ndirectives;
+
+import com.google.common.collect.ImmutableList;
+import com.google.template.soy.base.SoySyntaxException;
+import com.google.template.soy.data.SoyValue;
+import com.google.template.soy.data.restricted.FloatData;
+import com.google.template.soy.data.restricted.IntegerData;
+import com.google.template.soy.data.restricted.StringData;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+import javax.inject.Provider;
+
+/**
+ * Unit tests for {@link FormatNumDirective}.
+ *
+ */
+public class FormatNumDirectiveTest extends TestCase {
+
+
+  public void testApplyForJava() {
+    assertEquals("1,234.5", formatNum("en-US", FloatData.forValue(1234.5)));
+    assertEquals("1.234,5", formatNum("de", FloatData.forValue(1234.5)));
+    assertEquals("12%", formatNum("en-US", FloatData.forValue(0.12), "percent"));
+    assertEquals("1.23K", formatNum("en-US", IntegerData.forValue(1234), "compact_short"));
+    assertEquals("1.23 thousand", formatNum("en-US", IntegerData.forValue(1234), "compact_long"));
+    assertEquals(
+        "\u0661\u0662\u0663", formatNum("ar", IntegerData.forValue(123), "decimal", "native"));
+    assertEquals("123", formatNum("ar", IntegerData.forValue(123), "decimal", "latn"));
+  }
+
+
+  public void testApplyForJava_CachedFormatsAreNotShared() {
+    // Formats are cached per locale, format type and numbers keyword, and not mixed up.
+    for (int i = 0; i < 3; i++) {
+      assertEquals("1,234.5", formatNum("en-US", FloatData.forValue(1234.5)));
+      assertEquals("1.234,5", formatNum("de", FloatData.forValue(1234.5)));
+      assertEquals("1.234,5", formatNum("de", FloatData.forValue(1234.5), "decimal", "native"));
+      assertEquals("1,234.5", formatNum(null, FloatData.forValue(1234.5)));
+    }
+  }
+
+
+  public void testApplyForJava_InvalidArgs() {
+    try {
+      formatNum("en-US", IntegerData.forValue(1), "bogus");
+      fail();
+    } catch (SoySyntaxException expected) {
+    }
+    try {
+      formatNum("xx-yy_zz_as", IntegerData.forValue(1));
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+
+  private static String formatNum(final String localeString, SoyValue value, String... args) {
+    FormatNumDirective directive = new FormatNumDirective(new Provider<String>() {
+      @Override public String get() {
+        return localeString;
+      }
+    });
+    ImmutableList.Builder<SoyValue> argValues = ImmutableList.builder();
+    for (String arg : args) {
+      argValues.add(StringData.forValue(arg));
+    }
+    List<SoyValue> argList = argValues.build();
+    return directive.applyForJava(value, argList).stringValue();
+  }
+}
@@ -1009,4 +1009,24 @@ public class BidiUtilsTest extends TestCase {
     // assertEquals(LTR, estimateHtmlDir("a&#32;a&#32;&#x05D0;"));
     // assertEquals(RTL, estimateHtmlDir("...&nosuchescape &#x05D0;"));
   }
+
+  public void testAsciiFastPath_MatchesEstimator() {
+    String[] samples = {
+        "", " ", "a", "Hello, world!", "http://www.google.com/", "1", "-5", "+5", "3 - 2 = 1",
+        "(03) 123 4567", "$1 - $5", "...", "1-", "...&amp;", "<span>", "&lt;span&gt;",
+        "foo/<b>bar</b>", "<a href='x'>1</a>", "a > b ; c", "\t\n\r", "\u001C1 2"};
+    for (String sample : samples) {
+      for (boolean isHtml : new boolean[] {false, true}) {
+        BidiUtils.DirectionalityEstimator estimator =
+            new BidiUtils.DirectionalityEstimator(sample, isHtml);
+        assertEquals(sample, estimator.estimateDirectionByWordCount(),
+            BidiUtils.estimateDirection(sample, isHtml));
+        assertEquals(sample, estimator.getEntryDir(), BidiUtils.getEntryDir(sample, isHtml));
+        assertEquals(sample, estimator.getExitDir(), BidiUtils.getExitDir(sample, isHtml));
+        assertEquals(sample, estimator.getUnicodeDir(), BidiUtils.getUnicodeDir(sample, isHtml));
+        assertEquals(sample, estimator.hasAnyLtr(false), BidiUtils.hasAnyLtr(sample, isHtml));
+        assertEquals(sample, estimator.hasAnyRtl(false), BidiUtils.hasAnyRtl(sample, isHtml));
+      }
+    }
+  }
 }
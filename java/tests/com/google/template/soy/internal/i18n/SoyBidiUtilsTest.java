@@ -16,6 +16,12 @@
 
 package com.google.template.soy.internal.i18n;
 
+import com.google.template.soy.data.Dir;
+import com.google.template.soy.data.SanitizedContent;
+import com.google.template.soy.data.SanitizedContent.ContentKind;
+import com.google.template.soy.data.UnsafeSanitizedContentOrdainer;
+import com.google.template.soy.data.restricted.StringData;
+
 import junit.framework.TestCase;
 
 
@@ -108,4 +114,31 @@ public class SoyBidiUtilsTest extends TestCase {
     } catch (IllegalArgumentException expected) {
     }
   }
+
+  public void testEstimateDirectionWithContentDirCache() {
+    SanitizedContent hebrew =
+        UnsafeSanitizedContentOrdainer.ordainAsSafe("\u05E9\u05DC\u05D5\u05DD", ContentKind.HTML);
+    SanitizedContent english = UnsafeSanitizedContentOrdainer.ordainAsSafe(
+        "<b>hello</b> world \u05E9", ContentKind.HTML);
+    try {
+      for (int cacheSize : new int[] {0, 1, 100}) {
+        SoyBidiUtils.setContentDirCacheSize(cacheSize);
+        for (int i = 0; i < 2; i++) {
+          assertEquals(Dir.RTL, SoyBidiUtils.estimateDirection(hebrew, true));
+          assertEquals(Dir.LTR, SoyBidiUtils.estimateDirection(english, true));
+          // The same content estimated as text must not share a cached result with HTML.
+          assertEquals(Dir.LTR, SoyBidiUtils.estimateDirection(
+              UnsafeSanitizedContentOrdainer.ordainAsSafe("<b>\u05E9</b>", ContentKind.HTML),
+              false));
+          assertEquals(Dir.RTL, SoyBidiUtils.estimateDirection(
+              UnsafeSanitizedContentOrdainer.ordainAsSafe("<b>\u05E9</b>", ContentKind.HTML),
+              true));
+          assertEquals(Dir.RTL, SoyBidiUtils.estimateDirection(
+              StringData.forValue("\u05E9\u05DC\u05D5\u05DD"), false));
+        }
+      }
+    } finally {
+      SoyBidiUtils.setContentDirCacheSize(0);
+    }
+  }
 }
@@ -35,6 +35,7 @@ public class SoyJsSrcOptionsTest extends TestCase {
     SoyJsSrcOptions options = new SoyJsSrcOptions();
     options.setShouldGenerateGoogMsgDefs(true);
     options.setBidiGlobalDir(1);
+    options.setLocaleConcurrency(4);
 
     SoyJsSrcOptions clonedOptions = options.clone();
     assertThat(clonedOptions.getBidiGlobalDir()).isEqualTo(options.getBidiGlobalDir());
@@ -43,6 +44,7 @@ public class SoyJsSrcOptionsTest extends TestCase {
     assertThat(clonedOptions.shouldGenerateGoogMsgDefs())
         .isEqualTo(options.shouldGenerateGoogMsgDefs());
     assertThat(clonedOptions.getCodeStyle()).isEqualTo(options.getCodeStyle());
+    assertThat(clonedOptions.getLocaleConcurrency()).isEqualTo(options.getLocaleConcurrency());
   }
 
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.jssrc.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.template.soy.internal.base.Pair;
+import com.google.template.soy.msgs.SoyMsgBundle;
+import com.google.template.soy.msgs.restricted.SoyMsg;
+import com.google.template.soy.msgs.restricted.SoyMsgBundleImpl;
+import com.google.template.soy.msgs.restricted.SoyMsgPart;
+import com.google.template.soy.msgs.restricted.SoyMsgPlaceholderPart;
+import com.google.template.soy.msgs.restricted.SoyMsgPluralCaseSpec;
+import com.google.template.soy.msgs.restricted.SoyMsgPluralPart;
+import com.google.template.soy.msgs.restricted.SoyMsgRawTextPart;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * Unit tests for MsgSlotSplicer.
+ *
+ */
+public class MsgSlotSplicerTest extends TestCase {
+
+
+  private static final SoyMsgBundle MSG_BUNDLE = new SoyMsgBundleImpl("x-zz", ImmutableList.of(
+      new SoyMsg(1L, "x-zz", false, ImmutableList.<SoyMsgPart>of(
+          SoyMsgRawTextPart.of("Zz "), new SoyMsgPlaceholderPart("NAME"),
+          SoyMsgRawTextPart.of(" é'"))),
+      new SoyMsg(3L, "x-zz", true, ImmutableList.<SoyMsgPart>of(
+          new SoyMsgPluralPart("NUM", 0, ImmutableList.of(
+              Pair.<SoyMsgPluralCaseSpec, ImmutableList<SoyMsgPart>>of(
+                  new SoyMsgPluralCaseSpec(1),
+                  ImmutableList.<SoyMsgPart>of(SoyMsgRawTextPart.of("one {z}"))),
+              Pair.<SoyMsgPluralCaseSpec, ImmutableList<SoyMsgPart>>of(
+                  new SoyMsgPluralCaseSpec("other"),
+                  ImmutableList.<SoyMsgPart>of(SoyMsgRawTextPart.of("many")))))))));
+
+
+  public void testSpliceMsgTexts() {
+    MsgSlotSplicer splicer = new MsgSlotSplicer(ImmutableList.of(
+        "var a = goog.getMsg(" + MsgSlotSplicer.buildMsgTextSlot(1L, false, "'Hi {$name}'") +
+            ", {'name': x});\n" +
+            "var b = goog.getMsg(" + MsgSlotSplicer.buildMsgTextSlot(2L, false, "'Bye'") + ");\n",
+        "var c = goog.getMsg(" +
+            MsgSlotSplicer.buildMsgTextSlot(3L, true, "'{NUM,plural,other{n}}'") + ");\n"));
+
+    List<String> jsFileContents = splicer.splice(MSG_BUNDLE);
+    assertThat(jsFileContents).hasSize(2);
+    assertThat(jsFileContents.get(0)).isEqualTo(
+        "var a = goog.getMsg('Zz {$name} \\u00E9\\'', {'name': x});\n" +
+        "var b = goog.getMsg('Bye');\n");
+    // ICU syntax chars in the translated raw text are escaped.
+    assertThat(jsFileContents.get(1)).isEqualTo(
+        "var c = goog.getMsg('{NUM,plural,=1{one \\'{\\'z\\'}\\'}other{many}}');\n");
+
+    // The slots can be filled again for another locale.
+    assertThat(splicer.splice(null)).containsExactly(
+        "var a = goog.getMsg('Hi {$name}', {'name': x});\n" +
+            "var b = goog.getMsg('Bye');\n",
+        "var c = goog.getMsg('{NUM,plural,other{n}}');\n").inOrder();
+  }
+
+
+  public void testSpliceMsgFallbacks() {
+    MsgSlotSplicer splicer = new MsgSlotSplicer(ImmutableList.of(
+        "var m1 = " +
+            MsgSlotSplicer.buildMsgFallbackSlot(
+                ImmutableList.of(2L, 1L), ImmutableList.of("MSG_A", "MSG_B")) + ";\n" +
+        "var m2 = " +
+            MsgSlotSplicer.buildMsgFallbackSlot(
+                ImmutableList.of(1L, 2L), ImmutableList.of("MSG_C", "MSG_D")) + ";\n" +
+        "var m3 = " +
+            MsgSlotSplicer.buildMsgFallbackSlot(
+                ImmutableList.of(2L, 4L), ImmutableList.of("MSG_E", "MSG_F")) + ";\n"));
+
+    // The first translated msg is chosen, or the first msg if none is translated.
+    assertThat(splicer.splice(MSG_BUNDLE)).containsExactly(
+        "var m1 = MSG_B;\nvar m2 = MSG_C;\nvar m3 = MSG_E;\n");
+    assertThat(splicer.splice(null)).containsExactly(
+        "var m1 = MSG_A;\nvar m2 = MSG_C;\nvar m3 = MSG_E;\n");
+  }
+
+}
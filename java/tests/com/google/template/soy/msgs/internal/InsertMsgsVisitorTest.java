@@ -38,6 +38,7 @@ import com.google.template.soy.soytree.MsgPlaceholderNode;
 import com.google.template.soy.soytree.PrintNode;
 import com.google.template.soy.soytree.RawTextNode;
 import com.google.template.soy.soytree.TemplateNode;
+import com.google.template.soy.soytree.tofu.TranslatedPlrselMsgNode;
 
 import junit.framework.TestCase;
 
@@ -199,7 +200,7 @@ public class InsertMsgsVisitorTest extends TestCase {
     // Execute the visitor.
     (new InsertMsgsVisitor(null, true)).exec(template);
 
-    // After. (Current implementation does not modify/replace plural/select messages.)
+    // After. (Plural/select messages without translations are left to be rendered from source.)
     assertThat(template.numChildren()).isEqualTo(2);
     assertThat(((MsgFallbackGroupNode) template.getChild(0)).getChild(0)).isSameAs(pluralMsg);
     assertThat(((MsgFallbackGroupNode) template.getChild(1)).getChild(0)).isSameAs(selectMsg);
@@ -271,10 +272,16 @@ public class InsertMsgsVisitorTest extends TestCase {
     // Execute the visitor.
     (new InsertMsgsVisitor(msgBundle, true)).exec(template);
 
-    // After. (Current implementation does not modify/replace plural/select messages.)
+    // After. (Translated plural/select messages are replaced by nodes holding the translation.)
     assertThat(template.numChildren()).isEqualTo(2);
-    assertThat(((MsgFallbackGroupNode) template.getChild(0)).getChild(0)).isSameAs(pluralMsg);
-    assertThat(((MsgFallbackGroupNode) template.getChild(1)).getChild(0)).isSameAs(selectMsg);
+    TranslatedPlrselMsgNode translatedPluralMsg = (TranslatedPlrselMsgNode) template.getChild(0);
+    assertThat(translatedPluralMsg.getChild(0)).isSameAs(pluralMsg);
+    assertThat(translatedPluralMsg.getTranslatedPlrselPart())
+        .isInstanceOf(SoyMsgPluralPart.class);
+    TranslatedPlrselMsgNode translatedSelectMsg = (TranslatedPlrselMsgNode) template.getChild(1);
+    assertThat(translatedSelectMsg.getChild(0)).isSameAs(selectMsg);
+    assertThat(translatedSelectMsg.getTranslatedPlrselPart())
+        .isInstanceOf(SoyMsgSelectPart.class);
     assertThat(pluralMsg.toSourceString()).isEqualTo(beforePluralMsgSourceStr);
     assertThat(selectMsg.toSourceString()).isEqualTo(beforeSelectMsgSourceStr);
   }
@@ -352,8 +359,9 @@ public class InsertMsgsVisitorTest extends TestCase {
     assertThat(((RawTextNode) template.getChild(1)).getRawText()).isEqualTo("trans1");
     assertThat(((RawTextNode) template.getChild(2)).getRawText()).isEqualTo("noTrans1");
     assertThat(((RawTextNode) template.getChild(3)).getRawText()).isEqualTo("trans1");
-    assertThat(((MsgFallbackGroupNode) template.getChild(4)).numChildren()).isEqualTo(2);
-    assertThat(((MsgFallbackGroupNode) template.getChild(5)).numChildren()).isEqualTo(2);
+    assertThat(((RawTextNode) template.getChild(4)).getRawText()).isEqualTo("trans1");
+    // The plural/select message is left without its unused fallback.
+    assertThat(((MsgFallbackGroupNode) template.getChild(5)).numChildren()).isEqualTo(1);
   }
 
 
@@ -396,8 +404,8 @@ public class InsertMsgsVisitorTest extends TestCase {
     assertThat(((RawTextNode) template.getChild(1)).getRawText()).isEqualTo("ztrans1");
     assertThat(((RawTextNode) template.getChild(2)).getRawText()).isEqualTo("ztrans2");
     assertThat(((RawTextNode) template.getChild(3)).getRawText()).isEqualTo("ztrans1");
-    assertThat(((MsgFallbackGroupNode) template.getChild(4)).numChildren()).isEqualTo(2);
-    assertThat(((MsgFallbackGroupNode) template.getChild(5)).numChildren()).isEqualTo(2);
+    assertThat(((RawTextNode) template.getChild(4)).getRawText()).isEqualTo("ztrans1");
+    assertThat(((RawTextNode) template.getChild(5)).getRawText()).isEqualTo("ztrans2");
   }
 
 }
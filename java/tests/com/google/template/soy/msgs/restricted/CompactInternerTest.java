@@ -18,6 +18,12 @@ package com.google.template.soy.msgs.restricted;
 
 import junit.framework.TestCase;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 /**
  * Tests the compact interner.
  *
@@ -69,6 +75,64 @@ public class CompactInternerTest extends TestCase {
     }
   }
 
+
+  public void testConcurrentInterning() throws Exception {
+    final int threadCount = 8;
+    final int iterations = 20000;
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      // Each thread interns the same values (as distinct objects) in a different order.
+      Future<?>[] futures = new Future<?>[threadCount];
+      final Object[][] interned = new Object[threadCount][iterations];
+      for (int t = 0; t < threadCount; t++) {
+        final int thread = t;
+        futures[t] = executor.submit(new Callable<Void>() {
+          @Override public Void call() throws Exception {
+            startLatch.await();
+            for (int i = 0; i < iterations; i++) {
+              int value = (thread % 2 == 0) ? i : iterations - 1 - i;
+              interned[thread][value] = interner.intern("String Number " + value);
+            }
+            return null;
+          }
+        });
+      }
+      startLatch.countDown();
+      for (Future<?> future : futures) {
+        future.get();
+      }
+
+      // All threads got the same canonical instance for each value.
+      for (int i = 0; i < iterations; i++) {
+        for (int t = 1; t < threadCount; t++) {
+          assertSame(interned[0][i], interned[t][i]);
+        }
+      }
+      CompactInternerStats stats = interner.getStats();
+      assertEquals(iterations, stats.getDistinctCount());
+      assertEquals(iterations, stats.getMissCount());
+      assertEquals((threadCount - 1) * iterations, stats.getHitCount());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+
+  public void testStats() {
+    interner.intern(new String("hello"));
+    interner.intern(new String("hello"));
+    interner.intern(new String("goodbye"));
+
+    CompactInternerStats stats = interner.getStats();
+    assertEquals(1, stats.getHitCount());
+    assertEquals(2, stats.getMissCount());
+    assertEquals(2, stats.getDistinctCount());
+    assertEquals(CompactInterner.INITIAL_SIZE, stats.getTableSize());
+    assertEquals(1.0 / 3, stats.getHitRate(), 1e-9);
+  }
+
+
   public void testPerformance() {
     // Do some testing. The number of iterations has no effect on these metrics.
     int iterations = 100000;
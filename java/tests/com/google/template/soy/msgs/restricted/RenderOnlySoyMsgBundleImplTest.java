@@ -107,6 +107,40 @@ public class RenderOnlySoyMsgBundleImplTest extends TestCase {
   }
 
 
+  public void testGetMsgWithoutAllocating() {
+    for (SoyMsg message : testMessages) {
+      // The same message object is returned every time.
+      assertSame(bundle.getMsg(message.getId()), bundle.getMsg(message.getId()));
+    }
+  }
+
+
+  public void testGetMissingMsg() {
+    assertNull(bundle.getMsg(0));
+    assertNull(bundle.getMsg(315));
+    assertNull(bundle.getMsg(Long.MAX_VALUE));
+    assertNull(bundle.getMsg(-1));
+    assertNull(new RenderOnlySoyMsgBundleImpl(LOCALE, ImmutableList.<SoyMsg>of()).getMsg(314));
+  }
+
+
+  public void testManyMsgs() {
+    List<SoyMsg> messages = Lists.newArrayList();
+    for (long id = 0; id < 5000; id += 3) {
+      messages.add(createSimpleMsg(id * 1024));  // low bits all equal
+    }
+    RenderOnlySoyMsgBundleImpl largeBundle = new RenderOnlySoyMsgBundleImpl(LOCALE, messages);
+    for (SoyMsg message : messages) {
+      assertEquals(message, largeBundle.getMsg(message.getId()));
+      assertNull(largeBundle.getMsg(message.getId() + 1));
+    }
+    // The footprint grows linearly with the number of messages.
+    long footprint = largeBundle.estimateFootprintBytes();
+    assertTrue(footprint > messages.size() * 64L);
+    assertTrue(footprint < messages.size() * 128L);
+  }
+
+
   public void testIterator() {
     List<SoyMsg> actualMessages = Lists.newArrayList();
     long lastId = -1;
@@ -131,6 +131,25 @@ public class SoyMsgBundleCompactorTest extends TestCase {
   }
 
 
+  public void testInterningAcrossCompactors() {
+    // By default, each compactor has its own interner, which is released along with it.
+    SoyMsgBundle zzMsgBundle = new SoyMsgBundleCompactor().compact(new SoyMsgBundleImpl(
+        "zz", ImmutableList.of(createMessageWithPlaceholder("zz", 159))));
+    assertNotSame(
+        xxMsgBundle.getMsg(159).getParts().get(1), zzMsgBundle.getMsg(159).getParts().get(1));
+
+    // Compactors with the shared interner share the parts of bundles compacted separately.
+    SoyMsgBundle sharedXxMsgBundle = SoyMsgBundleCompactor.withSharedInterner().compact(
+        new SoyMsgBundleImpl("xx", ImmutableList.of(createMessageWithPlaceholder("xx", 159))));
+    SoyMsgBundle sharedZzMsgBundle = SoyMsgBundleCompactor.withSharedInterner().compact(
+        new SoyMsgBundleImpl("zz", ImmutableList.of(createMessageWithPlaceholder("zz", 159))));
+    assertSame("SoyMsgPlaceholderPart should be interned",
+        sharedXxMsgBundle.getMsg(159).getParts().get(1),
+        sharedZzMsgBundle.getMsg(159).getParts().get(1));
+    assertTrue(SoyMsgBundleCompactor.getSharedInternerStats().getHitCount() > 0);
+  }
+
+
   public void testCaseCollapsing() {
     SoyMsgSelectPart differentSelect =
         (SoyMsgSelectPart) xxMsgBundle.getMsg(265).getParts().get(0);
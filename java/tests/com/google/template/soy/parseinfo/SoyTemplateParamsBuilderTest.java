@@ -0,0 +1,181 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.parseinfo;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Provides;
+import com.google.template.soy.SoyFileSet;
+import com.google.template.soy.data.SoyCustomValueConverter;
+import com.google.template.soy.data.SoyDataException;
+import com.google.template.soy.data.SoyRecord;
+import com.google.template.soy.data.SoyValueConverter;
+import com.google.template.soy.data.SoyValueHelper;
+import com.google.template.soy.data.SoyValueProvider;
+import com.google.template.soy.data.internal.SlottedParamStore;
+import com.google.template.soy.data.restricted.StringData;
+import com.google.template.soy.tofu.SoyTofu;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * Unit tests for SoyTemplateParamsBuilder.
+ *
+ */
+public class SoyTemplateParamsBuilderTest extends TestCase {
+
+
+  private static final String SOY_FILE_CONTENT = "" +
+      "{namespace ns autoescape=\"strict\"}\n" +
+      "\n" +
+      "/**\n" +
+      " * @param foo Foo.\n" +
+      " */\n" +
+      "{template .main}\n" +
+      "  {@param boo: string}\n" +
+      "  {@param? n: int}\n" +
+      "  {@param? b: bool}\n" +
+      "  {$foo} {$boo} {$n} {$b}{sp}\n" +
+      "  {call .callee data=\"all\" /}\n" +
+      "{/template}\n" +
+      "\n" +
+      "/**\n" +
+      " * @param? goo Goo.\n" +
+      " */\n" +
+      "{template .callee}\n" +
+      "  {$goo}\n" +
+      "{/template}\n";
+
+
+  /** The builder that GenerateParseInfoVisitor generates for ns.main. */
+  private static final class ParamsBuilder extends SoyTemplateParamsBuilder<ParamsBuilder> {
+
+    private static final ImmutableMap<String, Integer> PARAM_SLOT_INDICES =
+        internParamSlotIndices(
+            "foo",
+            "boo",
+            "n",
+            "b");
+
+    public ParamsBuilder() {
+      super(PARAM_SLOT_INDICES);
+    }
+
+    public ParamsBuilder setFoo(Object value) {
+      return setParam(0, value);
+    }
+
+    public ParamsBuilder setBoo(String value) {
+      return setParam(1, value);
+    }
+
+    public ParamsBuilder setN(long value) {
+      return setParam(2, value);
+    }
+
+    public ParamsBuilder setB(boolean value) {
+      return setParam(3, value);
+    }
+
+    public ParamsBuilder setGoo(Object value) {
+      return setIndirectParam("goo", value);
+    }
+  }
+
+
+  public void testRenderWithBuiltParams() {
+
+    SoyFileSet soyFileSet = SoyFileSet.builder().add(SOY_FILE_CONTENT, "test.soy").build();
+    SoyTofu tofu = soyFileSet.compileToTofu();
+
+    ParamsBuilder paramsBuilder = new ParamsBuilder()
+        .setFoo(ImmutableList.of(1, 2))
+        .setBoo("<boo>")
+        .setN(3)
+        .setB(true)
+        .setGoo("goo");
+    SoyRecord data = paramsBuilder.build(SoyValueHelper.UNCUSTOMIZED_INSTANCE);
+    assertThat(tofu.newRenderer("ns.main").setData(data).render())
+        .isEqualTo("[1, 2] &lt;boo&gt; 3 true goo");
+
+    // The builder and the template share one slot indices map, so the template takes its params
+    // from their slots.
+    assertThat(SlottedParamStore.getSlots(data, soyFileSet.generateTemplateRegistry()
+        .getBasicTemplate("ns.main").getParamSlotIndices())).isNotNull();
+
+    // Params set after building don't affect the built data.
+    paramsBuilder.setN(4);
+    assertThat(tofu.newRenderer("ns.main").setData(data).render())
+        .isEqualTo("[1, 2] &lt;boo&gt; 3 true goo");
+    // Unset optional params are null.
+    assertThat(tofu.newRenderer("ns.main")
+        .setData(new ParamsBuilder().setFoo("foo").setBoo("boo")
+            .build(SoyValueHelper.UNCUSTOMIZED_INSTANCE))
+        .render()).isEqualTo("foo boo null null null");
+  }
+
+
+  /** Object that Soy can't convert without a custom converter. */
+  private static final class Money {
+
+    final long cents;
+
+    Money(long cents) {
+      this.cents = cents;
+    }
+  }
+
+
+  public void testBuildWithCustomConverter() {
+
+    SoyValueHelper valueHelper = Guice.createInjector(new AbstractModule() {
+      @Override protected void configure() {}
+
+      @Provides List<SoyCustomValueConverter> provideSoyCustomValueConverters() {
+        return ImmutableList.<SoyCustomValueConverter>of(new SoyCustomValueConverter() {
+          @Override public SoyValueProvider convert(SoyValueConverter valueConverter, Object obj) {
+            return (obj instanceof Money)
+                ? StringData.forValue("$" + ((Money) obj).cents / 100.0) : null;
+          }
+        });
+      }
+    }).getInstance(SoyValueHelper.class);
+    SoyTofu tofu =
+        SoyFileSet.builder().add(SOY_FILE_CONTENT, "test.soy").build().compileToTofu();
+
+    // Both declared and indirect params are converted by the given converter, like the entries of
+    // a data map.
+    SoyRecord data = new ParamsBuilder()
+        .setFoo(new Money(150))
+        .setBoo("boo")
+        .setGoo(ImmutableList.of(new Money(25)))
+        .build(valueHelper);
+    assertThat(tofu.newRenderer("ns.main").setData(data).render())
+        .isEqualTo("$1.5 boo null null [$0.25]");
+    try {
+      new ParamsBuilder().setFoo(new Money(150)).build(SoyValueHelper.UNCUSTOMIZED_INSTANCE);
+      fail();
+    } catch (SoyDataException expected) {}
+  }
+
+}
@@ -21,9 +21,12 @@ import static com.google.template.soy.parseinfo.passes.GenerateParseInfoVisitor.
 import static com.google.template.soy.parseinfo.passes.GenerateParseInfoVisitor.JavaClassNameSource.SOY_FILE_NAME;
 import static com.google.template.soy.parseinfo.passes.GenerateParseInfoVisitor.JavaClassNameSource.SOY_NAMESPACE_LAST_PART;
 
+import com.google.common.collect.Iterables;
 import com.google.template.soy.base.internal.IndentedLinesBuilder;
 import com.google.template.soy.base.internal.SoyFileKind;
+import com.google.template.soy.shared.SharedTestUtils;
 import com.google.template.soy.soytree.SoyFileNode;
+import com.google.template.soy.soytree.SoyFileSetNode;
 
 import junit.framework.TestCase;
 
@@ -75,6 +78,67 @@ public class GenerateParseInfoVisitorTest extends TestCase {
   }
 
 
+  public void testParamsBuilder() {
+
+    String soyFileContent = "" +
+        "{namespace ns autoescape=\"strict\"}\n" +
+        "\n" +
+        "/**\n" +
+        " * @param foo Foo.\n" +
+        " */\n" +
+        "{template .main}\n" +
+        "  {@param boo: string}\n" +
+        "  {@param? n: int}\n" +
+        "  {$foo}{$boo}{$n}\n" +
+        "  {call .callee data=\"all\" /}\n" +
+        "{/template}\n" +
+        "\n" +
+        "/**\n" +
+        " * @param goo_2 Goo.\n" +
+        " */\n" +
+        "{template .callee}\n" +
+        "  {$goo_2}\n" +
+        "{/template}\n";
+    SoyFileSetNode soyTree = SharedTestUtils.parseSoyFiles(soyFileContent).getParseTree();
+    String javaFileContent = Iterables.getOnlyElement(
+        new GenerateParseInfoVisitor("com.example", "generic").exec(soyTree).values());
+
+    // The template's own params are set by slot, in the order the template declares them.
+    String expectedParamsBuilder = "" +
+        "    /** Builder for the data to render this template with. */\n" +
+        "    public static final class ParamsBuilder" +
+        " extends SoyTemplateParamsBuilder<ParamsBuilder> {\n" +
+        "\n" +
+        "      private static final ImmutableMap<String, Integer> PARAM_SLOT_INDICES =\n" +
+        "          internParamSlotIndices(\n" +
+        "              \"foo\",\n" +
+        "              \"boo\",\n" +
+        "              \"n\");\n" +
+        "\n" +
+        "      public ParamsBuilder() {\n" +
+        "        super(PARAM_SLOT_INDICES);\n" +
+        "      }\n" +
+        "\n" +
+        "      public ParamsBuilder setFoo(Object value) {\n" +
+        "        return setParam(0, value);\n" +
+        "      }\n" +
+        "\n" +
+        "      public ParamsBuilder setBoo(String value) {\n" +
+        "        return setParam(1, value);\n" +
+        "      }\n" +
+        "\n" +
+        "      public ParamsBuilder setN(Object value) {\n" +
+        "        return setParam(2, value);\n" +
+        "      }\n" +
+        "\n" +
+        "      public ParamsBuilder setGoo2(Object value) {\n" +
+        "        return setIndirectParam(\"goo_2\", value);\n" +
+        "      }\n" +
+        "    }\n";
+    assertTrue(javaFileContent, javaFileContent.contains(expectedParamsBuilder));
+  }
+
+
   public void testAppendJavadoc() {
 
     String doc = "" +
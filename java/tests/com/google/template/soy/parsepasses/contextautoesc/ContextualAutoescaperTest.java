@@ -34,6 +34,7 @@ import com.google.template.soy.shared.restricted.SoyPrintDirective;
 import com.google.template.soy.soyparse.SoyFileSetParser;
 import com.google.template.soy.soytree.CallNode;
 import com.google.template.soy.soytree.SoyFileSetNode;
+import com.google.template.soy.soytree.SoyNode;
 import com.google.template.soy.soytree.SoytreeUtils;
 import com.google.template.soy.soytree.TemplateNode;
 import com.google.template.soy.types.SoyTypeRegistry;
@@ -2322,8 +2323,35 @@ public final class ContextualAutoescaperTest extends TestCase {
   private String rewrittenSource(SoyFileSetNode soyTree)
       throws SoyAutoescapeException {
 
-    List<TemplateNode> tmpls = new ContextualAutoescaper(SOY_PRINT_DIRECTIVES).rewrite(soyTree);
+    // Rewriting with parallel inference must have the same result, down to the node ids.
+    SoyFileSetNode parallelSoyTree = soyTree.clone();
+    List<TemplateNode> parallelTmpls = null;
+    SoyAutoescapeException parallelFailure = null;
+    try {
+      parallelTmpls = new ContextualAutoescaper(SOY_PRINT_DIRECTIVES).rewrite(parallelSoyTree, 4);
+    } catch (SoyAutoescapeException ex) {
+      parallelFailure = ex;
+    }
+
+    List<TemplateNode> tmpls;
+    try {
+      tmpls = new ContextualAutoescaper(SOY_PRINT_DIRECTIVES).rewrite(soyTree);
+    } catch (SoyAutoescapeException ex) {
+      assertWithMessage("parallel rewriting should fail too").that(parallelFailure).isNotNull();
+      assertThat(parallelFailure.getMessage()).isEqualTo(ex.getMessage());
+      throw ex;
+    }
+    if (parallelFailure != null) {
+      throw parallelFailure;
+    }
 
+    String src = sourceOf(soyTree, tmpls);
+    assertThat(sourceOf(parallelSoyTree, parallelTmpls)).isEqualTo(src);
+    assertThat(nodeIdsOf(parallelSoyTree, parallelTmpls)).isEqualTo(nodeIdsOf(soyTree, tmpls));
+    return src;
+  }
+
+  private static String sourceOf(SoyFileSetNode soyTree, List<TemplateNode> tmpls) {
     StringBuilder src = new StringBuilder();
     src.append(soyTree.getChild(0).toSourceString());
     for (TemplateNode tn : tmpls) {
@@ -2332,6 +2360,19 @@ public final class ContextualAutoescaperTest extends TestCase {
     return src.toString();
   }
 
+  private static List<Integer> nodeIdsOf(SoyFileSetNode soyTree, List<TemplateNode> tmpls) {
+    List<Integer> ids = Lists.newArrayList();
+    for (SoyNode node : SoytreeUtils.getAllNodesOfType(soyTree, SoyNode.class)) {
+      ids.add(node.getId());
+    }
+    for (TemplateNode tn : tmpls) {
+      for (SoyNode node : SoytreeUtils.getAllNodesOfType(tn, SoyNode.class)) {
+        ids.add(node.getId());
+      }
+    }
+    return ids;
+  }
+
   private void assertContextualRewriting(String expectedOutput, String... inputs)
       throws SoyAutoescapeException {
 
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.parsepasses.contextautoesc;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableMap;
+import com.google.template.soy.SoyFileSet;
+import com.google.template.soy.shared.SharedTestUtils;
+import com.google.template.soy.shared.restricted.SoyPrintDirective;
+import com.google.template.soy.soytree.SoyFileNode;
+import com.google.template.soy.soytree.SoyFileSetNode;
+import com.google.template.soy.soytree.TemplateNode;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * Test for {@link HtmlMinificationPass}.
+ *
+ */
+public final class HtmlMinificationPassTest extends TestCase {
+
+  public final void testHtmlText() throws Exception {
+    assertMinified(
+        join(
+            "{template foo}\n",
+            "<div> Hello, {$name |escapeHtml}! Bye.</div>\n",
+            "{/template}"),
+        join(
+            "{template foo}\n",
+            "{literal}<div>   Hello,  {/literal}{$name}{literal}!  \t Bye.</div>{/literal}\n",
+            "{/template}"));
+  }
+
+  public final void testTags() throws Exception {
+    assertMinified(
+        join(
+            "{template foo}\n",
+            "<input type=\"text\" value=\"a   b\" checked>",
+            "<textarea>a   b</textarea>\n",
+            "{/template}"),
+        join(
+            "{template foo}\n",
+            "{literal}<input   type=\"text\"  value=\"a   b\"\t checked>",
+            "<textarea>a   b</textarea>{/literal}\n",
+            "{/template}"));
+  }
+
+  public final void testCss() throws Exception {
+    assertMinified(
+        join(
+            "{template foo}\n",
+            "<style>a:hover,b{lb}color: red;font-family: 'A   B'{rb}</style>\n",
+            "{/template}"),
+        join(
+            "{template foo}\n",
+            "{literal}<style>a:hover ,  b  { color: red ; font-family: 'A   B' }</style>",
+            "{/literal}\n",
+            "{/template}"));
+  }
+
+  public final void testJs() throws Exception {
+    assertMinified(
+        join(
+            "{template foo}\n",
+            "<script>var x = 'a   b';{\\n}x = x{\\n}+ 1; // a   b{\\n}</script>\n",
+            "{/template}"),
+        join(
+            "{template foo}\n",
+            "{literal}<script>var  x  =  'a   b';\n\n  x = x\n  + 1; // a   b\n</script>",
+            "{/literal}\n",
+            "{/template}"));
+  }
+
+  public final void testAttributeValues() throws Exception {
+    // Attribute values are left as is, even in JS and CSS attributes, while the whitespace between
+    // attributes is collapsed.
+    assertMinified(
+        join(
+            "{template foo}\n",
+            "<a onclick=\"alert('a   b')\" style=\"content: 'x  ,  y'\" title=a href=\"#\">",
+            "</a>\n",
+            "{/template}"),
+        join(
+            "{template foo}\n",
+            "{literal}<a  onclick=\"alert('a   b')\"  style=\"content: 'x  ,  y'\"  title=a   ",
+            "href=\"#\"></a>{/literal}\n",
+            "{/template}"));
+    assertMinified(
+        join(
+            "{template foo}\n",
+            "<a onclick=alert(1) title=\"x\">",
+            "</a>\n",
+            "{/template}"),
+        join(
+            "{template foo}\n",
+            "{literal}<a onclick=alert(1)  title=\"x\"></a>{/literal}\n",
+            "{/template}"));
+  }
+
+  public final void testTemplateWithPreTag() throws Exception {
+    assertMinified(
+        join(
+            "{template foo}\n",
+            "<pre class=\"x\">a   b</pre>\n",
+            "{/template}"),
+        join(
+            "{template foo}\n",
+            "{literal}<pre   class=\"x\">a   b</pre>{/literal}\n",
+            "{/template}"));
+  }
+
+  public final void testMsg() throws Exception {
+    assertMinified(
+        join(
+            "{template foo}\n",
+            "<b> {msg desc=\"\"}Hello,   world{/msg}</b>\n",
+            "{/template}"),
+        join(
+            "{template foo}\n",
+            "{literal}<b>  {/literal}{msg desc=\"\"}Hello,{sp}{sp} world{/msg}</b>\n",
+            "{/template}"));
+  }
+
+  public final void testRenderedOutput() throws Exception {
+    String soyFileContent = join(
+        "{namespace ns autoescape=\"strict\"}\n",
+        "\n",
+        "/** @param x */\n",
+        "{template .main}\n",
+        "  {literal}<div   id=\"a\">  {/literal}{$x}{literal}  </div>{/literal}\n",
+        "{/template}\n");
+
+    SoyFileSet.Builder builder = SoyFileSet.builder().add(soyFileContent, "test.soy");
+    assertThat(builder.build().compileToTofu().newRenderer("ns.main")
+        .setData(ImmutableMap.of("x", "<")).render())
+        .isEqualTo("<div   id=\"a\">  &lt;  </div>");
+    builder.setMinifyHtml(true);
+    assertThat(builder.build().compileToTofu().newRenderer("ns.main")
+        .setData(ImmutableMap.of("x", "<")).render())
+        .isEqualTo("<div id=\"a\"> &lt; </div>");
+  }
+
+
+  private static String join(String... lines) {
+    return Joiner.on("").join(lines);
+  }
+
+  /**
+   * Asserts that the contextually rewritten and minified source of the first file is as expected.
+   */
+  private void assertMinified(String expectedOutput, String input) throws Exception {
+    String namespace = "{namespace ns autoescape=\"deprecated-contextual\"}\n\n";
+    SoyFileSetNode soyTree = SharedTestUtils.parseSoyFiles(namespace + input).getParseTree();
+
+    ContextualAutoescaper contextualAutoescaper = new ContextualAutoescaper(
+        ImmutableMap.<String, SoyPrintDirective>of());
+    List<TemplateNode> extras = contextualAutoescaper.rewrite(soyTree);
+
+    SoyFileNode file = soyTree.getChild(soyTree.numChildren() - 1);
+    file.addChildren(file.numChildren(), extras);
+
+    HtmlMinificationPass.minify(contextualAutoescaper.getSlicedRawTextNodes());
+
+    String output = soyTree.getChild(0).toSourceString().trim();
+    if (output.startsWith("{namespace ns")) {
+      output = output.substring(output.indexOf('}') + 1).trim();
+    }
+    assertThat(output).isEqualTo(expectedOutput);
+  }
+}
@@ -26,6 +26,7 @@ import junit.framework.TestCase;
 
 import java.util.Arrays;
 import java.util.Queue;
+import java.util.Random;
 
 public class RawTextContextUpdaterTest extends TestCase {
   // The letter 'M' repeated 1500 times.
@@ -537,6 +538,54 @@ public class RawTextContextUpdaterTest extends TestCase {
                      "HTML_PCDATA templateNestDepth=3");
   }
 
+  public final void testCombinedPatternsMatchSeparatePatterns() throws Exception {
+    // Fragments that start or end tokens in the various states, to build random raw text from.
+    String[] fragments = {
+        "<", ">", "/", "</", "/>", "=", "\"", "'", "\\", " ", "\n", "\r\n", "\f", "\u2028",
+        "-->", "<!--", "/*", "*/", "//", "?", "#", "&quot;", "&#39;", "(", ")", "[", "]",
+        "a", "x1", "data-foo", "--", "on", "click", "href", "src", "style", "url(", "script",
+        "SCRIPT", "textarea", "title", "xmp", "template", "</script>", "</style>", "</xmp>",
+        "return", "x.y", "42", "++", "{"};
+    String[] contexts = {
+        "HTML_PCDATA", "HTML_RCDATA TEXTAREA", "HTML_RCDATA XMP", "HTML_TAG NORMAL",
+        "HTML_TAG SCRIPT", "CSS", "CSS_DQ_STRING", "CSS_URI START", "JS REGEX", "JS DIV_OP",
+        "JS_DQ_STRING", "JS_REGEX", "URI NORMAL URI DOUBLE_QUOTE START",
+        "JS NORMAL SCRIPT SINGLE_QUOTE REGEX", "CSS NORMAL STYLE SPACE_OR_TAG_END", "TEXT"};
+    Random random = new Random(42);
+    for (int i = 0; i < 5000; i++) {
+      StringBuilder rawText = new StringBuilder();
+      for (int j = random.nextInt(12); j >= 0; j--) {
+        rawText.append(fragments[random.nextInt(fragments.length)]);
+      }
+      RawTextNode rawTextNode = new RawTextNode(0, rawText.toString());
+      Context context = parseContext(contexts[random.nextInt(contexts.length)]);
+      String message = context + " " + rawText;
+      String expected;
+      try {
+        expected = describe(
+            RawTextContextUpdater.processRawTextBySeparatePatterns(rawTextNode, context));
+      } catch (SoyAutoescapeException e) {
+        expected = e.getMessage();
+      }
+      String actual;
+      try {
+        actual = describe(RawTextContextUpdater.processRawText(rawTextNode, context));
+      } catch (SoyAutoescapeException e) {
+        actual = e.getMessage();
+      }
+      assertWithMessage(message).that(actual).isEqualTo(expected);
+    }
+  }
+
+  private static String describe(SlicedRawTextNode slicedRawTextNode) {
+    StringBuilder sb = new StringBuilder();
+    for (SlicedRawTextNode.RawTextSlice slice : slicedRawTextNode.getSlices()) {
+      sb.append(slice.getStartOffset()).append('+').append(slice.getLength())
+          .append(' ').append(slice.context).append('\n');
+    }
+    return sb.append(slicedRawTextNode.getEndContext()).toString();
+  }
+
   private static void assertTransition(String from, String rawText, String to) throws Exception {
     Context after = RawTextContextUpdater.processRawText(
         new RawTextNode(0, rawText), parseContext(from)).getEndContext();
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.sharedpasses;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.template.soy.base.SoySyntaxException;
+import com.google.template.soy.shared.SharedTestUtils;
+import com.google.template.soy.shared.restricted.SoyFunction;
+import com.google.template.soy.shared.restricted.SoyPrintDirective;
+import com.google.template.soy.shared.restricted.SoyPureFunction;
+import com.google.template.soy.shared.restricted.SoyPurePrintDirective;
+import com.google.template.soy.soyparse.TransitionalThrowingErrorReporter;
+import com.google.template.soy.soytree.SoyFileSetNode;
+
+import junit.framework.TestCase;
+
+import java.util.Set;
+
+/**
+ * Unit tests for CheckCachedTemplatesVisitor.
+ *
+ */
+public final class CheckCachedTemplatesVisitorTest extends TestCase {
+
+
+  @SoyPureFunction
+  private static final class PureFunction implements SoyFunction {
+    @Override public String getName() {
+      return "pureFn";
+    }
+
+    @Override public Set<Integer> getValidArgsSizes() {
+      return ImmutableSet.of(1);
+    }
+  }
+
+
+  private static final class NonPureFunction implements SoyFunction {
+    @Override public String getName() {
+      return "nonPureFn";
+    }
+
+    @Override public Set<Integer> getValidArgsSizes() {
+      return ImmutableSet.of(1);
+    }
+  }
+
+
+  @SoyPurePrintDirective
+  private static final class PureDirective implements SoyPrintDirective {
+    @Override public String getName() {
+      return "|pureDirective";
+    }
+
+    @Override public Set<Integer> getValidArgsSizes() {
+      return ImmutableSet.of(0);
+    }
+
+    @Override public boolean shouldCancelAutoescape() {
+      return false;
+    }
+  }
+
+
+  private static final class NonPureDirective implements SoyPrintDirective {
+    @Override public String getName() {
+      return "|nonPureDirective";
+    }
+
+    @Override public Set<Integer> getValidArgsSizes() {
+      return ImmutableSet.of(0);
+    }
+
+    @Override public boolean shouldCancelAutoescape() {
+      return false;
+    }
+  }
+
+
+  public void testPureCachedTemplate() {
+    applyCheckCachedTemplatesVisitor(Joiner.on('\n').join(
+        "{namespace ns autoescape=\"strict\"}",
+        "",
+        "/** @param x */",
+        "{template .foo cache=\"true\"}",
+        "  {pureFn($x) |pureDirective}{call .bar}{param x: $x /}{/call}",
+        "{/template}",
+        "",
+        "/** @param x */",
+        "{template .bar}",
+        "  {foreach $y in $x}{index($y)}{/foreach}",
+        "  {call .baz data=\"all\" /}",
+        "{/template}",
+        "",
+        "/** @param x */",
+        "{template .baz}",
+        "  {$x}",
+        "{/template}"));
+  }
+
+
+  public void testUncachedTemplatesAreNotChecked() {
+    applyCheckCachedTemplatesVisitor(Joiner.on('\n').join(
+        "{namespace ns autoescape=\"strict\"}",
+        "",
+        "/** @param x */",
+        "{template .foo}",
+        "  {nonPureFn($x)}{$ij.y}",
+        "  {log}{$x}{/log}",
+        "{/template}"));
+  }
+
+
+  public void testCachedTemplateReadingIjData() {
+    assertCachedTemplatesInvalid(
+        "Template ns.foo is declared cache=\"true\" but it reads injected data (\"$ij\").",
+        Joiner.on('\n').join(
+            "{namespace ns autoescape=\"strict\"}",
+            "",
+            "/***/",
+            "{template .foo cache=\"true\"}",
+            "  {$ij.y}",
+            "{/template}"));
+  }
+
+
+  public void testCachedTemplateCallingNonPureFunction() {
+    assertCachedTemplatesInvalid(
+        "Template ns.foo is declared cache=\"true\" but it calls non-pure function 'nonPureFn'.",
+        Joiner.on('\n').join(
+            "{namespace ns autoescape=\"strict\"}",
+            "",
+            "/** @param x */",
+            "{template .foo cache=\"true\"}",
+            "  {pureFn(nonPureFn($x))}",
+            "{/template}"));
+  }
+
+
+  public void testCachedTemplateApplyingNonPurePrintDirective() {
+    assertCachedTemplatesInvalid(
+        "Template ns.foo is declared cache=\"true\" but it applies non-pure print directive"
+            + " '|nonPureDirective'.",
+        Joiner.on('\n').join(
+            "{namespace ns autoescape=\"strict\"}",
+            "",
+            "/** @param x */",
+            "{template .foo cache=\"true\"}",
+            "  {$x |pureDirective |nonPureDirective}",
+            "{/template}"));
+  }
+
+
+  public void testCachedTemplatePassingAllData() {
+    assertCachedTemplatesInvalid(
+        "Template ns.foo is declared cache=\"true\" but passes all of its data to a callee"
+            + " (data=\"all\").",
+        Joiner.on('\n').join(
+            "{namespace ns autoescape=\"strict\"}",
+            "",
+            "/** @param x */",
+            "{template .foo cache=\"true\"}",
+            "  {call .bar data=\"all\" /}",
+            "{/template}",
+            "",
+            "/** @param x */",
+            "{template .bar}",
+            "  {$x}",
+            "{/template}"));
+  }
+
+
+  public void testCachedTemplateWithLog() {
+    assertCachedTemplatesInvalid(
+        "Template ns.foo is declared cache=\"true\" but it contains a {log} command.",
+        Joiner.on('\n').join(
+            "{namespace ns autoescape=\"strict\"}",
+            "",
+            "/** @param x */",
+            "{template .foo cache=\"true\"}",
+            "  {log}{$x}{/log}",
+            "{/template}"));
+  }
+
+
+  public void testCachedTemplateCallingImpureTemplate() {
+    assertCachedTemplatesInvalid(
+        "Template ns.foo is declared cache=\"true\" but ns.baz reads injected data (\"$ij\").",
+        Joiner.on('\n').join(
+            "{namespace ns autoescape=\"strict\"}",
+            "",
+            "/***/",
+            "{template .foo cache=\"true\"}",
+            "  {call .bar /}",
+            "{/template}",
+            "",
+            "/***/",
+            "{template .bar}",
+            "  {call .baz /}",
+            "{/template}",
+            "",
+            "/***/",
+            "{template .baz}",
+            "  {$ij.y}",
+            "{/template}"));
+  }
+
+
+  private static void applyCheckCachedTemplatesVisitor(String soyContent) {
+    SoyFileSetNode soyTree = SharedTestUtils.parseSoyFiles(soyContent).getParseTree();
+    TransitionalThrowingErrorReporter errorReporter = new TransitionalThrowingErrorReporter();
+    new CheckCachedTemplatesVisitor(
+        ImmutableMap.<String, SoyFunction>of(
+            "pureFn", new PureFunction(), "nonPureFn", new NonPureFunction()),
+        ImmutableMap.<String, SoyPrintDirective>of(
+            "|pureDirective", new PureDirective(), "|nonPureDirective", new NonPureDirective()))
+        .exec(soyTree, errorReporter);
+    errorReporter.throwIfErrorsPresent();
+  }
+
+
+  private static void assertCachedTemplatesInvalid(String errorMessage, String soyContent) {
+    try {
+      applyCheckCachedTemplatesVisitor(soyContent);
+      fail("Spurious success.");
+    } catch (SoySyntaxException ex) {
+      assertThat(ex.getMessage()).contains(errorMessage);
+    }
+  }
+
+}
@@ -19,6 +19,7 @@ package com.google.template.soy.sharedpasses;
 import static com.google.common.truth.Truth.assertThat;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedSet;
 import com.google.template.soy.shared.SharedTestUtils;
 import com.google.template.soy.sharedpasses.FindIjParamsVisitor.IjParamsInfo;
 import com.google.template.soy.soytree.SoyFileSetNode;
@@ -360,4 +361,55 @@ public final class FindIjParamsVisitorTest extends TestCase {
     assertThat(templateToIjParamsInfoMap.get(aaa).ijParamToCalleesMultimap.keySet()).hasSize(6);
   }
 
+
+  public void testExecOnAllTemplatesForIjParamSets() {
+
+    String fileContent =
+        "{namespace ns}\n" +
+        "\n" +
+        "/***/\n" +
+        "{template .aaa}\n" +
+        "  {call .bbb /} {$ij.boo}\n" +
+        "{/template}\n" +
+        "\n" +
+        "/***/\n" +
+        "{template .bbb}\n" +
+        "  {$ij.moo} {$ij.foo}\n" +
+        "{/template}\n" +
+        "\n" +
+        "/***/\n" +
+        "{template .ccc}\n" +
+        "  {$ij.moo} {$ij.foo}{$ij.boo}\n" +
+        "{/template}\n" +
+        "\n" +
+        "/***/\n" +
+        "{template .ddd}\n" +
+        "  {call .ddd /}\n" +
+        "{/template}\n";
+
+    SoyFileSetNode soyTree = SharedTestUtils.parseSoyFiles(fileContent).getParseTree();
+
+    TemplateNode aaa = soyTree.getChild(0).getChild(0);
+    TemplateNode bbb = soyTree.getChild(0).getChild(1);
+    TemplateNode ccc = soyTree.getChild(0).getChild(2);
+    TemplateNode ddd = soyTree.getChild(0).getChild(3);
+
+    ImmutableMap<TemplateNode, ImmutableSortedSet<String>> templateToIjParamSetMap =
+        (new FindIjParamsVisitor(null)).execOnAllTemplatesForIjParamSets(soyTree);
+    assertThat(templateToIjParamSetMap).hasSize(4);
+    assertThat(templateToIjParamSetMap.get(aaa)).containsExactly("boo", "foo", "moo").inOrder();
+    assertThat(templateToIjParamSetMap.get(bbb)).containsExactly("foo", "moo").inOrder();
+    assertThat(templateToIjParamSetMap.get(ddd)).isEmpty();
+    // Equal sets are shared.
+    assertSame(templateToIjParamSetMap.get(aaa), templateToIjParamSetMap.get(ccc));
+
+    // The sets are the same as the ones computed with the callees.
+    ImmutableMap<TemplateNode, IjParamsInfo> templateToIjParamsInfoMap =
+        (new FindIjParamsVisitor(null)).execOnAllTemplates(soyTree);
+    for (TemplateNode template : templateToIjParamsInfoMap.keySet()) {
+      assertThat(templateToIjParamSetMap.get(template))
+          .isEqualTo(templateToIjParamsInfoMap.get(template).ijParamSet);
+    }
+  }
+
 }
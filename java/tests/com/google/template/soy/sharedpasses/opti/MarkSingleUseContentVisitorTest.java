@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.sharedpasses.opti;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableMap;
+import com.google.template.soy.SoyFileSet;
+import com.google.template.soy.shared.SharedTestUtils;
+import com.google.template.soy.soytree.CallParamContentNode;
+import com.google.template.soy.soytree.LetContentNode;
+import com.google.template.soy.soytree.SoyFileSetNode;
+import com.google.template.soy.soytree.SoytreeUtils;
+import com.google.template.soy.tofu.SoyTofu;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * Unit tests for MarkSingleUseContentVisitor.
+ *
+ */
+public final class MarkSingleUseContentVisitorTest extends TestCase {
+
+
+  private static final String SOY_FILE_CONTENT = Joiner.on('\n').join(
+      "{namespace ns autoescape=\"strict\"}",
+      "",
+      "/** @param x */",
+      "{template .lets}",
+      "  {let $once kind=\"html\"}<b>{$x}</b>{/let}",
+      "  {let $onceInIf kind=\"html\"}<i>{$x}</i>{/let}",
+      "  {let $twice kind=\"html\"}<u>{$x}</u>{/let}",
+      "  {let $inLoop kind=\"html\"}<s>{$x}</s>{/let}",
+      "  {let $inExpr kind=\"text\"}{$x}{/let}",
+      "  {let $inMsg kind=\"html\"}<em>{$x}</em>{/let}",
+      "  {$once}",
+      "  {if $x}{switch $x}{case 1}{$onceInIf}{/switch}{/if}",
+      "  {$twice}{$twice}",
+      "  {for $i in range(2)}{$inLoop}{/for}",
+      "  {$inExpr + '!'}",
+      "  {msg desc=\"\"}Hello {$inMsg}{/msg}",
+      "{/template}",
+      "",
+      "/** @param x */",
+      "{template .caller}",
+      "  {call .printsOnce}{param p kind=\"html\"}<b>{$x}</b>{/param}{/call}",
+      "  {call .printsTwice}{param p kind=\"html\"}<b>{$x}</b>{/param}{/call}",
+      "  {call .passesAllData}{param p kind=\"html\"}<b>{$x}</b>{/param}{/call}",
+      "{/template}",
+      "",
+      "/** @param p */",
+      "{template .printsOnce}",
+      "  <div>{$p}</div>",
+      "{/template}",
+      "",
+      "/** @param p */",
+      "{template .printsTwice}",
+      "  {$p}{$p}",
+      "{/template}",
+      "",
+      "/** @param p */",
+      "{template .passesAllData}",
+      "  {$p}{call .printsOnce data=\"all\" /}",
+      "{/template}");
+
+
+  public void testMarkLets() {
+    SoyFileSetNode soyTree = SharedTestUtils.parseSoyFiles(SOY_FILE_CONTENT).getParseTree();
+    new MarkSingleUseContentVisitor().exec(soyTree);
+
+    List<LetContentNode> lets =
+        SoytreeUtils.getAllNodesOfType(soyTree.getChild(0).getChild(0), LetContentNode.class);
+    assertThat(lets.get(0).isSingleUse()).isTrue();  // $once
+    assertThat(lets.get(1).isSingleUse()).isTrue();  // $onceInIf
+    assertThat(lets.get(2).isSingleUse()).isFalse();  // $twice
+    assertThat(lets.get(3).isSingleUse()).isFalse();  // $inLoop
+    assertThat(lets.get(4).isSingleUse()).isFalse();  // $inExpr
+    assertThat(lets.get(5).isSingleUse()).isFalse();  // $inMsg
+  }
+
+
+  public void testMarkParams() {
+    SoyFileSetNode soyTree = SharedTestUtils.parseSoyFiles(SOY_FILE_CONTENT).getParseTree();
+    new MarkSingleUseContentVisitor().exec(soyTree);
+
+    List<CallParamContentNode> params = SoytreeUtils.getAllNodesOfType(
+        soyTree.getChild(0).getChild(1), CallParamContentNode.class);
+    assertThat(params.get(0).isSingleUse()).isTrue();  // .printsOnce
+    assertThat(params.get(1).isSingleUse()).isFalse();  // .printsTwice
+    assertThat(params.get(2).isSingleUse()).isFalse();  // .passesAllData
+  }
+
+
+  public void testRenderedOutputIsUnchanged() {
+    SoyTofu tofu = SoyFileSet.builder().add(SOY_FILE_CONTENT, "test.soy").build().compileToTofu();
+
+    assertThat(tofu.newRenderer("ns.lets").setData(ImmutableMap.of("x", 1)).render())
+        .isEqualTo("<b>1</b><i>1</i><u>1</u><u>1</u><s>1</s><s>1</s>1!Hello <em>1</em>");
+    assertThat(tofu.newRenderer("ns.caller").setData(ImmutableMap.of("x", "<")).render())
+        .isEqualTo("<div><b>&lt;</b></div><b>&lt;</b><b>&lt;</b><b>&lt;</b><div><b>&lt;</b></div>");
+  }
+
+}
@@ -125,7 +125,8 @@ public class PreevalVisitorTest extends TestCase {
             null,
             TestingEnvironment.createForTest(
                 SoyValueHelper.UNCUSTOMIZED_INSTANCE.newEasyDict("boo", 8),
-                new HashMap<String, SoyValueProvider>()));
+                new HashMap<String, SoyValueProvider>()),
+            null);
     return preevalVisitor.exec(expr);
   }
 
@@ -34,7 +34,9 @@ import com.google.template.soy.data.SoyRecord;
 import com.google.template.soy.data.SoyValue;
 import com.google.template.soy.data.SoyValueHelper;
 import com.google.template.soy.data.SoyValueProvider;
+import com.google.template.soy.data.restricted.BooleanData;
 import com.google.template.soy.data.restricted.FloatData;
+import com.google.template.soy.data.restricted.IntegerData;
 import com.google.template.soy.data.restricted.NullData;
 import com.google.template.soy.data.restricted.StringData;
 import com.google.template.soy.data.restricted.UndefinedData;
@@ -108,7 +110,36 @@ public class EvalVisitorTest extends TestCase {
 
     EvalVisitor evalVisitor =
         INJECTOR.getInstance(EvalVisitorFactory.class)
-            .create(TEST_IJ_DATA, TestingEnvironment.createForTest(testData, locals));
+            .create(TEST_IJ_DATA, TestingEnvironment.createForTest(testData, locals), null);
+    return evalVisitor.exec(expr);
+  }
+
+
+  /**
+   * Evaluates the given expression in a template that declares the test data with static types,
+   * so that the expression's operators are typed by ResolveExpressionTypesVisitor.
+   * @param expression The expression to evaluate.
+   * @return The expression result.
+   * @throws Exception If there's an error.
+   */
+  private SoyValue evalTyped(String expression) throws Exception {
+    PrintNode code =
+        (PrintNode) SharedTestUtils.parseSoyCode(
+            "{@param boo: int}\n" +
+            "{@param moo: float}\n" +
+            "{@param woo: int}\n" +  // Deliberately the wrong type; the value is a float.
+            "{@param goo: list<int>}\n" +
+            "{@param longNumber: int}\n" +
+            "{" + expression + "}")
+            .getParseTree()
+            .getChild(0)
+            .getChild(0)
+            .getChild(0);
+    ExprRootNode<?> expr = code.getExprUnion().getExpr();
+
+    EvalVisitor evalVisitor =
+        INJECTOR.getInstance(EvalVisitorFactory.class)
+            .create(TEST_IJ_DATA, TestingEnvironment.createForTest(testData, locals), null);
     return evalVisitor.exec(expr);
   }
 
@@ -414,6 +445,42 @@ public class EvalVisitorTest extends TestCase {
   }
 
 
+  public void testEvalNumericalOperatorsWithStaticTypes() throws Exception {
+
+    assertThat(evalTyped("-$boo")).isEqualTo(IntegerData.forValue(-8));
+    assertThat(evalTyped("-$moo")).isEqualTo(FloatData.forValue(-3.14));
+    assertThat(evalTyped("$boo * 2 + $boo % 3 - 1")).isEqualTo(IntegerData.forValue(17));
+    assertThat(evalTyped("$boo + $moo")).isEqualTo(FloatData.forValue(11.14));
+    assertThat(evalTyped("$boo / 16")).isEqualTo(FloatData.forValue(0.5));
+    assertThat(evalTyped("$goo[3] * $boo")).isEqualTo(IntegerData.forValue(80));
+    assertThat(evalTyped("$longNumber * 4 - $longNumber"))
+        .isEqualTo(IntegerData.forValue(3000000000000000003L));
+    assertThat(evalTyped("$longNumber < $longNumber + 1")).isEqualTo(BooleanData.TRUE);
+    assertThat(evalTyped("$boo == 8.0")).isEqualTo(BooleanData.TRUE);
+    assertThat(evalTyped("$boo != $moo")).isEqualTo(BooleanData.TRUE);
+    assertThat(evalTyped("$moo >= 3.14 and $boo > 7")).isEqualTo(BooleanData.TRUE);
+
+    // A value that doesn't match its static type falls back to the boxed implementation.
+    assertThat(evalTyped("$woo * 2")).isEqualTo(FloatData.forValue(-3.236));
+    assertThat(evalTyped("$boo * $woo < 0")).isEqualTo(BooleanData.TRUE);
+    // Operands other than literals and data references are only evaluated boxed, so the fallback
+    // doesn't evaluate them again.
+    assertThat(evalTyped("($boo > 0 ? $woo : 1) * 2")).isEqualTo(FloatData.forValue(-3.236));
+
+    // Errors are the same as in the boxed implementation.
+    try {
+      evalTyped("$woo % 2");
+      fail();
+    } catch (SoyDataException expected) {
+    }
+    try {
+      evalTyped("$boo % 0");
+      fail();
+    } catch (ArithmeticException expected) {
+    }
+  }
+
+
   public void testEvalDataRefWithExpressions() throws Exception {
 
     assertEval("$foo['bar']", "baz");
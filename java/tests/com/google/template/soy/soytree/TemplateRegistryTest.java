@@ -19,9 +19,12 @@ package com.google.template.soy.soytree;
 import static com.google.template.soy.soytree.TemplateRegistrySubject.assertThatRegistry;
 
 import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
 import com.google.template.soy.SoyFileSet;
 import com.google.template.soy.base.SourceLocation;
 import com.google.template.soy.base.SoySyntaxException;
+import com.google.template.soy.shared.SharedTestUtils;
 
 import junit.framework.TestCase;
 
@@ -115,4 +118,24 @@ public final class TemplateRegistryTest extends TestCase {
     assertThatRegistry(registry).containsDelTemplate("foo.bar")
         .definedAt(new SourceLocation("bar.soy", 4, 1, 5, 14));
   }
+
+  public void testTemplatesFromDifferentTrees() {
+    SoyFileSetNode soyTree = SharedTestUtils.parseSoyFiles(
+        "{namespace ns}\n"
+            + "/** Template. */\n"
+            + "{template .foo}\n"
+            + "{/template}\n"
+            + "/** Deltemplate. */\n"
+            + "{deltemplate bar.baz}\n"
+            + "{/deltemplate}").getParseTree();
+    SoyFileSetNode soyTreeClone = soyTree.clone();
+
+    TemplateNode foo = soyTree.getChild(0).getChild(0);
+    TemplateNode bazClone = soyTreeClone.getChild(0).getChild(1);
+    TemplateRegistry registry = new TemplateRegistry(ImmutableList.of(foo, bazClone));
+
+    assertThat(registry.getBasicTemplate("ns.foo")).isSameAs(foo);
+    assertThat(registry.getDelTemplateKeysForAllVariants("bar.baz")).hasSize(1);
+    assertThatRegistry(registry).containsDelTemplate("bar.baz");
+  }
 }
@@ -8,6 +8,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.template.soy.parseinfo.SoyFileInfo;
 import com.google.template.soy.parseinfo.SoyTemplateInfo;
+import com.google.template.soy.parseinfo.SoyTemplateParamsBuilder;
 
 
 /**
@@ -76,6 +77,17 @@ public final class ParseInfoExampleSoyInfo extends SoyFileInfo {
     public static HelloSoyTemplateInfo getInstance() {
       return __INSTANCE__;
     }
+
+    /** Builder for the data to render this template with. */
+    public static final class ParamsBuilder extends SoyTemplateParamsBuilder<ParamsBuilder> {
+
+      private static final ImmutableMap<String, Integer> PARAM_SLOT_INDICES =
+          internParamSlotIndices();
+
+      public ParamsBuilder() {
+        super(PARAM_SLOT_INDICES);
+      }
+    }
   }
 
   /** Same as HelloSoyTemplateInfo.getInstance(). */
@@ -127,6 +139,39 @@ public final class ParseInfoExampleSoyInfo extends SoyFileInfo {
     public static AaaSoyTemplateInfo getInstance() {
       return __INSTANCE__;
     }
+
+    /** Builder for the data to render this template with. */
+    public static final class ParamsBuilder extends SoyTemplateParamsBuilder<ParamsBuilder> {
+
+      private static final ImmutableMap<String, Integer> PARAM_SLOT_INDICES =
+          internParamSlotIndices(
+              "xxx",
+              "ppp1");
+
+      public ParamsBuilder() {
+        super(PARAM_SLOT_INDICES);
+      }
+
+      public ParamsBuilder setXxx(Object value) {
+        return setParam(0, value);
+      }
+
+      public ParamsBuilder setPpp1(Object value) {
+        return setParam(1, value);
+      }
+
+      public ParamsBuilder setQqq22(Object value) {
+        return setIndirectParam("qqq22", value);
+      }
+
+      public ParamsBuilder setRrr3(Object value) {
+        return setIndirectParam("rrr_3", value);
+      }
+
+      public ParamsBuilder setYyyZzz(Object value) {
+        return setIndirectParam("yyyZzz", value);
+      }
+    }
   }
 
   /** Same as AaaSoyTemplateInfo.getInstance(). */
@@ -179,6 +224,36 @@ public final class ParseInfoExampleSoyInfo extends SoyFileInfo {
     public static BbbCccSoyTemplateInfo getInstance() {
       return __INSTANCE__;
     }
+
+    /** Builder for the data to render this template with. */
+    public static final class ParamsBuilder extends SoyTemplateParamsBuilder<ParamsBuilder> {
+
+      private static final ImmutableMap<String, Integer> PARAM_SLOT_INDICES =
+          internParamSlotIndices(
+              "yyyZzz",
+              "ppp1",
+              "qqq22");
+
+      public ParamsBuilder() {
+        super(PARAM_SLOT_INDICES);
+      }
+
+      public ParamsBuilder setYyyZzz(Object value) {
+        return setParam(0, value);
+      }
+
+      public ParamsBuilder setPpp1(Object value) {
+        return setParam(1, value);
+      }
+
+      public ParamsBuilder setQqq22(Object value) {
+        return setParam(2, value);
+      }
+
+      public ParamsBuilder setRrr3(Object value) {
+        return setIndirectParam("rrr_3", value);
+      }
+    }
   }
 
   /** Same as BbbCccSoyTemplateInfo.getInstance(). */
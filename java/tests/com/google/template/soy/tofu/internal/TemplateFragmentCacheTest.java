@@ -0,0 +1,156 @@
+/*
+ * Copyright 2015 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.template.soy.tofu.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.template.soy.SoyFileSet;
+import com.google.template.soy.data.SoyValueHelper;
+import com.google.template.soy.data.internal.BasicParamStore;
+import com.google.template.soy.data.internal.ParamStore;
+import com.google.template.soy.data.restricted.StringData;
+import com.google.template.soy.msgs.SoyMsgBundle;
+import com.google.template.soy.msgs.restricted.SoyMsg;
+import com.google.template.soy.msgs.restricted.SoyMsgBundleImpl;
+import com.google.template.soy.shared.SharedTestUtils;
+import com.google.template.soy.soytree.SoyFileSetNode;
+import com.google.template.soy.soytree.TemplateBasicNode;
+import com.google.template.soy.tofu.SoyTofu;
+import com.google.template.soy.tofu.SoyTofuOptions;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for TemplateFragmentCache.
+ *
+ */
+public class TemplateFragmentCacheTest extends TestCase {
+
+
+  private static final String SOY_FILE_CONTENT = "" +
+      "{namespace ns autoescape=\"strict\"}\n" +
+      "\n" +
+      "/** @param names */\n" +
+      "{template .main}\n" +
+      "  {foreach $name in $names}\n" +
+      "    {call .badge}{param label: $name /}{/call}\n" +
+      "  {/foreach}\n" +
+      "{/template}\n" +
+      "\n" +
+      "/** @param label */\n" +
+      "{template .badge cache=\"true\"}\n" +
+      "  <b>{$label}</b>\n" +
+      "{/template}\n";
+
+
+  public void testCachedTemplateOutput() {
+    BaseTofu tofu = compile(SoyTofuOptions.DEFAULT_FRAGMENT_CACHE_MAX_BYTES);
+
+    assertThat(render(tofu, "a", "b", "a")).isEqualTo("<b>a</b><b>b</b><b>a</b>");
+    assertThat(tofu.getFragmentCacheStats().missCount()).isEqualTo(2);
+    assertThat(tofu.getFragmentCacheStats().hitCount()).isEqualTo(1);
+
+    assertThat(render(tofu, "b", "<c>")).isEqualTo("<b>b</b><b>&lt;c&gt;</b>");
+    assertThat(tofu.getFragmentCacheStats().missCount()).isEqualTo(3);
+    assertThat(tofu.getFragmentCacheStats().hitCount()).isEqualTo(2);
+  }
+
+
+  public void testDisabledCache() {
+    BaseTofu tofu = compile(0);
+
+    assertThat(render(tofu, "a", "a")).isEqualTo("<b>a</b><b>a</b>");
+    assertThat(tofu.getFragmentCacheStats()).isNull();
+  }
+
+
+  public void testSwapMsgBundle() {
+    BaseTofu tofu = compile(SoyTofuOptions.DEFAULT_FRAGMENT_CACHE_MAX_BYTES);
+    SoyMsgBundle oldMsgBundle = new SoyMsgBundleImpl("de", ImmutableList.<SoyMsg>of());
+    SoyMsgBundle newMsgBundle = new SoyMsgBundleImpl("de", ImmutableList.<SoyMsg>of());
+
+    tofu.swapMsgBundle(oldMsgBundle);
+    render(tofu.newRenderer("ns.main").setLocale("de"), "a");
+    assertThat(tofu.getFragmentCacheStats().missCount()).isEqualTo(1);
+
+    // Outputs are cached per msg bundle, and the outputs of the replaced bundle are dropped.
+    tofu.swapMsgBundle(newMsgBundle);
+    render(tofu.newRenderer("ns.main").setLocale("de"), "a", "a");
+    assertThat(tofu.getFragmentCacheStats().missCount()).isEqualTo(2);
+    assertThat(tofu.getFragmentCacheStats().hitCount()).isEqualTo(1);
+    render(tofu.newRenderer("ns.main").setMsgBundle(oldMsgBundle), "a");
+    assertThat(tofu.getFragmentCacheStats().missCount()).isEqualTo(3);
+  }
+
+
+  public void testFingerprintDeclaredParams() {
+    SoyFileSetNode soyTree = SharedTestUtils.parseSoyFiles(SOY_FILE_CONTENT).getParseTree();
+    TemplateBasicNode badge = (TemplateBasicNode) soyTree.getChild(0).getChild(1);
+    SoyValueHelper valueHelper = SoyValueHelper.UNCUSTOMIZED_INSTANCE;
+
+    // Undeclared params are neither fingerprinted nor passed on.
+    ParamStore callData = new BasicParamStore();
+    callData.setField("label", valueHelper.convert(ImmutableMap.of("x", 1, "y", "2")));
+    callData.setField("other", StringData.forValue("ignored"));
+    ParamStore declaredParamsData = new BasicParamStore();
+    String fingerprint =
+        TemplateFragmentCache.fingerprintDeclaredParams(badge, callData, declaredParamsData);
+    assertThat(declaredParamsData.hasField("label")).isTrue();
+    assertThat(declaredParamsData.hasField("other")).isFalse();
+
+    // Map entry order doesn't matter.
+    ParamStore reorderedCallData = new BasicParamStore();
+    reorderedCallData.setField("label", valueHelper.convert(ImmutableMap.of("y", "2", "x", 1)));
+    assertThat(TemplateFragmentCache.fingerprintDeclaredParams(
+        badge, reorderedCallData, new BasicParamStore())).isEqualTo(fingerprint);
+
+    // Values of different types don't collide.
+    ParamStore listCallData = new BasicParamStore();
+    listCallData.setField("label", valueHelper.convert(ImmutableList.of("x", 1, "y", "2")));
+    assertThat(TemplateFragmentCache.fingerprintDeclaredParams(
+        badge, listCallData, new BasicParamStore())).isNotEqualTo(fingerprint);
+    ParamStore intCallData = new BasicParamStore();
+    intCallData.setField("label", valueHelper.convert(1));
+    ParamStore stringCallData = new BasicParamStore();
+    stringCallData.setField("label", valueHelper.convert("1"));
+    assertThat(TemplateFragmentCache.fingerprintDeclaredParams(
+        badge, intCallData, new BasicParamStore())).isNotEqualTo(
+            TemplateFragmentCache.fingerprintDeclaredParams(
+                badge, stringCallData, new BasicParamStore()));
+  }
+
+
+  private static BaseTofu compile(long fragmentCacheMaxBytes) {
+    SoyTofuOptions tofuOptions = new SoyTofuOptions();
+    tofuOptions.setFragmentCacheMaxBytes(fragmentCacheMaxBytes);
+    return (BaseTofu) SoyFileSet.builder().add(SOY_FILE_CONTENT, "test.soy").build()
+        .compileToTofu(tofuOptions);
+  }
+
+
+  private static String render(SoyTofu tofu, String... names) {
+    return render(tofu.newRenderer("ns.main"), names);
+  }
+
+
+  private static String render(SoyTofu.Renderer renderer, String... names) {
+    return renderer.setData(ImmutableMap.of("names", ImmutableList.copyOf(names))).render();
+  }
+
+}
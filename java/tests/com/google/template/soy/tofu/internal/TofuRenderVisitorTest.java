@@ -19,22 +19,61 @@ package com.google.template.soy.tofu.internal;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.google.inject.multibindings.Multibinder;
+import com.google.template.soy.SoyFileSet;
+import com.google.template.soy.SoyModule;
 import com.google.template.soy.basicdirectives.BasicDirectivesModule;
 import com.google.template.soy.basicfunctions.BasicFunctionsModule;
+import com.google.template.soy.data.SoyValue;
 import com.google.template.soy.data.SoyValueHelper;
+import com.google.template.soy.data.restricted.IntegerData;
+import com.google.template.soy.data.restricted.StringData;
+import com.google.template.soy.internal.base.Pair;
+import com.google.template.soy.internal.i18n.BidiGlobalDir;
+import com.google.template.soy.msgs.SoyMsgBundle;
+import com.google.template.soy.msgs.restricted.SoyMsg;
+import com.google.template.soy.msgs.restricted.SoyMsgBundleImpl;
+import com.google.template.soy.msgs.restricted.SoyMsgPart;
+import com.google.template.soy.msgs.restricted.SoyMsgPlaceholderPart;
+import com.google.template.soy.msgs.restricted.SoyMsgPluralCaseSpec;
+import com.google.template.soy.msgs.restricted.SoyMsgPluralPart;
+import com.google.template.soy.msgs.restricted.SoyMsgRawTextPart;
 import com.google.template.soy.shared.SharedTestUtils;
 import com.google.template.soy.shared.internal.SharedModule;
+import com.google.template.soy.shared.restricted.ApiCallScopeBindingAnnotations.LocaleString;
+import com.google.template.soy.shared.restricted.SoyApiCallScopeFree;
+import com.google.template.soy.shared.restricted.SoyFunction;
+import com.google.template.soy.shared.restricted.SoyJavaFunction;
+import com.google.template.soy.shared.restricted.SoyJavaRenderContextFunction;
+import com.google.template.soy.shared.restricted.SoyPureFunction;
+import com.google.template.soy.shared.restricted.SoyRenderContext;
 import com.google.template.soy.sharedpasses.SharedPassesModule;
 import com.google.template.soy.sharedpasses.render.RenderVisitor;
 import com.google.template.soy.sharedpasses.render.RenderVisitorFactory;
 import com.google.template.soy.soytree.SoyFileSetNode;
 import com.google.template.soy.soytree.TemplateRegistry;
+import com.google.template.soy.tofu.SoyTofu;
+import com.google.template.soy.tofu.SoyTofuException;
+import com.google.template.soy.tofu.SoyTofuOptions;
 
 import junit.framework.TestCase;
 
+import java.io.Flushable;
 import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
 
 /**
  * Unit tests for TofuRenderVisitor.
@@ -48,7 +87,131 @@ public class TofuRenderVisitorTest extends TestCase {
           new BasicDirectivesModule(), new BasicFunctionsModule());
 
 
+  /**
+   * Pure function that reads the bidi global directionality from the apiCallScope when it's
+   * preevaluated into the templates of cached template registries, and from the render context when
+   * rendering.
+   */
+  @SoyPureFunction
+  private static final class ScopedBidiGlobalDirFunction implements SoyJavaRenderContextFunction {
+
+    private final Provider<BidiGlobalDir> bidiGlobalDirProvider;
+
+    @Inject
+    ScopedBidiGlobalDirFunction(Provider<BidiGlobalDir> bidiGlobalDirProvider) {
+      this.bidiGlobalDirProvider = bidiGlobalDirProvider;
+    }
+
+    @Override public String getName() {
+      return "scopedBidiGlobalDir";
+    }
+
+    @Override public Set<Integer> getValidArgsSizes() {
+      return ImmutableSet.of(0);
+    }
+
+    @Override public SoyValue computeForJava(List<SoyValue> args) {
+      return IntegerData.forValue(bidiGlobalDirProvider.get().getStaticValue());
+    }
+
+    @Override public SoyValue computeForJava(List<SoyValue> args, SoyRenderContext renderContext) {
+      return IntegerData.forValue(renderContext.getBidiGlobalDir().getStaticValue());
+    }
+  }
+
+
+  /** Function that only reads the locale from the apiCallScope, as plugins did before there was a
+   *  render context. */
+  private static final class ScopedLocaleFunction implements SoyJavaFunction {
+
+    private final Provider<String> localeStringProvider;
+
+    @Inject
+    ScopedLocaleFunction(@LocaleString Provider<String> localeStringProvider) {
+      this.localeStringProvider = localeStringProvider;
+    }
+
+    @Override public String getName() {
+      return "scopedLocale";
+    }
+
+    @Override public Set<Integer> getValidArgsSizes() {
+      return ImmutableSet.of(0);
+    }
+
+    @Override public SoyValue computeForJava(List<SoyValue> args) {
+      return StringData.forValue(String.valueOf(localeStringProvider.get()));
+    }
+  }
+
+
+  /** Function that doesn't read anything from the apiCallScope, and says so. */
+  @SoyApiCallScopeFree
+  private static final class ScopeFreeFunction implements SoyJavaFunction {
+
+    @Override public String getName() {
+      return "scopeFree";
+    }
+
+    @Override public Set<Integer> getValidArgsSizes() {
+      return ImmutableSet.of(0);
+    }
+
+    @Override public SoyValue computeForJava(List<SoyValue> args) {
+      return StringData.forValue("free");
+    }
+  }
+
+
+  /** Module installing the test functions that read values from the apiCallScope. */
+  private static final class ScopedFunctionsModule extends AbstractModule {
+    @Override protected void configure() {
+      Multibinder<SoyFunction> soyFunctionsSetBinder =
+          Multibinder.newSetBinder(binder(), SoyFunction.class);
+      soyFunctionsSetBinder.addBinding().to(ScopedBidiGlobalDirFunction.class);
+      soyFunctionsSetBinder.addBinding().to(ScopedLocaleFunction.class);
+    }
+  }
+
+
   // TODO: Does this belong in RenderVisitorTest instead?
+  /**
+   * Appendable that records its output at each flush. The renderer flushes before blocking on an
+   * unfinished future, so the flushes show how much output was written before the block. The
+   * future is set on the first flush, which simulates the value arriving while the output is sent.
+   */
+  private static final class FlushRecordingAppendable implements Appendable, Flushable {
+
+    final StringBuilder output = new StringBuilder();
+    final List<String> flushedOutputs = Lists.newArrayList();
+    private final SettableFuture<String> futureToSetOnFlush;
+
+    FlushRecordingAppendable(SettableFuture<String> futureToSetOnFlush) {
+      this.futureToSetOnFlush = futureToSetOnFlush;
+    }
+
+    @Override public Appendable append(CharSequence csq) {
+      output.append(csq);
+      return this;
+    }
+
+    @Override public Appendable append(CharSequence csq, int start, int end) {
+      output.append(csq, start, end);
+      return this;
+    }
+
+    @Override public Appendable append(char c) {
+      output.append(c);
+      return this;
+    }
+
+    @Override public void flush() {
+      flushedOutputs.add(output.toString());
+      futureToSetOnFlush.set("slow");
+    }
+  }
+
+
   public void testLetWithinParam() throws Exception {
 
     String soyFileContent = "" +
@@ -79,10 +242,234 @@ public class TofuRenderVisitorTest extends TestCase {
     StringBuilder outputSb = new StringBuilder();
     RenderVisitor rv = INJECTOR.getInstance(RenderVisitorFactory.class).create(
         outputSb, templateRegistry, SoyValueHelper.EMPTY_DICT, null,
-        Collections.<String>emptySet(), null, null, null);
+        Collections.<String>emptySet(), null, null, null, null);
     rv.exec(templateRegistry.getBasicTemplate("ns.callerTemplate"));
 
     assertThat(outputSb.toString()).isEqualTo("blah");
   }
 
+
+  public void testRenderContextFunctionsAndDirectives() throws Exception {
+
+    String soyFileContent = "" +
+        "{namespace ns autoescape=\"strict\"}\n" +
+        "\n" +
+        "/** @param n */\n" +
+        "{template .main}\n" +
+        "  {bidiStartEdge()} {bidiGlobalDir()} {$n |formatNum}\n" +
+        "{/template}\n";
+
+    for (boolean isCaching : new boolean[] {false, true}) {
+      SoyTofuOptions tofuOptions = new SoyTofuOptions();
+      tofuOptions.setUseCaching(isCaching);
+      SoyTofu tofu =
+          SoyFileSet.builder().add(soyFileContent, "test.soy").build().compileToTofu(tofuOptions);
+      SoyTofu.Renderer renderer =
+          tofu.newRenderer("ns.main").setData(ImmutableMap.of("n", 1234.5));
+
+      // Each render gets the bidi global directionality and locale of its own msg bundle.
+      assertThat(renderer.render()).isEqualTo("left 1 1,234.5");
+      assertThat(renderer.setMsgBundle(new SoyMsgBundleImpl("he", ImmutableList.<SoyMsg>of()))
+          .render()).isEqualTo("right -1 1,234.5");
+      assertThat(renderer.setMsgBundle(new SoyMsgBundleImpl("de", ImmutableList.<SoyMsg>of()))
+          .render()).isEqualTo("left 1 1.234,5");
+    }
+  }
+
+
+  public void testScopedFunctionsWithCaching() throws Exception {
+
+    String soyFileContent = "" +
+        "{namespace ns autoescape=\"strict\"}\n" +
+        "\n" +
+        "/***/\n" +
+        "{template .main}\n" +
+        "  {scopedBidiGlobalDir()}\n" +
+        "{/template}\n";
+
+    SoyFileSet.Builder sfsBuilder =
+        Guice.createInjector(new SoyModule(), new ScopedFunctionsModule())
+            .getInstance(SoyFileSet.Builder.class);
+    SoyTofuOptions tofuOptions = new SoyTofuOptions();
+    tofuOptions.setUseCaching(true);
+    SoyTofu tofu = sfsBuilder.add(soyFileContent, "test.soy").build().compileToTofu(tofuOptions);
+
+    // The templates shared by the cached registries of all locales aren't simplified for the
+    // directionality of the first locale.
+    SoyTofu.Renderer renderer = tofu.newRenderer("ns.main");
+    assertThat(renderer.render()).isEqualTo("1");
+    assertThat(renderer.setMsgBundle(new SoyMsgBundleImpl("he", ImmutableList.<SoyMsg>of()))
+        .render()).isEqualTo("-1");
+  }
+
+
+  public void testFunctionsReadingApiCallScope() throws Exception {
+
+    // The plugins that come with Soy all use the render context or are annotated
+    // SoyApiCallScopeFree, as may other plugins be.
+    assertThat(Guice.createInjector(new SoyModule()).getInstance(TofuRenderVisitorFactory.class)
+        .isApiCallScopeNeeded()).isFalse();
+    assertThat(Guice.createInjector(new SoyModule(), new AbstractModule() {
+      @Override protected void configure() {
+        Multibinder.newSetBinder(binder(), SoyFunction.class).addBinding()
+            .to(ScopeFreeFunction.class);
+      }
+    }).getInstance(TofuRenderVisitorFactory.class).isApiCallScopeNeeded()).isFalse();
+
+    String soyFileContent = "" +
+        "{namespace ns autoescape=\"strict\"}\n" +
+        "\n" +
+        "/***/\n" +
+        "{template .main}\n" +
+        "  {scopedLocale()}\n" +
+        "{/template}\n";
+
+    Injector injector = Guice.createInjector(new SoyModule(), new ScopedFunctionsModule());
+    assertThat(injector.getInstance(TofuRenderVisitorFactory.class).isApiCallScopeNeeded())
+        .isTrue();
+    for (boolean isCaching : new boolean[] {false, true}) {
+      SoyTofuOptions tofuOptions = new SoyTofuOptions();
+      tofuOptions.setUseCaching(isCaching);
+      SoyTofu tofu = injector.getInstance(SoyFileSet.Builder.class)
+          .add(soyFileContent, "test.soy").build().compileToTofu(tofuOptions);
+      SoyTofu.Renderer renderer = tofu.newRenderer("ns.main");
+
+      // The apiCallScope is seeded for each render.
+      assertThat(renderer.render()).isEqualTo("null");
+      assertThat(renderer.setMsgBundle(new SoyMsgBundleImpl("de", ImmutableList.<SoyMsg>of()))
+          .render()).isEqualTo("de");
+      assertThat(renderer.setMsgBundle(new SoyMsgBundleImpl("fr", ImmutableList.<SoyMsg>of()))
+          .render()).isEqualTo("fr");
+    }
+  }
+
+
+  public void testStreamingSingleUseLetContent() throws Exception {
+
+    String soyFileContent = "" +
+        "{namespace ns autoescape=\"strict\"}\n" +
+        "\n" +
+        "/** @param slow */\n" +
+        "{template .streamed}\n" +
+        "  {let $content kind=\"html\"}<b>{$slow}</b>{/let}\n" +
+        "  <p>{$content}</p>\n" +
+        "{/template}\n" +
+        "\n" +
+        "/** @param slow */\n" +
+        "{template .buffered}\n" +
+        "  {let $content kind=\"html\"}<b>{$slow}</b>{/let}\n" +
+        "  <p>{$content |changeNewlineToBr}</p>\n" +
+        "{/template}\n";
+    SoyTofu tofu =
+        SoyFileSet.builder().add(soyFileContent, "test.soy").build().compileToTofu();
+
+    // The let content is printed once, so it's rendered straight into the output: the part before
+    // the future is flushed before blocking on it.
+    SettableFuture<String> slow = SettableFuture.create();
+    FlushRecordingAppendable out = new FlushRecordingAppendable(slow);
+    tofu.newRenderer("ns.streamed").setData(ImmutableMap.of("slow", slow)).render(out);
+    assertThat(out.flushedOutputs).isEqualTo(ImmutableList.of("<p><b>"));
+    assertThat(out.output.toString()).isEqualTo("<p><b>slow</b></p>");
+
+    // A directive that needs the content as a string makes the renderer buffer it, so only the
+    // output before the let content is flushed, and the output is the same.
+    slow = SettableFuture.create();
+    out = new FlushRecordingAppendable(slow);
+    tofu.newRenderer("ns.buffered").setData(ImmutableMap.of("slow", slow)).render(out);
+    assertThat(out.flushedOutputs).isEqualTo(ImmutableList.of("<p>"));
+    assertThat(out.output.toString()).isEqualTo("<p><b>slow</b></p>");
+  }
+
+
+  public void testTranslatedPlrselMsgs() throws Exception {
+
+    String soyFileContent = "" +
+        "{namespace ns autoescape=\"strict\"}\n" +
+        "\n" +
+        "/** @param n */\n" +
+        "{template .main}\n" +
+        "  {msg desc=\"\"}\n" +
+        "    {plural $n}{case 1}one friend{default}{$n} friends{/plural}\n" +
+        "  {/msg}\n" +
+        "{/template}\n";
+
+    SoyFileSet soyFileSet = SoyFileSet.builder().add(soyFileContent, "test.soy").build();
+    long msgId = Iterables.getOnlyElement(soyFileSet.extractMsgs()).getId();
+    // Translation (ru): uses the plural keywords of the locale rather than explicit numbers.
+    SoyMsgBundle msgBundle = new SoyMsgBundleImpl("ru", ImmutableList.of(new SoyMsg(
+        msgId, "ru", true, ImmutableList.<SoyMsgPart>of(new SoyMsgPluralPart("N_1", 0,
+            ImmutableList.of(
+                Pair.<SoyMsgPluralCaseSpec, ImmutableList<SoyMsgPart>>of(
+                    new SoyMsgPluralCaseSpec("one"),
+                    ImmutableList.<SoyMsgPart>of(
+                        new SoyMsgPlaceholderPart("N_2"), SoyMsgRawTextPart.of(" drug"))),
+                Pair.<SoyMsgPluralCaseSpec, ImmutableList<SoyMsgPart>>of(
+                    new SoyMsgPluralCaseSpec("few"),
+                    ImmutableList.<SoyMsgPart>of(
+                        new SoyMsgPlaceholderPart("N_2"), SoyMsgRawTextPart.of(" druga"))),
+                Pair.<SoyMsgPluralCaseSpec, ImmutableList<SoyMsgPart>>of(
+                    new SoyMsgPluralCaseSpec("other"),
+                    ImmutableList.<SoyMsgPart>of(
+                        new SoyMsgPlaceholderPart("N_2"), SoyMsgRawTextPart.of(" druzey")))))))));
+
+    // The cached template registry renders the msg from the translation it resolved ahead of time,
+    // the same way rendering without caching looks it up in the msg bundle.
+    for (boolean isCaching : new boolean[] {false, true}) {
+      SoyTofuOptions tofuOptions = new SoyTofuOptions();
+      tofuOptions.setUseCaching(isCaching);
+      SoyTofu tofu = soyFileSet.compileToTofu(tofuOptions);
+      SoyTofu.Renderer renderer = tofu.newRenderer("ns.main").setMsgBundle(msgBundle);
+
+      assertThat(renderer.setData(ImmutableMap.of("n", 21)).render()).isEqualTo("21 drug");
+      assertThat(renderer.setData(ImmutableMap.of("n", 3)).render()).isEqualTo("3 druga");
+      assertThat(renderer.setData(ImmutableMap.of("n", 5)).render()).isEqualTo("5 druzey");
+      assertThat(renderer.setMsgBundle(null).setData(ImmutableMap.of("n", 1)).render())
+          .isEqualTo("one friend");
+    }
+  }
+
+
+  public void testSwapMsgBundle() throws Exception {
+
+    String soyFileContent = "" +
+        "{namespace ns autoescape=\"strict\"}\n" +
+        "\n" +
+        "/***/\n" +
+        "{template .main}\n" +
+        "  {msg desc=\"\"}Hello{/msg}\n" +
+        "{/template}\n";
+
+    SoyFileSet soyFileSet = SoyFileSet.builder().add(soyFileContent, "test.soy").build();
+    long msgId = Iterables.getOnlyElement(soyFileSet.extractMsgs()).getId();
+    SoyMsgBundle oldMsgBundle = new SoyMsgBundleImpl("de", ImmutableList.of(new SoyMsg(
+        msgId, "de", false, ImmutableList.<SoyMsgPart>of(SoyMsgRawTextPart.of("Hallo")))));
+    SoyMsgBundle newMsgBundle = new SoyMsgBundleImpl("de", ImmutableList.of(new SoyMsg(
+        msgId, "de", false, ImmutableList.<SoyMsgPart>of(SoyMsgRawTextPart.of("Servus")))));
+
+    for (boolean isCaching : new boolean[] {false, true}) {
+      SoyTofuOptions tofuOptions = new SoyTofuOptions();
+      tofuOptions.setUseCaching(isCaching);
+      SoyTofu tofu = soyFileSet.compileToTofu(tofuOptions);
+      SoyTofu.Renderer renderer = tofu.newRenderer("ns.main").setLocale("de");
+
+      // Rendering fails without a current bundle for the locale.
+      try {
+        renderer.render();
+        fail();
+      } catch (SoyTofuException expected) {}
+      tofu.swapMsgBundle(oldMsgBundle);
+      assertThat(renderer.render()).isEqualTo("Hallo");
+      tofu.swapMsgBundle(newMsgBundle);
+      assertThat(renderer.render()).isEqualTo("Servus");
+      try {
+        tofu.newRenderer("ns.main").setLocale("fr").render();
+        fail();
+      } catch (SoyTofuException expected) {}
+
+      // The replaced bundle can still be rendered with explicitly.
+      assertThat(tofu.newRenderer("ns.main").setMsgBundle(oldMsgBundle).render())
+          .isEqualTo("Hallo");
+    }
+  }
+
 }
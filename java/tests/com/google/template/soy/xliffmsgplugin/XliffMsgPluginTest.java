@@ -81,6 +81,11 @@ public class XliffMsgPluginTest extends TestCase {
     assertEquals(
         Resources.toString(expectedExtractedMsgsFile, UTF_8),
         extractedMsgsFile.toString());
+
+    // Test streaming the file.
+    StringBuilder streamedMsgsFile = new StringBuilder();
+    msgPlugin.writeExtractedMsgsFile(msgBundle, outputFileOptions, streamedMsgsFile);
+    assertEquals(extractedMsgsFile.toString(), streamedMsgsFile.toString());
   }
 
 